@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare a filtered scan over an {@link OfferColumns} store with the same filter applied to a list of {@link Offer}
+ * entities, and the first page of the same scan sorted by price.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ *
+ * @author mneri
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class OfferColumnsBenchmark {
+    private static final String[] CURRENCIES = {"GBP", "EUR", "USD", "JPY", "CHF"};
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private OfferColumns columns;
+
+    private List<Offer> offers;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    private long now;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        // The minimum cost: the passwords are only hashed during the setup.
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+        List<User> publishers = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            publishers.add(new User("user" + i, "secret", passwordEncoder));
+        }
+
+        columns = new OfferColumns();
+        offers = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            Offer offer = Offer.builder()
+                    .title("Title")
+                    .description("Description")
+                    .price(BigDecimal.valueOf(random.nextInt(100_000), 2))
+                    .currency(CURRENCIES[random.nextInt(CURRENCIES.length)])
+                    .ttl(random.nextInt(2 * 60 * 60 * 1000) - 60 * 60 * 1000)
+                    .publisher(publishers.get(random.nextInt(publishers.size())))
+                    .build();
+            offer.setCanceled(random.nextInt(10) == 0);
+            offers.add(offer);
+            columns.put(offer.getId(), offer.getCreateTime().getTime(), offer.getEndTime().getTime(), offer.getPrice(),
+                    offer.getCurrency(), offer.isCanceled());
+        }
+
+        minPrice = new BigDecimal("100.00");
+        maxPrice = new BigDecimal("250.00");
+        now = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public int entityList() {
+        Date date = new Date(now);
+        int count = 0;
+
+        for (Offer offer : offers) {
+            if (!offer.isCanceled()
+                    && offer.getEndTime().after(date)
+                    && offer.getPrice().compareTo(minPrice) >= 0
+                    && offer.getPrice().compareTo(maxPrice) <= 0
+                    && offer.getCurrency().equals("GBP")) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    public int columns() {
+        return columns.count(OfferScan.builder()
+                .now(now)
+                .minPriceMinorUnits(OfferColumns.toMinorUnits(minPrice))
+                .maxPriceMinorUnits(OfferColumns.toMinorUnits(maxPrice))
+                .currency("GBP")
+                .build());
+    }
+
+    @Benchmark
+    public OfferScanResult columnsPage() {
+        return columns.scan(OfferScan.builder()
+                .now(now)
+                .minPriceMinorUnits(OfferColumns.toMinorUnits(minPrice))
+                .maxPriceMinorUnits(OfferColumns.toMinorUnits(maxPrice))
+                .currency("GBP")
+                .build(), OfferColumns.Order.PRICE, false, 0, 20);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.mapping.MappingConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare payload size and encode/decode throughput of the representations supported by the API for a list of
+ * {@link OfferDto}s.
+ * <p>
+ * Run with {@code ./gradlew jmh}; the payload size of each format is reported by the {@code encode} benchmark as the
+ * {@code bytes} secondary result.
+ *
+ * @author mneri
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class FormatBenchmark {
+    private static final TypeReference<List<OfferDto>> OFFER_DTO_LIST = new TypeReference<List<OfferDto>>() {
+    };
+
+    @Param({"json", "cbor", "smile", "protobuf"})
+    private String format;
+
+    @Param({"1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+
+    private List<OfferDto> offers;
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        User publisher = new User("user", "secret", new BCryptPasswordEncoder());
+        List<Offer> entities = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            entities.add(Offer.builder()
+                    .title("Title " + i)
+                    .description("Description of the offer number " + i)
+                    .price(BigDecimal.valueOf(random.nextInt(100_000), 2))
+                    .currency("GBP")
+                    .ttl(random.nextInt(86_400_000))
+                    .publisher(publisher)
+                    .build());
+        }
+
+        offers = new MappingConfiguration().generatedDtoMapper().toOfferDtoList(entities);
+
+        switch (format) {
+            case "cbor":
+                objectMapper = new ObjectMapper(new CBORFactory());
+                break;
+            case "smile":
+                objectMapper = new ObjectMapper(new SmileFactory());
+                break;
+            default:
+                objectMapper = new ObjectMapper();
+        }
+
+        payload = write().toByteArray();
+    }
+
+    private ByteArrayOutputStream write() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(payload == null ? 8192 : payload.length);
+
+        if (format.equals("protobuf")) {
+            ProtobufCodec.writeOffers(offers, output);
+        } else {
+            objectMapper.writeValue(output, offers);
+        }
+
+        return output;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream encode(PayloadSize payloadSize) throws IOException {
+        ByteArrayOutputStream output = write();
+        payloadSize.bytes = output.size();
+        return output;
+    }
+
+    @Benchmark
+    public List<OfferDto> decode() throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(payload);
+
+        if (format.equals("protobuf")) {
+            return ProtobufCodec.readOffers(input);
+        }
+
+        return objectMapper.readValue(input, OFFER_DTO_LIST);
+    }
+
+    /**
+     * Secondary result of the {@code encode} benchmark: the size of the encoded payload. The counter is set, not
+     * incremented, so that it is reported as it is.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+        public long bytes;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.mapping.DtoMapper;
+import me.mneri.offer.mapping.MappingConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare writing a list of {@link Offer}s through {@link OfferDto}s with writing it through {@link OfferList}.
+ * <p>
+ * Run with {@code ./gradlew jmh}; the {@code gc} profiler reports the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}), divide it by {@code size} to get the bytes allocated per offer.
+ *
+ * @author mneri
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class OfferSerializationBenchmark {
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private DtoMapper dtoMapper;
+
+    private ObjectMapper objectMapper;
+
+    private List<Offer> offers;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        User publisher = new User("user", "secret", new BCryptPasswordEncoder());
+
+        dtoMapper = new MappingConfiguration().generatedDtoMapper();
+        objectMapper = new ObjectMapper();
+        offers = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            offers.add(Offer.builder()
+                    .title("Title " + i)
+                    .description("Description of the offer number " + i)
+                    .price(BigDecimal.valueOf(random.nextInt(100_000), 2))
+                    .currency("GBP")
+                    .ttl(random.nextInt(86_400_000))
+                    .publisher(publisher)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void dto() throws IOException {
+        objectMapper.writeValue(DISCARD, dtoMapper.toOfferDtoList(offers));
+    }
+
+    @Benchmark
+    public void direct() throws IOException {
+        objectMapper.writeValue(DISCARD, new OfferList(offers));
+    }
+}
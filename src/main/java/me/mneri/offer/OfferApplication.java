@@ -20,12 +20,14 @@ package me.mneri.offer;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main class and starting point of the application.
  *
  * @author mneri
  */
+@EnableScheduling
 @SpringBootApplication
 public class OfferApplication {
     /**
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.concurrent;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * A concurrent map whose entries expire after a fixed time and whose size is bounded.
+ * <p>
+ * Expired entries are never returned; they are physically removed by {@link #purge()}, which is expected to be called
+ * periodically. When the map grows beyond its maximum size the oldest insertions are evicted first.
+ * <p>
+ * Instances of this class are thread safe.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ * @author mneri
+ */
+public class ExpiringMap<K, V> {
+    private final LongSupplier clock;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final Queue<K> insertions = new ConcurrentLinkedQueue<>();
+
+    private final int maxSize;
+
+    private final long ttl;
+
+    /**
+     * Create a new instance.
+     *
+     * @param maxSize The maximum number of entries.
+     * @param ttl     The time to live of the entries in milliseconds.
+     */
+    public ExpiringMap(int maxSize, long ttl) {
+        this(maxSize, ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * Create a new instance with the specified clock.
+     *
+     * @param maxSize The maximum number of entries.
+     * @param ttl     The time to live of the entries in milliseconds.
+     * @param clock   The clock returning the current time in milliseconds.
+     */
+    public ExpiringMap(int maxSize, long ttl, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    private void evict() {
+        while (entries.size() > maxSize) {
+            K eldest = insertions.poll();
+
+            if (eldest == null) {
+                break;
+            }
+
+            entries.remove(eldest);
+        }
+    }
+
+    /**
+     * Return the value associated with the specified key.
+     *
+     * @param key The key.
+     * @return The value, or {@code null} if there's no value for the key or if it expired.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null || entry.isExpired(clock.getAsLong()) ? null : entry.value;
+    }
+
+    /**
+     * Remove the expired entries.
+     */
+    public void purge() {
+        long now = clock.getAsLong();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        insertions.removeIf(key -> !entries.containsKey(key));
+    }
+
+    /**
+     * Associate the specified value with the specified key.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void put(K key, V value) {
+        if (entries.put(key, new Entry<>(value, clock.getAsLong() + ttl)) == null) {
+            insertions.add(key);
+            evict();
+        }
+    }
+
+    /**
+     * Associate the specified value with the specified key, unless the key is already associated with a value that
+     * didn't expire.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return The current value, or {@code null} if the specified value was associated with the key.
+     */
+    public V putIfAbsent(K key, V value) {
+        Entry<V> entry = new Entry<>(value, clock.getAsLong() + ttl);
+
+        while (true) {
+            Entry<V> current = entries.putIfAbsent(key, entry);
+
+            if (current == null) {
+                insertions.add(key);
+                evict();
+                return null;
+            }
+
+            if (!current.isExpired(clock.getAsLong())) {
+                return current.value;
+            }
+
+            if (entries.replace(key, current, entry)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Remove the value associated with the specified key.
+     *
+     * @param key The key.
+     */
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Return the number of entries, including the expired ones not yet purged.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Entry<V> {
+        final long expireTime;
+
+        final V value;
+
+        Entry(V value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expireTime;
+        }
+    }
+}
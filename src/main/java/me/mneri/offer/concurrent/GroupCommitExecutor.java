@@ -0,0 +1,367 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group calls arriving within a short window and execute them in a single transaction.
+ * <p>
+ * Callers block until their call has been committed. A dispatcher thread takes the first pending call, waits up to
+ * the window for more calls to arrive (or until the batch is full) and runs the whole batch inside one
+ * {@link Transaction}: the cost of the commit is paid once per batch instead of once per call.
+ * <p>
+ * Every caller receives its own result or its own exception. A call failing with a checked exception doesn't affect
+ * the others: its exception is handed to its caller and the batch goes on. A call failing with an unchecked exception,
+ * or a failing commit, rolls the whole batch back; the calls in the batch are then executed again one by one, each in
+ * its own transaction, so that a single bad call doesn't fail its neighbours.
+ * <p>
+ * Calls must therefore be safe to execute again after a rollback. An {@link Error} is not a failure of the calls: it
+ * stops the dispatcher, and the calls not yet committed are rejected.
+ * <p>
+ * Instances of this class are thread safe.
+ *
+ * @author mneri
+ */
+public class GroupCommitExecutor implements AutoCloseable {
+    private static final long POLL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Thread dispatcher;
+
+    private final Listener listener;
+
+    private final int maxBatchSize;
+
+    private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+
+    private volatile boolean running = true;
+
+    private final Transaction transaction;
+
+    private final long windowNanos;
+
+    /**
+     * Create a new instance.
+     *
+     * @param name         The name of the dispatcher thread.
+     * @param window       The time the dispatcher waits for more calls after the first one of a batch.
+     * @param unit         The unit of the window.
+     * @param maxBatchSize The maximum number of calls in a batch.
+     * @param transaction  The transaction each batch is executed in.
+     * @param listener     The listener.
+     */
+    public GroupCommitExecutor(String name, long window, TimeUnit unit, int maxBatchSize, Transaction transaction,
+                               Listener listener) {
+        if (window < 0) {
+            throw new IllegalArgumentException("Window must not be negative: " + window);
+        }
+
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+        }
+
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.transaction = transaction;
+        this.listener = listener;
+
+        dispatcher = new Thread(this::run, name);
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> Object await(CompletableFuture<Object> future) throws E {
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // The call is already queued and may be committed: wait for the outcome and restore the flag.
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        // Checked exceptions are only thrown by the call itself, hence of the declared type.
+                        throw (E) cause;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stop accepting calls and wait for the pending ones to be committed. If interrupted while waiting, the calls not
+     * yet taken by the dispatcher are rejected and the interrupt flag is restored.
+     */
+    @Override
+    public void close() {
+        running = false;
+
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(new ArrayList<>(), new RejectedExecutionException("Group commit executor is closed"));
+            return;
+        }
+
+        // Calls enqueued by callers racing with the shutdown
+        List<Task<?>> batch = new ArrayList<>(maxBatchSize);
+
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            execute(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Execute the specified call in the next batch and wait for the batch to be committed.
+     *
+     * @param call The call.
+     * @param <V>  The type of the result.
+     * @param <E>  The type of the checked exception thrown by the call.
+     * @return The result of the call.
+     * @throws E                          If the call throws.
+     * @throws RejectedExecutionException If the executor is closed.
+     */
+    @SuppressWarnings("unchecked")
+    public <V, E extends Exception> V execute(Call<V, E> call) throws E {
+        if (!running) {
+            throw new RejectedExecutionException("Group commit executor is closed");
+        }
+
+        Task<V> task = new Task<>(call);
+        queue.add(task);
+
+        // Raced with close(): if the task is still in the queue nobody is going to execute it.
+        if (!running && queue.remove(task)) {
+            throw new RejectedExecutionException("Group commit executor is closed");
+        }
+
+        return (V) await(task.future);
+    }
+
+    private void execute(List<Task<?>> batch) {
+        long now = System.nanoTime();
+
+        listener.onBatch(batch.size());
+        batch.forEach(task -> listener.onWait(now - task.submitTime));
+
+        try {
+            transaction.execute(() -> batch.forEach(Task::call));
+            batch.forEach(Task::complete);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).fail(e);
+                return;
+            }
+
+            for (Task<?> task : batch) {
+                try {
+                    transaction.execute(task::call);
+                    task.complete();
+                } catch (RuntimeException e1) {
+                    task.fail(e1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fail the specified calls and the ones waiting for a batch, which nobody is going to execute.
+     *
+     * @param rejected  The calls taken from the queue but not completed; the list is modified.
+     * @param exception The exception to fail the calls with.
+     */
+    private void reject(List<Task<?>> rejected, RejectedExecutionException exception) {
+        queue.drainTo(rejected);
+        rejected.forEach(task -> task.fail(exception));
+    }
+
+    /**
+     * Return the number of calls waiting for a batch.
+     *
+     * @return The number of pending calls.
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Task<?>> batch = new ArrayList<>(maxBatchSize);
+
+        while (running) {
+            try {
+                Task<?> first = queue.poll(POLL_TIMEOUT, TimeUnit.NANOSECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = first.submitTime + windowNanos;
+
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+
+                    Task<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                    if (next == null) {
+                        break;
+                    }
+
+                    batch.add(next);
+                }
+
+                execute(batch);
+            } catch (InterruptedException e) {
+                // Nobody but close() stops the dispatcher: pending calls are left to it.
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Error e) {
+                // Not a failure of the calls: the dispatcher dies, and nothing is going to execute the pending calls.
+                running = false;
+                reject(new ArrayList<>(batch), new RejectedExecutionException("Group commit executor failed", e));
+                throw e;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * A call executed in a batch.
+     *
+     * @param <V> The type of the result.
+     * @param <E> The type of the checked exception thrown by the call.
+     */
+    @FunctionalInterface
+    public interface Call<V, E extends Exception> {
+        /**
+         * Execute the call.
+         *
+         * @return The result.
+         * @throws E If the call fails.
+         */
+        V call() throws E;
+    }
+
+    /**
+     * Listener notified of every batch.
+     */
+    public interface Listener {
+        /**
+         * Invoked before a batch is executed.
+         *
+         * @param size The number of calls in the batch.
+         */
+        void onBatch(int size);
+
+        /**
+         * Invoked for every call in a batch, before the batch is executed.
+         *
+         * @param nanos The time the call waited for its batch, in nanoseconds.
+         */
+        void onWait(long nanos);
+    }
+
+    /**
+     * The transaction a batch is executed in.
+     */
+    @FunctionalInterface
+    public interface Transaction {
+        /**
+         * Execute the specified work in a new transaction and commit it.
+         * <p>
+         * If the work throws, the transaction must be rolled back and the exception rethrown.
+         *
+         * @param work The work.
+         */
+        void execute(Runnable work);
+    }
+
+    private static class Task<V> {
+        private final Call<V, ?> call;
+
+        private Exception exception;
+
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private V result;
+
+        private final long submitTime = System.nanoTime();
+
+        private Task(Call<V, ?> call) {
+            this.call = call;
+        }
+
+        /**
+         * Execute the call inside the current transaction. Checked exceptions are kept for the caller; unchecked
+         * exceptions are rethrown so that the transaction is rolled back.
+         */
+        private void call() {
+            exception = null;
+            result = null;
+
+            try {
+                result = call.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                exception = e;
+            }
+        }
+
+        private void complete() {
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        private void fail(Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+}
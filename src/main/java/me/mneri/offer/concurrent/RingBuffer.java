@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, FIFO ring buffer.
+ * <p>
+ * Each slot carries a sequence number telling producers and consumers whether the slot is free for the current lap or
+ * holds an element ready to be consumed; producers and consumers claim slots by advancing the tail and the head with
+ * a compare-and-set, so no lock is ever taken. The buffer never blocks: {@link #offer(Object)} returns {@code false}
+ * when the buffer is full and {@link #poll()} returns {@code null} when it is empty, leaving to the caller the choice
+ * of what to do.
+ * <p>
+ * Instances of this class are thread safe, for any number of producers and consumers.
+ *
+ * @param <E> The type of the elements.
+ * @author mneri
+ */
+public class RingBuffer<E> {
+    private final int capacity;
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final int mask;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Create a new instance.
+     *
+     * @param capacity The capacity of the buffer; it must be a power of two.
+     * @throws IllegalArgumentException If the capacity is not a positive power of two.
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a positive power of two: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Return the capacity of the buffer.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Remove at most {@code max} elements from the buffer and add them to the specified collection.
+     *
+     * @param collection The collection.
+     * @param max        The maximum number of elements to remove.
+     * @return The number of elements removed.
+     */
+    public int drainTo(Collection<? super E> collection, int max) {
+        int count = 0;
+        E element;
+
+        while (count < max && (element = poll()) != null) {
+            collection.add(element);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Insert the specified element at the tail of the buffer, if there is room for it.
+     *
+     * @param element The element.
+     * @return {@code true} if the element was inserted, {@code false} if the buffer is full.
+     * @throws NullPointerException If the element is {@code null}.
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+
+        long position = tail.get();
+
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+
+                position = tail.get();
+            } else if (difference < 0) {
+                // The slot still holds the element of the previous lap: the buffer is full
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the element at the head of the buffer.
+     *
+     * @return The element or {@code null} if the buffer is empty.
+     */
+    public E poll() {
+        long position = head.get();
+
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, position + capacity);
+                    return element;
+                }
+
+                position = head.get();
+            } else if (difference < 0) {
+                // The slot hasn't been filled yet in this lap: the buffer is empty
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Return the number of elements in the buffer. The value is only an estimate while the buffer is being modified.
+     *
+     * @return The number of elements.
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+}
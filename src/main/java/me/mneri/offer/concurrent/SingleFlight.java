@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesce concurrent identical calls into a single execution.
+ * <p>
+ * The first caller for a given key (the leader) executes the call; callers arriving with the same key while the call
+ * is in flight wait for it and share its result or its exception. Once the call completes the key is forgotten, so
+ * the next caller triggers a new execution: results are never cached.
+ * <p>
+ * A shared result can be handed to each follower through a share function, typically a copy, so that callers never
+ * see the same mutable instance. The leader receives the result as it is, and nothing is shared if no caller joined.
+ * <p>
+ * Instances of this class are thread safe.
+ *
+ * @param <K> The type of the keys.
+ * @author mneri
+ */
+public class SingleFlight<K> {
+    private final ConcurrentMap<K, Flight> calls = new ConcurrentHashMap<>();
+
+    private final Listener listener;
+
+    /**
+     * Create a new instance.
+     */
+    public SingleFlight() {
+        this(coalesced -> {
+        });
+    }
+
+    /**
+     * Create a new instance notifying the specified listener of every call.
+     *
+     * @param listener The listener.
+     */
+    public SingleFlight(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Execute the specified call, or wait for the in-flight call with the same key.
+     *
+     * @param key  The key identifying the call.
+     * @param call The call.
+     * @param <V>  The type of the result.
+     * @param <E>  The type of the checked exception thrown by the call.
+     * @return The result of the call.
+     * @throws E If the call throws.
+     */
+    public <V, E extends Exception> V execute(K key, Call<V, E> call) throws E {
+        return execute(key, call, UnaryOperator.identity());
+    }
+
+    /**
+     * Execute the specified call, or wait for the in-flight call with the same key, handing each caller its own share
+     * of the result.
+     * <p>
+     * If other callers joined, the leader takes a snapshot of the result with the share function before returning it,
+     * and each follower receives the share function applied to the snapshot, in its own thread.
+     *
+     * @param key   The key identifying the call.
+     * @param call  The call.
+     * @param share The function giving a caller its own share of a result.
+     * @param <V>   The type of the result.
+     * @param <E>   The type of the checked exception thrown by the call.
+     * @return The result of the call.
+     * @throws E If the call throws.
+     */
+    @SuppressWarnings("unchecked")
+    public <V, E extends Exception> V execute(K key, Call<V, E> call, UnaryOperator<V> share) throws E {
+        Flight flight = new Flight();
+        Flight current = calls.compute(key, (k, inFlight) -> {
+            if (inFlight == null) {
+                return flight;
+            }
+
+            inFlight.followers.incrementAndGet();
+            return inFlight;
+        });
+
+        if (current != flight) {
+            listener.onCall(true);
+            return share.apply((V) await(current.future));
+        }
+
+        listener.onCall(false);
+
+        try {
+            V result = call.call();
+            // Once the call is removed no caller can join it anymore: without followers there is nothing to share.
+            calls.remove(key, flight);
+            flight.future.complete(flight.followers.get() == 0 ? result : share.apply(result));
+            return result;
+        } catch (Throwable t) {
+            flight.future.completeExceptionally(t);
+            throw t;
+        } finally {
+            calls.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> Object await(CompletableFuture<Object> future) throws E {
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // The leader is not interruptible by the followers: keep waiting and restore the flag at the end.
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        // The leader executed a call with the same key, hence the same exception type.
+                        throw (E) cause;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Return the number of calls currently in flight.
+     *
+     * @return The number of calls in flight.
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    private static class Flight {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        // Only incremented within ConcurrentMap.compute, hence never after the flight is removed from the map.
+        final AtomicInteger followers = new AtomicInteger();
+    }
+
+    /**
+     * A call that can be coalesced.
+     *
+     * @param <V> The type of the result.
+     * @param <E> The type of the checked exception thrown by the call.
+     */
+    @FunctionalInterface
+    public interface Call<V, E extends Exception> {
+        /**
+         * Execute the call.
+         *
+         * @return The result.
+         * @throws E If the call fails.
+         */
+        V call() throws E;
+    }
+
+    /**
+     * Listener notified of every call.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Invoked for every call, before waiting or executing.
+         *
+         * @param coalesced {@code true} if the call joined an in-flight call, {@code false} if it is executed.
+         */
+        void onCall(boolean coalesced);
+    }
+}
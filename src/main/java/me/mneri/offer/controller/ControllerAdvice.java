@@ -18,14 +18,23 @@
 
 package me.mneri.offer.controller;
 
+import me.mneri.offer.exception.InvalidFilterException;
 import me.mneri.offer.exception.OfferIdNotFoundException;
+import me.mneri.offer.exception.OfferQueueFullException;
+import me.mneri.offer.exception.RequestBodyTooLargeException;
 import me.mneri.offer.exception.UserIdNotFoundException;
 import me.mneri.offer.exception.UserNotAuthorizedException;
+import me.mneri.offer.exception.WebhookIdNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
 /**
  * General controller advice.
  *
@@ -33,6 +42,27 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
  */
 @RestControllerAdvice
 public class ControllerAdvice {
+    /**
+     * Handler for {@link HttpMessageNotReadableException}. The response is {@code 413} if the body was rejected
+     * because of its size (see {@link RequestBodyLimitFilter}), {@code 400} otherwise.
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public void messageNotReadable(HttpMessageNotReadableException e, HttpServletResponse response) throws IOException {
+        if (e.getMostSpecificCause() instanceof RequestBodyTooLargeException) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMostSpecificCause().getMessage());
+        } else {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "The request body is not valid.");
+        }
+    }
+
+    /**
+     * Handler for {@link InvalidFilterException}. The reason is returned to the client.
+     */
+    @ExceptionHandler(InvalidFilterException.class)
+    public void invalidFilter(InvalidFilterException e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+
     /**
      * Handler for {@link OfferIdNotFoundException}.
      */
@@ -41,6 +71,15 @@ public class ControllerAdvice {
     public void offerIdNotFound() {
     }
 
+    /**
+     * Handler for {@link OfferQueueFullException}. The client is asked to retry after a second.
+     */
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "The offer queue is full, retry later.")
+    @ExceptionHandler(OfferQueueFullException.class)
+    public void offerQueueFull(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    }
+
     /**
      * Handler for {@link UserIdNotFoundException}.
      */
@@ -56,4 +95,12 @@ public class ControllerAdvice {
     @ExceptionHandler(UserNotAuthorizedException.class)
     public void userNotAuthorizedException() {
     }
+
+    /**
+     * Handler for {@link WebhookIdNotFoundException}.
+     */
+    @ResponseStatus(value = HttpStatus.NOT_FOUND, reason = "The specified webhook id was not found.")
+    @ExceptionHandler(WebhookIdNotFoundException.class)
+    public void webhookIdNotFound() {
+    }
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.controller;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.IdempotencyRecord;
+import me.mneri.offer.exception.RequestBodyTooLargeException;
+import me.mneri.offer.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Make {@code POST /offers} idempotent for requests carrying an {@code Idempotency-Key} header.
+ * <p>
+ * The first request with a given key (per user) is processed normally and, if successful, its response is stored by
+ * the {@link IdempotencyService}. Retries with the same key receive the stored response without reaching the
+ * controller: no validation, user lookup or insert is performed again. A retry arriving while the first request is
+ * still being processed is rejected with {@code 409}. Failed responses are not stored, the client can retry them.
+ * <p>
+ * A hash of the request body is stored along with the response. A request reusing a key with a different body is
+ * rejected with {@code 422} instead of receiving the response of another request. The body is buffered to compute the
+ * hash, this is why {@link RequestBodyLimitFilter} must run first.
+ *
+ * @author mneri
+ */
+@Component
+@Log4j2
+public class IdempotencyFilter extends OncePerRequestFilter {
+    /**
+     * The name of the header carrying the idempotency key.
+     */
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    /**
+     * The name of the header added to the replayed responses.
+     */
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_BODY_SIZE = 4096;
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final String PATH = "/offers";
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    private static String hash(byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void replay(IdempotencyRecord record, HttpServletResponse response) throws IOException {
+        response.setStatus(record.getStatus());
+        response.setHeader(IDEMPOTENT_REPLAYED, "true");
+
+        if (record.getLocation() != null) {
+            response.setHeader(HttpHeaders.LOCATION, record.getLocation());
+        }
+
+        if (record.getContentType() != null) {
+            response.setContentType(record.getContentType());
+        }
+
+        if (record.getBody() != null && record.getBody().length > 0) {
+            response.setContentLength(record.getBody().length);
+            response.getOutputStream().write(record.getBody());
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY);
+
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "The idempotency key is not valid.");
+            return;
+        }
+
+        byte[] requestBody;
+
+        try {
+            requestBody = StreamUtils.copyToByteArray(request.getInputStream());
+        } catch (RequestBodyTooLargeException e) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage());
+            return;
+        }
+
+        // Keys are scoped by user: two users can't see each other's responses
+        String key = request.getParameter("user.id") + ":" + idempotencyKey;
+        String requestHash = hash(requestBody);
+        Optional<IdempotencyRecord> record = idempotencyService.find(key);
+
+        if (!record.isPresent() && !idempotencyService.reserve(key)) {
+            // Either another request is in flight with the same key or it completed in the meantime
+            record = idempotencyService.find(key);
+
+            if (!record.isPresent()) {
+                response.sendError(HttpStatus.CONFLICT.value(),
+                                   "A request with the same idempotency key is in progress.");
+                return;
+            }
+        }
+
+        if (record.isPresent()) {
+            if (!requestHash.equals(record.get().getRequestHash())) {
+                response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                                   "The idempotency key has already been used for a different request.");
+                return;
+            }
+
+            log.debug("Replaying response; key: {}", key);
+            replay(record.get(), response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+
+        try {
+            chain.doFilter(new BufferedRequest(request, requestBody), wrapper);
+
+            byte[] body = wrapper.getContentAsByteArray();
+
+            if (HttpStatus.valueOf(wrapper.getStatus()).is2xxSuccessful() && body.length <= MAX_BODY_SIZE) {
+                idempotencyService.complete(IdempotencyRecord.builder()
+                        .id(key)
+                        .requestHash(requestHash)
+                        .status(wrapper.getStatus())
+                        .location(wrapper.getHeader(HttpHeaders.LOCATION))
+                        .contentType(wrapper.getContentType())
+                        .body(body)
+                        .build());
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                idempotencyService.release(key);
+            }
+
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !PATH.equals(path)
+                || request.getHeader(IDEMPOTENCY_KEY) == null;
+    }
+
+    private static class BufferedRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private ServletInputStream stream;
+
+        BufferedRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            if (stream == null) {
+                stream = new BufferedBodyStream(body);
+            }
+
+            return stream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? encoding : StandardCharsets.ISO_8859_1.name()));
+        }
+    }
+
+    private static class BufferedBodyStream extends ServletInputStream {
+        private final ByteArrayInputStream delegate;
+
+        BufferedBodyStream(byte[] body) {
+            delegate = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public int read() {
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return delegate.read(b, off, len);
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            // The body is already in memory: it is all available right away, and all read once the listener returns.
+            try {
+                if (!isFinished()) {
+                    listener.onDataAvailable();
+                }
+
+                listener.onAllDataRead();
+            } catch (IOException e) {
+                listener.onError(e);
+            }
+        }
+    }
+}
@@ -19,29 +19,68 @@
 package me.mneri.offer.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.dto.OfferChangesDto;
 import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.dto.OfferFacetsDto;
+import me.mneri.offer.dto.OfferPatch;
 import me.mneri.offer.dto.OfferRequest;
+import me.mneri.offer.dto.OfferStatusDto;
+import me.mneri.offer.dto.UserDto;
 import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.OfferEvent;
 import me.mneri.offer.entity.User;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.eventlog.OfferEventLog;
+import me.mneri.offer.exception.InvalidFilterException;
 import me.mneri.offer.exception.OfferIdNotFoundException;
+import me.mneri.offer.exception.OfferQueueFullException;
 import me.mneri.offer.exception.UserIdNotFoundException;
 import me.mneri.offer.exception.UserNotAuthorizedException;
-import me.mneri.offer.mapping.Types;
+import me.mneri.offer.filter.OfferFilterCompiler;
+import me.mneri.offer.fx.FxRates;
+import me.mneri.offer.index.OfferFacets;
+import me.mneri.offer.ingest.WriteBehindOfferQueue;
+import me.mneri.offer.mapping.DtoMapper;
+import me.mneri.offer.search.OfferSearchIndex;
+import me.mneri.offer.search.OfferSearchResult;
+import me.mneri.offer.serialization.MediaTypes;
+import me.mneri.offer.serialization.OfferList;
+import me.mneri.offer.service.OfferFilter;
 import me.mneri.offer.service.OfferService;
 import me.mneri.offer.service.UserService;
-import org.modelmapper.ModelMapper;
+import me.mneri.offer.stream.OfferChangeStream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * REST controller for paths starting with {@code /offers}.
@@ -54,8 +93,38 @@ import java.util.Optional;
 @Tag(name = "offers",
      description = "The Offer API")
 public class OffersController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final String EXPAND_PUBLISHER = "publisher";
+
+    private static final int MAX_CHANGES = 10_000;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    @Autowired
+    private DtoMapper dtoMapper;
+
+    @Autowired(required = false)
+    private FxRates fxRates;
+
+    @Autowired(required = false)
+    private OfferEventLog offerEventLog;
+
+    @Autowired(required = false)
+    private OfferFacets offerFacets;
+
     @Autowired
-    private ModelMapper modelMapper;
+    private OfferFilterCompiler offerFilterCompiler;
+
+    @Autowired
+    private OfferChangeStream offerChangeStream;
+
+    @Autowired(required = false)
+    private OfferSearchIndex offerSearchIndex;
 
     @Autowired
     private OfferService offerService;
@@ -63,18 +132,310 @@ public class OffersController {
     @Autowired
     private UserService userService;
 
+    @Autowired(required = false)
+    private WriteBehindOfferQueue writeBehindQueue;
+
+    private static boolean isValidExpansion(String expand) {
+        return expand == null || expand.equals(EXPAND_PUBLISHER);
+    }
+
+    private static URI locationOf(String path, Offer offer) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path(path)
+                .buildAndExpand(offer.getId())
+                .toUri();
+    }
+
+    /*
+     * Load the publishers of the specified offers with a single query over their distinct ids, whatever the number of
+     * offers. The ids are read from the lazy references, which are not initialized.
+     */
+    private Map<String, UserDto> findPublishers(List<Offer> offers) {
+        Set<String> ids = new HashSet<>();
+
+        for (Offer offer : offers) {
+            ids.add(offer.getPublisher().getId());
+        }
+
+        Map<String, UserDto> publishers = new HashMap<>();
+
+        for (User user : userService.findAllEnabledByIdIn(ids)) {
+            publishers.put(user.getId(), dtoMapper.toUserDto(user));
+        }
+
+        return publishers;
+    }
+
+    private OfferList toOfferList(List<Offer> offers, String expand) {
+        return expand == null ? new OfferList(offers) : new OfferList(offers, findPublishers(offers));
+    }
+
     /**
-     * Retrieve all the open {@link Offer}s. An open offer is an offer that is not yet expired nor has been canceled
-     * by its publisher.
+     * Retrieve the open {@link Offer}s. An open offer is an offer that is not yet expired nor has been canceled by its
+     * publisher.
+     * <p>
+     * Without parameters all the open offers are returned. Otherwise the offers are filtered by price, currency and
+     * end time, sorted and paged as requested, and the total number of matching offers is returned in the
+     * {@code X-Total-Count} header.
+     * <p>
+     * Prices in different currencies can be compared converting them with the FX rates: with {@code in} set the
+     * minimum and maximum prices are in that currency, the offers are sorted by their converted price and the offers
+     * in unknown currencies are left out.
+     * <p>
+     * Other conditions can be expressed with a filter expression, for example
+     * {@code price < 10 and currency = 'GBP' and publisher.username = 'mneri'} (see {@link OfferFilterCompiler}).
+     * <p>
+     * With {@code expand=publisher} each offer embeds its publisher. The publishers of the whole page are loaded with
+     * a single query.
      *
+     * @param minPrice     The minimum price, inclusive.
+     * @param maxPrice     The maximum price, inclusive.
+     * @param currency     The currency.
+     * @param in           The currency the prices are compared in.
+     * @param endingWithin The ISO-8601 duration from now within which the offers end, for example {@code PT30M}.
+     * @param filter       The filter expression.
+     * @param sort         The ordering: {@code price}, {@code createTime} or {@code endTime}. The default is
+     *                     {@code endTime} if {@code endingWithin} is set, {@code createTime} otherwise.
+     * @param order        The direction of the ordering: {@code asc} (the default) or {@code desc}.
+     * @param page         The number of the page, starting from zero.
+     * @param size         The size of the page.
+     * @param expand       The related resource to embed: {@code publisher}.
      * @return A list of open offers.
+     * @throws InvalidFilterException If the filter expression is not valid.
      */
-    @ApiResponses(value = @ApiResponse(responseCode = "200", description = "Successful operation."))
-    @GetMapping(produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation.",
+                         content = @Content(array = @ArraySchema(schema = @Schema(implementation = OfferDto.class)))),
+            @ApiResponse(responseCode = "400", description = "If a parameter or the filter expression is not valid."),
+            @ApiResponse(responseCode = "501", description = "If in is set and the FX rates are not enabled.")})
+    @GetMapping(produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_PROTOBUF_VALUE})
     @Operation(summary = "Return the list of open offers.",
-               description = "Return the list of the non-expired, non-canceled offers.")
-    public List<OfferDto> getOffers() {
-        return modelMapper.map(offerService.findAllOpen(), Types.OFFER_DTO_LIST_TYPE);
+               description = "Return the non-expired, non-canceled offers, optionally filtered, sorted and paged.")
+    public ResponseEntity<OfferList> getOffers(
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(value = "currency", required = false) String currency,
+            @RequestParam(value = "in", required = false) String in,
+            @RequestParam(value = "endingWithin", required = false) String endingWithin,
+            @RequestParam(value = "filter", required = false) String filter,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "order", required = false) String order,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "expand", required = false) String expand) throws InvalidFilterException {
+        if (!isValidExpansion(expand)) {
+            log.debug("Unknown expansion; expand: {}", expand);
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (minPrice == null && maxPrice == null && currency == null && in == null && endingWithin == null
+                && filter == null && sort == null && order == null && page == null && size == null) {
+            return ResponseEntity.ok(toOfferList(offerService.findAllOpen(), expand));
+        }
+
+        if (in != null) {
+            if (fxRates == null) {
+                return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+            }
+
+            if (!fxRates.getTable().getRate(in).isPresent()) {
+                log.debug("Unknown currency; in: {}", in);
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        Duration within = null;
+
+        if (endingWithin != null) {
+            try {
+                within = Duration.parse(endingWithin);
+            } catch (DateTimeParseException e) {
+                log.debug("Invalid duration; endingWithin: {}", endingWithin);
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (within.isNegative()) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        Optional<OfferFilter.Sort> ordering = sort == null ? Optional.empty() : OfferFilter.Sort.of(sort);
+
+        if (sort != null && !ordering.isPresent()) {
+            log.debug("Unknown ordering; sort: {}", sort);
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (order != null && !order.equals("asc") && !order.equals("desc")) {
+            log.debug("Unknown direction; order: {}", order);
+            return ResponseEntity.badRequest().build();
+        }
+
+        if ((page != null && page < 0) || (size != null && (size < 1 || size > MAX_PAGE_SIZE))) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        OfferFilter offerFilter = OfferFilter.builder()
+                .condition(filter == null ? null : offerFilterCompiler.compile(filter))
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .currency(currency)
+                .priceCurrency(in)
+                .endingWithin(within)
+                .sort(ordering.orElse(null))
+                .descending("desc".equals(order))
+                .page(page == null ? 0 : page)
+                .size(size == null ? DEFAULT_PAGE_SIZE : size)
+                .build();
+        Page<Offer> offers = offerService.findAllOpen(offerFilter);
+
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(offers.getTotalElements()))
+                .body(toOfferList(offers.getContent(), expand));
+    }
+
+    /**
+     * Retrieve the changes made to the {@link Offer}s after the specified version: the offers created, updated,
+     * canceled or expired since then, each with its latest state, and the version to ask the next changes from.
+     * <p>
+     * The changes are read from the offer event log. If the requested version precedes the compaction horizon of the
+     * log the intermediate changes are lost: the response is {@code 410} and the client is expected to reload the
+     * open offers and to continue from the version in the response.
+     *
+     * @param since The version of the last changes known to the client, {@code 0} for none.
+     * @param limit The maximum number of changes to return.
+     * @return The changes.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation."),
+            @ApiResponse(responseCode = "410", description = "If the version is no longer available and the offers must be reloaded."),
+            @ApiResponse(responseCode = "501", description = "If the offer event log is not enabled.")})
+    @GetMapping(value = "/changes",
+                produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE})
+    @Operation(summary = "Return the changes made to the offers after a version.",
+               description = "Return the latest state of every offer changed after the specified version.")
+    public ResponseEntity<OfferChangesDto> getOfferChanges(@RequestParam("since") long since,
+                                                           @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        if (offerEventLog == null) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+
+        if (since < offerEventLog.horizon()) {
+            log.debug("The requested version was compacted; since: {}; horizon: {}", since, offerEventLog.horizon());
+            return ResponseEntity.status(HttpStatus.GONE).body(OfferChangesDto.resync(offerEventLog.settledSequence()));
+        }
+
+        int max = Math.min(Math.max(limit, 1), MAX_CHANGES);
+        List<OfferEvent> events = offerEventLog.readSettled(since, max);
+        Map<String, OfferChangeEvent> latest = new LinkedHashMap<>();
+
+        for (OfferEvent event : events) {
+            // Ordered by the latest change of each offer
+            latest.remove(event.getOfferId());
+            latest.put(event.getOfferId(), event.toChange());
+        }
+
+        long version = events.isEmpty() ? since : events.get(events.size() - 1).getSequence();
+
+        return ResponseEntity.ok(new OfferChangesDto(version, false, events.size() == max,
+                new ArrayList<>(latest.values())));
+    }
+
+    /**
+     * Retrieve the number of open {@link Offer}s by currency and by price bucket. The counts are maintained as the
+     * offers change: offers that just expired are still counted until the next expiry sweep, up to
+     * {@code offer.expiry.interval} milliseconds.
+     *
+     * @return The counts.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation."),
+            @ApiResponse(responseCode = "501", description = "If the offer facets are not enabled.")})
+    @GetMapping(value = "/facets",
+                produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE})
+    @Operation(summary = "Return the number of open offers by currency and price bucket.",
+               description = "Return the counts of the open offers by currency and by price bucket.")
+    public ResponseEntity<OfferFacetsDto> getOfferFacets() {
+        if (offerFacets == null) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+
+        return ResponseEntity.ok(offerFacets.snapshot());
+    }
+
+    /**
+     * Search the open {@link Offer}s whose title or description matches the specified query, the most relevant
+     * first. The total number of matching offers is returned in the {@code X-Total-Count} header.
+     *
+     * @param query  The query.
+     * @param page   The number of the page, starting from zero.
+     * @param size   The size of the page.
+     * @param expand The related resource to embed: {@code publisher}.
+     * @return The page of the matching offers.
+     * @throws IOException If the search index couldn't be read.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation.",
+                         content = @Content(array = @ArraySchema(schema = @Schema(implementation = OfferDto.class)))),
+            @ApiResponse(responseCode = "400", description = "If the page is too deep or the expansion is unknown."),
+            @ApiResponse(responseCode = "501", description = "If the offer search index is not enabled.")})
+    @GetMapping(value = "/search",
+                produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_PROTOBUF_VALUE})
+    @Operation(summary = "Search the open offers.",
+               description = "Return the open offers whose title or description matches the query, by relevance.")
+    public ResponseEntity<OfferList> searchOffers(@RequestParam("q") String query,
+                                                  @RequestParam(value = "page", defaultValue = "0") int page,
+                                                  @RequestParam(value = "size", defaultValue = "20") int size,
+                                                  @RequestParam(value = "expand", required = false) String expand)
+            throws IOException {
+        if (offerSearchIndex == null) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+
+        if (!isValidExpansion(expand)) {
+            log.debug("Unknown expansion; expand: {}", expand);
+            return ResponseEntity.badRequest().build();
+        }
+
+        int pageSize = Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE);
+
+        if (page < 0 || ((long) page + 1) * pageSize > OfferSearchIndex.MAX_RESULTS) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        OfferSearchResult result = offerSearchIndex.search(query, page, pageSize);
+
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(result.getTotalHits()))
+                .body(toOfferList(offerService.findAllOpenByIdIn(result.getIds()), expand));
+    }
+
+    /**
+     * Stream the changes made to the {@link Offer}s as Server-Sent Events. Each event is named after the kind of
+     * change ({@code created}, {@code updated}, {@code canceled} or {@code expired}) and carries the state of the
+     * offer after the change. Expired offers are pushed by the expiry sweep, up to {@code offer.expiry.interval}
+     * milliseconds after their end time.
+     * <p>
+     * A client reconnecting with a {@code Last-Event-ID} header receives the recent changes it missed, or a
+     * {@code resync} event if they are no longer available. Clients that don't keep up are disconnected.
+     *
+     * @param lastEventId The id of the last event received by the client, if any.
+     * @param publisherId The id of the publisher to receive the changes of, if any.
+     * @param currency    The currency to receive the changes of, if any.
+     * @return The event stream.
+     */
+    @ApiResponses(value = @ApiResponse(responseCode = "200", description = "Successful operation."))
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream the changes made to the offers.",
+               description = "Push the created, updated, canceled and expired offers as Server-Sent Events.")
+    public SseEmitter streamOffers(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                   @RequestParam(value = "publisherId", required = false) String publisherId,
+                                   @RequestParam(value = "currency", required = false) String currency) {
+        return offerChangeStream.subscribe(lastEventId, publisherId, currency);
     }
 
     /**
@@ -82,16 +443,27 @@ public class OffersController {
      * expired nor has been canceled by its publisher.
      *
      * @param offerId The id of the offer.
+     * @param expand  The related resource to embed: {@code publisher}.
      * @return The offer, if present and still open, {@code null} otherwise.
      * @throws OfferIdNotFoundException The specified offer id was not found.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successful operation."),
+            @ApiResponse(responseCode = "400", description = "If the expansion is unknown."),
             @ApiResponse(responseCode = "404", description = "If the offer doesn't exist or it's closed.")})
-    @GetMapping(value = "/{offerId}", produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/{offerId}",
+                produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_PROTOBUF_VALUE})
     @Operation(summary = "Return the user identified by the specified id.",
                description = "Return the offer given its id or return an error if such offer doesn't exist or it's closed.")
-    public OfferDto getOfferById(@PathVariable String offerId) throws OfferIdNotFoundException {
+    public ResponseEntity<OfferDto> getOfferById(@PathVariable String offerId,
+                                                 @RequestParam(value = "expand", required = false) String expand)
+            throws OfferIdNotFoundException {
+        if (!isValidExpansion(expand)) {
+            log.debug("Unknown expansion; expand: {}", expand);
+            return ResponseEntity.badRequest().build();
+        }
+
         Optional<Offer> optional = offerService.findOpenById(offerId);
 
         if (!optional.isPresent()) {
@@ -99,25 +471,41 @@ public class OffersController {
             throw new OfferIdNotFoundException(offerId);
         }
 
-        return optional.map(offer -> modelMapper.map(offer, OfferDto.class)).get();
+        Offer offer = optional.get();
+        OfferDto dto = dtoMapper.toOfferDto(offer);
+
+        if (expand != null) {
+            dto.setPublisher(findPublishers(Collections.singletonList(offer)).get(offer.getPublisher().getId()));
+        }
+
+        return ResponseEntity.ok(dto);
     }
 
     /**
      * Create a new {@link Offer}.
+     * <p>
+     * The {@code Location} header of the response points to the new offer. If the write-behind queue is enabled the
+     * offer is enqueued and written later: the response is {@code 202} and its {@code Location} header points to the
+     * status of the offer instead.
      *
      * @param request The offer.
      * @param userId  The user id of the publisher of the offer.
+     * @return The status of the offer if it was enqueued, no content otherwise.
+     * @throws OfferQueueFullException If the write-behind queue is full.
      * @throws UserIdNotFoundException If the user is not found.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Successful operation."),
-            @ApiResponse(responseCode = "404", description = "If the user doesn't exist or it's not enabled.")})
+            @ApiResponse(responseCode = "202", description = "The offer was accepted and it will be written later."),
+            @ApiResponse(responseCode = "404", description = "If the user doesn't exist or it's not enabled."),
+            @ApiResponse(responseCode = "503", description = "If the offer queue is full.")})
     @Operation(summary = "Insert a new open offer.",
                description = "Insert a new open offer in the repository.")
-    @PostMapping(consumes = MimeTypeUtils.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.CREATED)
-    public void postOffer(@Valid @RequestBody OfferRequest request, @RequestParam("user.id") String userId)
-            throws UserIdNotFoundException {
+    @PostMapping(consumes = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                             MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_PROTOBUF_VALUE})
+    public ResponseEntity<OfferStatusDto> postOffer(@Valid @RequestBody OfferRequest request,
+                                                    @RequestParam("user.id") String userId)
+            throws OfferQueueFullException, UserIdNotFoundException {
         Optional<User> optional = userService.findEnabledById(userId);
 
         if (!optional.isPresent()) {
@@ -125,10 +513,56 @@ public class OffersController {
             throw new UserIdNotFoundException(userId);
         }
 
-        Offer offer = modelMapper.map(request, Offer.class);
+        Offer offer = dtoMapper.toOffer(request);
         offer.setPublisher(optional.get());
 
-        offerService.save(offer);
+        if (writeBehindQueue == null) {
+            offerService.save(offer);
+            return ResponseEntity.created(locationOf("/offers/{offerId}", offer)).build();
+        }
+
+        if (!writeBehindQueue.enqueue(offer)) {
+            log.debug("The offer queue is full; offerId: {}", offer.getId());
+            throw new OfferQueueFullException();
+        }
+
+        URI location = locationOf("/offers/{offerId}/status", offer);
+
+        return ResponseEntity.accepted()
+                .location(location)
+                .body(new OfferStatusDto(offer.getId(), OfferStatusDto.Status.PENDING));
+    }
+
+    /**
+     * Retrieve the persistence status of the {@link Offer} identified by the specified id.
+     *
+     * @param offerId The id of the offer.
+     * @return The status of the offer.
+     * @throws OfferIdNotFoundException If the offer is neither in the write-behind queue nor in the repository.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation."),
+            @ApiResponse(responseCode = "404", description = "If the offer is unknown.")})
+    @GetMapping(value = "/{offerId}/status",
+                produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE})
+    @Operation(summary = "Return the persistence status of an offer.",
+               description = "Return whether a submitted offer is still pending, was created or failed.")
+    public OfferStatusDto getOfferStatus(@PathVariable String offerId) throws OfferIdNotFoundException {
+        if (writeBehindQueue != null) {
+            Optional<OfferStatusDto.Status> status = writeBehindQueue.statusOf(offerId);
+
+            if (status.isPresent()) {
+                return new OfferStatusDto(offerId, status.get());
+            }
+        }
+
+        if (!offerService.existsById(offerId)) {
+            log.debug("No offer with the specified id was found; offerId: {}", offerId);
+            throw new OfferIdNotFoundException(offerId);
+        }
+
+        return new OfferStatusDto(offerId, OfferStatusDto.Status.CREATED);
     }
 
     /**
@@ -145,7 +579,9 @@ public class OffersController {
             @ApiResponse(responseCode = "404", description = "If the user or the offer don't exist or they are not enabled.")})
     @Operation(summary = "Modify an open offer.",
                description = "Modify an open offer in the repository.")
-    @PutMapping(value = "/{offerId}", consumes = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    @PutMapping(value = "/{offerId}",
+                consumes = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_PROTOBUF_VALUE})
     public void putOffer(@PathVariable String offerId, @Valid @RequestBody OfferRequest request, @RequestParam("user.id") String userId)
             throws OfferIdNotFoundException, UserIdNotFoundException, UserNotAuthorizedException {
         Optional<Offer> offerOptional = offerService.findOpenById(offerId);
@@ -156,7 +592,42 @@ public class OffersController {
         }
 
         Offer offer = offerOptional.get();
-        modelMapper.map(request, offer);
+        dtoMapper.updateOffer(request, offer);
+
+        offerService.update(offer, userId);
+    }
+
+    /**
+     * Modify some of the fields of the specified {@link Offer}. The body is a JSON Merge Patch: only the fields
+     * present in it are modified and only the modified columns are written.
+     *
+     * @param offerId The offer id.
+     * @param patch   The patch.
+     * @param userId  The user id of the publisher of the offer.
+     * @throws OfferIdNotFoundException   If an offer with the specified id is not found.
+     * @throws UserIdNotFoundException    If the user is not found.
+     * @throws UserNotAuthorizedException If the user has no rights to modify the offer.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation."),
+            @ApiResponse(responseCode = "400", description = "If the patch removes a field or a field is not valid."),
+            @ApiResponse(responseCode = "401", description = "If the user has no rights to modify the offer."),
+            @ApiResponse(responseCode = "404", description = "If the user or the offer don't exist or they are not enabled.")})
+    @Operation(summary = "Partially modify an open offer.",
+               description = "Modify only the specified fields of an open offer in the repository.")
+    @PatchMapping(value = "/{offerId}",
+                  consumes = {MediaTypes.APPLICATION_MERGE_PATCH_JSON_VALUE, MimeTypeUtils.APPLICATION_JSON_VALUE})
+    public void patchOffer(@PathVariable String offerId, @Valid @RequestBody OfferPatch patch, @RequestParam("user.id") String userId)
+            throws OfferIdNotFoundException, UserIdNotFoundException, UserNotAuthorizedException {
+        Optional<Offer> offerOptional = offerService.findOpenById(offerId);
+
+        if (!offerOptional.isPresent()) {
+            log.debug("No open offer with the specified id was found; offerId: {}", offerId);
+            throw new OfferIdNotFoundException(offerId);
+        }
+
+        Offer offer = offerOptional.get();
+        dtoMapper.patchOffer(patch, offer);
 
         offerService.update(offer, userId);
     }
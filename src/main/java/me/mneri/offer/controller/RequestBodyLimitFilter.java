@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.controller;
+
+import me.mneri.offer.exception.RequestBodyTooLargeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cap the size of request bodies.
+ * <p>
+ * Requests declaring a {@code Content-Length} larger than the cap are rejected with {@code 413} before their body is
+ * read. Any other request body is counted while it is read and the reading fails with a
+ * {@link RequestBodyTooLargeException} as soon as the cap is exceeded, which {@link ControllerAdvice} turns into a
+ * {@code 413} as well. The offer endpoints have their own, tighter, cap. The filter runs before
+ * {@link IdempotencyFilter}, which buffers the request body.
+ *
+ * @author mneri
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RequestBodyLimitFilter extends OncePerRequestFilter {
+    private static final String OFFERS_PATTERN = "/offers/**";
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    @Value("${offer.request-body.max-size:1048576}")
+    private long maxSize;
+
+    @Value("${offer.request-body.offers.max-size:65536}")
+    private long offersMaxSize;
+
+    private long maxSizeOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return pathMatcher.match(OFFERS_PATTERN, path) ? offersMaxSize : maxSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long limit = maxSizeOf(request);
+
+        if (request.getContentLengthLong() > limit) {
+            String message = new RequestBodyTooLargeException(limit).getMessage();
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), message);
+            return;
+        }
+
+        chain.doFilter(new LimitedRequest(request, limit), response);
+    }
+
+    private static class LimitedRequest extends HttpServletRequestWrapper {
+        private final long limit;
+
+        private ServletInputStream stream;
+
+        LimitedRequest(HttpServletRequest request, long limit) {
+            super(request);
+            this.limit = limit;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) {
+                stream = new LimitedInputStream(super.getInputStream(), limit);
+            }
+
+            return stream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? encoding : StandardCharsets.ISO_8859_1.name()));
+        }
+    }
+
+    private static class LimitedInputStream extends ServletInputStream {
+        private final ServletInputStream delegate;
+
+        private final long limit;
+
+        private long count;
+
+        LimitedInputStream(ServletInputStream delegate, long limit) {
+            this.delegate = delegate;
+            this.limit = limit;
+        }
+
+        private void count(long n) throws RequestBodyTooLargeException {
+            count += n;
+
+            if (count > limit) {
+                throw new RequestBodyTooLargeException(limit);
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+
+            if (b != -1) {
+                count(1);
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+
+            if (n > 0) {
+                count(n);
+            }
+
+            return n;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            delegate.setReadListener(listener);
+        }
+    }
+}
@@ -19,26 +19,34 @@
 package me.mneri.offer.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.log4j.Log4j2;
 import me.mneri.offer.dto.OfferDto;
 import me.mneri.offer.dto.UserDto;
+import me.mneri.offer.dto.WebhookDto;
+import me.mneri.offer.dto.WebhookRequest;
 import me.mneri.offer.entity.Offer;
 import me.mneri.offer.entity.User;
+import me.mneri.offer.entity.Webhook;
 import me.mneri.offer.exception.UserIdNotFoundException;
-import me.mneri.offer.mapping.Types;
+import me.mneri.offer.exception.WebhookIdNotFoundException;
+import me.mneri.offer.mapping.DtoMapper;
+import me.mneri.offer.serialization.MediaTypes;
+import me.mneri.offer.serialization.OfferList;
 import me.mneri.offer.service.OfferService;
 import me.mneri.offer.service.UserService;
-import org.modelmapper.ModelMapper;
+import me.mneri.offer.service.WebhookService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.util.MimeTypeUtils;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
 import java.util.List;
 import java.util.Optional;
 
@@ -52,8 +60,10 @@ import java.util.Optional;
 @RestController
 @Tag(name = "users", description = "The User API")
 public class UsersController {
+    private static final int MAX_PREFIX_MATCHES = 100;
+
     @Autowired
-    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
 
     @Autowired
     private OfferService offerService;
@@ -61,18 +71,31 @@ public class UsersController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private WebhookService webhookService;
+
     /**
-     * Retrieve the list of all {@link User}s.
+     * Retrieve the list of all {@link User}s or, if a prefix is specified, of the users whose username starts with the
+     * prefix, ignoring case, in alphabetical order.
      *
-     * @return The list of all users.
+     * @param prefix The prefix of the username.
+     * @param limit  The maximum number of users to return when a prefix is specified.
+     * @return The list of the users.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successful operation.")})
-    @GetMapping(produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    @GetMapping(produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_PROTOBUF_VALUE})
     @Operation(summary = "Return the list of enabled users.",
-               description = "Return the list of enabled users.")
-    public List<UserDto> getUsers() {
-        return modelMapper.map(userService.findAllEnabled(), Types.USER_DTO_LIST_TYPE);
+               description = "Return the list of enabled users, optionally the ones whose username has a prefix.")
+    public List<UserDto> getUsers(@RequestParam(value = "prefix", required = false) String prefix,
+                                  @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (prefix == null) {
+            return dtoMapper.toUserDtoList(userService.findAllEnabled());
+        }
+
+        int max = Math.min(Math.max(limit, 1), MAX_PREFIX_MATCHES);
+        return dtoMapper.toUserDtoList(userService.findEnabledByUsernamePrefix(prefix, max));
     }
 
     /**
@@ -85,7 +108,9 @@ public class UsersController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successful operation."),
             @ApiResponse(responseCode = "404", description = "If the user doesn't exist or it's disabled.")})
-    @GetMapping(value = "/{userId}", produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/{userId}",
+                produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_PROTOBUF_VALUE})
     @Operation(summary = "Return the user identified by the specified id.",
                description = "Return the user given its id or return an error if such user doesn't exist or it's disabled.")
     public UserDto getUserById(@PathVariable String userId) throws UserIdNotFoundException {
@@ -96,7 +121,7 @@ public class UsersController {
             throw new UserIdNotFoundException(userId);
         }
 
-        return optional.map(user -> modelMapper.map(user, UserDto.class)).get();
+        return optional.map(dtoMapper::toUserDto).get();
     }
 
     /**
@@ -107,13 +132,76 @@ public class UsersController {
      * @throws UserIdNotFoundException The specified user was not found.
      */
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successful operation."),
+            @ApiResponse(responseCode = "200", description = "Successful operation.",
+                         content = @Content(array = @ArraySchema(schema = @Schema(implementation = OfferDto.class)))),
             @ApiResponse(responseCode = "404", description = "If the user doesn't exist or it's disabled.")})
-    @GetMapping(value = "/{userId}/offers", produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/{userId}/offers",
+                produces = {MimeTypeUtils.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_CBOR_VALUE,
+                            MediaTypes.APPLICATION_SMILE_VALUE, MediaTypes.APPLICATION_PROTOBUF_VALUE})
     @Operation(summary = "Return the list of offers published by the user identified by the specified id.",
                description = "Return a user's offers or return an error if the user doesn't exist or it's disabled.")
-    public List<OfferDto> getOffersByPublisherId(@PathVariable String userId) throws UserIdNotFoundException {
+    public OfferList getOffersByPublisherId(@PathVariable String userId) throws UserIdNotFoundException {
         List<Offer> offers = offerService.findAllOpenByPublisherId(userId);
-        return modelMapper.map(offers, Types.OFFER_DTO_LIST_TYPE);
+        return new OfferList(offers);
+    }
+
+    /**
+     * Retrieve the list of the {@link Webhook}s registered by a {@link User}.
+     *
+     * @param userId The id of the user.
+     * @return The list of the webhooks, oldest first.
+     * @throws UserIdNotFoundException The specified user was not found.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation."),
+            @ApiResponse(responseCode = "404", description = "If the user doesn't exist or it's disabled.")})
+    @GetMapping(value = "/{userId}/webhooks", produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Return the list of webhooks registered by the user identified by the specified id.",
+               description = "Return a user's webhooks or return an error if the user doesn't exist or it's disabled.")
+    public List<WebhookDto> getWebhooks(@PathVariable String userId) throws UserIdNotFoundException {
+        return dtoMapper.toWebhookDtoList(webhookService.findAllByPublisherId(userId));
+    }
+
+    /**
+     * Register a new {@link Webhook} for a {@link User}. The webhook is notified, in batches, when the offers
+     * published by the user are canceled or expire.
+     *
+     * @param userId  The id of the user.
+     * @param request The webhook.
+     * @return The new webhook.
+     * @throws UserIdNotFoundException The specified user was not found.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Successful operation."),
+            @ApiResponse(responseCode = "400", description = "If the URL is not valid."),
+            @ApiResponse(responseCode = "404", description = "If the user doesn't exist or it's disabled.")})
+    @Operation(summary = "Register a new webhook.",
+               description = "Register a URL to be notified when the user's offers are canceled or expire.")
+    @PostMapping(value = "/{userId}/webhooks",
+                 consumes = MimeTypeUtils.APPLICATION_JSON_VALUE,
+                 produces = MimeTypeUtils.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public WebhookDto postWebhook(@PathVariable String userId, @Valid @RequestBody WebhookRequest request)
+            throws UserIdNotFoundException {
+        return dtoMapper.toWebhookDto(webhookService.register(userId, request.getUrl()));
+    }
+
+    /**
+     * Delete a {@link Webhook} of a {@link User}, along with its pending notifications.
+     *
+     * @param userId    The id of the user.
+     * @param webhookId The id of the webhook.
+     * @throws UserIdNotFoundException    The specified user was not found.
+     * @throws WebhookIdNotFoundException The user has no webhook with the specified id.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation."),
+            @ApiResponse(responseCode = "404", description = "If the user or the webhook don't exist.")})
+    @DeleteMapping("/{userId}/webhooks/{webhookId}")
+    @Operation(summary = "Delete a webhook.",
+               description = "Delete a webhook and discard its pending notifications.")
+    public void deleteWebhook(@PathVariable String userId, @PathVariable String webhookId)
+            throws UserIdNotFoundException, WebhookIdNotFoundException {
+        webhookService.delete(userId, webhookId);
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.event.OfferChangeEvent;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DTO holding the changes made to the {@link Offer}s after a given version.
+ *
+ * @author mneri
+ */
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode
+@NoArgsConstructor
+@Schema(name = "OfferChanges")
+@ToString
+public class OfferChangesDto {
+    /**
+     * Return a response asking the client to reload the offers and to continue from the specified version.
+     *
+     * @param version The version to continue from.
+     * @return The DTO.
+     */
+    public static OfferChangesDto resync(long version) {
+        return new OfferChangesDto(version, true, false, Collections.emptyList());
+    }
+
+    @Schema(description = "The version to ask the next changes from.",
+            example = "1234",
+            required = true)
+    private long version;
+
+    @Schema(description = "Whether the requested version is no longer available and the offers must be reloaded.",
+            example = "false",
+            required = true)
+    private boolean resync;
+
+    @Schema(description = "Whether more changes follow the returned ones.",
+            example = "false",
+            required = true)
+    private boolean more;
+
+    @NonNull
+    @Schema(description = "The latest change of every offer changed after the requested version.",
+            required = true)
+    private List<OfferChangeEvent> changes;
+}
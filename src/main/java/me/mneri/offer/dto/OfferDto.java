@@ -19,6 +19,7 @@
 package me.mneri.offer.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
 import me.mneri.offer.entity.Offer;
@@ -87,4 +88,8 @@ public class OfferDto {
             example = "60000",
             required = true)
     private long ttl;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "The offer's publisher, only present if requested with expand=publisher.")
+    private UserDto publisher;
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import me.mneri.offer.entity.Offer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO holding the counts of the open {@link Offer}s by currency and by price bucket.
+ *
+ * @author mneri
+ */
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode
+@NoArgsConstructor
+@Schema(name = "OfferFacets")
+@ToString
+public class OfferFacetsDto {
+    /**
+     * The number of offers with a price in a range.
+     */
+    @AllArgsConstructor
+    @Data
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @Schema(name = "PriceBucket")
+    @ToString
+    public static class PriceBucket {
+        @NonNull
+        @Schema(description = "The minimum price, inclusive.",
+                example = "10",
+                required = true)
+        private BigDecimal min;
+
+        @Schema(description = "The maximum price, exclusive; absent for the last bucket.",
+                example = "50")
+        private BigDecimal max;
+
+        @Schema(description = "The number of open offers with a price in the bucket.",
+                example = "42",
+                required = true)
+        private long count;
+    }
+
+    @Schema(description = "The number of open offers.",
+            example = "1234",
+            required = true)
+    private long total;
+
+    @NonNull
+    @Schema(description = "The number of open offers by currency.",
+            required = true)
+    private Map<String, Long> currencies;
+
+    @NonNull
+    @Schema(description = "The number of open offers by price bucket, regardless of the currency. Empty buckets are "
+            + "left out.",
+            required = true)
+    private List<PriceBucket> prices;
+}
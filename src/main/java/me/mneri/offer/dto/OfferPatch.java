@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.dto;
+
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.annotation.Nulls;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.validator.Constants;
+
+import javax.validation.constraints.Size;
+import java.math.BigDecimal;
+
+/**
+ * DTO for a user's request to modify some of the fields of an {@link Offer}, in JSON Merge Patch (RFC 7396) format.
+ * <p>
+ * Absent fields are left untouched. All the fields of an offer are required, so none of them can be removed: an
+ * explicit {@code null} is rejected.
+ *
+ * @author mneri
+ */
+@Data
+@EqualsAndHashCode
+@NoArgsConstructor
+@Schema(name = "OfferPatch")
+@ToString
+public class OfferPatch {
+    @JsonSetter(nulls = Nulls.FAIL)
+    @Schema(description = "Offer's title.",
+            example = "Buy 1 get 1 for free.",
+            maxLength = Constants.TITLE_MAX_LENGTH,
+            minLength = Constants.TITLE_MIN_LENGTH)
+    @Size(min = Constants.TITLE_MIN_LENGTH, max = Constants.TITLE_MAX_LENGTH)
+    private String title;
+
+    @JsonSetter(nulls = Nulls.FAIL)
+    @Schema(description = "Offer's description.",
+            example = "Order 1 bag of coffee and get one free.",
+            maxLength = Constants.DESCRIPTION_MAX_LENGTH,
+            minLength = Constants.DESCRIPTION_MIN_LENGTH)
+    @Size(min = Constants.DESCRIPTION_MIN_LENGTH, max = Constants.DESCRIPTION_MAX_LENGTH)
+    private String description;
+
+    @JsonSetter(nulls = Nulls.FAIL)
+    @Schema(description = "Offer's price.",
+            example = "100.00")
+    private BigDecimal price;
+
+    @JsonSetter(nulls = Nulls.FAIL)
+    @Schema(description = "The currency of the offer's price.",
+            example = "GBP",
+            maxLength = Constants.CURRENCY_MAX_LENGTH)
+    @Size(max = Constants.CURRENCY_MAX_LENGTH)
+    private String currency;
+
+    @JsonSetter(nulls = Nulls.FAIL)
+    @Schema(description = "The offer's time to live in milliseconds.",
+            example = "60000")
+    private Long ttl;
+}
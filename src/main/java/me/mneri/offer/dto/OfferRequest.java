@@ -25,6 +25,7 @@ import me.mneri.offer.validator.Constants;
 import me.mneri.offer.validator.Description;
 import me.mneri.offer.validator.Title;
 
+import javax.validation.constraints.Size;
 import java.math.BigDecimal;
 
 /**
@@ -64,7 +65,9 @@ public class OfferRequest {
     @NonNull
     @Schema(description = "The currency of the offer's price.",
             example = "GBP",
+            maxLength = Constants.CURRENCY_MAX_LENGTH,
             required = true)
+    @Size(max = Constants.CURRENCY_MAX_LENGTH)
     private String currency;
 
     @Schema(description = "The offer's time to live in milliseconds.",
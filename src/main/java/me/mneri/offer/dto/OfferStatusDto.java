@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import me.mneri.offer.entity.Offer;
+
+/**
+ * DTO reporting the persistence status of an {@link Offer} submitted for creation.
+ *
+ * @author mneri
+ */
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode
+@NoArgsConstructor
+@Schema(name = "OfferStatus")
+@ToString
+public class OfferStatusDto {
+    /**
+     * The persistence status of an offer.
+     */
+    public enum Status {
+        /**
+         * The offer was accepted and it is waiting to be written.
+         */
+        PENDING,
+
+        /**
+         * The offer was written.
+         */
+        CREATED,
+
+        /**
+         * The offer couldn't be written.
+         */
+        FAILED
+    }
+
+    @NonNull
+    @Schema(description = "Offer's unique identifier.",
+            example = "123e4567-e89b-12d3-a456-556642440000",
+            required = true)
+    private String id;
+
+    @NonNull
+    @Schema(description = "The persistence status of the offer.",
+            example = "PENDING",
+            required = true)
+    private Status status;
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import me.mneri.offer.entity.Webhook;
+
+import java.util.Date;
+
+/**
+ * DTO for {@link Webhook} objects.
+ *
+ * @author mneri
+ */
+@Data
+@EqualsAndHashCode
+@NoArgsConstructor
+@Schema(name = "Webhook")
+@ToString
+public class WebhookDto {
+    @NonNull
+    @Schema(description = "Webhook's unique identifier.",
+            example = "123e4567-e89b-12d3-a456-556642440000",
+            required = true)
+    private String id;
+
+    @NonNull
+    @Schema(description = "The URL notified of the changes.",
+            example = "https://example.com/offers/notifications",
+            required = true)
+    private String url;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss.SSS")
+    @NonNull
+    @Schema(description = "The webhook's registration time.",
+            example = "2020-12-31 00:00:00.000",
+            required = true)
+    private Date createTime;
+}
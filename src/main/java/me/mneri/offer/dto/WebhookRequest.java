@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import me.mneri.offer.entity.Webhook;
+import org.hibernate.validator.constraints.URL;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+
+/**
+ * DTO for the registration of a {@link Webhook}.
+ *
+ * @author mneri
+ */
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode
+@NoArgsConstructor
+@Schema(name = "WebhookRequest")
+@ToString
+public class WebhookRequest {
+    @NotBlank
+    @Schema(description = "The URL to notify of the changes, either http or https.",
+            example = "https://example.com/offers/notifications",
+            maxLength = 2048,
+            required = true)
+    @Size(max = 2048)
+    @URL(regexp = "^(http|https):.*")
+    private String url;
+}
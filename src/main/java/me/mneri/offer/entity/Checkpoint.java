@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.entity;
+
+import lombok.*;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PreUpdate;
+import java.util.Date;
+
+/**
+ * ORM for {@code checkpoint} table.
+ * <p>
+ * A checkpoint records how far a background job has gone through a stream of work, so that the job can resume from
+ * there after a restart. The meaning of the position depends on the job that owns the checkpoint.
+ *
+ * @author mneri
+ */
+@Data
+@Entity
+@EqualsAndHashCode(of = "id")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class Checkpoint {
+    /**
+     * Create a new {@code Checkpoint} at the specified position.
+     *
+     * @param id       The name of the job owning the checkpoint.
+     * @param position The position.
+     */
+    public Checkpoint(String id, long position) {
+        this.id = id;
+        this.position = position;
+        this.updateTime = new Date();
+    }
+
+    @PreUpdate
+    protected void onPreUpdate() {
+        updateTime = new Date();
+    }
+
+    @Id
+    @NonNull
+    @Setter(AccessLevel.NONE)
+    private String id;
+
+    @Column
+    private long position;
+
+    @Column(name = "update_time")
+    @NonNull
+    @Setter(AccessLevel.NONE)
+    private Date updateTime;
+}
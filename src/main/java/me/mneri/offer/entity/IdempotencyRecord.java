@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.entity;
+
+import lombok.*;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * ORM for {@code idempotency_record} table.
+ * <p>
+ * A record holds the response returned to the first request carrying a given idempotency key, so that the response
+ * can be returned again to the retries of the same request. The hash of the request body is stored as well, to tell
+ * the retries apart from different requests reusing the same key. Records are immutable.
+ *
+ * @author mneri
+ */
+@Data
+@Entity
+@EqualsAndHashCode(of = "id")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Setter(AccessLevel.NONE)
+@Table(name = "idempotency_record")
+@ToString(exclude = "body")
+public class IdempotencyRecord {
+    /**
+     * Create a new {@code IdempotencyRecord}.
+     *
+     * @param id          The key of the record.
+     * @param requestHash The hash of the body of the request.
+     * @param status      The status code of the response.
+     * @param location    The {@code Location} header of the response, if any.
+     * @param contentType The content type of the response, if any.
+     * @param body        The body of the response, possibly empty.
+     */
+    @Builder
+    private IdempotencyRecord(String id, String requestHash, int status, String location, String contentType,
+                              byte[] body) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.status = status;
+        this.location = location;
+        this.contentType = contentType;
+        this.body = body;
+        this.createTime = new Date();
+    }
+
+    @Id
+    @Column(length = 512)
+    @NonNull
+    private String id;
+
+    @Column(name = "request_hash", length = 44)
+    private String requestHash;
+
+    @Column
+    private int status;
+
+    @Column
+    private String location;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(length = 4096)
+    private byte[] body;
+
+    @Column(name = "create_time")
+    @NonNull
+    private Date createTime;
+}
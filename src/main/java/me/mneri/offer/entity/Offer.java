@@ -21,6 +21,7 @@ package me.mneri.offer.entity;
 import lombok.*;
 import me.mneri.offer.validator.Description;
 import me.mneri.offer.validator.Title;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -32,13 +33,31 @@ import java.util.UUID;
  * ORM for {@code offer} table.
  * <p>
  * The id is immutable and is assigned upon creation. ORM objects are compared by their id and not their state.
+ * <p>
+ * Updates only write the modified columns: changing the price of an offer doesn't send its description again.
+ * <p>
+ * Every query on the open offers starts with {@code canceled = 0}: the indexes lead with {@code canceled}, followed by
+ * the columns the offers are filtered or sorted by. The offers changed after a point in time, which are replayed into
+ * the in-memory indexes on restart, are found through the index on {@code update_time}.
+ * <p>
+ * The normalized price is the price converted to the base currency of the FX rates, if they are enabled and the
+ * currency of the offer is known: it is maintained by the offer service and it lets the offers in different currencies
+ * be compared and sorted by price.
  *
  * @author mneri
  */
 @Data
+@DynamicUpdate
 @Entity
 @EqualsAndHashCode(of = "id")
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(indexes = {
+        @Index(name = "offer_canceled_create_time", columnList = "canceled, create_time"),
+        @Index(name = "offer_canceled_currency_price", columnList = "canceled, currency, price"),
+        @Index(name = "offer_canceled_end_time", columnList = "canceled, end_time"),
+        @Index(name = "offer_canceled_normalized_price", columnList = "canceled, normalized_price"),
+        @Index(name = "offer_canceled_price", columnList = "canceled, price"),
+        @Index(name = "offer_update_time", columnList = "update_time")})
 @ToString
 public class Offer {
     @Builder
@@ -50,9 +69,41 @@ public class Offer {
         this.currency = currency;
         this.createTime = new Date();
         this.endTime = new Date(createTime.getTime() + ttl);
+        this.updateTime = createTime;
         this.publisher = publisher;
     }
 
+    /*
+     * The update time is maintained by the persistence layer and it is used as a high-water mark by the components
+     * that need to catch up with the changes made to the table since a point in time.
+     */
+    @PreUpdate
+    protected void onPreUpdate() {
+        updateTime = new Date();
+    }
+
+    /**
+     * Return a copy of this offer. The copy has the same id and state, publisher included, but it is a distinct
+     * instance: modifying one doesn't affect the other.
+     *
+     * @return The copy.
+     */
+    public Offer copy() {
+        Offer copy = new Offer();
+        copy.id = id;
+        copy.title = title;
+        copy.description = description;
+        copy.price = price;
+        copy.currency = currency;
+        copy.normalizedPrice = normalizedPrice;
+        copy.createTime = createTime;
+        copy.endTime = endTime;
+        copy.updateTime = updateTime;
+        copy.canceled = canceled;
+        copy.publisher = publisher;
+        return copy;
+    }
+
     /*
      * We want to give to the user an interface that talks about 'ttl' (time to live, duration of an offer) but querying
      * the ttl is hard. It would be far more convenient to store an 'end_time' field and filter out the expired offers
@@ -95,6 +146,9 @@ public class Offer {
     @NonNull
     private String currency;
 
+    @Column(name = "normalized_price", precision = 24, scale = 6)
+    private BigDecimal normalizedPrice;
+
     @Column(name = "create_time")
     @NonNull
     @Setter(AccessLevel.PROTECTED)
@@ -105,6 +159,11 @@ public class Offer {
     @Setter(AccessLevel.PROTECTED)
     private Date endTime;
 
+    @Column(name = "update_time")
+    @NonNull
+    @Setter(AccessLevel.PROTECTED)
+    private Date updateTime;
+
     @Column
     private boolean canceled;
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.entity;
+
+import lombok.*;
+import me.mneri.offer.event.OfferChangeEvent;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * ORM for {@code offer_event} table, the append-only log of the changes made to the {@link Offer}s.
+ * <p>
+ * Every event carries a sequence number, increasing in the order the events are appended, and a full snapshot of the
+ * offer after the change: the latest event of an offer is enough to rebuild its state. Events are immutable.
+ *
+ * @author mneri
+ */
+@Data
+@Entity
+@EqualsAndHashCode(of = "sequence")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Setter(AccessLevel.NONE)
+@Table(name = "offer_event", indexes = @Index(name = "offer_event_offer_id", columnList = "offer_id"))
+public class OfferEvent {
+    @Builder
+    private OfferEvent(OfferChangeEvent.Type type, String offerId, String title, String description, BigDecimal price,
+                       String currency, Date createTime, Date endTime, boolean canceled, String publisherId) {
+        this.type = type;
+        this.offerId = offerId;
+        this.title = title;
+        this.description = description;
+        this.price = price;
+        this.currency = currency;
+        this.createTime = createTime;
+        this.endTime = endTime;
+        this.canceled = canceled;
+        this.publisherId = publisherId;
+        this.eventTime = new Date();
+    }
+
+    /**
+     * Create a new event from the specified change.
+     *
+     * @param change The change.
+     * @return The event.
+     */
+    public static OfferEvent of(OfferChangeEvent change) {
+        return OfferEvent.builder()
+                .type(change.getType())
+                .offerId(change.getOfferId())
+                .title(change.getTitle())
+                .description(change.getDescription())
+                .price(change.getPrice())
+                .currency(change.getCurrency())
+                .createTime(new Date(change.getCreateTime()))
+                .endTime(new Date(change.getEndTime()))
+                .canceled(change.isCanceled())
+                .publisherId(change.getPublisherId())
+                .build();
+    }
+
+    /**
+     * Return the change this event records.
+     *
+     * @return The change.
+     */
+    public OfferChangeEvent toChange() {
+        return new OfferChangeEvent(type, offerId, title, description, price, currency, createTime.getTime(),
+                endTime.getTime(), canceled, publisherId);
+    }
+
+    /*
+     * Sequence numbers are taken one at a time from the database, so that they follow the order of the appends: blocks
+     * allocated to different instances would interleave.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "offer_event_sequence")
+    @SequenceGenerator(name = "offer_event_sequence", sequenceName = "offer_event_sequence", allocationSize = 1)
+    private Long sequence;
+
+    @Column
+    @Enumerated(EnumType.STRING)
+    @NonNull
+    private OfferChangeEvent.Type type;
+
+    @Column(name = "offer_id")
+    @NonNull
+    private String offerId;
+
+    @Column
+    @NonNull
+    private String title;
+
+    @Column
+    @NonNull
+    private String description;
+
+    @Column(precision = 16, scale = 2)
+    @NonNull
+    private BigDecimal price;
+
+    @Column
+    @NonNull
+    private String currency;
+
+    @Column(name = "create_time")
+    @NonNull
+    private Date createTime;
+
+    @Column(name = "end_time")
+    @NonNull
+    private Date endTime;
+
+    @Column
+    private boolean canceled;
+
+    @Column(name = "publisher_id")
+    @NonNull
+    private String publisherId;
+
+    @Column(name = "event_time")
+    @NonNull
+    private Date eventTime;
+}
@@ -54,6 +54,21 @@ public class User {
         this.enabled = true;
     }
 
+    /**
+     * Return a copy of this user. The copy has the same id and state, but it is a distinct instance: modifying one
+     * doesn't affect the other.
+     *
+     * @return The copy.
+     */
+    public User copy() {
+        User copy = new User();
+        copy.id = id;
+        copy.username = username;
+        copy.encodedPassword = encodedPassword;
+        copy.enabled = enabled;
+        return copy;
+    }
+
     /**
      * Set the encoded password.
      *
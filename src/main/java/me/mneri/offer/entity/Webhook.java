@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * ORM for {@code webhook} table.
+ * <p>
+ * A webhook is a URL registered by a {@link User} to be notified of the changes made to the offers it published.
+ * Webhooks are immutable: changing the URL means deleting the webhook and registering a new one.
+ *
+ * @author mneri
+ */
+@Data
+@Entity
+@EqualsAndHashCode(of = "id")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Setter(AccessLevel.NONE)
+@ToString(exclude = "publisher")
+public class Webhook {
+    /**
+     * Create a new {@code Webhook}.
+     *
+     * @param url       The URL to notify.
+     * @param publisher The publisher registering the webhook.
+     */
+    @Builder
+    private Webhook(String url, User publisher) {
+        this.id = UUID.randomUUID().toString();
+        this.url = url;
+        this.publisher = publisher;
+        this.createTime = new Date();
+    }
+
+    @Id
+    @NonNull
+    private String id;
+
+    @Column(length = 2048)
+    @NonNull
+    private String url;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @NonNull
+    private User publisher;
+
+    @Column(name = "create_time")
+    @NonNull
+    private Date createTime;
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * ORM for {@code webhook_delivery} table, the persistent queue of the notifications to deliver to the
+ * {@link Webhook}s.
+ * <p>
+ * A delivery holds a batch of changes, serialized once when the batch is formed, and the URL of the webhook at that
+ * time. It stays in the table until the webhook acknowledges it or the dispatcher gives up on it, so that pending
+ * deliveries survive a restart.
+ *
+ * @author mneri
+ */
+@Data
+@Entity
+@EqualsAndHashCode(of = "id")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Setter(AccessLevel.NONE)
+@Table(name = "webhook_delivery",
+       indexes = @Index(name = "webhook_delivery_next_attempt_time", columnList = "next_attempt_time"))
+@ToString(exclude = "payload")
+public class WebhookDelivery {
+    /**
+     * Create a new {@code WebhookDelivery}, due immediately.
+     *
+     * @param webhookId The id of the webhook.
+     * @param url       The URL of the webhook.
+     * @param payload   The body of the notification.
+     * @param eventTime The time of the oldest change in the batch.
+     */
+    @Builder
+    private WebhookDelivery(String webhookId, String url, String payload, Date eventTime) {
+        this.webhookId = webhookId;
+        this.url = url;
+        this.payload = payload;
+        this.eventTime = eventTime;
+        this.nextAttemptTime = new Date();
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "webhook_delivery_sequence")
+    @SequenceGenerator(name = "webhook_delivery_sequence", sequenceName = "webhook_delivery_sequence",
+                       allocationSize = 50)
+    private Long id;
+
+    @Column(name = "webhook_id")
+    @NonNull
+    private String webhookId;
+
+    @Column(length = 2048)
+    @NonNull
+    private String url;
+
+    @Column
+    @Lob
+    @NonNull
+    private String payload;
+
+    @Column
+    private int attempts;
+
+    @Column(name = "event_time")
+    @NonNull
+    private Date eventTime;
+
+    @Column(name = "next_attempt_time")
+    @NonNull
+    private Date nextAttemptTime;
+}
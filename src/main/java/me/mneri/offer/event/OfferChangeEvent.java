@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.event;
+
+import lombok.Value;
+import me.mneri.offer.entity.Offer;
+
+import java.math.BigDecimal;
+
+/**
+ * Application event published by the offer service whenever an {@link Offer} is created or its state changes.
+ * <p>
+ * The event carries a snapshot of the offer taken at publication time: listeners that run after the transaction
+ * commit never have to touch the entity, which by then may be detached or modified by someone else.
+ *
+ * @author mneri
+ */
+@Value
+public class OfferChangeEvent {
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        CANCELED,
+        EXPIRED
+    }
+
+    private Type type;
+
+    private String offerId;
+
+    private String title;
+
+    private String description;
+
+    private BigDecimal price;
+
+    private String currency;
+
+    private long createTime;
+
+    private long endTime;
+
+    private boolean canceled;
+
+    private String publisherId;
+
+    /**
+     * Create a new event of the specified type taking a snapshot of the specified offer.
+     *
+     * @param type  The type of the change.
+     * @param offer The offer.
+     * @return The event.
+     */
+    public static OfferChangeEvent of(Type type, Offer offer) {
+        return new OfferChangeEvent(type,
+                offer.getId(),
+                offer.getTitle(),
+                offer.getDescription(),
+                offer.getPrice(),
+                offer.getCurrency(),
+                offer.getCreateTime().getTime(),
+                offer.getEndTime().getTime(),
+                offer.isCanceled(),
+                offer.getPublisher().getId());
+    }
+
+    /**
+     * Return {@code true} if the offer was open at the specified time, that is if it was neither canceled nor expired.
+     *
+     * @param now The time, in milliseconds since the epoch.
+     * @return {@code true} if the offer was open, {@code false} otherwise.
+     */
+    public boolean isOpenAt(long now) {
+        return !canceled && type != Type.EXPIRED && endTime > now;
+    }
+}
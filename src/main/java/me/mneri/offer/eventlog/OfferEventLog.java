@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.eventlog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.Checkpoint;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.OfferEvent;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.expiry.OfferExpirySweeper;
+import me.mneri.offer.repository.CheckpointRepository;
+import me.mneri.offer.repository.OfferEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Append-only log of the changes made to the {@link Offer}s.
+ * <p>
+ * Every {@link OfferChangeEvent} is appended to the {@code offer_event} table in the same transaction as the change
+ * itself, so the log never misses a committed change nor records a rolled back one. Consumers read the log
+ * sequentially from the last sequence number they have seen instead of scanning the offer table.
+ * <p>
+ * Sequence numbers are taken when the event is appended, before the commit: a slow transaction may commit an event
+ * with a lower sequence number than the ones already visible. The log keeps track of the sequence numbers of the
+ * transactions still in flight and {@link #readSettled(long, int)} stops before the oldest of them, so that a consumer
+ * resuming from the last sequence number it read never skips an event. Only the appends of this instance are tracked:
+ * the log assumes that a single instance of the service writes to the {@code offer_event} table.
+ * <p>
+ * Offers expire by the passing of time rather than by a write: their {@link OfferChangeEvent.Type#EXPIRED} events are
+ * published by the {@link OfferExpirySweeper}, in its transaction, and appended like any other change.
+ * <p>
+ * A compactor periodically folds the events older than {@code offer.event-log.retention} milliseconds: below the
+ * compaction horizon only the latest event of each open offer is kept, while the events of closed offers are dropped
+ * altogether, the offer table holding their final state. A consumer that fell behind the horizon has lost the
+ * intermediate changes and must resynchronize from the offer table.
+ * <p>
+ * This component is enabled with {@code offer.event-log.enabled=true}.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.event-log.enabled", havingValue = "true")
+@Log4j2
+public class OfferEventLog {
+    private static final String COMPACTION_CHECKPOINT = "offer-event-log.compaction";
+
+    private Counter appended;
+
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    private Counter compacted;
+
+    private volatile long horizon;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OfferEventRepository offerEventRepository;
+
+    /*
+     * The sequence numbers of the events appended by the transactions still in flight, and the last sequence number
+     * taken. Both are guarded by the monitor of the set.
+     */
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+
+    private long lastSequence;
+
+    @Value("${offer.event-log.retention:3600000}")
+    private long retention;
+
+    @PostConstruct
+    private void init() {
+        appended = meterRegistry.counter("offer.event-log.appended");
+        compacted = meterRegistry.counter("offer.event-log.compacted");
+
+        horizon = checkpointRepository.findById(COMPACTION_CHECKPOINT).map(Checkpoint::getPosition).orElse(0L);
+        lastSequence = offerEventRepository.findFirstByOrderBySequenceDesc().map(OfferEvent::getSequence).orElse(0L);
+    }
+
+    /**
+     * Fold the events older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${offer.event-log.compaction.interval:60000}",
+               initialDelayString = "${offer.event-log.compaction.interval:60000}")
+    @Transactional
+    public void compact() {
+        long threshold = System.currentTimeMillis() - retention;
+        long target = offerEventRepository.findFirstByEventTimeBeforeOrderBySequenceDesc(new Date(threshold))
+                .map(OfferEvent::getSequence)
+                .map(sequence -> Math.min(sequence, settledBound()))
+                .orElse(0L);
+        Checkpoint checkpoint = checkpointRepository.findById(COMPACTION_CHECKPOINT)
+                .orElseGet(() -> new Checkpoint(COMPACTION_CHECKPOINT, 0));
+
+        if (target <= checkpoint.getPosition()) {
+            return;
+        }
+
+        int superseded = offerEventRepository.deleteSupersededUpTo(target);
+        int closing = offerEventRepository.deleteClosingUpTo(target);
+
+        checkpoint.setPosition(target);
+        checkpointRepository.save(checkpoint);
+        horizon = target;
+
+        compacted.increment(superseded + closing);
+        log.debug("Offer event log compacted; horizon: {}; superseded: {}; closing: {}", target, superseded, closing);
+    }
+
+    /**
+     * Return the compaction horizon: the events up to this sequence number, inclusive, may have been folded.
+     *
+     * @return The sequence number of the horizon, {@code 0} if the log was never compacted.
+     */
+    public long horizon() {
+        return horizon;
+    }
+
+    /**
+     * Append the specified change to the log, in the transaction of the change.
+     *
+     * @param event The change.
+     */
+    @EventListener
+    public void onOfferChange(OfferChangeEvent event) {
+        long sequence;
+
+        // The sequence number is taken and marked in flight atomically: a reader never sees one without the other.
+        synchronized (inFlight) {
+            sequence = offerEventRepository.save(OfferEvent.of(event)).getSequence();
+            lastSequence = Math.max(lastSequence, sequence);
+            inFlight.add(sequence);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    settle(sequence);
+                }
+            });
+        } else {
+            settle(sequence);
+        }
+
+        appended.increment();
+    }
+
+    private void settle(long sequence) {
+        synchronized (inFlight) {
+            inFlight.remove(sequence);
+        }
+    }
+
+    /**
+     * Return the sequence number up to which, inclusive, every event appended by this instance is settled, that is
+     * either committed or rolled back.
+     *
+     * @return The sequence number.
+     */
+    private long settledBound() {
+        synchronized (inFlight) {
+            return inFlight.isEmpty() ? lastSequence : inFlight.first() - 1;
+        }
+    }
+
+    /**
+     * Read the events following the specified sequence number, in sequence order.
+     *
+     * @param sequence The last sequence number seen by the consumer, {@code 0} to read from the start.
+     * @param limit    The maximum number of events to return.
+     * @return The list of the events.
+     */
+    public List<OfferEvent> read(long sequence, int limit) {
+        return offerEventRepository.findBySequenceGreaterThanOrderBySequence(sequence, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Read the settled events following the specified sequence number, in sequence order.
+     * <p>
+     * The events are read up to the oldest append still in flight, exclusive: a consumer resuming from the last
+     * sequence number it read doesn't skip the events of slow transactions.
+     *
+     * @param sequence The last sequence number seen by the consumer, {@code 0} to read from the start.
+     * @param limit    The maximum number of events to return.
+     * @return The list of the events.
+     */
+    public List<OfferEvent> readSettled(long sequence, int limit) {
+        return offerEventRepository.findBySequenceGreaterThanAndSequenceLessThanEqualOrderBySequence(sequence,
+                settledBound(), PageRequest.of(0, limit));
+    }
+
+    /**
+     * Return the sequence number up to which the events are settled (see {@link #readSettled(long, int)}), or the
+     * compaction horizon if greater: the events up to the horizon may have been dropped altogether.
+     *
+     * @return The sequence number, {@code 0} if the log is empty and was never compacted.
+     */
+    public long settledSequence() {
+        return Math.max(settledBound(), horizon);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.exception;
+
+/**
+ * Thrown when a filter expression cannot be parsed or doesn't apply to the offers.
+ *
+ * @author mneri
+ */
+public class InvalidFilterException extends Throwable {
+    private String reason;
+
+    /**
+     * Create a new instance.
+     *
+     * @param reason The reason the filter is not valid.
+     */
+    public InvalidFilterException(String reason) {
+        this.reason = reason;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("The filter is not valid: %s", reason);
+    }
+}
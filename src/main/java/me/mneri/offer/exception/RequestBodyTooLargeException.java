@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading a request body that exceeds the maximum size allowed for the endpoint.
+ * <p>
+ * This is an {@link IOException} because it is thrown by the request input stream, in the middle of the parsing.
+ *
+ * @author mneri
+ */
+public class RequestBodyTooLargeException extends IOException {
+    private long maxSize;
+
+    /**
+     * Create a new instance.
+     *
+     * @param maxSize The maximum size of the body in bytes.
+     */
+    public RequestBodyTooLargeException(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("The request body exceeds %d bytes", maxSize);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.expiry;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.Checkpoint;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.repository.CheckpointRepository;
+import me.mneri.offer.repository.OfferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+import static me.mneri.offer.specification.OfferSpecification.offerEndTimeIsBetween;
+import static me.mneri.offer.specification.OfferSpecification.offerIsCanceled;
+import static org.springframework.data.jpa.domain.Specification.not;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Publish an {@link OfferChangeEvent.Type#EXPIRED} event for the {@link Offer}s reaching their end time.
+ * <p>
+ * Offers expire by the passing of time rather than by a write, so no other change event marks their expiry. Every
+ * {@code offer.expiry.interval} milliseconds the offers that reached their end time since the previous sweep are
+ * published as expired, in a transaction: the event log appends the events along with the position of the sweep, while
+ * the in-memory views (index, facets, change stream, webhooks) apply them after commit. An offer is thus published as
+ * expired up to {@code offer.expiry.interval} milliseconds after its end time.
+ * <p>
+ * The position of the sweep is kept in a {@link Checkpoint}, so that the offers expiring while the service is down are
+ * published on restart. The sweep assumes a single instance of the service: each instance would publish the same
+ * expiries.
+ *
+ * @author mneri
+ */
+@Component
+@Log4j2
+public class OfferExpirySweeper {
+    /*
+     * Named after the event log, which used to own the sweep: an existing checkpoint is resumed from.
+     */
+    private static final String CHECKPOINT = "offer-event-log.expiry";
+
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    /**
+     * Publish an {@link OfferChangeEvent.Type#EXPIRED} event for the offers that expired since the previous sweep.
+     */
+    @Scheduled(fixedDelayString = "${offer.expiry.interval:1000}")
+    @Transactional
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        Checkpoint checkpoint = checkpointRepository.findById(CHECKPOINT)
+                .orElseGet(() -> new Checkpoint(CHECKPOINT, now));
+
+        List<Offer> expired = offerRepository.findAll(where(not(offerIsCanceled()))
+                .and(offerEndTimeIsBetween(new Date(checkpoint.getPosition()), new Date(now))));
+
+        for (Offer offer : expired) {
+            eventPublisher.publishEvent(OfferChangeEvent.of(OfferChangeEvent.Type.EXPIRED, offer));
+        }
+
+        checkpoint.setPosition(now);
+        checkpointRepository.save(checkpoint);
+
+        if (!expired.isEmpty()) {
+            log.debug("Offer expiry published; offers: {}", expired.size());
+        }
+    }
+}
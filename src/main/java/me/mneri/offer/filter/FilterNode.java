@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.filter;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * A node of the syntax tree of a filter expression, as returned by {@link FilterParser}.
+ * <p>
+ * The {@link #toString()} of a node is its canonical text: two expressions with the same tree have the same text.
+ *
+ * @author mneri
+ */
+public interface FilterNode {
+    /**
+     * The comparison operators.
+     */
+    enum Operator {
+        EQ("="),
+        NE("!="),
+        LT("<"),
+        LE("<="),
+        GT(">"),
+        GE(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Return the symbol of the operator in the filter expressions.
+         *
+         * @return The symbol.
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    /**
+     * The conjunction of two expressions.
+     */
+    @Value
+    class And implements FilterNode {
+        @NonNull
+        FilterNode left;
+
+        @NonNull
+        FilterNode right;
+
+        @Override
+        public String toString() {
+            return "(" + left + " and " + right + ")";
+        }
+    }
+
+    /**
+     * The comparison of a field with a literal value: a {@link String} or a {@link BigDecimal}.
+     */
+    @Value
+    class Comparison implements FilterNode {
+        @NonNull
+        String field;
+
+        @NonNull
+        Operator operator;
+
+        @NonNull
+        Object value;
+
+        @Override
+        public String toString() {
+            String literal;
+
+            if (value instanceof String) {
+                literal = "'" + ((String) value).replace("'", "''") + "'";
+            } else {
+                literal = ((BigDecimal) value).toPlainString();
+            }
+
+            return field + " " + operator.getSymbol() + " " + literal;
+        }
+    }
+
+    /**
+     * The negation of an expression.
+     */
+    @Value
+    class Not implements FilterNode {
+        @NonNull
+        FilterNode operand;
+
+        @Override
+        public String toString() {
+            return "not " + operand;
+        }
+    }
+
+    /**
+     * The disjunction of two expressions.
+     */
+    @Value
+    class Or implements FilterNode {
+        @NonNull
+        FilterNode left;
+
+        @NonNull
+        FilterNode right;
+
+        @Override
+        public String toString() {
+            return "(" + left + " or " + right + ")";
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.filter;
+
+import me.mneri.offer.exception.InvalidFilterException;
+
+import java.math.BigDecimal;
+
+/**
+ * Recursive descent parser of the filter expressions. The grammar is:
+ * <pre>
+ * expression := and ('or' and)*
+ * and        := unary ('and' unary)*
+ * unary      := 'not' unary | '(' expression ')' | comparison
+ * comparison := field ('=' | '!=' | '&lt;' | '&lt;=' | '&gt;' | '&gt;=') literal
+ * field      := name ('.' name)*
+ * literal    := string | number
+ * </pre>
+ * Strings are enclosed in single quotes, a quote inside a string is written twice: {@code 'Rock ''n'' roll'}.
+ * Numbers are decimal, optionally negative: {@code -12.50}. Keywords are lower case.
+ * <p>
+ * The parser only checks the syntax: whether the fields exist and accept the literals is checked by
+ * {@link OfferFilterCompiler}.
+ *
+ * @author mneri
+ */
+public class FilterParser {
+    /**
+     * The maximum nesting of the parentheses and the negations.
+     */
+    public static final int MAX_DEPTH = 32;
+
+    private int depth;
+
+    private final String text;
+
+    private int position;
+
+    private FilterParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse the specified filter expression.
+     *
+     * @param text The expression.
+     * @return The syntax tree of the expression.
+     * @throws InvalidFilterException If the expression is not valid.
+     */
+    public static FilterNode parse(String text) throws InvalidFilterException {
+        FilterParser parser = new FilterParser(text);
+        FilterNode node = parser.parseExpression();
+        parser.skipWhitespace();
+
+        if (parser.position < text.length()) {
+            throw parser.error("unexpected '" + text.charAt(parser.position) + "'");
+        }
+
+        return node;
+    }
+
+    private InvalidFilterException error(String reason) {
+        return new InvalidFilterException(reason + " at position " + position);
+    }
+
+    private boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Consume the specified keyword, if it is the next token.
+     */
+    private boolean keyword(String keyword) {
+        skipWhitespace();
+
+        int end = position + keyword.length();
+
+        if (text.startsWith(keyword, position) && (end == text.length() || !isNameChar(text.charAt(end)))) {
+            position = end;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void nest() throws InvalidFilterException {
+        if (++depth > MAX_DEPTH) {
+            throw error("expression nested too deeply");
+        }
+    }
+
+    private FilterNode parseAnd() throws InvalidFilterException {
+        FilterNode node = parseUnary();
+
+        while (keyword("and")) {
+            node = new FilterNode.And(node, parseUnary());
+        }
+
+        return node;
+    }
+
+    private FilterNode parseComparison() throws InvalidFilterException {
+        String field = parseField();
+        FilterNode.Operator operator = parseOperator();
+        Object value = parseLiteral();
+        return new FilterNode.Comparison(field, operator, value);
+    }
+
+    private FilterNode parseExpression() throws InvalidFilterException {
+        FilterNode node = parseAnd();
+
+        while (keyword("or")) {
+            node = new FilterNode.Or(node, parseAnd());
+        }
+
+        return node;
+    }
+
+    private String parseField() throws InvalidFilterException {
+        skipWhitespace();
+        int start = position;
+
+        while (true) {
+            int nameStart = position;
+
+            while (position < text.length() && isNameChar(text.charAt(position))) {
+                position++;
+            }
+
+            if (position == nameStart || !Character.isLetter(text.charAt(nameStart))) {
+                position = nameStart;
+                throw error("field expected");
+            }
+
+            if (position == text.length() || text.charAt(position) != '.') {
+                break;
+            }
+
+            position++;
+        }
+
+        return text.substring(start, position);
+    }
+
+    private Object parseLiteral() throws InvalidFilterException {
+        skipWhitespace();
+
+        if (position == text.length()) {
+            throw error("value expected");
+        }
+
+        char c = text.charAt(position);
+
+        if (c == '\'') {
+            return parseString();
+        }
+
+        if (c == '-' || Character.isDigit(c)) {
+            return parseNumber();
+        }
+
+        throw error("value expected");
+    }
+
+    private BigDecimal parseNumber() throws InvalidFilterException {
+        int start = position;
+
+        if (text.charAt(position) == '-') {
+            position++;
+        }
+
+        while (position < text.length() && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+            position++;
+        }
+
+        try {
+            return new BigDecimal(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("number expected");
+        }
+    }
+
+    private FilterNode.Operator parseOperator() throws InvalidFilterException {
+        // The two-character operators first, so that '<=' isn't read as '<'.
+        if (symbol("!=")) {
+            return FilterNode.Operator.NE;
+        } else if (symbol("<=")) {
+            return FilterNode.Operator.LE;
+        } else if (symbol(">=")) {
+            return FilterNode.Operator.GE;
+        } else if (symbol("=")) {
+            return FilterNode.Operator.EQ;
+        } else if (symbol("<")) {
+            return FilterNode.Operator.LT;
+        } else if (symbol(">")) {
+            return FilterNode.Operator.GT;
+        }
+
+        throw error("operator expected");
+    }
+
+    private String parseString() throws InvalidFilterException {
+        int start = position++;
+        StringBuilder builder = new StringBuilder();
+
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+
+            if (c != '\'') {
+                builder.append(c);
+            } else if (position < text.length() && text.charAt(position) == '\'') {
+                builder.append('\'');
+                position++;
+            } else {
+                return builder.toString();
+            }
+        }
+
+        position = start;
+        throw error("unterminated string");
+    }
+
+    private FilterNode parseUnary() throws InvalidFilterException {
+        if (keyword("not")) {
+            nest();
+            FilterNode node = new FilterNode.Not(parseUnary());
+            depth--;
+            return node;
+        }
+
+        if (symbol("(")) {
+            nest();
+            FilterNode node = parseExpression();
+
+            if (!symbol(")")) {
+                throw error("')' expected");
+            }
+
+            depth--;
+            return node;
+        }
+
+        return parseComparison();
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Consume the specified symbol, if it is the next token.
+     */
+    private boolean symbol(String symbol) {
+        skipWhitespace();
+
+        if (text.startsWith(symbol, position)) {
+            position += symbol.length();
+            return true;
+        }
+
+        return false;
+    }
+}
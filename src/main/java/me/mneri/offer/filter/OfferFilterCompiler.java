@@ -0,0 +1,292 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.concurrent.ExpiringMap;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.Offer_;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.entity.User_;
+import me.mneri.offer.exception.InvalidFilterException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.criteria.*;
+import javax.persistence.metamodel.SingularAttribute;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Compiles the filter expressions parsed by {@link FilterParser} into {@link Specification}s on the {@link Offer}s,
+ * for example {@code price < 10 and currency = 'GBP' and publisher.username = 'mneri'}.
+ * <p>
+ * The fields of the expressions are the attributes of the {@code Offer_} metamodel: {@code title},
+ * {@code description}, {@code price}, {@code currency}, {@code createTime} and {@code endTime}, and the
+ * {@code publisher.id} and {@code publisher.username} attributes of the {@code User_} metamodel. Prices are compared
+ * with numbers, times with ISO-8601 instants such as {@code '2020-03-01T12:00:00Z'} and the rest with strings.
+ * <p>
+ * Compiled expressions are cached by their text, with the whitespace outside the strings collapsed: repeated filters
+ * are neither parsed nor validated again. The cache holds at most {@code offer.filter.cache.max-entries}
+ * expressions, each for {@code offer.filter.cache.ttl} milliseconds.
+ * <p>
+ * The compiler depends on the entity manager factory, which populates the static metamodel the fields are resolved
+ * against.
+ *
+ * @author mneri
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Log4j2
+public class OfferFilterCompiler {
+    /**
+     * A field of the filter expressions: an attribute of the offer or of its publisher.
+     */
+    private static class Field {
+        private final SingularAttribute<Offer, ?> attribute;
+
+        private final SingularAttribute<User, ?> publisherAttribute;
+
+        private Field(SingularAttribute<Offer, ?> attribute, SingularAttribute<User, ?> publisherAttribute) {
+            this.attribute = attribute;
+            this.publisherAttribute = publisherAttribute;
+        }
+
+        private Class<?> getJavaType() {
+            return publisherAttribute == null ? attribute.getJavaType() : publisherAttribute.getJavaType();
+        }
+
+        private Expression<?> path(Root<Offer> root) {
+            return publisherAttribute == null ? root.get(attribute) : publisherOf(root).get(publisherAttribute);
+        }
+    }
+
+    private ExpiringMap<String, Specification<Offer>> cache;
+
+    private Counter cached;
+
+    private Counter compiled;
+
+    private final Map<String, Field> fields = new HashMap<>();
+
+    @Value("${offer.filter.max-length:1024}")
+    private int maxLength;
+
+    @Value("${offer.filter.cache.max-entries:1024}")
+    private int maxEntries;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${offer.filter.cache.ttl:3600000}")
+    private long ttl;
+
+    @PostConstruct
+    private void init() {
+        cache = new ExpiringMap<>(maxEntries, ttl);
+        cached = meterRegistry.counter("offer.filter.compilations", "cached", "true");
+        compiled = meterRegistry.counter("offer.filter.compilations", "cached", "false");
+
+        fields.put(Offer_.CREATE_TIME, new Field(Offer_.createTime, null));
+        fields.put(Offer_.CURRENCY, new Field(Offer_.currency, null));
+        fields.put(Offer_.DESCRIPTION, new Field(Offer_.description, null));
+        fields.put(Offer_.END_TIME, new Field(Offer_.endTime, null));
+        fields.put(Offer_.PRICE, new Field(Offer_.price, null));
+        fields.put(Offer_.TITLE, new Field(Offer_.title, null));
+        fields.put(Offer_.PUBLISHER + "." + User_.ID, new Field(Offer_.publisher, User_.id));
+        fields.put(Offer_.PUBLISHER + "." + User_.USERNAME, new Field(Offer_.publisher, User_.username));
+    }
+
+    /**
+     * Return the predicate comparing the specified expression with the specified value.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Predicate compare(CriteriaBuilder builder, Expression path, FilterNode.Operator operator,
+                                     Comparable value) {
+        switch (operator) {
+            case EQ:
+                return builder.equal(path, value);
+            case NE:
+                return builder.notEqual(path, value);
+            case LT:
+                return builder.lessThan(path, value);
+            case LE:
+                return builder.lessThanOrEqualTo(path, value);
+            case GT:
+                return builder.greaterThan(path, value);
+            default:
+                return builder.greaterThanOrEqualTo(path, value);
+        }
+    }
+
+    /**
+     * Return the text of the specified expression with the whitespace outside the strings collapsed.
+     *
+     * @param text The expression.
+     * @return The normalized text.
+     */
+    static String normalize(String text) {
+        StringBuilder builder = new StringBuilder(text.length());
+        boolean quoted = false;
+        boolean space = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (!quoted && Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+
+            if (space && builder.length() > 0) {
+                builder.append(' ');
+            }
+
+            // A quote written twice inside a string toggles twice: the string goes on.
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+
+            space = false;
+            builder.append(c);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Return the join on the publisher of the offers, reusing the existing one so that comparing more publisher
+     * attributes doesn't join the user table again.
+     */
+    @SuppressWarnings("unchecked")
+    private static Join<Offer, User> publisherOf(Root<Offer> root) {
+        for (Join<Offer, ?> join : root.getJoins()) {
+            if (join.getAttribute().equals(Offer_.publisher) && join.getJoinType() == JoinType.INNER) {
+                return (Join<Offer, User>) join;
+            }
+        }
+
+        return root.join(Offer_.publisher);
+    }
+
+    /**
+     * Compile the specified filter expression.
+     *
+     * @param text The expression.
+     * @return The specification selecting the offers matching the expression.
+     * @throws InvalidFilterException If the expression is not valid.
+     */
+    public Specification<Offer> compile(String text) throws InvalidFilterException {
+        if (text.length() > maxLength) {
+            throw new InvalidFilterException("longer than " + maxLength + " characters");
+        }
+
+        String key = normalize(text);
+        Specification<Offer> specification = cache.get(key);
+
+        if (specification != null) {
+            cached.increment();
+            return specification;
+        }
+
+        specification = compile(FilterParser.parse(text));
+        cache.put(key, specification);
+        compiled.increment();
+
+        log.debug("Filter compiled; filter: {}", key);
+        return specification;
+    }
+
+    private Specification<Offer> compile(FilterNode node) throws InvalidFilterException {
+        if (node instanceof FilterNode.And) {
+            FilterNode.And and = (FilterNode.And) node;
+            return where(compile(and.getLeft())).and(compile(and.getRight()));
+        }
+
+        if (node instanceof FilterNode.Or) {
+            FilterNode.Or or = (FilterNode.Or) node;
+            return where(compile(or.getLeft())).or(compile(or.getRight()));
+        }
+
+        if (node instanceof FilterNode.Not) {
+            return Specification.not(compile(((FilterNode.Not) node).getOperand()));
+        }
+
+        FilterNode.Comparison comparison = (FilterNode.Comparison) node;
+        Field field = fields.get(comparison.getField());
+
+        if (field == null) {
+            throw new InvalidFilterException("unknown field '" + comparison.getField() + "'");
+        }
+
+        Comparable<?> value = valueOf(field, comparison);
+        FilterNode.Operator operator = comparison.getOperator();
+
+        return (root, query, builder) -> compare(builder, field.path(root), operator, value);
+    }
+
+    /**
+     * Purge the expired expressions from the cache.
+     */
+    @Scheduled(fixedDelayString = "${offer.filter.cache.purge-interval:60000}")
+    public void purge() {
+        cache.purge();
+    }
+
+    /**
+     * Return the value of the specified comparison, converted to the type of its field.
+     */
+    private Comparable<?> valueOf(Field field, FilterNode.Comparison comparison) throws InvalidFilterException {
+        Class<?> type = field.getJavaType();
+        Object value = comparison.getValue();
+
+        if (type == String.class && value instanceof String) {
+            return (String) value;
+        }
+
+        if (type == BigDecimal.class && value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+
+        if (type == Date.class && value instanceof String) {
+            try {
+                return Date.from(Instant.parse((String) value));
+            } catch (DateTimeParseException e) {
+                throw new InvalidFilterException("'" + comparison.getField() + "' must be compared with an ISO-8601 "
+                        + "instant");
+            }
+        }
+
+        String kind = value instanceof String ? "a string" : "a number";
+        throw new InvalidFilterException("'" + comparison.getField() + "' cannot be compared with " + kind);
+    }
+}
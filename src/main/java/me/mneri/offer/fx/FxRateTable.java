@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.fx;
+
+import me.mneri.offer.validator.Constants;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * An immutable table of foreign exchange rates against a base currency.
+ * <p>
+ * The rate of a currency is the amount of that currency worth one unit of the base currency: an amount is normalized,
+ * that is converted to the base currency, dividing it by the rate of its currency. The base currency always has rate
+ * {@code 1}. Currency codes are case-insensitive.
+ *
+ * @author mneri
+ */
+public final class FxRateTable {
+    /**
+     * The scale of the normalized amounts.
+     */
+    public static final int SCALE = 6;
+
+    private final String baseCurrency;
+
+    private final Map<String, BigDecimal> rates;
+
+    /**
+     * Create a new table.
+     *
+     * @param baseCurrency The base currency.
+     * @param rates        The rates of the currencies other than the base one. The rate of the base currency, if
+     *                     present, must be {@code 1}.
+     * @throws IllegalArgumentException If a currency code is not valid or a rate is not positive.
+     */
+    public FxRateTable(String baseCurrency, Map<String, BigDecimal> rates) {
+        Map<String, BigDecimal> table = new HashMap<>();
+
+        for (Map.Entry<String, BigDecimal> entry : rates.entrySet()) {
+            String currency = keyOf(entry.getKey());
+            BigDecimal rate = entry.getValue();
+
+            if (currency.isEmpty() || currency.length() > Constants.CURRENCY_MAX_LENGTH) {
+                throw new IllegalArgumentException("Invalid currency: " + entry.getKey());
+            }
+
+            if (rate.signum() <= 0) {
+                throw new IllegalArgumentException("Invalid rate for " + currency + ": " + rate);
+            }
+
+            table.put(currency, rate);
+        }
+
+        this.baseCurrency = keyOf(baseCurrency);
+
+        BigDecimal baseRate = table.put(this.baseCurrency, BigDecimal.ONE);
+
+        if (baseRate != null && baseRate.compareTo(BigDecimal.ONE) != 0) {
+            throw new IllegalArgumentException("Invalid rate for the base currency " + baseCurrency + ": " + baseRate);
+        }
+
+        this.rates = Collections.unmodifiableMap(table);
+    }
+
+    /**
+     * Read a table from the specified properties file, mapping each currency code to its rate:
+     * <pre>
+     * GBP=0.8571
+     * USD=1.0842
+     * </pre>
+     *
+     * @param path         The path of the file.
+     * @param baseCurrency The base currency.
+     * @return The table.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If a currency code or a rate is not valid.
+     */
+    public static FxRateTable read(Path path, String baseCurrency) throws IOException {
+        Properties properties = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        Map<String, BigDecimal> rates = new HashMap<>();
+
+        for (String currency : properties.stringPropertyNames()) {
+            String value = properties.getProperty(currency).trim();
+
+            try {
+                rates.put(currency, new BigDecimal(value));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid rate for " + currency + ": " + value, e);
+            }
+        }
+
+        return new FxRateTable(baseCurrency, rates);
+    }
+
+    private static String keyOf(String currency) {
+        return currency.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Return the currencies whose rate differs between this table and the specified one, including the ones present in
+     * only one of them. If the base currencies differ all the currencies are returned.
+     *
+     * @param other The other table.
+     * @return The upper case codes of the currencies.
+     */
+    public Set<String> changedCurrencies(FxRateTable other) {
+        Set<String> currencies = new HashSet<>(rates.keySet());
+        currencies.addAll(other.rates.keySet());
+
+        if (baseCurrency.equals(other.baseCurrency)) {
+            currencies.removeIf(currency -> {
+                BigDecimal rate = rates.get(currency);
+                BigDecimal otherRate = other.rates.get(currency);
+                return rate != null && otherRate != null && rate.compareTo(otherRate) == 0;
+            });
+        }
+
+        return currencies;
+    }
+
+    /**
+     * Return the base currency.
+     *
+     * @return The upper case code of the currency.
+     */
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    /**
+     * Return the rate of the specified currency.
+     *
+     * @param currency The currency.
+     * @return The rate, if the currency is known.
+     */
+    public Optional<BigDecimal> getRate(String currency) {
+        return Optional.ofNullable(rates.get(keyOf(currency)));
+    }
+
+    /**
+     * Convert the specified amount to the base currency.
+     *
+     * @param amount   The amount.
+     * @param currency The currency of the amount.
+     * @return The amount in the base currency, if the currency is known.
+     */
+    public Optional<BigDecimal> normalize(BigDecimal amount, String currency) {
+        return getRate(currency).map(rate -> amount.divide(rate, SCALE, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Return the number of currencies in the table, the base one included.
+     *
+     * @return The number of currencies.
+     */
+    public int size() {
+        return rates.size();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.fx;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.event.FxRatesChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+/**
+ * The current FX rates, read from the properties file at {@code offer.fx.path} (see {@link FxRateTable#read}) against
+ * the base currency {@code offer.fx.base-currency}.
+ * <p>
+ * The file is checked every {@code offer.fx.reload-interval} milliseconds and it is read again if it was modified: if
+ * some rates changed a {@link FxRatesChangeEvent} is published. A file that cannot be read or parsed is ignored and
+ * the previous rates are kept, so the file should be replaced atomically (for example written aside and moved) rather
+ * than edited in place.
+ * <p>
+ * This component is enabled with {@code offer.fx.enabled=true}.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.fx.enabled", havingValue = "true")
+@Log4j2
+public class FxRates {
+    @Value("${offer.fx.base-currency:EUR}")
+    private String baseCurrency;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private Counter failures;
+
+    private FileTime lastModified;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${offer.fx.path}")
+    private String path;
+
+    private volatile FxRateTable table;
+
+    @PostConstruct
+    private void init() throws IOException {
+        Path file = Paths.get(path);
+        lastModified = Files.getLastModifiedTime(file);
+        table = FxRateTable.read(file, baseCurrency);
+
+        failures = meterRegistry.counter("offer.fx.reload.failures");
+        meterRegistry.gauge("offer.fx.currencies", this, rates -> rates.table.size());
+
+        log.info("FX rates loaded; baseCurrency: {}; currencies: {}", table.getBaseCurrency(), table.size());
+    }
+
+    /**
+     * Return the current rates. The returned table is immutable: callers needing consistent conversions should hold on
+     * to it instead of calling this method again.
+     *
+     * @return The rates.
+     */
+    public FxRateTable getTable() {
+        return table;
+    }
+
+    /**
+     * Read the rates again if the file was modified since the last time it was read.
+     */
+    @Scheduled(fixedDelayString = "${offer.fx.reload-interval:10000}",
+               initialDelayString = "${offer.fx.reload-interval:10000}")
+    public synchronized void reload() {
+        Path file = Paths.get(path);
+
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+
+            if (modified.equals(lastModified)) {
+                return;
+            }
+
+            // A broken file is not read again until it is modified.
+            lastModified = modified;
+
+            FxRateTable loaded = FxRateTable.read(file, baseCurrency);
+            Set<String> changed = loaded.changedCurrencies(table);
+            table = loaded;
+
+            log.info("FX rates reloaded; changed: {}", changed);
+
+            if (!changed.isEmpty()) {
+                eventPublisher.publishEvent(new FxRatesChangeEvent(changed));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            failures.increment();
+            log.warn("Couldn't reload the FX rates, the previous ones are kept; path: {}", path, e);
+        }
+    }
+}
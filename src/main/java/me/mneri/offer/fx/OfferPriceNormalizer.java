@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.fx;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.event.FxRatesChangeEvent;
+import me.mneri.offer.repository.OfferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the normalized prices of the {@link Offer}s up to date with the {@link FxRates}.
+ * <p>
+ * The offer service normalizes the price of an offer whenever it is saved. When the rates change, the offers in the
+ * changed currencies are normalized again in the background, {@code offer.fx.batch-size} offers per transaction, so
+ * that the table is never locked for long. The work starts {@code offer.fx.settle-time} milliseconds after the change,
+ * to let the transactions that normalized a price with the previous rates commit first. All the currencies are
+ * normalized again at startup, in case the rates changed while the service was down.
+ * <p>
+ * Only the open offers are normalized again: canceled and expired offers are never listed. An expired offer that is
+ * reopened by an update gets its price normalized by the offer service.
+ * <p>
+ * This component is enabled with {@code offer.fx.enabled=true}.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.fx.enabled", havingValue = "true")
+@Log4j2
+public class OfferPriceNormalizer {
+    @Value("${offer.fx.batch-size:500}")
+    private int batchSize;
+
+    private ScheduledExecutorService executor;
+
+    private Counter failures;
+
+    @Autowired
+    private FxRates fxRates;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter normalized;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Value("${offer.fx.settle-time:1000}")
+    private long settleTime;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    private void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "offer-fx-normalizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        failures = meterRegistry.counter("offer.fx.normalization.failures");
+        normalized = meterRegistry.counter("offer.fx.normalized");
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Normalize again the prices of all the offers, in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executor.execute(() -> run(this::renormalizeAll));
+    }
+
+    /**
+     * Normalize again the prices of the open offers in the changed currencies, in the background.
+     *
+     * @param event The change.
+     */
+    @EventListener
+    public void onFxRatesChange(FxRatesChangeEvent event) {
+        executor.schedule(() -> run(() -> renormalize(event.getCurrencies())), settleTime, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Couldn't normalize the offer prices", e);
+        }
+    }
+
+    /**
+     * Normalize again the prices of the open offers in the specified currencies with the current rates.
+     *
+     * @param currencies The upper case codes of the currencies.
+     */
+    public void renormalize(Set<String> currencies) {
+        for (String currency : offerRepository.findOpenCurrencies(new Date())) {
+            if (currencies.contains(currency.toUpperCase(Locale.ROOT))) {
+                renormalize(currency);
+            }
+        }
+    }
+
+    /**
+     * Normalize again the prices of all the open offers with the current rates.
+     */
+    public void renormalizeAll() {
+        offerRepository.findOpenCurrencies(new Date()).forEach(this::renormalize);
+    }
+
+    private void renormalize(String currency) {
+        FxRateTable rates = fxRates.getTable();
+        BigDecimal rate = rates.getRate(currency).orElse(null);
+        PageRequest batch = PageRequest.of(0, batchSize);
+        Date now = new Date();
+        String after = "";
+        int count = 0;
+
+        while (true) {
+            List<String> ids = offerRepository.findOpenIdsByCurrency(currency, now, after, batch);
+
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            // Normalized exactly like the offer service does on save. The offers are locked while their price is read
+            // and the changed ones are flushed on commit, along with their update time.
+            Integer updated = transactionTemplate.execute(status -> {
+                List<Offer> offers = offerRepository.findAllByIdInAndCurrency(ids, currency);
+
+                for (Offer offer : offers) {
+                    offer.setNormalizedPrice(rates.normalize(offer.getPrice(), currency).orElse(null));
+                }
+
+                return offers.size();
+            });
+
+            count += updated == null ? 0 : updated;
+            after = ids.get(ids.size() - 1);
+        }
+
+        normalized.increment(count);
+        log.debug("Offer prices normalized; currency: {}; rate: {}; offers: {}", currency, rate, count);
+    }
+}
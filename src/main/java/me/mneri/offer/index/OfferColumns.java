@@ -0,0 +1,490 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory columnar store of the attributes of the offers that can be filtered on.
+ * <p>
+ * Each attribute lives in its own primitive array, indexed by row: scanning a column touches contiguous memory and
+ * the predicates in {@link #scan(OfferScan)} are combined without branches so that the JIT can unroll and vectorise
+ * the loop. Currencies are dictionary encoded. Canceled rows are tracked in a bitset and physically removed when they
+ * make up more than half of the store.
+ * <p>
+ * The store holds what the offer listing filters and sorts on, so that a page of a filtered listing is computed here
+ * and only the offers in the page have to be read from the repository.
+ * <p>
+ * Instances of this class are thread safe.
+ *
+ * @author mneri
+ */
+public class OfferColumns {
+    /**
+     * The orders the matching offers of a scan can be returned in. The offer id breaks the ties.
+     */
+    public enum Order {
+        CREATE_TIME,
+        END_TIME,
+        PRICE
+    }
+
+    /**
+     * The number of decimal digits the prices are stored with.
+     */
+    public static final int PRICE_SCALE = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> rows = new HashMap<>();
+
+    private final Map<String, Short> currencyCodes = new HashMap<>();
+
+    private final List<String> currencies = new ArrayList<>();
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+
+    private long[] createTimeMillis = new long[INITIAL_CAPACITY];
+
+    private long[] endTimeMillis = new long[INITIAL_CAPACITY];
+
+    private long[] priceMinorUnits = new long[INITIAL_CAPACITY];
+
+    private short[] currencyCode = new short[INITIAL_CAPACITY];
+
+    private long[] canceled = new long[INITIAL_CAPACITY >>> 6];
+
+    private int size;
+
+    private int dead;
+
+    /**
+     * Convert a price to its minor units representation (e.g. pence for GBP).
+     *
+     * @param price The price.
+     * @return The price in minor units.
+     */
+    public static long toMinorUnits(BigDecimal price) {
+        return toMinorUnits(price, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Convert a price to its minor units representation (e.g. pence for GBP) with the specified rounding, saturating
+     * at the bounds of {@code long}. Use {@link RoundingMode#CEILING} for a lower bound and {@link RoundingMode#FLOOR}
+     * for an upper bound, so that the bound matches the same prices as the original one.
+     *
+     * @param price        The price.
+     * @param roundingMode The rounding mode.
+     * @return The price in minor units.
+     */
+    public static long toMinorUnits(BigDecimal price, RoundingMode roundingMode) {
+        BigInteger units = price.setScale(PRICE_SCALE, roundingMode).unscaledValue();
+
+        if (units.bitLength() >= Long.SIZE) {
+            return units.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+
+        return units.longValue();
+    }
+
+    /**
+     * Return the number of rows in the store, including canceled rows that haven't been removed yet.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        lock.readLock().lock();
+
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all the rows from the store.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+
+        try {
+            rows.clear();
+            Arrays.fill(ids, 0, size, null);
+            Arrays.fill(canceled, 0L);
+            size = 0;
+            dead = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or update the row of the specified offer.
+     *
+     * @param id               The offer id.
+     * @param createTimeMillis The offer's creation time, in milliseconds since the epoch.
+     * @param endTimeMillis    The offer's end time, in milliseconds since the epoch.
+     * @param price            The offer's price.
+     * @param currency         The currency of the offer's price.
+     * @param canceled         Whether the offer is canceled.
+     */
+    public void put(String id, long createTimeMillis, long endTimeMillis, BigDecimal price, String currency,
+                    boolean canceled) {
+        put(id, createTimeMillis, endTimeMillis, toMinorUnits(price), currency, canceled);
+    }
+
+    /**
+     * Insert or update the row of the specified offer.
+     *
+     * @param id               The offer id.
+     * @param createTimeMillis The offer's creation time, in milliseconds since the epoch.
+     * @param endTimeMillis    The offer's end time, in milliseconds since the epoch.
+     * @param priceMinorUnits  The offer's price in minor units.
+     * @param currency         The currency of the offer's price.
+     * @param canceled         Whether the offer is canceled.
+     */
+    public void put(String id, long createTimeMillis, long endTimeMillis, long priceMinorUnits, String currency,
+                    boolean canceled) {
+        lock.writeLock().lock();
+
+        try {
+            Integer row = rows.get(id);
+
+            if (row == null) {
+                if (canceled) {
+                    return;
+                }
+
+                ensureCapacity(size + 1);
+                row = size++;
+                rows.put(id, row);
+                ids[row] = id;
+            } else if (isCanceled(row)) {
+                dead--;
+            }
+
+            this.createTimeMillis[row] = createTimeMillis;
+            this.endTimeMillis[row] = endTimeMillis;
+            this.priceMinorUnits[row] = priceMinorUnits;
+            this.currencyCode[row] = encodeCurrency(currency);
+            setCanceled(row, canceled);
+
+            if (canceled) {
+                dead++;
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the row of the specified offer, if present.
+     *
+     * @param id The offer id.
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+
+        try {
+            Integer row = rows.get(id);
+
+            if (row != null && !isCanceled(row)) {
+                setCanceled(row, true);
+                dead++;
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the ids of the offers matching the specified scan, in insertion order.
+     *
+     * @param scan The scan.
+     * @return The list of the ids of the matching offers.
+     */
+    public List<String> scan(OfferScan scan) {
+        lock.readLock().lock();
+
+        try {
+            int[] matches = new int[size];
+            int count = scan(scan, matches);
+            List<String> result = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                result.add(ids[matches[i]]);
+            }
+
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of offers matching the specified scan.
+     *
+     * @param scan The scan.
+     * @return The number of matching offers.
+     */
+    public int count(OfferScan scan) {
+        lock.readLock().lock();
+
+        try {
+            return scan(scan, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return a page of the offers matching the specified scan, in the specified order, along with the total number of
+     * matching offers.
+     *
+     * @param scan       The scan.
+     * @param order      The order of the offers.
+     * @param descending Whether the order is descending.
+     * @param offset     The number of matching offers to skip.
+     * @param limit      The maximum number of offers in the page.
+     * @return The page.
+     */
+    public OfferScanResult scan(OfferScan scan, Order order, boolean descending, int offset, int limit) {
+        lock.readLock().lock();
+
+        try {
+            int[] matches = new int[size];
+            int count = scan(scan, matches);
+
+            if (offset >= count || limit <= 0) {
+                return new OfferScanResult(count, Collections.emptyList());
+            }
+
+            long[] keys = order == Order.CREATE_TIME ? createTimeMillis
+                    : order == Order.END_TIME ? endTimeMillis
+                    : priceMinorUnits;
+            Comparator<Integer> comparator = Comparator.<Integer>comparingLong(row -> keys[row])
+                    .thenComparing(row -> ids[row]);
+
+            if (descending) {
+                comparator = comparator.reversed();
+            }
+
+            // Only the first offset + limit rows are ordered: the heap keeps them, the worst one on top.
+            int wanted = (int) Math.min((long) offset + limit, count);
+            PriorityQueue<Integer> heap = new PriorityQueue<>(wanted, comparator.reversed());
+
+            for (int i = 0; i < count; i++) {
+                heap.add(matches[i]);
+
+                if (heap.size() > wanted) {
+                    heap.poll();
+                }
+            }
+
+            String[] page = new String[wanted - offset];
+
+            for (int i = page.length - 1; i >= 0; i--) {
+                page[i] = ids[heap.poll()];
+            }
+
+            return new OfferScanResult(count, Arrays.asList(page));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scan the columns writing the matching rows into the specified array. Must be called holding the read lock.
+     *
+     * @param scan    The scan.
+     * @param matches The output array, at least {@link #size} long, or {@code null} to only count the matches.
+     * @return The number of matching rows.
+     */
+    private int scan(OfferScan scan, int[] matches) {
+        int currency = -1;
+
+        if (scan.getCurrency() != null) {
+            Short code = currencyCodes.get(scan.getCurrency());
+
+            if (code == null) {
+                return 0;
+            }
+
+            currency = code;
+        }
+
+        final long now = scan.getNow();
+        final long maxEndTime = scan.getMaxEndTimeMillis();
+        final long minPrice = scan.getMinPriceMinorUnits();
+        final long maxPrice = scan.getMaxPriceMinorUnits();
+        final boolean anyCurrency = currency < 0;
+        final long[] canceled = this.canceled;
+        final long[] endTimeMillis = this.endTimeMillis;
+        final long[] priceMinorUnits = this.priceMinorUnits;
+        final short[] currencyCode = this.currencyCode;
+        final int n = size;
+        int count = 0;
+
+        // Non short-circuit operators on purpose: the loop body has a single, predictable branch.
+        for (int i = 0; i < n; i++) {
+            boolean match = ((canceled[i >>> 6] >>> i) & 1L) == 0L
+                    & endTimeMillis[i] > now
+                    & endTimeMillis[i] <= maxEndTime
+                    & priceMinorUnits[i] >= minPrice
+                    & priceMinorUnits[i] <= maxPrice
+                    & (anyCurrency | currencyCode[i] == currency);
+
+            if (match) {
+                if (matches != null) {
+                    matches[count] = i;
+                }
+
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Visit every non-canceled row of the store holding the read lock.
+     *
+     * @param visitor The visitor.
+     */
+    public void forEach(RowVisitor visitor) {
+        lock.readLock().lock();
+
+        try {
+            for (int i = 0; i < size; i++) {
+                if (!isCanceled(i)) {
+                    visitor.visit(ids[i], createTimeMillis[i], endTimeMillis[i], priceMinorUnits[i],
+                            currencies.get(currencyCode[i]));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (dead > INITIAL_CAPACITY && dead > size / 2) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        int live = 0;
+
+        rows.clear();
+
+        for (int i = 0; i < size; i++) {
+            if (!isCanceled(i)) {
+                ids[live] = ids[i];
+                createTimeMillis[live] = createTimeMillis[i];
+                endTimeMillis[live] = endTimeMillis[i];
+                priceMinorUnits[live] = priceMinorUnits[i];
+                currencyCode[live] = currencyCode[i];
+                rows.put(ids[live], live);
+                live++;
+            }
+        }
+
+        Arrays.fill(ids, live, size, null);
+        Arrays.fill(canceled, 0L);
+        size = live;
+        dead = 0;
+    }
+
+    private short encodeCurrency(String currency) {
+        Short code = currencyCodes.get(currency);
+
+        if (code == null) {
+            if (currencies.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct currencies");
+            }
+
+            code = (short) currencies.size();
+            currencies.add(currency);
+            currencyCodes.put(currency, code);
+        }
+
+        return code;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, ids.length << 1);
+
+        ids = Arrays.copyOf(ids, newCapacity);
+        createTimeMillis = Arrays.copyOf(createTimeMillis, newCapacity);
+        endTimeMillis = Arrays.copyOf(endTimeMillis, newCapacity);
+        priceMinorUnits = Arrays.copyOf(priceMinorUnits, newCapacity);
+        currencyCode = Arrays.copyOf(currencyCode, newCapacity);
+        canceled = Arrays.copyOf(canceled, (newCapacity + 63) >>> 6);
+    }
+
+    private boolean isCanceled(int row) {
+        return ((canceled[row >>> 6] >>> row) & 1L) != 0L;
+    }
+
+    private void setCanceled(int row, boolean value) {
+        if (value) {
+            canceled[row >>> 6] |= 1L << row;
+        } else {
+            canceled[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    /**
+     * Visitor for the rows of an {@link OfferColumns} store.
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        /**
+         * Visit a row.
+         *
+         * @param id               The offer id.
+         * @param createTimeMillis The offer's creation time, in milliseconds since the epoch.
+         * @param endTimeMillis    The offer's end time, in milliseconds since the epoch.
+         * @param priceMinorUnits  The offer's price in minor units.
+         * @param currency         The currency of the offer's price.
+         */
+        void visit(String id, long createTimeMillis, long endTimeMillis, long priceMinorUnits, String currency);
+    }
+}
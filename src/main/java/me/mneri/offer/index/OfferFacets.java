@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.dto.OfferFacetsDto;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.repository.OfferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static me.mneri.offer.specification.OfferSpecification.offerIsOpen;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Counts of the open {@link Offer}s by currency and by price bucket, maintained incrementally.
+ * <p>
+ * The counts are loaded from the repository at startup and then kept up to date listening to the
+ * {@link OfferChangeEvent}s committed by the offer service: reading them costs as much as the number of facet values,
+ * not the number of offers. Each count is a {@link LongAdder}, so that concurrent changes don't contend on the same
+ * counter.
+ * <p>
+ * To move an offer from a facet value to another when it changes, the facet values of every open offer are kept.
+ * Offers reaching their end time are removed on their {@link OfferChangeEvent.Type#EXPIRED} event: until then they are
+ * still counted.
+ * <p>
+ * The price buckets are delimited by the ascending prices in {@code offer.facets.price-buckets}, regardless of the
+ * currency: the first bucket starts from zero and the last one has no upper bound.
+ * <p>
+ * This component is enabled with {@code offer.facets.enabled=true}.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.facets.enabled", havingValue = "true")
+@Log4j2
+public class OfferFacets {
+    /**
+     * The facet values of an open offer.
+     */
+    private static class Entry {
+        private final String currency;
+
+        private final int priceBucket;
+
+        private Entry(String currency, int priceBucket) {
+            this.currency = currency;
+            this.priceBucket = priceBucket;
+        }
+    }
+
+    private final Map<String, LongAdder> currencyCounts = new ConcurrentHashMap<>();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Value("${offer.facets.price-buckets:10,50,100,500,1000}")
+    private BigDecimal[] priceBoundaries;
+
+    private LongAdder[] priceCounts;
+
+    private final LongAdder total = new LongAdder();
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    private void init() {
+        for (int i = 1; i < priceBoundaries.length; i++) {
+            if (priceBoundaries[i - 1].compareTo(priceBoundaries[i]) >= 0) {
+                throw new IllegalStateException("The price buckets must be ascending: "
+                        + Arrays.toString(priceBoundaries));
+            }
+        }
+
+        priceCounts = new LongAdder[priceBoundaries.length + 1];
+
+        for (int i = 0; i < priceCounts.length; i++) {
+            priceCounts[i] = new LongAdder();
+        }
+
+        meterRegistry.gaugeMapSize("offer.facets.offers", Tags.empty(), entries);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.execute(status -> {
+            offerRepository.findAll(where(offerIsOpen())).forEach(offer -> put(offer.getId(),
+                    offer.getCurrency(), offer.getPrice()));
+            return null;
+        });
+
+        log.debug("Offer facets loaded; offers: {}", entries.size());
+    }
+
+    /**
+     * Return the price bucket of the specified price: the number of boundaries less than or equal to it.
+     *
+     * @param price The price.
+     * @return The index of the bucket.
+     */
+    private int bucketOf(BigDecimal price) {
+        int low = 0;
+        int high = priceBoundaries.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (priceBoundaries[middle].compareTo(price) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private void count(Entry entry, int delta) {
+        currencyCounts.computeIfAbsent(entry.currency, currency -> new LongAdder()).add(delta);
+        priceCounts[entry.priceBucket].add(delta);
+        total.add(delta);
+    }
+
+    /**
+     * Update the counts with the specified change.
+     *
+     * @param event The change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferChange(OfferChangeEvent event) {
+        if (event.isOpenAt(System.currentTimeMillis())) {
+            put(event.getOfferId(), event.getCurrency(), event.getPrice());
+        } else {
+            remove(event.getOfferId());
+        }
+    }
+
+    private void put(String offerId, String currency, BigDecimal price) {
+        Entry entry = new Entry(currency, bucketOf(price));
+
+        entries.compute(offerId, (id, previous) -> {
+            if (previous != null) {
+                count(previous, -1);
+            }
+
+            count(entry, 1);
+            return entry;
+        });
+    }
+
+    /**
+     * Remove the offer with the specified id from the counts.
+     *
+     * @param offerId The id of the offer.
+     */
+    private void remove(String offerId) {
+        entries.computeIfPresent(offerId, (id, previous) -> {
+            count(previous, -1);
+            return null;
+        });
+    }
+
+    /**
+     * Return the current counts. Facet values without offers are left out.
+     *
+     * @return The counts.
+     */
+    public OfferFacetsDto snapshot() {
+        Map<String, Long> currencies = new TreeMap<>();
+
+        currencyCounts.forEach((currency, count) -> {
+            long value = count.sum();
+
+            if (value > 0) {
+                currencies.put(currency, value);
+            }
+        });
+
+        List<OfferFacetsDto.PriceBucket> prices = new ArrayList<>(priceCounts.length);
+
+        for (int i = 0; i < priceCounts.length; i++) {
+            long value = priceCounts[i].sum();
+
+            if (value > 0) {
+                BigDecimal min = i == 0 ? BigDecimal.ZERO : priceBoundaries[i - 1];
+                BigDecimal max = i == priceBoundaries.length ? null : priceBoundaries[i];
+                prices.add(new OfferFacetsDto.PriceBucket(min, max, value));
+            }
+        }
+
+        return new OfferFacetsDto(total.sum(), currencies, prices);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.util.TextUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+
+import static me.mneri.offer.specification.OfferSpecification.offerIsOpen;
+import static me.mneri.offer.specification.OfferSpecification.offerUpdateTimeIsAfter;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * In-memory index of the open {@link Offer}s, backed by an {@link OfferColumns} store.
+ * <p>
+ * The index is loaded from the repository at startup and then kept up to date listening to the
+ * {@link OfferChangeEvent}s committed by the offer service. Changes made bypassing the service are not seen by the
+ * index, hence the index is only enabled through the {@code offer.index.enabled} property. Expired offers are
+ * removed on their {@link OfferChangeEvent.Type#EXPIRED} event; until then the scans filter them out by end time.
+ * <p>
+ * If {@code offer.index.snapshot.path} is set, the index is periodically written to that file (see
+ * {@link OfferIndexSnapshot}) and, on restart, it is mapped back into memory: only the offers updated after the
+ * snapshot's high-water mark are then read from the repository.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.index.enabled", havingValue = "true")
+@Log4j2
+public class OfferIndex {
+    private final OfferColumns columns = new OfferColumns();
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Value("${offer.index.snapshot.path:}")
+    private String snapshotPath;
+
+    /*
+     * A transaction can set an offer's update time before the snapshot is taken and commit after it. Changes are
+     * replayed starting a safety margin before the high-water mark so that such transactions are not missed.
+     */
+    @Value("${offer.index.snapshot.replay-margin:60000}")
+    private long snapshotReplayMargin;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Load the index, either from the snapshot file and the repository changes made after it, or from the repository
+     * alone.
+     */
+    @PostConstruct
+    public void load() {
+        long highWaterMark = readSnapshot();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.execute(status -> {
+            if (highWaterMark < 0) {
+                offerRepository.findAll(where(offerIsOpen())).forEach(this::put);
+            } else {
+                Date since = new Date(highWaterMark - snapshotReplayMargin);
+                offerRepository.findAll(where(offerUpdateTimeIsAfter(since))).forEach(this::put);
+            }
+
+            return null;
+        });
+
+        log.debug("Offer index loaded; size: {}", columns.size());
+    }
+
+    /**
+     * Read the snapshot file into the index, if configured and valid.
+     *
+     * @return The high-water mark of the snapshot, or {@code -1} if the snapshot couldn't be read.
+     */
+    private long readSnapshot() {
+        if (TextUtil.isEmpty(snapshotPath) || !Files.exists(Paths.get(snapshotPath))) {
+            return -1;
+        }
+
+        try {
+            long highWaterMark = OfferIndexSnapshot.read(Paths.get(snapshotPath), columns);
+            log.debug("Offer index snapshot read; path: {}; highWaterMark: {}", snapshotPath, highWaterMark);
+            return highWaterMark;
+        } catch (IOException e) {
+            log.warn("Couldn't read the offer index snapshot, rebuilding from the repository; path: {}", snapshotPath, e);
+            columns.clear();
+            return -1;
+        }
+    }
+
+    /**
+     * Write a snapshot of the index to the snapshot file, if configured.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${offer.index.snapshot.interval:60000}",
+               initialDelayString = "${offer.index.snapshot.interval:60000}")
+    public void writeSnapshot() {
+        if (TextUtil.isEmpty(snapshotPath)) {
+            return;
+        }
+
+        // Taken before reading the store: the changes applied while the snapshot is written are replayed on restart.
+        long highWaterMark = System.currentTimeMillis();
+        Path path = Paths.get(snapshotPath);
+
+        try {
+            int rows = OfferIndexSnapshot.write(columns, highWaterMark, path);
+            log.debug("Offer index snapshot written; path: {}; rows: {}", path, rows);
+        } catch (IOException e) {
+            log.warn("Couldn't write the offer index snapshot; path: {}", path, e);
+        }
+    }
+
+    /**
+     * Update the index with the specified change.
+     *
+     * @param event The change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferChange(OfferChangeEvent event) {
+        if (event.getType() == OfferChangeEvent.Type.EXPIRED) {
+            columns.remove(event.getOfferId());
+        } else {
+            columns.put(event.getOfferId(), event.getCreateTime(), event.getEndTime(), event.getPrice(),
+                    event.getCurrency(), event.isCanceled());
+        }
+    }
+
+    /**
+     * Return a page of the offers matching the specified scan, in the specified order.
+     *
+     * @param scan       The scan.
+     * @param order      The order of the offers.
+     * @param descending Whether the order is descending.
+     * @param offset     The number of matching offers to skip.
+     * @param limit      The maximum number of offers in the page.
+     * @return The page.
+     */
+    public OfferScanResult scan(OfferScan scan, OfferColumns.Order order, boolean descending, int offset, int limit) {
+        return columns.scan(scan, order, descending, offset, limit);
+    }
+
+    private void put(Offer offer) {
+        columns.put(offer.getId(), offer.getCreateTime().getTime(), offer.getEndTime().getTime(), offer.getPrice(),
+                offer.getCurrency(), offer.isCanceled());
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of an {@link OfferColumns} store, written to and read from memory-mapped files.
+ * <p>
+ * The layout of a snapshot file is the following; all numbers are big-endian:
+ * <pre>
+ * header  int    magic number ('OFXI')
+ *         int    format version
+ *         long   high-water mark, in milliseconds since the epoch
+ *         int    number of rows (n)
+ *         int    number of strings in the string table (m)
+ *         long   CRC-32 of the body
+ * body    m x    string: unsigned short length, UTF-8 bytes
+ *         n x    int    reference to the string table: offer id
+ *         n x    long   creation time, in milliseconds since the epoch
+ *         n x    long   end time, in milliseconds since the epoch
+ *         n x    long   price, in minor units
+ *         n x    int    reference to the string table: currency
+ * </pre>
+ * Ids and currencies share the same string table. The high-water mark is the time the snapshot was
+ * taken: every change made to the repository after that time is not reflected by the snapshot.
+ *
+ * @author mneri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class OfferIndexSnapshot {
+    private static final int MAGIC = 0x4F465849;
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Write a snapshot of the specified store to the specified file.
+     * <p>
+     * The snapshot is first written to a temporary file in the same directory and then atomically moved in place, so
+     * that a crash during the write never leaves a truncated snapshot behind.
+     *
+     * @param columns       The store.
+     * @param highWaterMark The high-water mark, in milliseconds since the epoch.
+     * @param path          The path of the snapshot file.
+     * @return The number of rows written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static int write(OfferColumns columns, long highWaterMark, Path path) throws IOException {
+        Map<String, Integer> refs = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        List<long[]> numbers = new ArrayList<>();
+        List<int[]> references = new ArrayList<>();
+
+        columns.forEach((id, createTimeMillis, endTimeMillis, priceMinorUnits, currency) -> {
+            references.add(new int[]{intern(id, refs, strings), intern(currency, refs, strings)});
+            numbers.add(new long[]{createTimeMillis, endTimeMillis, priceMinorUnits});
+        });
+
+        int rows = references.size();
+        long size = HEADER_SIZE + (long) rows * (4 + 8 + 8 + 8 + 4);
+
+        for (byte[] string : strings) {
+            size += 2 + string.length;
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.position(HEADER_SIZE);
+
+            for (byte[] string : strings) {
+                buffer.putShort((short) string.length);
+                buffer.put(string);
+            }
+
+            for (int[] reference : references) {
+                buffer.putInt(reference[0]);
+            }
+
+            for (long[] number : numbers) {
+                buffer.putLong(number[0]);
+            }
+
+            for (long[] number : numbers) {
+                buffer.putLong(number[1]);
+            }
+
+            for (long[] number : numbers) {
+                buffer.putLong(number[2]);
+            }
+
+            for (int[] reference : references) {
+                buffer.putInt(reference[1]);
+            }
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, highWaterMark);
+            buffer.putInt(16, rows);
+            buffer.putInt(20, strings.size());
+            buffer.putLong(24, checksum(buffer, size));
+            buffer.force();
+        }
+
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        return rows;
+    }
+
+    /**
+     * Read the snapshot in the specified file into the specified store.
+     *
+     * @param path    The path of the snapshot file.
+     * @param columns The store.
+     * @return The high-water mark of the snapshot, in milliseconds since the epoch.
+     * @throws IOException If an I/O error occurs or if the file is not a valid snapshot.
+     */
+    public static long read(Path path, OfferColumns columns) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size < HEADER_SIZE) {
+                throw new IOException("Snapshot too short: " + path);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Unknown snapshot format: " + path);
+            }
+
+            if (buffer.getLong(24) != checksum(buffer, size)) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+
+            long highWaterMark = buffer.getLong(8);
+            int rows = buffer.getInt(16);
+            String[] strings = new String[buffer.getInt(20)];
+            byte[] bytes = new byte[0xFFFF];
+
+            buffer.position(HEADER_SIZE);
+
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getShort() & 0xFFFF;
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int ids = buffer.position();
+            int createTimes = ids + rows * 4;
+            int endTimes = createTimes + rows * 8;
+            int prices = endTimes + rows * 8;
+            int currencies = prices + rows * 8;
+
+            for (int i = 0; i < rows; i++) {
+                columns.put(strings[buffer.getInt(ids + i * 4)],
+                        buffer.getLong(createTimes + i * 8),
+                        buffer.getLong(endTimes + i * 8),
+                        buffer.getLong(prices + i * 8),
+                        strings[buffer.getInt(currencies + i * 4)],
+                        false);
+            }
+
+            return highWaterMark;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupted snapshot: " + path, e);
+        }
+    }
+
+    private static long checksum(ByteBuffer buffer, long size) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        body.limit((int) size);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+
+    private static int intern(String string, Map<String, Integer> refs, List<byte[]> strings) {
+        Integer ref = refs.get(string);
+
+        if (ref == null) {
+            ref = strings.size();
+            refs.put(string, ref);
+            strings.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return ref;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The predicates of a scan over an {@link OfferColumns} store.
+ * <p>
+ * Only open offers are returned by a scan: on top of that every non-{@code null} attribute narrows the result.
+ *
+ * @author mneri
+ */
+@Builder
+@Value
+public class OfferScan {
+    /**
+     * The reference time, in milliseconds since the epoch: offers ending at or before this time are expired.
+     */
+    private long now;
+
+    /**
+     * The minimum price, inclusive, in minor units.
+     */
+    @Builder.Default
+    private long minPriceMinorUnits = Long.MIN_VALUE;
+
+    /**
+     * The maximum price, inclusive, in minor units.
+     */
+    @Builder.Default
+    private long maxPriceMinorUnits = Long.MAX_VALUE;
+
+    /**
+     * The currency, or {@code null} for any currency.
+     */
+    private String currency;
+
+    /**
+     * The latest end time, inclusive, in milliseconds since the epoch.
+     */
+    @Builder.Default
+    private long maxEndTimeMillis = Long.MAX_VALUE;
+
+    /**
+     * Return a scan matching all the offers open at the specified time.
+     *
+     * @param now The time, in milliseconds since the epoch.
+     * @return The scan.
+     */
+    public static OfferScan open(long now) {
+        return OfferScan.builder().now(now).build();
+    }
+}
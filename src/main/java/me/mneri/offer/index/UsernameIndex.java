@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.validator.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static me.mneri.offer.specification.UserSpecification.userIsEnabled;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * In-memory index of the enabled {@link User}s by username, for prefix lookups.
+ * <p>
+ * The users are kept in an array sorted by lower case username: the users whose username starts with a prefix are
+ * contiguous, a lookup is a binary search for the first of them followed by a scan of at most {@code limit} entries.
+ * Writers copy the array, which is cheap as users are few and seldom change, and publish the copy: readers never take
+ * a lock.
+ * <p>
+ * The index is loaded from the repository at startup and then kept up to date by the user service. Users saved
+ * bypassing the service are not seen by the index. The index holds copies of the users: modifying a user after saving
+ * it doesn't affect the index.
+ *
+ * @author mneri
+ */
+@Component
+@Log4j2
+public class UsernameIndex {
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private static final Pattern USERNAME_PATTERN = Pattern.compile(Constants.USERNAME_REGEXP);
+
+    private volatile Entry[] entries = EMPTY;
+
+    // Guarded by this
+    private final Map<String, Entry> entriesById = new HashMap<>();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Return the lower bound of the specified key in the specified array, that is the index of the first entry whose
+     * key is greater than or equal to the key.
+     *
+     * @param entries The array.
+     * @param key     The key.
+     * @return The lower bound.
+     */
+    private static int lowerBound(Entry[] entries, String key) {
+        int low = 0;
+        int high = entries.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (entries[middle].key.compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static String keyOf(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Load the enabled users from the repository, replacing the content of the index.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        List<Entry> loaded = new ArrayList<>();
+
+        for (User user : userRepository.findAll(where(userIsEnabled()))) {
+            loaded.add(new Entry(user));
+        }
+
+        loaded.sort(null);
+        entriesById.clear();
+        loaded.forEach(entry -> entriesById.put(entry.user.getId(), entry));
+        entries = loaded.toArray(EMPTY);
+
+        log.debug("Username index loaded; size: {}", entries.length);
+    }
+
+    /**
+     * Return the enabled users whose username starts with the specified prefix, ignoring case, in alphabetical order.
+     * The returned users are shared with the index and must not be modified.
+     *
+     * @param prefix The prefix.
+     * @param limit  The maximum number of users to return.
+     * @return The list of the users.
+     */
+    public List<User> match(String prefix, int limit) {
+        // A prefix that no username can start with is not worth a lookup.
+        if (prefix.length() > Constants.USERNAME_MAX_LENGTH
+                || (!prefix.isEmpty() && !USERNAME_PATTERN.matcher(prefix).matches())) {
+            return Collections.emptyList();
+        }
+
+        Entry[] snapshot = entries;
+        String key = keyOf(prefix);
+        List<User> matches = new ArrayList<>(Math.min(limit, 16));
+
+        for (int i = lowerBound(snapshot, key); i < snapshot.length && matches.size() < limit; i++) {
+            if (!snapshot[i].key.startsWith(key)) {
+                break;
+            }
+
+            matches.add(snapshot[i].user);
+        }
+
+        return matches;
+    }
+
+    /**
+     * Add, replace or remove the specified user, depending on whether it is enabled.
+     *
+     * @param user The user.
+     */
+    public synchronized void put(User user) {
+        Entry[] current = entries;
+        Entry previous = entriesById.remove(user.getId());
+        int removeAt = previous == null ? -1 : indexOf(current, previous);
+        Entry entry = user.isEnabled() ? new Entry(user) : null;
+
+        if (removeAt < 0 && entry == null) {
+            return;
+        }
+
+        List<Entry> updated = new ArrayList<>(Arrays.asList(current));
+
+        if (removeAt >= 0) {
+            updated.remove(removeAt);
+        }
+
+        if (entry != null) {
+            int position = Collections.binarySearch(updated, entry);
+            updated.add(position < 0 ? -position - 1 : position, entry);
+            entriesById.put(user.getId(), entry);
+        }
+
+        entries = updated.toArray(EMPTY);
+    }
+
+    /**
+     * Return the number of users in the index.
+     *
+     * @return The number of users.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    private int indexOf(Entry[] entries, Entry entry) {
+        for (int i = lowerBound(entries, entry.key); i < entries.length && entries[i].key.equals(entry.key); i++) {
+            if (entries[i] == entry) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final String key;
+
+        private final User user;
+
+        private Entry(User user) {
+            this.key = keyOf(user.getUsername());
+            this.user = user.copy();
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = key.compareTo(other.key);
+            return result != 0 ? result : user.getUsername().compareTo(other.user.getUsername());
+        }
+    }
+}
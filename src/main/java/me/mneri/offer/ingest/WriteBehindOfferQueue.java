@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.concurrent.RingBuffer;
+import me.mneri.offer.dto.OfferStatusDto;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.service.OfferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind queue for the creation of {@link Offer}s.
+ * <p>
+ * Offers are enqueued into a bounded {@link RingBuffer} by the request threads and written by a single writer thread
+ * which drains them in batches, one transaction per batch. If a batch fails the offers in it are written again one
+ * by one, so that a single bad offer doesn't take the whole batch down with it. When the buffer is full the offer is
+ * refused and the caller is expected to push back on the client.
+ * <p>
+ * On shutdown the queue stops accepting offers and the writer drains it before the application context goes away.
+ * <p>
+ * This component is enabled with {@code offer.ingest.write-behind.enabled=true}.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.ingest.write-behind.enabled", havingValue = "true")
+@Log4j2
+public class WriteBehindOfferQueue {
+    private static final int MAX_FAILED = 10_000;
+
+    private volatile boolean accepting;
+
+    private DistributionSummary batchSizes;
+
+    @Value("${offer.ingest.write-behind.batch-size:256}")
+    private int batchSize;
+
+    private RingBuffer<Offer> buffer;
+
+    @Value("${offer.ingest.write-behind.capacity:8192}")
+    private int capacity;
+
+    private final Map<String, Boolean> failed = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_FAILED;
+        }
+    });
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OfferService offerService;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${offer.ingest.write-behind.poll-interval:1}")
+    private long pollInterval;
+
+    private Counter rejected;
+
+    private volatile boolean running;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Thread writer;
+
+    @PostConstruct
+    private void init() {
+        buffer = new RingBuffer<>(capacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        rejected = meterRegistry.counter("offer.ingest.rejected");
+        batchSizes = meterRegistry.summary("offer.ingest.batch.size");
+        meterRegistry.gauge("offer.ingest.queue.size", buffer, RingBuffer::size);
+
+        running = true;
+        accepting = true;
+
+        writer = new Thread(this::run, "offer-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stop accepting offers and wait for the writer to drain the queue.
+     */
+    @PreDestroy
+    private void destroy() throws InterruptedException {
+        accepting = false;
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+
+        // Offers enqueued by producers racing with the shutdown
+        drain();
+
+        log.info("Write-behind queue flushed");
+    }
+
+    private void drain() {
+        List<Offer> batch = new ArrayList<>(batchSize);
+
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Enqueue the specified offer for creation. The offer must be valid and ready to be saved.
+     *
+     * @param offer The offer.
+     * @return {@code true} if the offer was enqueued, {@code false} if the queue is full or shutting down.
+     */
+    public boolean enqueue(Offer offer) {
+        if (!accepting) {
+            rejected.increment();
+            return false;
+        }
+
+        pending.add(offer.getId());
+
+        if (!buffer.offer(offer)) {
+            pending.remove(offer.getId());
+            rejected.increment();
+            return false;
+        }
+
+        LockSupport.unpark(writer);
+        return true;
+    }
+
+    private void run() {
+        List<Offer> batch = new ArrayList<>(batchSize);
+
+        while (running || buffer.size() > 0) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(pollInterval));
+                continue;
+            }
+
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Return the status of the offer with the specified id, if the offer is known to the queue.
+     *
+     * @param offerId The offer id.
+     * @return {@link OfferStatusDto.Status#PENDING} if the offer is waiting to be written,
+     * {@link OfferStatusDto.Status#FAILED} if it recently failed to be written, empty otherwise.
+     */
+    public Optional<OfferStatusDto.Status> statusOf(String offerId) {
+        if (pending.contains(offerId)) {
+            return Optional.of(OfferStatusDto.Status.PENDING);
+        }
+
+        if (failed.containsKey(offerId)) {
+            return Optional.of(OfferStatusDto.Status.FAILED);
+        }
+
+        return Optional.empty();
+    }
+
+    private void write(List<Offer> batch) {
+        batchSizes.record(batch.size());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(offerService::save));
+            log.debug("Offer batch written; size: {}", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Offer batch failed, writing its offers one by one; size: {}", batch.size(), e);
+
+            for (Offer offer : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> offerService.save(offer));
+                } catch (RuntimeException e1) {
+                    log.error("Couldn't write offer; offerId: {}", offer.getId(), e1);
+                    failed.put(offer.getId(), Boolean.TRUE);
+                }
+            }
+        } finally {
+            batch.forEach(offer -> pending.remove(offer.getId()));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.mapping;
+
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.dto.OfferPatch;
+import me.mneri.offer.dto.OfferRequest;
+import me.mneri.offer.dto.UserDto;
+import me.mneri.offer.dto.WebhookDto;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.entity.Webhook;
+
+import java.util.List;
+
+/**
+ * Conversions between entities and DTOs.
+ * <p>
+ * Two implementations are available, selected by the {@code offer.mapping.engine} property: {@code generated} (the
+ * default) uses mappers generated at compile time, {@code modelmapper} uses the reflective {@code ModelMapper}.
+ *
+ * @author mneri
+ */
+public interface DtoMapper {
+    /**
+     * Map an {@link Offer} to a new {@link OfferDto}.
+     *
+     * @param offer The offer.
+     * @return The DTO.
+     */
+    OfferDto toOfferDto(Offer offer);
+
+    /**
+     * Map a list of {@link Offer}s to a new list of {@link OfferDto}s.
+     *
+     * @param offers The offers.
+     * @return The list of DTOs.
+     */
+    List<OfferDto> toOfferDtoList(List<Offer> offers);
+
+    /**
+     * Map a {@link User} to a new {@link UserDto}.
+     *
+     * @param user The user.
+     * @return The DTO.
+     */
+    UserDto toUserDto(User user);
+
+    /**
+     * Map a list of {@link User}s to a new list of {@link UserDto}s.
+     *
+     * @param users The users.
+     * @return The list of DTOs.
+     */
+    List<UserDto> toUserDtoList(List<User> users);
+
+    /**
+     * Map a {@link Webhook} to a new {@link WebhookDto}.
+     *
+     * @param webhook The webhook.
+     * @return The DTO.
+     */
+    WebhookDto toWebhookDto(Webhook webhook);
+
+    /**
+     * Map a list of {@link Webhook}s to a new list of {@link WebhookDto}s.
+     *
+     * @param webhooks The webhooks.
+     * @return The list of DTOs.
+     */
+    List<WebhookDto> toWebhookDtoList(List<Webhook> webhooks);
+
+    /**
+     * Map an {@link OfferRequest} to a new {@link Offer}. The publisher of the offer is not set.
+     *
+     * @param request The request.
+     * @return The new offer.
+     */
+    Offer toOffer(OfferRequest request);
+
+    /**
+     * Copy the fields of an {@link OfferRequest} to an existing {@link Offer}.
+     *
+     * @param request The request.
+     * @param offer   The offer to update.
+     */
+    void updateOffer(OfferRequest request, Offer offer);
+
+    /**
+     * Copy the fields present in an {@link OfferPatch} to an existing {@link Offer}. Absent ({@code null}) fields are
+     * left untouched, so that only the modified columns are written.
+     *
+     * @param patch The patch.
+     * @param offer The offer.
+     */
+    default void patchOffer(OfferPatch patch, Offer offer) {
+        if (patch.getTitle() != null) {
+            offer.setTitle(patch.getTitle());
+        }
+
+        if (patch.getDescription() != null) {
+            offer.setDescription(patch.getDescription());
+        }
+
+        if (patch.getPrice() != null) {
+            offer.setPrice(patch.getPrice());
+        }
+
+        if (patch.getCurrency() != null) {
+            offer.setCurrency(patch.getCurrency());
+        }
+
+        if (patch.getTtl() != null) {
+            offer.setTtl(patch.getTtl());
+        }
+    }
+}
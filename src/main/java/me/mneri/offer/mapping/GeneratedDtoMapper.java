@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.mapping;
+
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.dto.OfferRequest;
+import me.mneri.offer.entity.Offer;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ObjectFactory;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * {@link DtoMapper} implemented at compile time by the MapStruct annotation processor. The generated code only
+ * consists of plain getter and setter calls: no reflection is involved at runtime.
+ *
+ * @author mneri
+ */
+@Mapper(builder = @Builder(disableBuilder = true), unmappedTargetPolicy = ReportingPolicy.ERROR)
+interface GeneratedDtoMapper extends DtoMapper {
+    // The publisher is lazily loaded: mapping it would issue a query per offer. It is only embedded on request.
+    @Mapping(target = "publisher", ignore = true)
+    @Override
+    OfferDto toOfferDto(Offer offer);
+
+    @Mapping(target = "canceled", ignore = true)
+    @Mapping(target = "normalizedPrice", ignore = true)
+    @Mapping(target = "publisher", ignore = true)
+    @Override
+    Offer toOffer(OfferRequest request);
+
+    @Mapping(target = "canceled", ignore = true)
+    @Mapping(target = "normalizedPrice", ignore = true)
+    @Mapping(target = "publisher", ignore = true)
+    @Override
+    void updateOffer(OfferRequest request, @MappingTarget Offer offer);
+
+    /**
+     * Create a new {@link Offer} instance. Like {@link CustomProvider} we go through the builder, since the class
+     * doesn't have a public default constructor and the builder takes care of the id and the creation time.
+     *
+     * @return The new offer.
+     */
+    @ObjectFactory
+    default Offer createOffer() {
+        return Offer.builder().build();
+    }
+}
@@ -18,7 +18,11 @@
 
 package me.mneri.offer.mapping;
 
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.entity.Offer;
+import org.mapstruct.factory.Mappers;
 import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -33,6 +37,36 @@ public class MappingConfiguration {
     public ModelMapper modelMapper() {
         ModelMapper modelMapper = new ModelMapper();
         modelMapper.getConfiguration().setProvider(new CustomProvider());
+        // The publisher is lazily loaded and only embedded in the DTO on request, see GeneratedDtoMapper. The implicit
+        // mappings of its nested properties must be skipped as well, otherwise reading them initializes the proxy.
+        modelMapper.typeMap(Offer.class, OfferDto.class).addMappings(mapper -> {
+            mapper.skip(OfferDto::setPublisher);
+            mapper.<String>skip((dto, id) -> dto.getPublisher().setId(id));
+            mapper.<String>skip((dto, username) -> dto.getPublisher().setUsername(username));
+        });
         return modelMapper;
     }
+
+    /**
+     * Return the {@link DtoMapper} generated at compile time. This is the default.
+     *
+     * @return The mapper.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "offer.mapping.engine", havingValue = "generated", matchIfMissing = true)
+    public DtoMapper generatedDtoMapper() {
+        return Mappers.getMapper(GeneratedDtoMapper.class);
+    }
+
+    /**
+     * Return a {@link DtoMapper} backed by the reflective {@link ModelMapper}.
+     *
+     * @param modelMapper The model mapper.
+     * @return The mapper.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "offer.mapping.engine", havingValue = "modelmapper")
+    public DtoMapper modelMapperDtoMapper(ModelMapper modelMapper) {
+        return new ModelMapperDtoMapper(modelMapper);
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.mapping;
+
+import lombok.AllArgsConstructor;
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.dto.OfferRequest;
+import me.mneri.offer.dto.UserDto;
+import me.mneri.offer.dto.WebhookDto;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.entity.Webhook;
+import org.modelmapper.ModelMapper;
+
+import java.util.List;
+
+/**
+ * {@link DtoMapper} backed by a reflective {@link ModelMapper}.
+ *
+ * @author mneri
+ */
+@AllArgsConstructor
+class ModelMapperDtoMapper implements DtoMapper {
+    private final ModelMapper modelMapper;
+
+    @Override
+    public OfferDto toOfferDto(Offer offer) {
+        return modelMapper.map(offer, OfferDto.class);
+    }
+
+    @Override
+    public List<OfferDto> toOfferDtoList(List<Offer> offers) {
+        return modelMapper.map(offers, Types.OFFER_DTO_LIST_TYPE);
+    }
+
+    @Override
+    public UserDto toUserDto(User user) {
+        return modelMapper.map(user, UserDto.class);
+    }
+
+    @Override
+    public List<UserDto> toUserDtoList(List<User> users) {
+        return modelMapper.map(users, Types.USER_DTO_LIST_TYPE);
+    }
+
+    @Override
+    public WebhookDto toWebhookDto(Webhook webhook) {
+        return modelMapper.map(webhook, WebhookDto.class);
+    }
+
+    @Override
+    public List<WebhookDto> toWebhookDtoList(List<Webhook> webhooks) {
+        return modelMapper.map(webhooks, Types.WEBHOOK_DTO_LIST_TYPE);
+    }
+
+    @Override
+    public Offer toOffer(OfferRequest request) {
+        return modelMapper.map(request, Offer.class);
+    }
+
+    @Override
+    public void updateOffer(OfferRequest request, Offer offer) {
+        modelMapper.map(request, offer);
+    }
+}
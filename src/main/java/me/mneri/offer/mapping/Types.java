@@ -22,6 +22,7 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import me.mneri.offer.dto.OfferDto;
 import me.mneri.offer.dto.UserDto;
+import me.mneri.offer.dto.WebhookDto;
 import org.modelmapper.TypeToken;
 
 import java.lang.reflect.Type;
@@ -35,7 +36,8 @@ import java.util.List;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class Types {
     //@formatter:off
-    public static final Type OFFER_DTO_LIST_TYPE = new TypeToken<List<OfferDto>>() {}.getType();
-    public static final Type USER_DTO_LIST_TYPE  = new TypeToken<List<UserDto>>() {}.getType();
+    public static final Type OFFER_DTO_LIST_TYPE   = new TypeToken<List<OfferDto>>() {}.getType();
+    public static final Type USER_DTO_LIST_TYPE    = new TypeToken<List<UserDto>>() {}.getType();
+    public static final Type WEBHOOK_DTO_LIST_TYPE = new TypeToken<List<WebhookDto>>() {}.getType();
     //@formatter:on
 }
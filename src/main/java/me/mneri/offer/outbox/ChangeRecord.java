@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.outbox;
+
+import lombok.Value;
+import me.mneri.offer.entity.OutboxRecord;
+import me.mneri.offer.event.OfferChangeEvent;
+
+/**
+ * A change delivered by the outbox to an {@link OutboxSink}.
+ * <p>
+ * Delivery is at least once: a sink may receive the same record more than once, and can recognize duplicates by
+ * their sequence number. Records of the same offer are delivered in the order their changes were committed.
+ *
+ * @author mneri
+ */
+@Value
+public class ChangeRecord {
+    private long sequence;
+
+    private long recordTime;
+
+    private OfferChangeEvent change;
+
+    /**
+     * Create a new change record from the specified outbox record.
+     *
+     * @param record The outbox record.
+     * @return The change record.
+     */
+    public static ChangeRecord of(OutboxRecord record) {
+        return new ChangeRecord(record.getSequence(), record.getRecordTime().getTime(), record.toChange());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * {@link OutboxSink} appending the records to a local file, one JSON document per line.
+ * <p>
+ * Every batch is forced to the storage device before it is acknowledged. A batch that fails halfway may leave a
+ * partial line behind, followed by the whole batch again on retry: readers should skip lines they can't parse and
+ * drop the records whose sequence number they have already seen.
+ *
+ * @author mneri
+ */
+public class FileOutboxSink implements OutboxSink, Closeable {
+    private final FileChannel channel;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Create a new instance appending to the specified file, created if it doesn't exist.
+     *
+     * @param path         The path of the file.
+     * @param objectMapper The object mapper used to write the records.
+     * @throws IOException If the file couldn't be opened.
+     */
+    public FileOutboxSink(Path path, ObjectMapper objectMapper) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void publish(List<ChangeRecord> records) throws IOException {
+        StringBuilder builder = new StringBuilder();
+
+        for (ChangeRecord record : records) {
+            builder.append(objectMapper.writeValueAsString(record)).append('\n');
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        channel.force(false);
+    }
+}
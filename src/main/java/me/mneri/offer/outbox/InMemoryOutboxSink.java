@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.outbox;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OutboxSink} handing the records to in-process consumers through a bounded queue.
+ * <p>
+ * A batch is accepted whole or not at all: when the queue can't hold it the batch is refused and the outbox retries
+ * it later, so that slow consumers push back on the outbox instead of losing records.
+ *
+ * @author mneri
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+    private final BlockingQueue<ChangeRecord> queue;
+
+    /**
+     * Create a new instance.
+     *
+     * @param capacity The maximum number of records waiting for a consumer.
+     */
+    public InMemoryOutboxSink(int capacity) {
+        queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Remove at most the specified number of records from the queue and add them to the specified collection.
+     *
+     * @param collection  The collection.
+     * @param maxElements The maximum number of records to transfer.
+     * @return The number of records transferred.
+     */
+    public int drainTo(Collection<? super ChangeRecord> collection, int maxElements) {
+        return queue.drainTo(collection, maxElements);
+    }
+
+    /**
+     * Remove the next record from the queue, waiting up to the specified time for one to become available.
+     *
+     * @param timeout The time to wait.
+     * @param unit    The unit of the timeout.
+     * @return The record, or {@code null} if the time elapsed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public ChangeRecord poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void publish(List<ChangeRecord> records) throws IOException {
+        if (queue.remainingCapacity() < records.size()) {
+            throw new IOException("Outbox queue is full");
+        }
+
+        queue.addAll(records);
+    }
+
+    /**
+     * Return the number of records waiting for a consumer.
+     *
+     * @return The number of records.
+     */
+    public int size() {
+        return queue.size();
+    }
+}
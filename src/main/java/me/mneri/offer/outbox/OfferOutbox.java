@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.OutboxRecord;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.repository.OutboxRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox delivering the changes made to the offers to an {@link OutboxSink}.
+ * <p>
+ * Every {@link OfferChangeEvent} is written to the {@code outbox} table in the transaction of the change. A poller
+ * reads the records in sequence order, publishes them in batches and deletes them once the sink has accepted them.
+ * If the sink fails the records stay in the table and are published again at the next poll: delivery is at least
+ * once.
+ * <p>
+ * Before a record is written the pending changes of the transaction are flushed, so that the offer row is locked
+ * before the record takes its sequence number from the database sequence. A concurrent change to the same offer waits
+ * for the lock, and takes a greater sequence number: the records of an offer are delivered in commit order. This
+ * holds as long as the transactions of the offer service are the only writers of the offer rows and the changes are
+ * flushed before the record: records of different offers may still commit out of sequence order, which only delays
+ * their delivery to a later poll.
+ * <p>
+ * This component is enabled with {@code offer.outbox.enabled=true}.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.outbox.enabled", havingValue = "true")
+@Log4j2
+public class OfferOutbox {
+    @Value("${offer.outbox.batch-size:500}")
+    private int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Counter failures;
+
+    private Timer lag;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong oldestAge = new AtomicLong();
+
+    @Autowired
+    private OutboxRecordRepository outboxRecordRepository;
+
+    private Counter published;
+
+    @Autowired
+    private OutboxSink sink;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    private void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        failures = meterRegistry.counter("offer.outbox.failures");
+        published = meterRegistry.counter("offer.outbox.published");
+        lag = Timer.builder("offer.outbox.lag")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("offer.outbox.oldest.age", oldestAge);
+    }
+
+    /**
+     * Write the specified change to the outbox, in the transaction of the change.
+     *
+     * @param event The change.
+     */
+    @EventListener
+    public void onOfferChange(OfferChangeEvent event) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+        }
+
+        outboxRecordRepository.save(OutboxRecord.of(event));
+    }
+
+    /**
+     * Publish the pending records, batch after batch, until the outbox is empty or the sink fails.
+     */
+    @Scheduled(fixedDelayString = "${offer.outbox.poll-interval:100}",
+               initialDelayString = "${offer.outbox.poll-interval:100}")
+    public synchronized void poll() {
+        while (true) {
+            List<OutboxRecord> batch = outboxRecordRepository.findAllByOrderBySequence(PageRequest.of(0, batchSize));
+            long now = System.currentTimeMillis();
+
+            if (batch.isEmpty()) {
+                oldestAge.set(0);
+                return;
+            }
+
+            oldestAge.set(now - batch.get(0).getRecordTime().getTime());
+
+            try {
+                sink.publish(batch.stream().map(ChangeRecord::of).collect(Collectors.toList()));
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                log.warn("Couldn't publish the outbox records, retrying later; size: {}", batch.size(), e);
+                return;
+            }
+
+            List<Long> sequences = batch.stream().map(OutboxRecord::getSequence).collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status -> outboxRecordRepository.deleteBySequenceIn(sequences));
+
+            long acknowledged = System.currentTimeMillis();
+
+            for (OutboxRecord record : batch) {
+                lag.record(acknowledged - record.getRecordTime().getTime(), TimeUnit.MILLISECONDS);
+            }
+
+            published.increment(batch.size());
+            log.debug("Outbox records published; size: {}", batch.size());
+
+            if (batch.size() < batchSize) {
+                oldestAge.set(0);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Configuration of the {@link OutboxSink} the {@link OfferOutbox} delivers to, selected by {@code offer.outbox.sink}.
+ *
+ * @author mneri
+ */
+@Configuration
+@ConditionalOnProperty(name = "offer.outbox.enabled", havingValue = "true")
+public class OutboxConfiguration {
+    /**
+     * Return a sink appending the records to the file {@code offer.outbox.sink.file.path}.
+     *
+     * @param path         The path of the file.
+     * @param objectMapper The object mapper.
+     * @return The sink.
+     * @throws IOException If the file couldn't be opened.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "offer.outbox.sink", havingValue = "file")
+    public FileOutboxSink fileOutboxSink(@Value("${offer.outbox.sink.file.path}") String path,
+                                         ObjectMapper objectMapper) throws IOException {
+        return new FileOutboxSink(Paths.get(path), objectMapper);
+    }
+
+    /**
+     * Return a sink handing the records to in-process consumers. This is the default.
+     *
+     * @param capacity The capacity of the queue.
+     * @return The sink.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "offer.outbox.sink", havingValue = "memory", matchIfMissing = true)
+    public InMemoryOutboxSink inMemoryOutboxSink(@Value("${offer.outbox.sink.memory.capacity:65536}") int capacity) {
+        return new InMemoryOutboxSink(capacity);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the changes delivered by the {@link OfferOutbox}.
+ *
+ * @author mneri
+ */
+@FunctionalInterface
+public interface OutboxSink {
+    /**
+     * Publish the specified records, in order.
+     * <p>
+     * If this method throws, the whole batch is delivered again later: records the sink already accepted will be
+     * received twice.
+     *
+     * @param records The records.
+     * @throws IOException If the records couldn't be published.
+     */
+    void publish(List<ChangeRecord> records) throws IOException;
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.repository;
+
+import me.mneri.offer.entity.OfferEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JPA repository for {@link OfferEvent} beans.
+ *
+ * @author mneri
+ */
+@Repository
+public interface OfferEventRepository extends CrudRepository<OfferEvent, Long> {
+    /**
+     * Delete the events up to the specified sequence number which are superseded by a later event of the same offer
+     * also up to that sequence number.
+     *
+     * @param horizon The sequence number, inclusive.
+     * @return The number of deleted events.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM offer_event e WHERE e.sequence <= :horizon AND EXISTS (SELECT 1 FROM offer_event l " +
+            "WHERE l.offer_id = e.offer_id AND l.sequence > e.sequence AND l.sequence <= :horizon)",
+            nativeQuery = true)
+    int deleteSupersededUpTo(@Param("horizon") long horizon);
+
+    /**
+     * Delete the events up to the specified sequence number which close their offer: the offer table holds the final
+     * state of those offers.
+     *
+     * @param horizon The sequence number, inclusive.
+     * @return The number of deleted events.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM offer_event WHERE sequence <= :horizon AND type IN ('CANCELED', 'EXPIRED')",
+            nativeQuery = true)
+    int deleteClosingUpTo(@Param("horizon") long horizon);
+
+    /**
+     * Find the events following the specified sequence number, in sequence order.
+     *
+     * @param sequence The sequence number, exclusive.
+     * @param pageable The maximum number of events to return.
+     * @return The list of the events.
+     */
+    List<OfferEvent> findBySequenceGreaterThanOrderBySequence(long sequence, Pageable pageable);
+
+    /**
+     * Find the events with a sequence number in the specified range, in sequence order.
+     *
+     * @param from     The start of the range, exclusive.
+     * @param to       The end of the range, inclusive.
+     * @param pageable The maximum number of events to return.
+     * @return The list of the events.
+     */
+    List<OfferEvent> findBySequenceGreaterThanAndSequenceLessThanEqualOrderBySequence(long from, long to,
+                                                                                    Pageable pageable);
+
+    /**
+     * Find the last event.
+     *
+     * @return The event, if any.
+     */
+    Optional<OfferEvent> findFirstByOrderBySequenceDesc();
+
+    /**
+     * Find the last event appended before the specified time.
+     *
+     * @param time The time.
+     * @return The event, if any.
+     */
+    Optional<OfferEvent> findFirstByEventTimeBeforeOrderBySequenceDesc(Date time);
+}
@@ -19,10 +19,19 @@
 package me.mneri.offer.repository;
 
 import me.mneri.offer.entity.Offer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
 /**
  * JPA repository for {@link Offer} beans.
  *
@@ -30,4 +39,38 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface OfferRepository extends CrudRepository<Offer, String>, JpaSpecificationExecutor<Offer> {
+    /**
+     * Find the offers with the specified ids and currency, locking them until the end of the transaction: their price
+     * can't change until then. Offers whose currency changed in the meantime are left out.
+     *
+     * @param ids      The ids of the offers.
+     * @param currency The currency of the offers.
+     * @return The list of the offers.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Offer> findAllByIdInAndCurrency(Collection<String> ids, String currency);
+
+    /**
+     * Find the distinct currencies of the offers open at the specified time.
+     *
+     * @param now The time.
+     * @return The list of the currencies.
+     */
+    @Query("SELECT DISTINCT o.currency FROM Offer o WHERE o.canceled = FALSE AND o.endTime > :now")
+    List<String> findOpenCurrencies(@Param("now") Date now);
+
+    /**
+     * Find the ids of the offers open at the specified time with the specified currency, in order, starting after the
+     * specified id.
+     *
+     * @param currency The currency of the offers.
+     * @param now      The time.
+     * @param after    The id to start after, the empty string to start from the first.
+     * @param pageable The maximum number of ids to return.
+     * @return The list of the ids.
+     */
+    @Query("SELECT o.id FROM Offer o WHERE o.canceled = FALSE AND o.endTime > :now AND o.currency = :currency "
+            + "AND o.id > :after ORDER BY o.id")
+    List<String> findOpenIdsByCurrency(@Param("currency") String currency, @Param("now") Date now,
+                                       @Param("after") String after, Pageable pageable);
 }
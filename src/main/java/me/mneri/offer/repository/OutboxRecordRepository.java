@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.repository;
+
+import me.mneri.offer.entity.OutboxRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JPA repository for {@link OutboxRecord} beans.
+ *
+ * @author mneri
+ */
+@Repository
+public interface OutboxRecordRepository extends CrudRepository<OutboxRecord, Long> {
+    /**
+     * Delete the records with the specified sequence numbers in a single statement.
+     *
+     * @param sequences The sequence numbers.
+     * @return The number of deleted records.
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxRecord r WHERE r.sequence IN :sequences")
+    int deleteBySequenceIn(@Param("sequences") Collection<Long> sequences);
+
+    /**
+     * Find the oldest records, in sequence order.
+     *
+     * @param pageable The maximum number of records to return.
+     * @return The list of the records.
+     */
+    List<OutboxRecord> findAllByOrderBySequence(Pageable pageable);
+}
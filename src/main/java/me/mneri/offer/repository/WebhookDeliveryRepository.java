@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.repository;
+
+import me.mneri.offer.entity.WebhookDelivery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * JPA repository for {@link WebhookDelivery} beans.
+ *
+ * @author mneri
+ */
+@Repository
+public interface WebhookDeliveryRepository extends CrudRepository<WebhookDelivery, Long> {
+    /**
+     * Delete the delivery with the specified id, if it still exists.
+     *
+     * @param id The id of the delivery.
+     * @return The number of deleted deliveries.
+     */
+    @Modifying
+    @Query("DELETE FROM WebhookDelivery d WHERE d.id = :id")
+    int discard(@Param("id") long id);
+
+    /**
+     * Delete the pending deliveries of the specified webhook.
+     *
+     * @param webhookId The id of the webhook.
+     * @return The number of deleted deliveries.
+     */
+    @Modifying
+    @Query("DELETE FROM WebhookDelivery d WHERE d.webhookId = :webhookId")
+    int discardByWebhookId(@Param("webhookId") String webhookId);
+
+    /**
+     * Find the deliveries due at the specified time, the most overdue first.
+     *
+     * @param time     The time.
+     * @param pageable The maximum number of deliveries to return.
+     * @return The list of the deliveries.
+     */
+    List<WebhookDelivery> findByNextAttemptTimeLessThanEqualOrderByNextAttemptTime(Date time, Pageable pageable);
+
+    /**
+     * Record a failed attempt of the delivery with the specified id and schedule the next one. Unlike saving the
+     * entity, the update doesn't resurrect a delivery that was discarded in the meantime.
+     *
+     * @param id   The id of the delivery.
+     * @param time The time of the next attempt.
+     * @return The number of updated deliveries.
+     */
+    @Modifying
+    @Query("UPDATE WebhookDelivery d SET d.attempts = d.attempts + 1, d.nextAttemptTime = :time WHERE d.id = :id")
+    int retryAt(@Param("id") long id, @Param("time") Date time);
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.repository;
+
+import me.mneri.offer.entity.Webhook;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JPA repository for {@link Webhook} beans.
+ *
+ * @author mneri
+ */
+@Repository
+public interface WebhookRepository extends CrudRepository<Webhook, String> {
+    /**
+     * Find the webhooks registered by the specified publishers, publishers included.
+     *
+     * @param publisherIds The ids of the publishers.
+     * @return The list of the webhooks.
+     */
+    @Query("SELECT w FROM Webhook w JOIN FETCH w.publisher p WHERE p.id IN :publisherIds")
+    List<Webhook> findAllByPublisherIdIn(@Param("publisherIds") Collection<String> publisherIds);
+
+    /**
+     * Find the webhooks registered by the specified publisher.
+     *
+     * @param publisherId The id of the publisher.
+     * @return The list of the webhooks.
+     */
+    List<Webhook> findAllByPublisherIdOrderByCreateTime(String publisherId);
+
+    /**
+     * Find the webhook with the specified id registered by the specified publisher.
+     *
+     * @param id          The id of the webhook.
+     * @param publisherId The id of the publisher.
+     * @return The webhook, if any.
+     */
+    Optional<Webhook> findByIdAndPublisherId(String id, String publisherId);
+}
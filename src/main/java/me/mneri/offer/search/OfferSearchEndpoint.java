@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Actuator endpoint for the maintenance of the {@link OfferSearchIndex}. A {@code POST} to
+ * {@code /actuator/offersearch} rebuilds the index from the repository.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.search.enabled", havingValue = "true")
+@Endpoint(id = "offersearch")
+public class OfferSearchEndpoint {
+    @Autowired
+    private OfferSearchIndex offerSearchIndex;
+
+    /**
+     * Rebuild the index from the repository.
+     *
+     * @return The number of indexed offers.
+     */
+    @WriteOperation
+    public Map<String, Integer> rebuild() {
+        return Collections.singletonMap("documents", offerSearchIndex.rebuild());
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.search;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.util.TextUtil;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static me.mneri.offer.specification.OfferSpecification.offerIsOpen;
+import static me.mneri.offer.specification.OfferSpecification.offerUpdateTimeIsAfter;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Full-text index of the titles and descriptions of the open {@link Offer}s, backed by Lucene.
+ * <p>
+ * The index is kept up to date listening to the {@link OfferChangeEvent}s committed by the offer service: created and
+ * updated offers are (re)indexed, canceled and expired offers are removed. Changes are made visible to the searches
+ * every {@code offer.search.refresh-interval} milliseconds, without committing the index (near-real-time search);
+ * offers expired in the meantime are filtered out at query time and pruned every {@code offer.search.prune-interval}
+ * milliseconds.
+ * <p>
+ * If {@code offer.search.path} is set the index lives in that directory and it is committed every
+ * {@code offer.search.commit-interval} milliseconds along with its high-water mark: on restart only the offers
+ * updated after the mark are read from the repository. Otherwise the index lives in memory and it is rebuilt from the
+ * repository at startup. The index can be rebuilt at any time from the repository with {@link #rebuild()}.
+ * <p>
+ * This component is enabled with {@code offer.search.enabled=true}.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.search.enabled", havingValue = "true")
+@Log4j2
+public class OfferSearchIndex {
+    private static final String DESCRIPTION = "description";
+
+    private static final String END_TIME = "end_time";
+
+    private static final String HIGH_WATER_MARK = "high_water_mark";
+
+    private static final String ID = "id";
+
+    /**
+     * The maximum depth a search can page to.
+     */
+    public static final int MAX_RESULTS = 10_000;
+
+    private static final String TITLE = "title";
+
+    private final Analyzer analyzer = new EnglishAnalyzer();
+
+    private Directory directory;
+
+    private Counter failures;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Value("${offer.search.path:}")
+    private String path;
+
+    private final Object rebuildLock = new Object();
+
+    /*
+     * The changes received while the index is rebuilt, replayed on the rebuilt index. Null when no rebuild is in
+     * progress.
+     */
+    private List<OfferChangeEvent> replay;
+
+    /*
+     * See OfferIndex: a transaction can set an offer's update time before the commit and commit after it.
+     */
+    @Value("${offer.search.replay-margin:60000}")
+    private long replayMargin;
+
+    private SearcherManager searcherManager;
+
+    private Timer searches;
+
+    @Value("${offer.search.title-boost:2.0}")
+    private float titleBoost;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private IndexWriter writer;
+
+    @PostConstruct
+    private void init() throws IOException {
+        directory = TextUtil.isEmpty(path) ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(path));
+        long highWaterMark = readHighWaterMark();
+
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(highWaterMark < 0 ? IndexWriterConfig.OpenMode.CREATE
+                                             : IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+
+        failures = meterRegistry.counter("offer.search.failures");
+        searches = Timer.builder("offer.search.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("offer.search.documents", writer, w -> w.getDocStats().numDocs);
+
+        if (highWaterMark < 0) {
+            rebuild();
+        } else {
+            catchUp(highWaterMark);
+        }
+    }
+
+    @PreDestroy
+    private void destroy() throws IOException {
+        searcherManager.close();
+
+        if (!TextUtil.isEmpty(path)) {
+            commit();
+        }
+
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * Update the index with the specified change. The change is visible to the searches after the next refresh.
+     *
+     * @param event The change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferChange(OfferChangeEvent event) {
+        synchronized (rebuildLock) {
+            if (replay != null) {
+                replay.add(event);
+            }
+        }
+
+        try {
+            apply(event);
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Couldn't update the offer search index; offerId: {}", event.getOfferId(), e);
+        }
+    }
+
+    /**
+     * Remove the expired offers from the index.
+     */
+    @Scheduled(fixedDelayString = "${offer.search.prune-interval:60000}",
+               initialDelayString = "${offer.search.prune-interval:60000}")
+    public void prune() {
+        try {
+            writer.deleteDocuments(LongPoint.newRangeQuery(END_TIME, Long.MIN_VALUE, System.currentTimeMillis()));
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Couldn't prune the offer search index", e);
+        }
+    }
+
+    /**
+     * Rebuild the index from the open offers in the repository. The searches keep seeing the old index until the
+     * rebuild completes.
+     *
+     * @return The number of indexed offers.
+     */
+    public synchronized int rebuild() {
+        synchronized (rebuildLock) {
+            replay = new ArrayList<>();
+        }
+
+        int replayed;
+
+        try {
+            writer.deleteAll();
+
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Offer offer : offerRepository.findAll(where(offerIsOpen()))) {
+                    put(offer);
+                }
+            });
+
+            // Replayed under the lock, so that the changes received from now on are applied after the missed ones.
+            synchronized (rebuildLock) {
+                for (OfferChangeEvent event : replay) {
+                    apply(event);
+                }
+
+                replayed = replay.size();
+                replay = null;
+            }
+
+            commit();
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            synchronized (rebuildLock) {
+                replay = null;
+            }
+        }
+
+        int size = writer.getDocStats().numDocs;
+        log.debug("Offer search index rebuilt; size: {}, replayed: {}", size, replayed);
+        return size;
+    }
+
+    /**
+     * Make the changes applied so far visible to the searches. The refresh is skipped while the index is rebuilt.
+     */
+    @Scheduled(fixedDelayString = "${offer.search.refresh-interval:100}",
+               initialDelayString = "${offer.search.refresh-interval:100}")
+    public void refresh() {
+        synchronized (rebuildLock) {
+            if (replay != null) {
+                return;
+            }
+        }
+
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Couldn't refresh the offer search index", e);
+        }
+    }
+
+    /**
+     * Search the open offers whose title or description matches the specified query. Matches in the title weigh more
+     * than matches in the description.
+     * <p>
+     * The query is made of words, optionally combined with the operators of Lucene's {@link SimpleQueryParser}
+     * ({@code +}, {@code |}, {@code -}, quotes and {@code *} as a suffix): it never fails to parse.
+     *
+     * @param query The query.
+     * @param page  The number of the page, starting from zero.
+     * @param size  The size of the page.
+     * @return The page of the results.
+     * @throws IOException If the index couldn't be read.
+     */
+    public OfferSearchResult search(String query, int page, int size) throws IOException {
+        if (page < 0 || size <= 0 || ((long) page + 1) * size > MAX_RESULTS) {
+            throw new IllegalArgumentException("The page is out of bounds");
+        }
+
+        Map<String, Float> weights = new HashMap<>();
+        weights.put(TITLE, titleBoost);
+        weights.put(DESCRIPTION, 1.0f);
+
+        Query text = new SimpleQueryParser(analyzer, weights).parse(query);
+        Query open = LongPoint.newRangeQuery(END_TIME, System.currentTimeMillis() + 1, Long.MAX_VALUE);
+        Query filtered = new BooleanQuery.Builder()
+                .add(text, BooleanClause.Occur.MUST)
+                .add(open, BooleanClause.Occur.FILTER)
+                .build();
+
+        long start = System.nanoTime();
+        IndexSearcher searcher = searcherManager.acquire();
+
+        try {
+            TopScoreDocCollector collector = TopScoreDocCollector.create((page + 1) * size, Integer.MAX_VALUE);
+            searcher.search(filtered, collector);
+
+            int totalHits = collector.getTotalHits();
+            TopDocs topDocs = collector.topDocs(page * size, size);
+            List<String> ids = new ArrayList<>(topDocs.scoreDocs.length);
+
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                ids.add(searcher.doc(scoreDoc.doc).get(ID));
+            }
+
+            return new OfferSearchResult(totalHits, ids);
+        } finally {
+            searcherManager.release(searcher);
+            searches.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Commit the index, if it lives on disk, so that a restart only has to catch up with the changes made after now.
+     * Synchronized with {@link #rebuild()}: a commit in the middle of a rebuild would persist a partial index.
+     */
+    @Scheduled(fixedDelayString = "${offer.search.commit-interval:60000}",
+               initialDelayString = "${offer.search.commit-interval:60000}")
+    public synchronized void scheduledCommit() {
+        if (TextUtil.isEmpty(path)) {
+            return;
+        }
+
+        try {
+            commit();
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Couldn't commit the offer search index; path: {}", path, e);
+        }
+    }
+
+    private void apply(OfferChangeEvent event) throws IOException {
+        if (event.isOpenAt(System.currentTimeMillis())) {
+            writer.updateDocument(new Term(ID, event.getOfferId()),
+                    document(event.getOfferId(), event.getTitle(), event.getDescription(), event.getEndTime()));
+        } else {
+            writer.deleteDocuments(new Term(ID, event.getOfferId()));
+        }
+    }
+
+    private void catchUp(long highWaterMark) {
+        Date since = new Date(highWaterMark - replayMargin);
+        long now = System.currentTimeMillis();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Offer offer : offerRepository.findAll(where(offerUpdateTimeIsAfter(since)))) {
+                if (!offer.isCanceled() && offer.getEndTime().getTime() > now) {
+                    put(offer);
+                } else {
+                    delete(offer.getId());
+                }
+            }
+        });
+
+        prune();
+        refresh();
+        log.debug("Offer search index loaded; path: {}, highWaterMark: {}", path, highWaterMark);
+    }
+
+    private void commit() throws IOException {
+        // Taken before the commit: the changes applied while committing are replayed on restart.
+        long highWaterMark = System.currentTimeMillis();
+        writer.setLiveCommitData(
+                Collections.singletonMap(HIGH_WATER_MARK, Long.toString(highWaterMark)).entrySet());
+        writer.commit();
+    }
+
+    private void delete(String offerId) {
+        try {
+            writer.deleteDocuments(new Term(ID, offerId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Document document(String id, String title, String description, long endTime) {
+        Document document = new Document();
+        document.add(new StringField(ID, id, Field.Store.YES));
+        document.add(new TextField(TITLE, title, Field.Store.NO));
+        document.add(new TextField(DESCRIPTION, description, Field.Store.NO));
+        document.add(new LongPoint(END_TIME, endTime));
+        return document;
+    }
+
+    private void put(Offer offer) {
+        try {
+            writer.updateDocument(new Term(ID, offer.getId()),
+                    document(offer.getId(), offer.getTitle(), offer.getDescription(), offer.getEndTime().getTime()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read the high-water mark of the last commit of the index.
+     *
+     * @return The high-water mark, or {@code -1} if there is no index to resume from.
+     */
+    private long readHighWaterMark() {
+        try {
+            if (!DirectoryReader.indexExists(directory)) {
+                return -1;
+            }
+
+            String value = SegmentInfos.readLatestCommit(directory).getUserData().get(HIGH_WATER_MARK);
+            return value == null ? -1 : Long.parseLong(value);
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Couldn't read the offer search index, rebuilding from the repository; path: {}", path, e);
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.search;
+
+import lombok.Value;
+import me.mneri.offer.entity.Offer;
+
+import java.util.List;
+
+/**
+ * A page of the results of a full-text search over the {@link Offer}s.
+ *
+ * @author mneri
+ */
+@Value
+public class OfferSearchResult {
+    /**
+     * The total number of matching offers.
+     */
+    long totalHits;
+
+    /**
+     * The ids of the offers in the page, the most relevant first.
+     */
+    List<String> ids;
+}
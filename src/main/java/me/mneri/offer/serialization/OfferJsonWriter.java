@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.dto.UserDto;
+import me.mneri.offer.entity.Offer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Write {@link Offer} entities directly to a {@link JsonGenerator}.
+ * <p>
+ * The output has the same schema and date format of {@link OfferDto}, but no DTO is allocated: the fields are read
+ * from the entity and written as they are. Field names are pre-encoded and timestamps are formatted into a per-thread
+ * buffer; the generator's own buffers are already recycled per thread by Jackson.
+ *
+ * @author mneri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class OfferJsonWriter {
+    private static final SerializableString ID = new SerializedString("id");
+
+    private static final SerializableString TITLE = new SerializedString("title");
+
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+
+    private static final SerializableString PRICE = new SerializedString("price");
+
+    private static final SerializableString CURRENCY = new SerializedString("currency");
+
+    private static final SerializableString CREATE_TIME = new SerializedString("createTime");
+
+    private static final SerializableString TTL = new SerializedString("ttl");
+
+    private static final SerializableString PUBLISHER = new SerializedString("publisher");
+
+    private static final SerializableString USERNAME = new SerializedString("username");
+
+    /**
+     * Write the specified offer as a JSON object.
+     *
+     * @param offer     The offer.
+     * @param generator The generator.
+     * @param timeZone  The time zone used to format the dates.
+     * @throws IOException If the generator fails writing.
+     */
+    public static void write(Offer offer, JsonGenerator generator, TimeZone timeZone) throws IOException {
+        write(offer, null, generator, timeZone);
+    }
+
+    /**
+     * Write the specified offer as a JSON object, embedding its publisher.
+     *
+     * @param offer     The offer.
+     * @param publisher The publisher of the offer; if {@code null} the field is omitted.
+     * @param generator The generator.
+     * @param timeZone  The time zone used to format the dates.
+     * @throws IOException If the generator fails writing.
+     */
+    public static void write(Offer offer, UserDto publisher, JsonGenerator generator, TimeZone timeZone)
+            throws IOException {
+        long createTime = offer.getCreateTime().getTime();
+
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        generator.writeString(offer.getId());
+        generator.writeFieldName(TITLE);
+        generator.writeString(offer.getTitle());
+        generator.writeFieldName(DESCRIPTION);
+        generator.writeString(offer.getDescription());
+        generator.writeFieldName(PRICE);
+        generator.writeNumber(offer.getPrice());
+        generator.writeFieldName(CURRENCY);
+        generator.writeString(offer.getCurrency());
+        generator.writeFieldName(CREATE_TIME);
+        TimestampFormat.write(createTime, timeZone, generator);
+        generator.writeFieldName(TTL);
+        generator.writeNumber(offer.getEndTime().getTime() - createTime);
+
+        if (publisher != null) {
+            generator.writeFieldName(PUBLISHER);
+            generator.writeStartObject();
+            generator.writeFieldName(ID);
+            generator.writeString(publisher.getId());
+            generator.writeFieldName(USERNAME);
+            generator.writeString(publisher.getUsername());
+            generator.writeEndObject();
+        }
+
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the specified offers as a JSON array of objects.
+     *
+     * @param offers    The offers.
+     * @param generator The generator.
+     * @param timeZone  The time zone used to format the dates.
+     * @throws IOException If the generator fails writing.
+     */
+    public static void writeArray(List<Offer> offers, JsonGenerator generator, TimeZone timeZone) throws IOException {
+        writeArray(new OfferList(offers), generator, timeZone);
+    }
+
+    /**
+     * Write the specified offers as a JSON array of objects, embedding their publishers if the list carries them.
+     *
+     * @param offers    The offers.
+     * @param generator The generator.
+     * @param timeZone  The time zone used to format the dates.
+     * @throws IOException If the generator fails writing.
+     */
+    public static void writeArray(OfferList offers, JsonGenerator generator, TimeZone timeZone) throws IOException {
+        generator.writeStartArray(offers.getOffers().size());
+
+        for (Offer offer : offers.getOffers()) {
+            write(offer, offers.getPublisher(offer), generator, timeZone);
+        }
+
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.dto.UserDto;
+import me.mneri.offer.entity.Offer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of {@link Offer}s to be written to a response body.
+ * <p>
+ * The list is serialized by {@link OfferListSerializer} straight from the entities, without the intermediate
+ * {@link OfferDto}s: the resulting document has the same schema of a list of {@link OfferDto}s.
+ * <p>
+ * The publishers of the offers are embedded only if they are given, already loaded and keyed by id: the lazy
+ * {@link Offer#getPublisher()} references are never initialized while writing, as that would take a query per offer.
+ *
+ * @author mneri
+ */
+@AllArgsConstructor
+@JsonSerialize(using = OfferListSerializer.class)
+@Value
+public class OfferList {
+    List<Offer> offers;
+
+    Map<String, UserDto> publishers;
+
+    /**
+     * Create a list of offers without their publishers.
+     *
+     * @param offers The offers.
+     */
+    public OfferList(List<Offer> offers) {
+        this(offers, null);
+    }
+
+    /**
+     * Return the publisher of the specified offer, if it is to be embedded.
+     *
+     * @param offer The offer.
+     * @return The publisher, or {@code null} if the publishers are not embedded or the publisher is not known.
+     */
+    public UserDto getPublisher(Offer offer) {
+        return publishers == null ? null : publishers.get(offer.getPublisher().getId());
+    }
+}
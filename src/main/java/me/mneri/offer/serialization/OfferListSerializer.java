@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.TimeZone;
+
+/**
+ * Serialize an {@link OfferList} as a JSON array of offers using {@link OfferJsonWriter}.
+ *
+ * @author mneri
+ */
+public class OfferListSerializer extends StdSerializer<OfferList> {
+    public OfferListSerializer() {
+        super(OfferList.class);
+    }
+
+    @Override
+    public void serialize(OfferList value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        TimeZone timeZone = provider.getConfig().getTimeZone();
+        OfferJsonWriter.writeArray(value, generator, timeZone);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import me.mneri.offer.dto.OfferRequest;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+
+/**
+ * Read {@link OfferRequest} bodies using {@link OfferRequestReader}, so that the size limits are enforced while the
+ * body is parsed. The converter works with any Jackson {@link JsonFactory}, hence with JSON, CBOR and Smile.
+ * <p>
+ * Requests are written with the same fields the reader accepts, for example by clients using a {@code RestTemplate}.
+ *
+ * @author mneri
+ */
+public class OfferRequestHttpMessageConverter extends AbstractHttpMessageConverter<OfferRequest> {
+    private final JsonFactory factory;
+
+    /**
+     * Create a new instance.
+     *
+     * @param factory   The factory of the parsers.
+     * @param mediaType The media type supported by the factory.
+     */
+    public OfferRequestHttpMessageConverter(JsonFactory factory, MediaType mediaType) {
+        super(mediaType);
+        this.factory = factory;
+    }
+
+    @Override
+    protected OfferRequest readInternal(Class<? extends OfferRequest> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        try (JsonParser parser = factory.createParser(inputMessage.getBody())) {
+            return OfferRequestReader.read(parser);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("Invalid offer request: " + e.getOriginalMessage(), e,
+                                                      inputMessage);
+        }
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return OfferRequest.class == clazz;
+    }
+
+    @Override
+    protected void writeInternal(OfferRequest request, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        // The generator is flushed but not closed: the body stream is owned by the caller.
+        JsonGenerator generator = factory.createGenerator(outputMessage.getBody());
+        generator.writeStartObject();
+        generator.writeStringField("title", request.getTitle());
+        generator.writeStringField("description", request.getDescription());
+        generator.writeFieldName("price");
+        generator.writeNumber(request.getPrice());
+        generator.writeStringField("currency", request.getCurrency());
+        generator.writeNumberField("ttl", request.getTtl());
+        generator.writeEndObject();
+        generator.flush();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import me.mneri.offer.dto.OfferRequest;
+import me.mneri.offer.validator.Constants;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Read an {@link OfferRequest} token by token from a {@link JsonParser}.
+ * <p>
+ * The maximum lengths in {@link Constants} are checked on each token, before its text is turned into a string: an
+ * oversized field aborts the parsing as soon as it is met, without reading the rest of the body. The remaining
+ * constraints are still checked by the bean validation once the request is bound.
+ *
+ * @author mneri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class OfferRequestReader {
+    private static String readString(JsonParser parser, String field, int maxLength) throws IOException {
+        JsonToken token = parser.currentToken();
+
+        if (token != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, String.format("Field '%s' must be a string", field));
+        }
+
+        if (parser.getTextLength() > maxLength) {
+            throw new JsonParseException(parser,
+                    String.format("Field '%s' exceeds the maximum length of %d", field, maxLength));
+        }
+
+        return parser.getText();
+    }
+
+    private static BigDecimal readPrice(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDecimalValue();
+            case VALUE_STRING:
+                try {
+                    // A decimal with more than 64 characters can't fit the price column anyway
+                    return new BigDecimal(readString(parser, "price", 64).trim());
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException(parser, "Field 'price' is not a number", e);
+                }
+            default:
+                throw new JsonParseException(parser, "Field 'price' must be a number");
+        }
+    }
+
+    private static long readTtl(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+            throw new JsonParseException(parser, "Field 'ttl' must be an integer");
+        }
+
+        return parser.getLongValue();
+    }
+
+    /**
+     * Read an offer request. The parser must be positioned before the start of the object.
+     *
+     * @param parser The parser.
+     * @return The offer request.
+     * @throws JsonParseException If the body is malformed or one of the fields exceeds its maximum length.
+     * @throws IOException        If an I/O error occurs.
+     */
+    public static OfferRequest read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an object");
+        }
+
+        OfferRequest request = new OfferRequest();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "title":
+                    request.setTitle(readString(parser, field, Constants.TITLE_MAX_LENGTH));
+                    break;
+                case "description":
+                    request.setDescription(readString(parser, field, Constants.DESCRIPTION_MAX_LENGTH));
+                    break;
+                case "price":
+                    request.setPrice(readPrice(parser));
+                    break;
+                case "currency":
+                    request.setCurrency(readString(parser, field, Constants.CURRENCY_MAX_LENGTH));
+                    break;
+                case "ttl":
+                    request.setTtl(readTtl(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (parser.currentToken() != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Expected the end of the object");
+        }
+
+        return request;
+    }
+}
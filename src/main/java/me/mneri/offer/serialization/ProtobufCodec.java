@@ -0,0 +1,513 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.dto.OfferRequest;
+import me.mneri.offer.dto.UserDto;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.validator.Constants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Encode and decode DTOs using the Protocol Buffers wire format.
+ * <p>
+ * The messages are described by {@code proto/offer.proto}. The codec is written by hand on top of the protobuf
+ * runtime: no class is generated and the DTOs are read from and written to the streams directly. Prices are encoded
+ * as decimal strings so that no precision is lost; times are encoded as milliseconds since the epoch.
+ *
+ * @author mneri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ProtobufCodec {
+    private static final int LIST_ELEMENT = 1;
+
+    private static final int OFFER_ID = 1;
+
+    private static final int OFFER_TITLE = 2;
+
+    private static final int OFFER_DESCRIPTION = 3;
+
+    private static final int OFFER_PRICE = 4;
+
+    private static final int OFFER_CURRENCY = 5;
+
+    private static final int OFFER_CREATE_TIME = 6;
+
+    private static final int OFFER_TTL = 7;
+
+    private static final int OFFER_PUBLISHER = 8;
+
+    private static final int REQUEST_TITLE = 1;
+
+    private static final int REQUEST_DESCRIPTION = 2;
+
+    private static final int REQUEST_PRICE = 3;
+
+    private static final int REQUEST_CURRENCY = 4;
+
+    private static final int REQUEST_TTL = 5;
+
+    private static final int USER_ID = 1;
+
+    private static final int USER_USERNAME = 2;
+
+    private static final int TAG_TYPE_BITS = 3;
+
+    private static final int VARINT = WireFormat.WIRETYPE_VARINT;
+
+    private static final int LENGTH_DELIMITED = WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    /*
+     * The tags of the fields, field number and wire type together as in WireFormat.makeTag: the readers switch on the
+     * whole tag, so that a known field with an unexpected wire type is skipped like an unknown field, as the generated
+     * protobuf code does, instead of being misread.
+     */
+    private static final int OFFER_ID_TAG = OFFER_ID << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int OFFER_TITLE_TAG = OFFER_TITLE << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int OFFER_DESCRIPTION_TAG = OFFER_DESCRIPTION << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int OFFER_PRICE_TAG = OFFER_PRICE << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int OFFER_CURRENCY_TAG = OFFER_CURRENCY << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int OFFER_CREATE_TIME_TAG = OFFER_CREATE_TIME << TAG_TYPE_BITS | VARINT;
+
+    private static final int OFFER_TTL_TAG = OFFER_TTL << TAG_TYPE_BITS | VARINT;
+
+    private static final int OFFER_PUBLISHER_TAG = OFFER_PUBLISHER << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int REQUEST_TITLE_TAG = REQUEST_TITLE << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int REQUEST_DESCRIPTION_TAG = REQUEST_DESCRIPTION << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int REQUEST_PRICE_TAG = REQUEST_PRICE << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int REQUEST_CURRENCY_TAG = REQUEST_CURRENCY << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int REQUEST_TTL_TAG = REQUEST_TTL << TAG_TYPE_BITS | VARINT;
+
+    private static final int USER_ID_TAG = USER_ID << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int USER_USERNAME_TAG = USER_USERNAME << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static final int LIST_ELEMENT_TAG = LIST_ELEMENT << TAG_TYPE_BITS | LENGTH_DELIMITED;
+
+    private static int stringSize(int field, String value) {
+        return value == null ? 0 : CodedOutputStream.computeStringSize(field, value);
+    }
+
+    private static void writeString(CodedOutputStream output, int field, String value) throws IOException {
+        if (value != null) {
+            output.writeString(field, value);
+        }
+    }
+
+    /*
+     * Read a string field without decoding it if its encoded length is already too large for the maximum number of
+     * characters (a UTF-16 character takes at most 3 bytes in UTF-8).
+     */
+    private static String readString(CodedInputStream input, String field, int maxLength) throws IOException {
+        int size = input.readRawVarint32();
+
+        if (size < 0 || size > 3L * maxLength) {
+            throw new IOException(String.format("Field '%s' exceeds the maximum length of %d", field, maxLength));
+        }
+
+        String value = new String(input.readRawBytes(size), StandardCharsets.UTF_8);
+
+        if (value.length() > maxLength) {
+            throw new IOException(String.format("Field '%s' exceeds the maximum length of %d", field, maxLength));
+        }
+
+        return value;
+    }
+
+    private static String priceToString(BigDecimal price) {
+        return price == null ? null : price.toPlainString();
+    }
+
+    private static BigDecimal stringToPrice(String value) throws IOException {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed price: " + value, e);
+        }
+    }
+
+    private static int userSize(UserDto user) {
+        return stringSize(USER_ID, user.getId()) + stringSize(USER_USERNAME, user.getUsername());
+    }
+
+    /*
+     * Write the fields of an Offer message. If the message is an element of an OfferList it is preceded by its tag and
+     * its length. The publisher is an embedded User message, omitted if null.
+     */
+    private static void writeOffer(CodedOutputStream output, boolean element, String id, String title,
+                                   String description, String price, String currency, long createTime, long ttl,
+                                   UserDto publisher) throws IOException {
+        int publisherSize = publisher == null ? 0 : userSize(publisher);
+
+        if (element) {
+            int size = stringSize(OFFER_ID, id)
+                    + stringSize(OFFER_TITLE, title)
+                    + stringSize(OFFER_DESCRIPTION, description)
+                    + stringSize(OFFER_PRICE, price)
+                    + stringSize(OFFER_CURRENCY, currency)
+                    + CodedOutputStream.computeInt64Size(OFFER_CREATE_TIME, createTime)
+                    + CodedOutputStream.computeInt64Size(OFFER_TTL, ttl);
+
+            if (publisher != null) {
+                size += CodedOutputStream.computeTagSize(OFFER_PUBLISHER)
+                        + CodedOutputStream.computeUInt32SizeNoTag(publisherSize)
+                        + publisherSize;
+            }
+
+            output.writeTag(LIST_ELEMENT, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(size);
+        }
+
+        writeString(output, OFFER_ID, id);
+        writeString(output, OFFER_TITLE, title);
+        writeString(output, OFFER_DESCRIPTION, description);
+        writeString(output, OFFER_PRICE, price);
+        writeString(output, OFFER_CURRENCY, currency);
+        output.writeInt64(OFFER_CREATE_TIME, createTime);
+        output.writeInt64(OFFER_TTL, ttl);
+
+        if (publisher != null) {
+            output.writeTag(OFFER_PUBLISHER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(publisherSize);
+            writeUser(output, false, publisher);
+        }
+    }
+
+    private static void writeOffer(CodedOutputStream output, boolean element, OfferDto offer) throws IOException {
+        Date createTime = offer.getCreateTime();
+        writeOffer(output, element, offer.getId(), offer.getTitle(), offer.getDescription(),
+                   priceToString(offer.getPrice()), offer.getCurrency(), createTime == null ? 0 : createTime.getTime(),
+                   offer.getTtl(), offer.getPublisher());
+    }
+
+    private static OfferDto readOffer(CodedInputStream input) throws IOException {
+        OfferDto offer = new OfferDto();
+        int tag;
+
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case OFFER_ID_TAG:
+                    offer.setId(input.readStringRequireUtf8());
+                    break;
+                case OFFER_TITLE_TAG:
+                    offer.setTitle(input.readStringRequireUtf8());
+                    break;
+                case OFFER_DESCRIPTION_TAG:
+                    offer.setDescription(input.readStringRequireUtf8());
+                    break;
+                case OFFER_PRICE_TAG:
+                    offer.setPrice(stringToPrice(input.readStringRequireUtf8()));
+                    break;
+                case OFFER_CURRENCY_TAG:
+                    offer.setCurrency(input.readStringRequireUtf8());
+                    break;
+                case OFFER_CREATE_TIME_TAG:
+                    offer.setCreateTime(new Date(input.readInt64()));
+                    break;
+                case OFFER_TTL_TAG:
+                    offer.setTtl(input.readInt64());
+                    break;
+                case OFFER_PUBLISHER_TAG:
+                    int limit = input.pushLimit(input.readRawVarint32());
+                    offer.setPublisher(readUser(input));
+                    input.popLimit(limit);
+                    break;
+                default:
+                    input.skipField(tag);
+            }
+        }
+
+        return offer;
+    }
+
+    /**
+     * Write an {@code Offer} message.
+     *
+     * @param offer  The offer.
+     * @param stream The output stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeOffer(OfferDto offer, OutputStream stream) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(stream);
+        writeOffer(output, false, offer);
+        output.flush();
+    }
+
+    /**
+     * Write a list of offers as an {@code OfferList} message.
+     *
+     * @param offers The offers.
+     * @param stream The output stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeOffers(List<OfferDto> offers, OutputStream stream) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(stream);
+
+        for (OfferDto offer : offers) {
+            writeOffer(output, true, offer);
+        }
+
+        output.flush();
+    }
+
+    /**
+     * Write a list of {@link Offer} entities as an {@code OfferList} message, without creating the DTOs.
+     *
+     * @param offers The offers.
+     * @param stream The output stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeOfferEntities(List<Offer> offers, OutputStream stream) throws IOException {
+        writeOfferEntities(new OfferList(offers), stream);
+    }
+
+    /**
+     * Write a list of {@link Offer} entities as an {@code OfferList} message, without creating the DTOs, embedding
+     * their publishers if the list carries them.
+     *
+     * @param offers The offers.
+     * @param stream The output stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeOfferEntities(OfferList offers, OutputStream stream) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(stream);
+
+        for (Offer offer : offers.getOffers()) {
+            long createTime = offer.getCreateTime().getTime();
+            writeOffer(output, true, offer.getId(), offer.getTitle(), offer.getDescription(),
+                       priceToString(offer.getPrice()), offer.getCurrency(), createTime,
+                       offer.getEndTime().getTime() - createTime, offers.getPublisher(offer));
+        }
+
+        output.flush();
+    }
+
+    /**
+     * Read an {@code Offer} message.
+     *
+     * @param stream The input stream.
+     * @return The offer.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static OfferDto readOffer(InputStream stream) throws IOException {
+        return readOffer(CodedInputStream.newInstance(stream));
+    }
+
+    /**
+     * Read an {@code OfferList} message.
+     *
+     * @param stream The input stream.
+     * @return The offers.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static List<OfferDto> readOffers(InputStream stream) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(stream);
+        List<OfferDto> offers = new ArrayList<>();
+        int tag;
+
+        while ((tag = input.readTag()) != 0) {
+            if (tag != LIST_ELEMENT_TAG) {
+                input.skipField(tag);
+                continue;
+            }
+
+            int limit = input.pushLimit(input.readRawVarint32());
+            offers.add(readOffer(input));
+            input.popLimit(limit);
+        }
+
+        return offers;
+    }
+
+    /**
+     * Write an {@code OfferRequest} message.
+     *
+     * @param request The request.
+     * @param stream  The output stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeOfferRequest(OfferRequest request, OutputStream stream) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(stream);
+        writeString(output, REQUEST_TITLE, request.getTitle());
+        writeString(output, REQUEST_DESCRIPTION, request.getDescription());
+        writeString(output, REQUEST_PRICE, priceToString(request.getPrice()));
+        writeString(output, REQUEST_CURRENCY, request.getCurrency());
+        output.writeInt64(REQUEST_TTL, request.getTtl());
+        output.flush();
+    }
+
+    /**
+     * Read an {@code OfferRequest} message. The maximum lengths in {@link Constants} are checked while reading.
+     *
+     * @param stream The input stream.
+     * @return The request.
+     * @throws IOException If an I/O error occurs or if one of the fields exceeds its maximum length.
+     */
+    public static OfferRequest readOfferRequest(InputStream stream) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(stream);
+        OfferRequest request = new OfferRequest();
+        int tag;
+
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case REQUEST_TITLE_TAG:
+                    request.setTitle(readString(input, "title", Constants.TITLE_MAX_LENGTH));
+                    break;
+                case REQUEST_DESCRIPTION_TAG:
+                    request.setDescription(readString(input, "description", Constants.DESCRIPTION_MAX_LENGTH));
+                    break;
+                case REQUEST_PRICE_TAG:
+                    request.setPrice(stringToPrice(readString(input, "price", 64)));
+                    break;
+                case REQUEST_CURRENCY_TAG:
+                    request.setCurrency(readString(input, "currency", Constants.CURRENCY_MAX_LENGTH));
+                    break;
+                case REQUEST_TTL_TAG:
+                    request.setTtl(input.readInt64());
+                    break;
+                default:
+                    input.skipField(tag);
+            }
+        }
+
+        return request;
+    }
+
+    private static void writeUser(CodedOutputStream output, boolean element, UserDto user) throws IOException {
+        if (element) {
+            int size = stringSize(USER_ID, user.getId()) + stringSize(USER_USERNAME, user.getUsername());
+            output.writeTag(LIST_ELEMENT, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(size);
+        }
+
+        writeString(output, USER_ID, user.getId());
+        writeString(output, USER_USERNAME, user.getUsername());
+    }
+
+    private static UserDto readUser(CodedInputStream input) throws IOException {
+        UserDto user = new UserDto();
+        int tag;
+
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case USER_ID_TAG:
+                    user.setId(input.readStringRequireUtf8());
+                    break;
+                case USER_USERNAME_TAG:
+                    user.setUsername(input.readStringRequireUtf8());
+                    break;
+                default:
+                    input.skipField(tag);
+            }
+        }
+
+        return user;
+    }
+
+    /**
+     * Write a {@code User} message.
+     *
+     * @param user   The user.
+     * @param stream The output stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeUser(UserDto user, OutputStream stream) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(stream);
+        writeUser(output, false, user);
+        output.flush();
+    }
+
+    /**
+     * Write a list of users as a {@code UserList} message.
+     *
+     * @param users  The users.
+     * @param stream The output stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeUsers(List<UserDto> users, OutputStream stream) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(stream);
+
+        for (UserDto user : users) {
+            writeUser(output, true, user);
+        }
+
+        output.flush();
+    }
+
+    /**
+     * Read a {@code User} message.
+     *
+     * @param stream The input stream.
+     * @return The user.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static UserDto readUser(InputStream stream) throws IOException {
+        return readUser(CodedInputStream.newInstance(stream));
+    }
+
+    /**
+     * Read a {@code UserList} message.
+     *
+     * @param stream The input stream.
+     * @return The users.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static List<UserDto> readUsers(InputStream stream) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(stream);
+        List<UserDto> users = new ArrayList<>();
+        int tag;
+
+        while ((tag = input.readTag()) != 0) {
+            if (tag != LIST_ELEMENT_TAG) {
+                input.skipField(tag);
+                continue;
+            }
+
+            int limit = input.pushLimit(input.readRawVarint32());
+            users.add(readUser(input));
+            input.popLimit(limit);
+        }
+
+        return users;
+    }
+}
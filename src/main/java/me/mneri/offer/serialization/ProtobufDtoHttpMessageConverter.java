@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import me.mneri.offer.dto.OfferDto;
+import me.mneri.offer.dto.OfferRequest;
+import me.mneri.offer.dto.UserDto;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Read and write the DTOs of the API as {@link MediaTypes#APPLICATION_PROTOBUF} using {@link ProtobufCodec}.
+ * <p>
+ * Supported types are {@link OfferDto}, {@link OfferRequest}, {@link UserDto}, {@link OfferList} and lists of
+ * {@link OfferDto}s and {@link UserDto}s.
+ *
+ * @author mneri
+ */
+public class ProtobufDtoHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public ProtobufDtoHttpMessageConverter() {
+        super(MediaTypes.APPLICATION_PROTOBUF);
+    }
+
+    private static Type elementType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+
+        ParameterizedType parameterized = (ParameterizedType) type;
+
+        if (parameterized.getRawType() != List.class) {
+            return null;
+        }
+
+        return parameterized.getActualTypeArguments()[0];
+    }
+
+    private static boolean isSupported(Type type) {
+        if (type == OfferDto.class || type == OfferRequest.class || type == UserDto.class || type == OfferList.class) {
+            return true;
+        }
+
+        Type element = elementType(type);
+        return element == OfferDto.class || element == UserDto.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return isSupported(type) && type != OfferList.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isSupported(type != null ? type : clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        InputStream stream = inputMessage.getBody();
+
+        try {
+            if (type == OfferRequest.class) {
+                return ProtobufCodec.readOfferRequest(stream);
+            } else if (type == OfferDto.class) {
+                return ProtobufCodec.readOffer(stream);
+            } else if (type == UserDto.class) {
+                return ProtobufCodec.readUser(stream);
+            } else if (elementType(type) == OfferDto.class) {
+                return ProtobufCodec.readOffers(stream);
+            } else if (elementType(type) == UserDto.class) {
+                return ProtobufCodec.readUsers(stream);
+            }
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Malformed protobuf message: " + e.getMessage(), e, inputMessage);
+        }
+
+        throw new HttpMessageNotReadableException("Unsupported type: " + type, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return isSupported(clazz);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        OutputStream stream = outputMessage.getBody();
+
+        if (object instanceof OfferList) {
+            ProtobufCodec.writeOfferEntities((OfferList) object, stream);
+        } else if (object instanceof OfferDto) {
+            ProtobufCodec.writeOffer((OfferDto) object, stream);
+        } else if (object instanceof OfferRequest) {
+            ProtobufCodec.writeOfferRequest((OfferRequest) object, stream);
+        } else if (object instanceof UserDto) {
+            ProtobufCodec.writeUser((UserDto) object, stream);
+        } else if (elementType(type) == OfferDto.class) {
+            ProtobufCodec.writeOffers((List<OfferDto>) object, stream);
+        } else if (elementType(type) == UserDto.class) {
+            ProtobufCodec.writeUsers((List<UserDto>) object, stream);
+        } else {
+            throw new HttpMessageNotWritableException("Unsupported type: " + type);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Register the message converters for the binary representations listed in {@link MediaTypes}.
+ * <p>
+ * The converters are appended after the default ones so that JSON is still chosen when the client doesn't ask for a
+ * specific representation. The CBOR and Smile object mappers are built from the same builder of the JSON one, hence
+ * they share its configuration.
+ * <p>
+ * {@link me.mneri.offer.dto.OfferRequest} bodies are read by {@link OfferRequestHttpMessageConverter}s placed in front
+ * of the default converters, so that their size limits are checked while parsing.
+ *
+ * @author mneri
+ */
+@Configuration
+public class SerializationConfiguration implements WebMvcConfigurer {
+    @Autowired
+    private ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        ObjectMapper jsonMapper = objectMapperBuilder.getObject().build();
+        ObjectMapper cborMapper = objectMapperBuilder.getObject().factory(new CBORFactory()).build();
+        ObjectMapper smileMapper = objectMapperBuilder.getObject().factory(new SmileFactory()).build();
+
+        converters.add(0, new OfferRequestHttpMessageConverter(jsonMapper.getFactory(), MediaType.APPLICATION_JSON));
+        converters.add(1, new OfferRequestHttpMessageConverter(cborMapper.getFactory(), MediaTypes.APPLICATION_CBOR));
+        converters.add(2, new OfferRequestHttpMessageConverter(smileMapper.getFactory(), MediaTypes.APPLICATION_SMILE));
+
+        converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(smileMapper));
+        converters.add(new ProtobufDtoHttpMessageConverter());
+    }
+}
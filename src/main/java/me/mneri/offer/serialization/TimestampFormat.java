@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Format timestamps using the {@code yyyy-MM-dd HH:mm:ss.SSS} pattern of {@link me.mneri.offer.dto.OfferDto}.
+ * <p>
+ * UTC timestamps between the years 1583 and 9999 are formatted by hand into a per-thread buffer. Any other timestamp
+ * (other time zones, Julian dates, years with more than four digits) falls back to {@link SimpleDateFormat} so that
+ * the output is always the same as Jackson's.
+ *
+ * @author mneri
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class TimestampFormat {
+    static final String PATTERN = "yyyy-MM-dd HH:mm:ss.SSS";
+
+    static final int LENGTH = PATTERN.length();
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[LENGTH]);
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /**
+     * Format the specified timestamp, expressed in UTC, into the buffer.
+     *
+     * @param millis The timestamp in milliseconds since the epoch.
+     * @param buffer The buffer; it must hold at least {@link #LENGTH} characters.
+     * @return {@code true} if the timestamp was formatted, {@code false} if it is outside the supported range.
+     */
+    static boolean format(long millis, char[] buffer) {
+        long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+
+        // Civil date from days since the epoch, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        int dayOfEra = (int) (z - era * 146_097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 1583 || year > 9999) {
+            return false;
+        }
+
+        int hour = millisOfDay / 3_600_000;
+        int minute = millisOfDay / 60_000 % 60;
+        int second = millisOfDay / 1000 % 60;
+        int milli = millisOfDay % 1000;
+
+        digits((int) year, 4, buffer, 0);
+        buffer[4] = '-';
+        digits(month, 2, buffer, 5);
+        buffer[7] = '-';
+        digits(day, 2, buffer, 8);
+        buffer[10] = ' ';
+        digits(hour, 2, buffer, 11);
+        buffer[13] = ':';
+        digits(minute, 2, buffer, 14);
+        buffer[16] = ':';
+        digits(second, 2, buffer, 17);
+        buffer[19] = '.';
+        digits(milli, 3, buffer, 20);
+
+        return true;
+    }
+
+    private static void digits(int value, int count, char[] buffer, int offset) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Write the specified timestamp as a string.
+     *
+     * @param millis    The timestamp in milliseconds since the epoch.
+     * @param timeZone  The time zone.
+     * @param generator The generator.
+     * @throws IOException If the generator fails writing.
+     */
+    static void write(long millis, TimeZone timeZone, JsonGenerator generator) throws IOException {
+        if (timeZone.hasSameRules(UTC)) {
+            char[] buffer = BUFFER.get();
+
+            if (format(millis, buffer)) {
+                generator.writeString(buffer, 0, LENGTH);
+                return;
+            }
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat(PATTERN);
+        format.setTimeZone(timeZone);
+        generator.writeString(format.format(new Date(millis)));
+    }
+}
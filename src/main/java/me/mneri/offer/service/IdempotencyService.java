@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.service;
+
+import me.mneri.offer.entity.IdempotencyRecord;
+
+import java.util.Optional;
+
+/**
+ * Service for storing and retrieving the responses associated with idempotency keys.
+ * <p>
+ * A key goes through two states: it is first reserved by the request which is going to produce the response, then
+ * it is either completed with the response or released if the request failed, so that the client can try again.
+ *
+ * @author mneri
+ */
+public interface IdempotencyService {
+    /**
+     * Store the response associated with a reserved key.
+     *
+     * @param record The record holding the key and the response.
+     */
+    void complete(IdempotencyRecord record);
+
+    /**
+     * Find the response associated with the specified key.
+     *
+     * @param key The key.
+     * @return The record holding the response, if the key was completed and didn't expire.
+     */
+    Optional<IdempotencyRecord> find(String key);
+
+    /**
+     * Release a reserved key without associating any response with it.
+     *
+     * @param key The key.
+     */
+    void release(String key);
+
+    /**
+     * Reserve the specified key.
+     *
+     * @param key The key.
+     * @return {@code true} if the key was reserved, {@code false} if it is already reserved or completed.
+     */
+    boolean reserve(String key);
+}
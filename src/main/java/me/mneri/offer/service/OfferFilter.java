@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.service;
+
+import lombok.Builder;
+import lombok.Value;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.Offer_;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The criteria to select a page of the open {@link Offer}s. Absent ({@code null}) criteria don't restrict the
+ * selection.
+ *
+ * @author mneri
+ */
+@Builder
+@Value
+public class OfferFilter {
+    /**
+     * The orderings the offers can be sorted by.
+     */
+    public enum Sort {
+        CREATE_TIME("createTime", Offer_.CREATE_TIME),
+        END_TIME("endTime", Offer_.END_TIME),
+        PRICE("price", Offer_.PRICE);
+
+        private final String parameter;
+
+        private final String property;
+
+        Sort(String parameter, String property) {
+            this.parameter = parameter;
+            this.property = property;
+        }
+
+        /**
+         * Return the ordering with the specified name, as used in request parameters.
+         *
+         * @param parameter The name.
+         * @return The ordering, if any.
+         */
+        public static Optional<Sort> of(String parameter) {
+            for (Sort sort : values()) {
+                if (sort.parameter.equals(parameter)) {
+                    return Optional.of(sort);
+                }
+            }
+
+            return Optional.empty();
+        }
+
+        /**
+         * Return the name of the {@link Offer} property to sort by.
+         *
+         * @return The name of the property.
+         */
+        public String getProperty() {
+            return property;
+        }
+    }
+
+    /**
+     * An additional condition the offers must satisfy, for example compiled from a filter expression.
+     */
+    Specification<Offer> condition;
+
+    /**
+     * The currency of the offers.
+     */
+    String currency;
+
+    /**
+     * If {@code true} the offers are sorted in descending order.
+     */
+    boolean descending;
+
+    /**
+     * The time from now within which the offers end, inclusive.
+     */
+    Duration endingWithin;
+
+    /**
+     * The maximum price of the offers, inclusive.
+     */
+    BigDecimal maxPrice;
+
+    /**
+     * The minimum price of the offers, inclusive.
+     */
+    BigDecimal minPrice;
+
+    /**
+     * The number of the page, starting from zero.
+     */
+    int page;
+
+    /**
+     * The currency the prices are compared in, {@code null} to compare them as they are. If set, the minimum and
+     * maximum prices are in this currency and the offers are compared by their normalized price: the offers whose
+     * price cannot be normalized are not selected.
+     */
+    String priceCurrency;
+
+    /**
+     * The size of the page.
+     */
+    int size;
+
+    /**
+     * The ordering of the offers, {@code null} for the default: the end time if {@link #endingWithin} is set, the
+     * creation time otherwise. Offers with the same sort key are ordered by id, so that the pages are stable.
+     */
+    Sort sort;
+
+    /**
+     * Return the ordering of the offers, resolving the default.
+     *
+     * @return The ordering.
+     */
+    public Sort getEffectiveSort() {
+        if (sort != null) {
+            return sort;
+        }
+
+        return endingWithin == null ? Sort.CREATE_TIME : Sort.END_TIME;
+    }
+
+    /**
+     * Return the name of the {@link Offer} property to sort by: the normalized price if the offers are sorted by price
+     * and the prices are compared in a currency, the property of the effective ordering otherwise.
+     *
+     * @return The name of the property.
+     */
+    public String getSortProperty() {
+        Sort effectiveSort = getEffectiveSort();
+
+        if (effectiveSort == Sort.PRICE && priceCurrency != null) {
+            return Offer_.NORMALIZED_PRICE;
+        }
+
+        return effectiveSort.getProperty();
+    }
+}
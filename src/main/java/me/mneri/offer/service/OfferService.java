@@ -22,6 +22,7 @@ import me.mneri.offer.entity.Offer;
 import me.mneri.offer.entity.User;
 import me.mneri.offer.exception.UserIdNotFoundException;
 import me.mneri.offer.exception.UserNotAuthorizedException;
+import org.springframework.data.domain.Page;
 
 import java.util.List;
 import java.util.Optional;
@@ -32,6 +33,14 @@ import java.util.Optional;
  * @author mneri
  */
 public interface OfferService {
+    /**
+     * Return {@code true} if an {@link Offer} with the specified id exists, whatever its state.
+     *
+     * @param id The id of the offer.
+     * @return {@code true} if the offer exists, {@code false} otherwise.
+     */
+    boolean existsById(String id);
+
     /**
      * Find all the open {@link Offer}s.
      *
@@ -39,6 +48,23 @@ public interface OfferService {
      */
     List<Offer> findAllOpen();
 
+    /**
+     * Find a page of the open {@link Offer}s matching the specified filter.
+     *
+     * @param filter The filter.
+     * @return The page of the open offers.
+     */
+    Page<Offer> findAllOpen(OfferFilter filter);
+
+    /**
+     * Find the open {@link Offer}s among the ones identified by the specified ids. The offers are returned in the order
+     * of the ids; the ids of the offers that don't exist or are closed are skipped.
+     *
+     * @param ids The ids of the offers.
+     * @return The list of the open offers.
+     */
+    List<Offer> findAllOpenByIdIn(List<String> ids);
+
     /**
      * Find all the open {@link Offer}s published by the specified {@link User}.
      *
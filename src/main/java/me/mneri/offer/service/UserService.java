@@ -20,6 +20,7 @@ package me.mneri.offer.service;
 
 import me.mneri.offer.entity.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +37,14 @@ public interface UserService {
      */
     List<User> findAllEnabled();
 
+    /**
+     * Find the enabled {@link User}s with the specified ids with a single query.
+     *
+     * @param ids The ids.
+     * @return The list of the enabled users, in no particular order.
+     */
+    List<User> findAllEnabledByIdIn(Collection<String> ids);
+
     /**
      * Find the user with the specified id in the repository.
      *
@@ -54,6 +63,16 @@ public interface UserService {
      */
     Optional<User> findEnabledByUsername(String username);
 
+    /**
+     * Find the enabled users whose username starts with the specified prefix, ignoring case, in alphabetical order.
+     * The users are served from memory and must not be modified.
+     *
+     * @param prefix The prefix.
+     * @param limit  The maximum number of users to return.
+     * @return The list of the users.
+     */
+    List<User> findEnabledByUsernamePrefix(String prefix, int limit);
+
     /**
      * Persist a user into the database.
      *
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.service;
+
+import me.mneri.offer.entity.User;
+import me.mneri.offer.entity.Webhook;
+import me.mneri.offer.exception.UserIdNotFoundException;
+import me.mneri.offer.exception.WebhookIdNotFoundException;
+
+import java.util.List;
+
+/**
+ * Service for accessing the webhook repository.
+ *
+ * @author mneri
+ */
+public interface WebhookService {
+    /**
+     * Delete the specified webhook, along with its pending deliveries.
+     *
+     * @param userId    The id of the publisher.
+     * @param webhookId The id of the webhook.
+     * @throws UserIdNotFoundException    If the user doesn't exist or it's disabled.
+     * @throws WebhookIdNotFoundException If the user has no webhook with the specified id.
+     */
+    void delete(String userId, String webhookId) throws UserIdNotFoundException, WebhookIdNotFoundException;
+
+    /**
+     * Find the webhooks registered by the specified {@link User}.
+     *
+     * @param userId The id of the publisher.
+     * @return The list of the webhooks, oldest first.
+     * @throws UserIdNotFoundException If the user doesn't exist or it's disabled.
+     */
+    List<Webhook> findAllByPublisherId(String userId) throws UserIdNotFoundException;
+
+    /**
+     * Register a new webhook for the specified {@link User}.
+     *
+     * @param userId The id of the publisher.
+     * @param url    The URL to notify.
+     * @return The new webhook.
+     * @throws UserIdNotFoundException If the user doesn't exist or it's disabled.
+     */
+    Webhook register(String userId, String url) throws UserIdNotFoundException;
+}
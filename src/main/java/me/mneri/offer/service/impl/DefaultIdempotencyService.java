@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.service.impl;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.concurrent.ExpiringMap;
+import me.mneri.offer.entity.IdempotencyRecord;
+import me.mneri.offer.repository.IdempotencyRecordRepository;
+import me.mneri.offer.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Service for the idempotency keys.
+ * <p>
+ * Keys are kept in a bounded {@link ExpiringMap} backed by the {@code idempotency_record} table: the map answers most
+ * of the lookups, the table makes the completed keys survive a restart. Reservations only live in the map.
+ *
+ * @author mneri
+ */
+@Log4j2
+@Service
+public class DefaultIdempotencyService implements IdempotencyService {
+    private static final IdempotencyRecord RESERVED = IdempotencyRecord.builder().id("").build();
+
+    private ExpiringMap<String, IdempotencyRecord> cache;
+
+    @Value("${offer.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Value("${offer.idempotency.ttl:86400000}")
+    private long ttl;
+
+    @PostConstruct
+    private void init() {
+        cache = new ExpiringMap<>(maxEntries, ttl);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional
+    public void complete(IdempotencyRecord record) {
+        repository.save(record);
+        cache.put(record.getId(), record);
+        log.debug("Idempotency key completed; key: {}; status: {}", record.getId(), record.getStatus());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Optional<IdempotencyRecord> find(String key) {
+        IdempotencyRecord record = cache.get(key);
+
+        if (record != null) {
+            return record == RESERVED ? Optional.empty() : Optional.of(record);
+        }
+
+        Optional<IdempotencyRecord> stored = repository.findById(key)
+                .filter(r -> r.getCreateTime().getTime() + ttl > System.currentTimeMillis());
+        stored.ifPresent(r -> cache.putIfAbsent(key, r));
+
+        return stored;
+    }
+
+    /**
+     * Remove the expired keys from the map and from the table.
+     */
+    @Scheduled(fixedDelayString = "${offer.idempotency.purge-interval:60000}")
+    @Transactional
+    public void purge() {
+        cache.purge();
+        long deleted = repository.deleteByCreateTimeBefore(new Date(System.currentTimeMillis() - ttl));
+        log.debug("Expired idempotency keys purged; deleted: {}", deleted);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void release(String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean reserve(String key) {
+        return cache.putIfAbsent(key, RESERVED) == null;
+    }
+}
@@ -18,20 +18,45 @@
 
 package me.mneri.offer.service.impl;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.concurrent.SingleFlight;
 import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.Offer_;
 import me.mneri.offer.entity.User;
 import me.mneri.offer.exception.UserIdNotFoundException;
+import me.mneri.offer.event.OfferChangeEvent;
 import me.mneri.offer.exception.UserNotAuthorizedException;
+import me.mneri.offer.fx.FxRateTable;
+import me.mneri.offer.fx.FxRates;
+import me.mneri.offer.index.OfferColumns;
+import me.mneri.offer.index.OfferIndex;
+import me.mneri.offer.index.OfferScan;
+import me.mneri.offer.index.OfferScanResult;
 import me.mneri.offer.repository.OfferRepository;
 import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferFilter;
 import me.mneri.offer.service.OfferService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.Optional;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static me.mneri.offer.specification.OfferSpecification.*;
 import static me.mneri.offer.specification.UserSpecification.userIdIsEqualTo;
@@ -40,18 +65,76 @@ import static org.springframework.data.jpa.domain.Specification.where;
 
 /**
  * Service for accessing the offer repository.
+ * <p>
+ * Concurrent identical reads are coalesced: while a query is in flight, callers asking for the same data wait for it
+ * and share its result instead of issuing the same query again. The callers that joined receive their own copies of
+ * the returned offers, so that callers modifying them don't step on each other; a read that no one joined returns the
+ * offers as they are.
  *
  * @author mneri
  */
 @Log4j2
 @Service
 public class DefaultOfferService implements OfferService {
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    private FxRates fxRates;
+
+    @Value("${offer.index.fetch-batch-size:500}")
+    private int indexFetchBatchSize;
+
+    @Autowired(required = false)
+    private OfferIndex offerIndex;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private OfferRepository offerRepository;
 
+    private SingleFlight<String> singleFlight;
+
     @Autowired
     private UserRepository userRepository;
 
+    @PostConstruct
+    private void init() {
+        Counter executed = meterRegistry.counter("offer.service.reads", "coalesced", "false");
+        Counter coalesced = meterRegistry.counter("offer.service.reads", "coalesced", "true");
+
+        singleFlight = new SingleFlight<>(joined -> (joined ? coalesced : executed).increment());
+        meterRegistry.gauge("offer.service.reads.in.flight", singleFlight, SingleFlight::inFlight);
+    }
+
+    /**
+     * Return a copy of the specified offer for the current thread. The publisher of the offer was read by another
+     * thread, possibly as a lazy proxy bound to that thread's session: the copy references the publisher through the
+     * persistence context of the current thread instead.
+     *
+     * @param offer The offer.
+     * @return The copy.
+     */
+    private Offer share(Offer offer) {
+        Offer copy = offer.copy();
+        copy.setPublisher(entityManager.getReference(User.class, offer.getPublisher().getId()));
+        return copy;
+    }
+
+    /**
+     * Return a copy of each of the specified offers for the current thread (see {@link #share(Offer)}).
+     *
+     * @param offers The offers.
+     * @return The list of the copies.
+     */
+    private List<Offer> share(List<Offer> offers) {
+        return offers.stream().map(this::share).collect(Collectors.toList());
+    }
+
     /**
      * Return {@code true} if an enabled {@link User} with the specified id exists in the repository.
      *
@@ -63,11 +146,189 @@ public class DefaultOfferService implements OfferService {
         return userRepository.count(where(userIsEnabled()).and(userIdIsEqualTo(userId))) > 0;
     }
 
+    /**
+     * Find the open {@link Offer}s among the ones identified by the specified ids.
+     * <p>
+     * The ids come from the {@link OfferIndex}, which is updated after commit: the predicate is checked again against
+     * the repository so that a stale index never leaks a closed offer. The ids are looked up in batches of at most
+     * {@code offer.index.fetch-batch-size}, so that no query carries an unbounded {@code IN} list.
+     *
+     * @param ids The offer ids.
+     * @return The list of the open offers.
+     */
+    private List<Offer> findAllOpenByIds(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Offer> offers = new ArrayList<>(ids.size());
+
+        for (int from = 0; from < ids.size(); from += indexFetchBatchSize) {
+            List<String> batch = ids.subList(from, Math.min(from + indexFetchBatchSize, ids.size()));
+            offers.addAll(offerRepository.findAll(where(offerIsOpen()).and(offerIdIsIn(batch))));
+        }
+
+        return offers;
+    }
+
+    /**
+     * Find a page of the open {@link Offer}s matching the specified filter through the {@link OfferIndex}: the page is
+     * computed by the index and only the offers in the page are read from the repository. The filter must have
+     * neither a condition nor a price currency, which the index can't evaluate.
+     *
+     * @param filter   The filter.
+     * @param pageable The page of the filter.
+     * @return The page of the open offers.
+     */
+    private Page<Offer> findAllOpenInIndex(OfferFilter filter, Pageable pageable) {
+        long now = System.currentTimeMillis();
+        OfferScan.OfferScanBuilder scan = OfferScan.builder().now(now).currency(filter.getCurrency());
+
+        // Rounded towards the inside of the range so that the bounds match the same prices as in the repository.
+        if (filter.getMinPrice() != null) {
+            scan.minPriceMinorUnits(OfferColumns.toMinorUnits(filter.getMinPrice(), RoundingMode.CEILING));
+        }
+
+        if (filter.getMaxPrice() != null) {
+            scan.maxPriceMinorUnits(OfferColumns.toMinorUnits(filter.getMaxPrice(), RoundingMode.FLOOR));
+        }
+
+        if (filter.getEndingWithin() != null) {
+            scan.maxEndTimeMillis(now + filter.getEndingWithin().toMillis());
+        }
+
+        int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+        OfferScanResult result = offerIndex.scan(scan.build(), toOrder(filter.getEffectiveSort()),
+                filter.isDescending(), offset, pageable.getPageSize());
+
+        return new PageImpl<>(findAllOpenByIdIn(result.getIds()), pageable, result.getTotal());
+    }
+
+    /**
+     * Return the {@link OfferColumns.Order} corresponding to the specified sort of an {@link OfferFilter}.
+     *
+     * @param sort The sort.
+     * @return The order.
+     */
+    private static OfferColumns.Order toOrder(OfferFilter.Sort sort) {
+        switch (sort) {
+            case END_TIME:
+                return OfferColumns.Order.END_TIME;
+            case PRICE:
+                return OfferColumns.Order.PRICE;
+            default:
+                return OfferColumns.Order.CREATE_TIME;
+        }
+    }
+
+    /**
+     * Set the normalized price of the specified offer with the current FX rates: none if the rates are not enabled or
+     * the currency of the offer is not known.
+     *
+     * @param offer The offer.
+     */
+    private void normalizePrice(Offer offer) {
+        BigDecimal normalizedPrice = null;
+
+        if (fxRates != null) {
+            normalizedPrice = fxRates.getTable().normalize(offer.getPrice(), offer.getCurrency()).orElse(null);
+        }
+
+        offer.setNormalizedPrice(normalizedPrice);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean existsById(String id) {
+        return offerRepository.existsById(id);
+    }
+
     /**
      * {@inheritDoc}
      */
     public List<Offer> findAllOpen() {
-        return offerRepository.findAll(where(offerIsOpen()));
+        // Not routed through the offer index: the scan would select almost every row and each id would then be looked
+        // up again, while the repository returns the same rows in a single pass.
+        return singleFlight.execute("findAllOpen", () -> offerRepository.findAll(where(offerIsOpen())), this::share);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Page<Offer> findAllOpen(OfferFilter filter) {
+        Sort.Direction direction = filter.isDescending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Pageable pageable = PageRequest.of(filter.getPage(), filter.getSize(),
+                Sort.by(direction, filter.getSortProperty(), Offer_.ID));
+
+        if (offerIndex != null && filter.getCondition() == null && filter.getPriceCurrency() == null) {
+            return findAllOpenInIndex(filter, pageable);
+        }
+
+        Specification<Offer> specification = where(offerIsOpen());
+
+        if (filter.getCurrency() != null) {
+            specification = specification.and(offerCurrencyIsEqualTo(filter.getCurrency()));
+        }
+
+        if (filter.getPriceCurrency() != null) {
+            // The bounds are converted to the base currency and compared with the normalized prices: sorted by price
+            // the (canceled, normalized_price) index returns the matching rows in order.
+            FxRateTable rates = fxRates == null ? null : fxRates.getTable();
+
+            if (rates == null || !rates.getRate(filter.getPriceCurrency()).isPresent()) {
+                return Page.empty(pageable);
+            }
+
+            specification = specification.and(offerNormalizedPriceIsNotNull());
+
+            if (filter.getMinPrice() != null) {
+                BigDecimal minPrice = rates.normalize(filter.getMinPrice(), filter.getPriceCurrency()).orElse(null);
+                specification = specification.and(offerNormalizedPriceIsGreaterThanOrEqualTo(minPrice));
+            }
+
+            if (filter.getMaxPrice() != null) {
+                BigDecimal maxPrice = rates.normalize(filter.getMaxPrice(), filter.getPriceCurrency()).orElse(null);
+                specification = specification.and(offerNormalizedPriceIsLessThanOrEqualTo(maxPrice));
+            }
+        } else {
+            if (filter.getMinPrice() != null) {
+                specification = specification.and(offerPriceIsGreaterThanOrEqualTo(filter.getMinPrice()));
+            }
+
+            if (filter.getMaxPrice() != null) {
+                specification = specification.and(offerPriceIsLessThanOrEqualTo(filter.getMaxPrice()));
+            }
+        }
+
+        if (filter.getCondition() != null) {
+            specification = specification.and(filter.getCondition());
+        }
+
+        if (filter.getEndingWithin() != null) {
+            // Along with the open predicate this is a range on (canceled, end_time): sorted by end time the index
+            // returns the matching rows in order, without scanning or sorting the rest of the open offers.
+            Date now = new Date();
+            Date until = new Date(now.getTime() + filter.getEndingWithin().toMillis());
+            specification = specification.and(offerEndTimeIsBetween(now, until));
+        }
+
+        return offerRepository.findAll(specification, pageable);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Offer> findAllOpenByIdIn(List<String> ids) {
+        Map<String, Integer> positions = new HashMap<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            positions.putIfAbsent(ids.get(i), i);
+        }
+
+        List<Offer> offers = new ArrayList<>(findAllOpenByIds(ids));
+        offers.sort(Comparator.comparing(offer -> positions.get(offer.getId())));
+        return offers;
     }
 
     /**
@@ -75,26 +336,32 @@ public class DefaultOfferService implements OfferService {
      */
     @Transactional
     public List<Offer> findAllOpenByPublisherId(String userId) throws UserIdNotFoundException {
-        if (!enabledUserExistsById(userId)) {
-            log.debug("No enabled user with the specified id was found; userId: {}", userId);
-            throw new UserIdNotFoundException(userId);
-        }
+        return singleFlight.execute("findAllOpenByPublisherId:" + userId, () -> {
+            if (!enabledUserExistsById(userId)) {
+                log.debug("No enabled user with the specified id was found; userId: {}", userId);
+                throw new UserIdNotFoundException(userId);
+            }
 
-        return offerRepository.findAll(where(offerIsOpen()).and(offerPublisherIdIsEqualTo(userId)));
+            return offerRepository.findAll(where(offerIsOpen()).and(offerPublisherIdIsEqualTo(userId)));
+        }, this::share);
     }
 
     /**
      * {@inheritDoc}
      */
     public List<Offer> findAllOpenByPublisherUsername(String username) {
-        return offerRepository.findAll(where(offerIsOpen()).and(offerPublisherUsernameIsEqualTo(username)));
+        return singleFlight.execute("findAllOpenByPublisherUsername:" + username,
+                () -> offerRepository.findAll(where(offerIsOpen()).and(offerPublisherUsernameIsEqualTo(username))),
+                this::share);
     }
 
     /**
      * {@inheritDoc}
      */
     public Optional<Offer> findOpenById(String id) {
-        return offerRepository.findOne(where(offerIsOpen()).and(offerIdIsEqualTo(id)));
+        return singleFlight.execute("findOpenById:" + id,
+                () -> offerRepository.findOne(where(offerIsOpen()).and(offerIdIsEqualTo(id))),
+                offer -> offer.map(this::share));
     }
 
     /**
@@ -112,15 +379,23 @@ public class DefaultOfferService implements OfferService {
             throw new UserNotAuthorizedException(userId);
         }
 
+        normalizePrice(offer);
         offerRepository.save(offer);
         log.debug("Offer updated; offerId: {}; userId: {}", offer.getId(), userId);
+
+        OfferChangeEvent.Type type = offer.isCanceled() ? OfferChangeEvent.Type.CANCELED : OfferChangeEvent.Type.UPDATED;
+        eventPublisher.publishEvent(OfferChangeEvent.of(type, offer));
     }
 
     /**
      * {@inheritDoc}
      */
+    @Transactional
     public void save(Offer offer) {
+        normalizePrice(offer);
         offerRepository.save(offer);
         log.debug("Offer created; offerId: {}", offer.getId());
+
+        eventPublisher.publishEvent(OfferChangeEvent.of(OfferChangeEvent.Type.CREATED, offer));
     }
 }
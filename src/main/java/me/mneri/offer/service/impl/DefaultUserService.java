@@ -20,11 +20,16 @@ package me.mneri.offer.service.impl;
 
 import lombok.extern.log4j.Log4j2;
 import me.mneri.offer.entity.User;
+import me.mneri.offer.index.UsernameIndex;
 import me.mneri.offer.repository.UserRepository;
 import me.mneri.offer.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +47,9 @@ public class DefaultUserService implements UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UsernameIndex usernameIndex;
+
     /**
      * {@inheritDoc}
      */
@@ -49,6 +57,17 @@ public class DefaultUserService implements UserService {
         return userRepository.findAll(where(userIsEnabled()));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public List<User> findAllEnabledByIdIn(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return userRepository.findAll(where(userIsEnabled()).and(userIdIsIn(ids)));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -63,11 +82,31 @@ public class DefaultUserService implements UserService {
         return userRepository.findOne(where(userIsEnabled()).and(userUsernameIsEqualTo(username)));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public List<User> findEnabledByUsernamePrefix(String prefix, int limit) {
+        return usernameIndex.match(prefix, limit);
+    }
+
     /**
      * {@inheritDoc}
      */
     public void save(User user) {
         userRepository.save(user);
         log.debug("User created; userId: {}", user.getId());
+
+        // Within a transaction the index is updated on commit, so that it never sees a user that is rolled back.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            User saved = user.copy();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    usernameIndex.put(saved);
+                }
+            });
+        } else {
+            usernameIndex.put(user);
+        }
     }
 }
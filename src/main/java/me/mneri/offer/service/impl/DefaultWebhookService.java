@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.service.impl;
+
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.entity.Webhook;
+import me.mneri.offer.exception.UserIdNotFoundException;
+import me.mneri.offer.exception.WebhookIdNotFoundException;
+import me.mneri.offer.repository.WebhookDeliveryRepository;
+import me.mneri.offer.repository.WebhookRepository;
+import me.mneri.offer.service.UserService;
+import me.mneri.offer.service.WebhookService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service for accessing the webhook repository.
+ *
+ * @author mneri
+ */
+@Log4j2
+@Service
+public class DefaultWebhookService implements WebhookService {
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WebhookDeliveryRepository webhookDeliveryRepository;
+
+    @Autowired
+    private WebhookRepository webhookRepository;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional
+    public void delete(String userId, String webhookId) throws UserIdNotFoundException, WebhookIdNotFoundException {
+        requireEnabledUser(userId);
+
+        Optional<Webhook> optional = webhookRepository.findByIdAndPublisherId(webhookId, userId);
+
+        if (!optional.isPresent()) {
+            log.debug("No webhook with the specified id was found; userId: {}, webhookId: {}", userId, webhookId);
+            throw new WebhookIdNotFoundException(webhookId);
+        }
+
+        int discarded = webhookDeliveryRepository.discardByWebhookId(webhookId);
+        webhookRepository.delete(optional.get());
+        log.debug("Webhook deleted; webhookId: {}, discarded: {}", webhookId, discarded);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Webhook> findAllByPublisherId(String userId) throws UserIdNotFoundException {
+        requireEnabledUser(userId);
+        return webhookRepository.findAllByPublisherIdOrderByCreateTime(userId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Webhook register(String userId, String url) throws UserIdNotFoundException {
+        User user = requireEnabledUser(userId);
+        Webhook webhook = webhookRepository.save(Webhook.builder().url(url).publisher(user).build());
+        log.debug("Webhook registered; userId: {}, webhookId: {}", userId, webhook.getId());
+        return webhook;
+    }
+
+    private User requireEnabledUser(String userId) throws UserIdNotFoundException {
+        Optional<User> optional = userService.findEnabledById(userId);
+
+        if (!optional.isPresent()) {
+            log.debug("No enabled user with the specified id was found; userId: {}", userId);
+            throw new UserIdNotFoundException(userId);
+        }
+
+        return optional.get();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.service.impl;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.concurrent.GroupCommitExecutor;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.exception.UserIdNotFoundException;
+import me.mneri.offer.exception.UserNotAuthorizedException;
+import me.mneri.offer.service.OfferFilter;
+import me.mneri.offer.service.OfferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for accessing the offer repository which commits concurrent writes in groups.
+ * <p>
+ * Saves and updates arriving within {@code offer.group-commit.window} milliseconds of each other, up to
+ * {@code offer.group-commit.max-batch-size}, are executed by a {@link GroupCommitExecutor} in one transaction. Each
+ * caller still blocks until its own write is committed and receives its own exception. Writes issued inside an
+ * already active transaction are executed directly, as part of that transaction. Reads are delegated as they are.
+ * <p>
+ * This service is enabled with {@code offer.group-commit.enabled=true}.
+ *
+ * @author mneri
+ */
+@ConditionalOnProperty(name = "offer.group-commit.enabled", havingValue = "true")
+@Log4j2
+@Primary
+@Service
+public class GroupCommitOfferService implements OfferService {
+    @Autowired
+    @Qualifier("defaultOfferService")
+    private OfferService delegate;
+
+    private GroupCommitExecutor executor;
+
+    @Value("${offer.group-commit.max-batch-size:64}")
+    private int maxBatchSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${offer.group-commit.window:2}")
+    private long window;
+
+    @PostConstruct
+    private void init() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        DistributionSummary batchSizes = DistributionSummary.builder("offer.group-commit.batch.size")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Timer waits = Timer.builder("offer.group-commit.wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        executor = new GroupCommitExecutor("offer-group-commit", window, TimeUnit.MILLISECONDS, maxBatchSize,
+                work -> transactionTemplate.executeWithoutResult(status -> work.run()),
+                new GroupCommitExecutor.Listener() {
+                    @Override
+                    public void onBatch(int size) {
+                        batchSizes.record(size);
+                    }
+
+                    @Override
+                    public void onWait(long nanos) {
+                        waits.record(nanos, TimeUnit.NANOSECONDS);
+                    }
+                });
+        meterRegistry.gauge("offer.group-commit.pending", executor, GroupCommitExecutor::pending);
+    }
+
+    /**
+     * Stop accepting writes and wait for the pending ones to be committed.
+     */
+    @PreDestroy
+    private void destroy() {
+        executor.close();
+        log.info("Group commit executor flushed");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean existsById(String id) {
+        return delegate.existsById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Offer> findAllOpen() {
+        return delegate.findAllOpen();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Page<Offer> findAllOpen(OfferFilter filter) {
+        return delegate.findAllOpen(filter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Offer> findAllOpenByIdIn(List<String> ids) {
+        return delegate.findAllOpenByIdIn(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Offer> findAllOpenByPublisherId(String userId) throws UserIdNotFoundException {
+        return delegate.findAllOpenByPublisherId(userId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Offer> findAllOpenByPublisherUsername(String username) {
+        return delegate.findAllOpenByPublisherUsername(username);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Optional<Offer> findOpenById(String id) {
+        return delegate.findOpenById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void update(Offer offer, String userId) throws UserIdNotFoundException, UserNotAuthorizedException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            delegate.update(offer, userId);
+            return;
+        }
+
+        // The call declares two checked exceptions: catch them as one and rethrow them as they are.
+        try {
+            executor.<Void, Exception>execute(() -> {
+                delegate.update(offer, userId);
+                return null;
+            });
+        } catch (UserIdNotFoundException | UserNotAuthorizedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void save(Offer offer) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            delegate.save(offer);
+            return;
+        }
+
+        executor.execute(() -> {
+            delegate.save(offer);
+            return null;
+        });
+    }
+}
@@ -25,10 +25,10 @@ import me.mneri.offer.entity.Offer_;
 import me.mneri.offer.entity.User_;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Date;
 
-import static org.springframework.data.jpa.domain.Specification.not;
-
 /**
  * Utility class for {@link Offer} specification definitions.
  *
@@ -36,6 +36,28 @@ import static org.springframework.data.jpa.domain.Specification.not;
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class OfferSpecification {
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.currency = 'value'}.
+     *
+     * @param value The currency.
+     * @return The specification.
+     */
+    public static Specification<Offer> offerCurrencyIsEqualTo(String value) {
+        return (root, query, builder) -> builder.equal(root.get(Offer_.currency), value);
+    }
+
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.end_time > 'from' AND offer.end_time <= 'to'}.
+     *
+     * @param from The start of the interval, exclusive.
+     * @param to   The end of the interval, inclusive.
+     * @return The specification.
+     */
+    public static Specification<Offer> offerEndTimeIsBetween(Date from, Date to) {
+        return (root, query, builder) -> builder.and(builder.greaterThan(root.get(Offer_.endTime), from),
+                builder.lessThanOrEqualTo(root.get(Offer_.endTime), to));
+    }
+
     /**
      * Return a {@link Specification} for the SQL predicate {@code offer.id = 'value'}.
      *
@@ -46,6 +68,16 @@ public final class OfferSpecification {
         return (root, query, builder) -> builder.equal(root.get(Offer_.id), value);
     }
 
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.id IN ('value1', 'value2', ...)}.
+     *
+     * @param values The offer ids.
+     * @return The specification.
+     */
+    public static Specification<Offer> offerIdIsIn(Collection<String> values) {
+        return (root, query, builder) -> root.get(Offer_.id).in(values);
+    }
+
     /**
      * Return a {@link Specification} for the SQL predicate {@code offer.canceled = 1}.
      *
@@ -65,13 +97,64 @@ public final class OfferSpecification {
     }
 
     /**
-     * Return a {@link Specification} for the SQL predicate {@code offer.canceled = 0 AND offer.end_time >= NOW()}. This
-     * is equivalent to the call {@code not(isCanceled()).and(not(isExpired())}.
+     * Return a {@link Specification} for the SQL predicate {@code offer.canceled = 0 AND offer.end_time > NOW()}. This
+     * is equivalent to the call {@code not(isCanceled()).and(not(isExpired())}, but it is written as an equality and a
+     * range instead of negations, so that the indexes starting with {@code canceled} can serve it.
      *
      * @return The specification.
      */
     public static Specification<Offer> offerIsOpen() {
-        return not(offerIsCanceled()).and(not(offerIsExpired()));
+        return (root, query, builder) -> builder.and(builder.equal(root.get(Offer_.canceled), false),
+                builder.greaterThan(root.get(Offer_.endTime), new Date()));
+    }
+
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.normalized_price >= 'value'}.
+     *
+     * @param value The minimum normalized price, inclusive.
+     * @return The specification.
+     */
+    public static Specification<Offer> offerNormalizedPriceIsGreaterThanOrEqualTo(BigDecimal value) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get(Offer_.normalizedPrice), value);
+    }
+
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.normalized_price <= 'value'}.
+     *
+     * @param value The maximum normalized price, inclusive.
+     * @return The specification.
+     */
+    public static Specification<Offer> offerNormalizedPriceIsLessThanOrEqualTo(BigDecimal value) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get(Offer_.normalizedPrice), value);
+    }
+
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.normalized_price IS NOT NULL}.
+     *
+     * @return The specification.
+     */
+    public static Specification<Offer> offerNormalizedPriceIsNotNull() {
+        return (root, query, builder) -> builder.isNotNull(root.get(Offer_.normalizedPrice));
+    }
+
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.price >= 'value'}.
+     *
+     * @param value The minimum price, inclusive.
+     * @return The specification.
+     */
+    public static Specification<Offer> offerPriceIsGreaterThanOrEqualTo(BigDecimal value) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get(Offer_.price), value);
+    }
+
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.price <= 'value'}.
+     *
+     * @param value The maximum price, inclusive.
+     * @return The specification.
+     */
+    public static Specification<Offer> offerPriceIsLessThanOrEqualTo(BigDecimal value) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get(Offer_.price), value);
     }
 
     /**
@@ -93,4 +176,14 @@ public final class OfferSpecification {
     public static Specification<Offer> offerPublisherUsernameIsEqualTo(String value) {
         return (root, query, builder) -> builder.equal(root.join(Offer_.publisher).get(User_.username), value);
     }
+
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code offer.update_time > 'value'}.
+     *
+     * @param value The time.
+     * @return The specification.
+     */
+    public static Specification<Offer> offerUpdateTimeIsAfter(Date value) {
+        return (root, query, builder) -> builder.greaterThan(root.get(Offer_.updateTime), value);
+    }
 }
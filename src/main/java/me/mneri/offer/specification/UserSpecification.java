@@ -24,6 +24,8 @@ import me.mneri.offer.entity.User;
 import me.mneri.offer.entity.User_;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Collection;
+
 /**
  * Utility class for {@link User} specification definitions.
  *
@@ -41,6 +43,16 @@ public final class UserSpecification {
         return (root, query, builder) -> builder.equal(root.get(User_.id), value);
     }
 
+    /**
+     * Return a {@link Specification} for the SQL predicate {@code user.id IN ('value1', 'value2', ...)}.
+     *
+     * @param values The user ids.
+     * @return The specification.
+     */
+    public static Specification<User> userIdIsIn(Collection<String> values) {
+        return (root, query, builder) -> root.get(User_.id).in(values);
+    }
+
     /**
      * Return a {@link Specification} for the SQL predicate {@code user.enabled = 1}.
      *
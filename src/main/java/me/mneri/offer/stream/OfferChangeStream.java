@@ -0,0 +1,288 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.expiry.OfferExpirySweeper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stream of the committed changes made to the offers, pushed to the clients as Server-Sent Events. Expiries are pushed
+ * as the {@link OfferExpirySweeper} publishes them, up to {@code offer.expiry.interval} milliseconds after the offers'
+ * end time.
+ * <p>
+ * Every change gets an increasing event id and is kept in a bounded buffer of recent events, so that a client
+ * reconnecting with a {@code Last-Event-ID} receives the changes it missed. If the buffer doesn't reach that far back,
+ * or the id belongs to a previous run of the service, the client receives a {@code resync} event instead and is
+ * expected to reload the offers.
+ * <p>
+ * Changes are never sent from the thread that committed them. Each connection has a bounded queue drained by a small
+ * pool of sender threads; a client too slow to keep up fills its queue and is disconnected, rather than making the
+ * service buffer without bound or slowing the writers down.
+ *
+ * @author mneri
+ */
+@Component
+@Log4j2
+public class OfferChangeStream {
+    private static final String RESYNC = "resync";
+
+    @Value("${offer.stream.buffer-size:1024}")
+    private int bufferSize;
+
+    private Counter dropped;
+
+    private final Object lock = new Object();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private long nextId = 1;
+
+    @Value("${offer.stream.queue-size:256}")
+    private int queueSize;
+
+    private Entry[] recent;
+
+    private ExecutorService senders;
+
+    @Value("${offer.stream.senders:4}")
+    private int sendersCount;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    @Value("${offer.stream.timeout:1800000}")
+    private long timeout;
+
+    @PostConstruct
+    private void init() {
+        recent = new Entry[bufferSize];
+
+        AtomicInteger threads = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(sendersCount, runnable -> {
+            Thread thread = new Thread(runnable, "offer-stream-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        dropped = meterRegistry.counter("offer.stream.dropped");
+        meterRegistry.gaugeCollectionSize("offer.stream.subscribers", Tags.empty(), subscriptions);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        senders.shutdown();
+    }
+
+    private void drop(Subscription subscription) {
+        if (subscription.closed.compareAndSet(false, true)) {
+            subscriptions.remove(subscription);
+        }
+    }
+
+    /**
+     * Return the id of the last event published on the stream.
+     *
+     * @return The id, {@code 0} if no event was published yet.
+     */
+    public long lastEventId() {
+        synchronized (lock) {
+            return nextId - 1;
+        }
+    }
+
+    /**
+     * Publish the specified change to the subscribers, once its transaction is committed.
+     *
+     * @param event The change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferChange(OfferChangeEvent event) {
+        synchronized (lock) {
+            Entry entry = new Entry(nextId++, event);
+            recent[(int) (entry.id % recent.length)] = entry;
+
+            // Enqueued under the lock, so that every subscriber sees the events in id order
+            for (Subscription subscription : subscriptions) {
+                if (!subscription.accepts(event)) {
+                    continue;
+                }
+
+                if (!subscription.queue.offer(entry)) {
+                    log.debug("Dropping a slow offer stream subscriber; queued: {}", subscription.queue.size());
+                    dropped.increment();
+                    drop(subscription);
+
+                    // A sender may be blocked writing to this very client: never wait for it here
+                    senders.execute(subscription.emitter::complete);
+                    continue;
+                }
+
+                schedule(subscription);
+            }
+        }
+    }
+
+    private void schedule(Subscription subscription) {
+        if (!subscription.queue.isEmpty() && subscription.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> send(subscription));
+        }
+    }
+
+    private void send(Subscription subscription) {
+        try {
+            Entry entry;
+
+            while (!subscription.closed.get() && (entry = subscription.queue.poll()) != null) {
+                SseEmitter.SseEventBuilder builder = SseEmitter.event().id(Long.toString(entry.id));
+
+                if (entry.event == null) {
+                    builder.name(RESYNC).data("");
+                } else {
+                    builder.name(entry.event.getType().name().toLowerCase(Locale.ROOT))
+                            .data(entry.event, MediaType.APPLICATION_JSON);
+                }
+
+                subscription.emitter.send(builder);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter was completed in the meantime
+            log.debug("Couldn't send to an offer stream subscriber", e);
+            drop(subscription);
+            subscription.emitter.completeWithError(e);
+        } finally {
+            subscription.scheduled.set(false);
+        }
+
+        // An event may have been enqueued after the queue was found empty but before the flag was reset
+        if (!subscription.closed.get()) {
+            schedule(subscription);
+        }
+    }
+
+    /**
+     * Subscribe to the stream.
+     *
+     * @param lastEventId The id of the last event received by the client, or {@code null} to receive only the
+     *                    changes from now on.
+     * @param publisherId The id of the publisher the changes must belong to, or {@code null} for any publisher.
+     * @param currency    The currency the changes must be in, or {@code null} for any currency.
+     * @return The emitter of the subscription.
+     */
+    public SseEmitter subscribe(Long lastEventId, String publisherId, String currency) {
+        SseEmitter emitter = new SseEmitter(timeout);
+
+        synchronized (lock) {
+            List<Entry> replay = new ArrayList<>();
+            boolean resync = false;
+
+            if (lastEventId != null && lastEventId < nextId - 1) {
+                long oldest = Math.max(1, nextId - recent.length);
+
+                if (lastEventId + 1 < oldest) {
+                    resync = true;
+                } else {
+                    for (long id = lastEventId + 1; id < nextId; id++) {
+                        replay.add(recent[(int) (id % recent.length)]);
+                    }
+                }
+            } else if (lastEventId != null && lastEventId >= nextId) {
+                resync = true;
+            }
+
+            Subscription subscription = new Subscription(emitter, publisherId, currency,
+                    queueSize + replay.size() + 1);
+
+            if (resync) {
+                subscription.queue.add(new Entry(nextId - 1, null));
+            }
+
+            replay.stream().filter(entry -> subscription.accepts(entry.event)).forEach(subscription.queue::add);
+
+            emitter.onCompletion(() -> drop(subscription));
+            emitter.onTimeout(() -> drop(subscription));
+            subscriptions.add(subscription);
+            schedule(subscription);
+        }
+
+        return emitter;
+    }
+
+    private static class Entry {
+        private final OfferChangeEvent event;
+
+        private final long id;
+
+        private Entry(long id, OfferChangeEvent event) {
+            this.id = id;
+            this.event = event;
+        }
+    }
+
+    private static class Subscription {
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private final String currency;
+
+        private final SseEmitter emitter;
+
+        private final String publisherId;
+
+        private final BlockingQueue<Entry> queue;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscription(SseEmitter emitter, String publisherId, String currency, int capacity) {
+            this.emitter = emitter;
+            this.publisherId = publisherId;
+            this.currency = currency;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private boolean accepts(OfferChangeEvent event) {
+            return (publisherId == null || publisherId.equals(event.getPublisherId()))
+                    && (currency == null || currency.equals(event.getCurrency()));
+        }
+    }
+}
@@ -28,6 +28,11 @@ import lombok.NoArgsConstructor;
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class Constants {
+    /**
+     * The maximum length for a currency field (ISO 4217 alphabetic code).
+     */
+    public static final int CURRENCY_MAX_LENGTH = 3;
+
     /**
      * The maximum length for a description field.
      */
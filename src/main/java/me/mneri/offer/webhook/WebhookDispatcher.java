@@ -0,0 +1,340 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.entity.Webhook;
+import me.mneri.offer.entity.WebhookDelivery;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.expiry.OfferExpirySweeper;
+import me.mneri.offer.repository.WebhookDeliveryRepository;
+import me.mneri.offer.repository.WebhookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Notify the publishers' {@link Webhook}s when their offers are canceled or expire.
+ * <p>
+ * Changes are buffered after the commit of their transaction and coalesced every {@code offer.webhook.batch-window}
+ * milliseconds: the changes of a publisher are sent to each of its webhooks in a single {@code POST} of up to
+ * {@code offer.webhook.batch-size} changes. A batch is written to the {@code webhook_delivery} table before it is
+ * sent and removed once the webhook answers with a successful status, so that pending deliveries survive a restart.
+ * <p>
+ * At most {@code offer.webhook.concurrency} requests are in flight at the same time. A failed delivery is retried
+ * with an exponential backoff, randomized to spread the retries of a webhook that just came back, and abandoned after
+ * {@code offer.webhook.max-attempts} attempts. Delivery is at least once: the {@code X-Webhook-Delivery} header
+ * carries the id of the delivery, which is the same across the attempts.
+ * <p>
+ * Expired offers are notified on the {@link OfferChangeEvent.Type#EXPIRED} events of the {@link OfferExpirySweeper},
+ * up to {@code offer.expiry.interval} milliseconds after their end time.
+ * <p>
+ * This component is enabled with {@code offer.webhook.enabled=true}.
+ *
+ * @author mneri
+ */
+@Component
+@ConditionalOnProperty(name = "offer.webhook.enabled", havingValue = "true")
+@Log4j2
+public class WebhookDispatcher {
+    public static final String DELIVERY_HEADER = "X-Webhook-Delivery";
+
+    private Counter abandoned;
+
+    @Value("${offer.webhook.batch-size:100}")
+    private int batchSize;
+
+    private BlockingQueue<Buffered> buffer;
+
+    @Value("${offer.webhook.capacity:10000}")
+    private int capacity;
+
+    @Value("${offer.webhook.concurrency:4}")
+    private int concurrency;
+
+    private Counter delivered;
+
+    private ExecutorService executor;
+
+    private Counter dropped;
+
+    private Counter failed;
+
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${offer.webhook.retry.initial-backoff:1000}")
+    private long initialBackoff;
+
+    private Timer latency;
+
+    @Value("${offer.webhook.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${offer.webhook.retry.max-backoff:300000}")
+    private long maxBackoff;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Timer requests;
+
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    @Value("${offer.webhook.timeout:5000}")
+    private long timeout;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WebhookDeliveryRepository webhookDeliveryRepository;
+
+    @Autowired
+    private WebhookRepository webhookRepository;
+
+    @PostConstruct
+    private void init() {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(timeout))
+                .setReadTimeout(Duration.ofMillis(timeout))
+                .build();
+
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "offer-webhook-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        abandoned = meterRegistry.counter("offer.webhook.abandoned");
+        delivered = meterRegistry.counter("offer.webhook.delivered");
+        dropped = meterRegistry.counter("offer.webhook.dropped");
+        failed = meterRegistry.counter("offer.webhook.failed");
+        latency = Timer.builder("offer.webhook.delivery.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        requests = Timer.builder("offer.webhook.requests")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("offer.webhook.buffered", Tags.empty(), buffer);
+        meterRegistry.gaugeCollectionSize("offer.webhook.in-flight", Tags.empty(), inFlight);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Buffer the specified change, if the publisher has to be notified of it. The change is dropped if the buffer is
+     * full.
+     *
+     * @param event The change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferChange(OfferChangeEvent event) {
+        if (event.getType() != OfferChangeEvent.Type.CANCELED && event.getType() != OfferChangeEvent.Type.EXPIRED) {
+            return;
+        }
+
+        if (!buffer.offer(new Buffered(event, System.currentTimeMillis()))) {
+            dropped.increment();
+            log.warn("The webhook buffer is full, dropping the change; offerId: {}", event.getOfferId());
+        }
+    }
+
+    /**
+     * Turn the buffered changes into deliveries and send the deliveries that are due.
+     */
+    @Scheduled(fixedDelayString = "${offer.webhook.batch-window:500}",
+               initialDelayString = "${offer.webhook.batch-window:500}")
+    public synchronized void flush() {
+        List<Buffered> changes = new ArrayList<>();
+        buffer.drainTo(changes);
+
+        if (!changes.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> enqueue(changes));
+            } catch (RuntimeException e) {
+                dropped.increment(changes.size());
+                log.warn("Couldn't write the webhook deliveries, dropping the changes; size: {}", changes.size(), e);
+            }
+        }
+
+        dispatchDue();
+    }
+
+    private long backoff(int attempts) {
+        long ceiling = Math.min(maxBackoff, initialBackoff << Math.min(attempts, 30));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private void deliver(WebhookDelivery delivery) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(DELIVERY_HEADER, String.valueOf(delivery.getId()));
+
+        long start = System.nanoTime();
+
+        try {
+            restTemplate.postForEntity(delivery.getUrl(), new HttpEntity<>(delivery.getPayload(), headers), Void.class);
+            requests.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            transactionTemplate.executeWithoutResult(status -> webhookDeliveryRepository.discard(delivery.getId()));
+            latency.record(System.currentTimeMillis() - delivery.getEventTime().getTime(), TimeUnit.MILLISECONDS);
+            delivered.increment();
+            log.debug("Webhook delivery sent; deliveryId: {}, webhookId: {}", delivery.getId(),
+                      delivery.getWebhookId());
+        } catch (RestClientException e) {
+            requests.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            failed.increment();
+            retryOrAbandon(delivery, e);
+        } catch (RuntimeException e) {
+            log.error("Couldn't update the webhook delivery; deliveryId: {}", delivery.getId(), e);
+        } finally {
+            inFlight.remove(delivery.getId());
+        }
+    }
+
+    private void dispatchDue() {
+        // Keep the executor queue short: what isn't taken now is still due at the next flush.
+        int limit = concurrency * 2;
+
+        if (inFlight.size() >= limit) {
+            return;
+        }
+
+        List<WebhookDelivery> due = webhookDeliveryRepository.findByNextAttemptTimeLessThanEqualOrderByNextAttemptTime(
+                new Date(), PageRequest.of(0, limit + inFlight.size()));
+
+        for (WebhookDelivery delivery : due) {
+            if (inFlight.size() >= limit) {
+                return;
+            }
+
+            if (inFlight.add(delivery.getId())) {
+                executor.execute(() -> deliver(delivery));
+            }
+        }
+    }
+
+    private void enqueue(List<Buffered> changes) {
+        Map<String, List<Buffered>> byPublisher = changes.stream()
+                .collect(Collectors.groupingBy(c -> c.getEvent().getPublisherId(), LinkedHashMap::new,
+                                               Collectors.toList()));
+
+        for (Webhook webhook : webhookRepository.findAllByPublisherIdIn(byPublisher.keySet())) {
+            List<Buffered> publisherChanges = byPublisher.get(webhook.getPublisher().getId());
+
+            for (int i = 0; i < publisherChanges.size(); i += batchSize) {
+                List<Buffered> batch = publisherChanges.subList(i, Math.min(i + batchSize, publisherChanges.size()));
+                List<OfferChangeEvent> events = batch.stream().map(Buffered::getEvent).collect(Collectors.toList());
+                String payload;
+
+                try {
+                    payload = objectMapper.writeValueAsString(new Notification(webhook.getId(), events));
+                } catch (JsonProcessingException e) {
+                    dropped.increment(batch.size());
+                    log.error("Couldn't serialize the webhook notification; webhookId: {}", webhook.getId(), e);
+                    continue;
+                }
+
+                webhookDeliveryRepository.save(WebhookDelivery.builder()
+                        .webhookId(webhook.getId())
+                        .url(webhook.getUrl())
+                        .payload(payload)
+                        .eventTime(new Date(batch.get(0).getTime()))
+                        .build());
+            }
+        }
+    }
+
+    private void retryOrAbandon(WebhookDelivery delivery, RestClientException cause) {
+        int attempts = delivery.getAttempts() + 1;
+
+        if (attempts >= maxAttempts) {
+            transactionTemplate.executeWithoutResult(status -> webhookDeliveryRepository.discard(delivery.getId()));
+            abandoned.increment();
+            log.warn("Webhook delivery abandoned; deliveryId: {}, webhookId: {}, attempts: {}", delivery.getId(),
+                     delivery.getWebhookId(), attempts, cause);
+            return;
+        }
+
+        Date next = new Date(System.currentTimeMillis() + backoff(delivery.getAttempts()));
+        transactionTemplate.executeWithoutResult(status -> webhookDeliveryRepository.retryAt(delivery.getId(), next));
+        log.debug("Webhook delivery failed, retrying later; deliveryId: {}, attempts: {}, next: {}", delivery.getId(),
+                  attempts, next, cause);
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static class Buffered {
+        private final OfferChangeEvent event;
+
+        private final long time;
+    }
+
+    /**
+     * The body of a webhook notification.
+     */
+    @AllArgsConstructor
+    @Getter
+    static class Notification {
+        private final String webhookId;
+
+        private final List<OfferChangeEvent> changes;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import me.mneri.offer.event.OfferChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket handler pushing the committed changes of the offers to the clients, filtered on the server.
+ * <p>
+ * A client sends {@link SubscriptionRequest}s to add or remove subscriptions, each with its own filter on publisher
+ * ids, currencies and price range. Changes are matched against the subscriptions through a {@link SubscriptionIndex}
+ * and every session receives a single message per change, listing the ids of its matching subscriptions:
+ * <pre>
+ * {"subscriptions": ["s1"], "change": {"type": "CREATED", "offerId": "...", ...}}
+ * </pre>
+ * Like the event stream, messages are never sent from the thread that committed the change: each session has a
+ * bounded queue drained by a small pool of sender threads, and a session too slow to keep up is closed.
+ *
+ * @author mneri
+ */
+@Component
+@Log4j2
+public class OfferWebSocketHandler extends TextWebSocketHandler {
+    private static final CloseStatus TOO_SLOW = CloseStatus.POLICY_VIOLATION.withReason("Too slow");
+
+    private Counter dropped;
+
+    private final SubscriptionIndex index = new SubscriptionIndex();
+
+    @Value("${offer.websocket.max-subscriptions:16}")
+    private int maxSubscriptions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${offer.websocket.queue-size:256}")
+    private int queueSize;
+
+    private ExecutorService senders;
+
+    @Value("${offer.websocket.senders:4}")
+    private int sendersCount;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private static Set<String> toSet(Set<String> values) {
+        return values == null ? Collections.emptySet() : new HashSet<>(values);
+    }
+
+    @PostConstruct
+    private void init() {
+        AtomicInteger threads = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(sendersCount, runnable -> {
+            Thread thread = new Thread(runnable, "offer-websocket-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        dropped = meterRegistry.counter("offer.websocket.dropped");
+        meterRegistry.gaugeMapSize("offer.websocket.sessions", Tags.empty(), sessions);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        senders.shutdown();
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        SessionState state = sessions.remove(session.getId());
+
+        if (state != null) {
+            state.subscriptions.values().forEach(index::remove);
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        sessions.put(session.getId(), new SessionState(session, queueSize));
+    }
+
+    private void enqueue(SessionState state, String message) {
+        if (!state.queue.offer(message)) {
+            log.debug("Closing a slow offer WebSocket session; sessionId: {}", state.session.getId());
+            dropped.increment();
+            afterConnectionClosed(state.session, TOO_SLOW);
+
+            // A sender may be blocked writing to this very session: never wait for it here
+            senders.execute(() -> {
+                try {
+                    state.session.close(TOO_SLOW);
+                } catch (IOException e) {
+                    log.debug("Couldn't close an offer WebSocket session", e);
+                }
+            });
+
+            return;
+        }
+
+        if (state.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> send(state));
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        SessionState state = sessions.get(session.getId());
+        SubscriptionRequest request;
+
+        try {
+            request = objectMapper.readValue(message.getPayload(), SubscriptionRequest.class);
+        } catch (JsonProcessingException e) {
+            reply(state, "The message is not a valid subscription request.");
+            return;
+        }
+
+        if (request.getAction() == null || request.getId() == null) {
+            reply(state, "The subscription request must have an action and an id.");
+            return;
+        }
+
+        if (request.getAction() == SubscriptionRequest.Action.UNSUBSCRIBE) {
+            Subscription subscription = state.subscriptions.remove(request.getId());
+
+            if (subscription != null) {
+                index.remove(subscription);
+            }
+
+            return;
+        }
+
+        if (state.subscriptions.size() >= maxSubscriptions && !state.subscriptions.containsKey(request.getId())) {
+            reply(state, "Too many subscriptions.");
+            return;
+        }
+
+        // An explicit null in the message means no constraint, like a missing or empty set
+        Subscription subscription = new Subscription(session.getId(), request.getId(),
+                toSet(request.getPublisherIds()), toSet(request.getCurrencies()),
+                request.getMinPrice(), request.getMaxPrice());
+        Subscription previous = state.subscriptions.put(subscription.getId(), subscription);
+
+        if (previous != null) {
+            index.remove(previous);
+        }
+
+        index.add(subscription);
+    }
+
+    /**
+     * Send the specified change to the sessions with a matching subscription, once its transaction is committed.
+     *
+     * @param event The change.
+     * @throws JsonProcessingException If the change couldn't be serialized.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferChange(OfferChangeEvent event) throws JsonProcessingException {
+        Map<String, List<String>> matches = new HashMap<>();
+
+        for (Subscription subscription : index.match(event)) {
+            matches.computeIfAbsent(subscription.getSessionId(), k -> new ArrayList<>()).add(subscription.getId());
+        }
+
+        for (Map.Entry<String, List<String>> entry : matches.entrySet()) {
+            SessionState state = sessions.get(entry.getKey());
+
+            if (state != null) {
+                enqueue(state, objectMapper.writeValueAsString(new ChangeMessage(entry.getValue(), event)));
+            }
+        }
+    }
+
+    private void reply(SessionState state, String error) throws JsonProcessingException {
+        enqueue(state, objectMapper.writeValueAsString(Collections.singletonMap("error", error)));
+    }
+
+    private void send(SessionState state) {
+        try {
+            String message;
+
+            while (state.session.isOpen() && (message = state.queue.poll()) != null) {
+                state.session.sendMessage(new TextMessage(message));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Couldn't send to an offer WebSocket session; sessionId: {}", state.session.getId(), e);
+        } finally {
+            state.scheduled.set(false);
+        }
+
+        // A message may have been enqueued after the queue was found empty but before the flag was reset
+        if (state.session.isOpen() && !state.queue.isEmpty() && state.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> send(state));
+        }
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static class ChangeMessage {
+        private final List<String> subscriptions;
+
+        private final OfferChangeEvent change;
+    }
+
+    private static class SessionState {
+        private final BlockingQueue<String> queue;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final WebSocketSession session;
+
+        private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+        private SessionState(WebSocketSession session, int capacity) {
+            this.session = session;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
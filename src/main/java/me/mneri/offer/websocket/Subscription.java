@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.websocket;
+
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import me.mneri.offer.event.OfferChangeEvent;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+/**
+ * A subscription of a WebSocket session to the changes of the offers matching a filter.
+ * <p>
+ * Every constraint is optional: an empty set or a {@code null} bound matches any value. The constraints that are
+ * present must all be satisfied.
+ *
+ * @author mneri
+ */
+@EqualsAndHashCode(of = {"sessionId", "id"})
+@Value
+public class Subscription {
+    private String sessionId;
+
+    private String id;
+
+    private Set<String> publisherIds;
+
+    private Set<String> currencies;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    /**
+     * Return {@code true} if the specified change matches the filter of this subscription.
+     *
+     * @param event The change.
+     * @return {@code true} if the change matches, {@code false} otherwise.
+     */
+    public boolean matches(OfferChangeEvent event) {
+        return (publisherIds.isEmpty() || publisherIds.contains(event.getPublisherId()))
+                && (currencies.isEmpty() || currencies.contains(event.getCurrency()))
+                && (minPrice == null || minPrice.compareTo(event.getPrice()) <= 0)
+                && (maxPrice == null || maxPrice.compareTo(event.getPrice()) >= 0);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.websocket;
+
+import me.mneri.offer.event.OfferChangeEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from the attributes of an offer to the {@link Subscription}s constraining them.
+ * <p>
+ * A subscription is indexed under each of its publisher ids or, if it has none, under each of its currencies. A change
+ * is matched against the subscriptions indexed under its publisher id and its currency only, so the cost of matching
+ * depends on the number of subscriptions interested in those values and not on the total number of subscriptions.
+ * Subscriptions constraining neither attribute can't be indexed and are checked against every change; they are the
+ * ones interested in most changes anyway.
+ * <p>
+ * Instances of this class are thread safe.
+ *
+ * @author mneri
+ */
+public class SubscriptionIndex {
+    private final Map<String, Set<Subscription>> byCurrency = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Subscription>> byPublisherId = new ConcurrentHashMap<>();
+
+    private final Set<Subscription> unindexed = ConcurrentHashMap.newKeySet();
+
+    private static void add(Map<String, Set<Subscription>> index, String key, Subscription subscription) {
+        index.compute(key, (k, set) -> {
+            Set<Subscription> result = set == null ? ConcurrentHashMap.newKeySet() : set;
+            result.add(subscription);
+            return result;
+        });
+    }
+
+    private static void collect(Map<String, Set<Subscription>> index, String key, OfferChangeEvent event,
+                                Collection<Subscription> result) {
+        Set<Subscription> set = index.get(key);
+
+        if (set != null) {
+            collect(set, event, result);
+        }
+    }
+
+    private static void collect(Set<Subscription> set, OfferChangeEvent event, Collection<Subscription> result) {
+        for (Subscription subscription : set) {
+            if (subscription.matches(event)) {
+                result.add(subscription);
+            }
+        }
+    }
+
+    private static void remove(Map<String, Set<Subscription>> index, String key, Subscription subscription) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Add the specified subscription to the index.
+     *
+     * @param subscription The subscription.
+     */
+    public void add(Subscription subscription) {
+        if (!subscription.getPublisherIds().isEmpty()) {
+            subscription.getPublisherIds().forEach(publisherId -> add(byPublisherId, publisherId, subscription));
+        } else if (!subscription.getCurrencies().isEmpty()) {
+            subscription.getCurrencies().forEach(currency -> add(byCurrency, currency, subscription));
+        } else {
+            unindexed.add(subscription);
+        }
+    }
+
+    /**
+     * Return the subscriptions matching the specified change.
+     *
+     * @param event The change.
+     * @return The matching subscriptions.
+     */
+    public Set<Subscription> match(OfferChangeEvent event) {
+        Set<Subscription> result = new HashSet<>();
+
+        collect(byPublisherId, event.getPublisherId(), event, result);
+        collect(byCurrency, event.getCurrency(), event, result);
+        collect(unindexed, event, result);
+
+        return result;
+    }
+
+    /**
+     * Remove the specified subscription from the index.
+     *
+     * @param subscription The subscription.
+     */
+    public void remove(Subscription subscription) {
+        if (!subscription.getPublisherIds().isEmpty()) {
+            subscription.getPublisherIds().forEach(publisherId -> remove(byPublisherId, publisherId, subscription));
+        } else if (!subscription.getCurrencies().isEmpty()) {
+            subscription.getCurrencies().forEach(currency -> remove(byCurrency, currency, subscription));
+        } else {
+            unindexed.remove(subscription);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.websocket;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Message sent by a WebSocket client to add or remove a {@link Subscription}.
+ *
+ * @author mneri
+ */
+@Data
+@NoArgsConstructor
+public class SubscriptionRequest {
+    /**
+     * The action requested by the client.
+     */
+    public enum Action {
+        SUBSCRIBE,
+        UNSUBSCRIBE
+    }
+
+    private Action action;
+
+    private String id;
+
+    private Set<String> publisherIds = Collections.emptySet();
+
+    private Set<String> currencies = Collections.emptySet();
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.concurrent;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the {@link ExpiringMap} class.
+ *
+ * @author mneri
+ */
+class ExpiringMapTest {
+    @Test
+    void givenExpiredEntry_whenGetIsCalled_thenNullIsReturned() {
+        // Given
+        val clock = new AtomicLong();
+        val map = new ExpiringMap<String, String>(10, 100, clock::get);
+        map.put("key", "value");
+
+        // When
+        clock.set(100);
+
+        // Then
+        assertNull(map.get("key"));
+        assertNull(map.putIfAbsent("key", "other"));
+        assertEquals("other", map.get("key"));
+    }
+
+    @Test
+    void givenLiveEntry_whenPutIfAbsentIsCalled_thenCurrentValueIsReturned() {
+        // Given
+        val map = new ExpiringMap<String, String>(10, 100, () -> 0);
+        map.put("key", "value");
+
+        // When
+        val current = map.putIfAbsent("key", "other");
+
+        // Then
+        assertEquals("value", current);
+        assertEquals("value", map.get("key"));
+    }
+
+    @Test
+    void givenFullMap_whenPutIsCalled_thenEldestEntryIsEvicted() {
+        // Given
+        val map = new ExpiringMap<Integer, Integer>(3, 100, () -> 0);
+
+        for (int i = 0; i < 3; i++) {
+            map.put(i, i);
+        }
+
+        // When
+        map.put(3, 3);
+
+        // Then
+        assertEquals(3, map.size());
+        assertNull(map.get(0));
+        assertEquals(3, map.get(3));
+    }
+
+    @Test
+    void givenExpiredEntries_whenPurgeIsCalled_thenEntriesAreRemoved() {
+        // Given
+        val clock = new AtomicLong();
+        val map = new ExpiringMap<Integer, Integer>(10, 100, clock::get);
+        map.put(0, 0);
+        clock.set(50);
+        map.put(1, 1);
+
+        // When
+        clock.set(120);
+        map.purge();
+
+        // Then
+        assertEquals(1, map.size());
+        assertEquals(1, map.get(1));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.concurrent;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the {@link GroupCommitExecutor} class.
+ *
+ * @author mneri
+ */
+class GroupCommitExecutorTest {
+    private static final int THREADS = 8;
+
+    private static final GroupCommitExecutor.Listener NOOP = new GroupCommitExecutor.Listener() {
+        @Override
+        public void onBatch(int size) {
+        }
+
+        @Override
+        public void onWait(long nanos) {
+        }
+    };
+
+    @SneakyThrows
+    @Test
+    void givenConcurrentCalls_whenExecuteIsCalled_thenCallsAreCommittedTogether() {
+        // Given
+        val transactions = new AtomicInteger();
+        val groupCommit = new GroupCommitExecutor("test", 500, TimeUnit.MILLISECONDS, THREADS, work -> {
+            transactions.incrementAndGet();
+            work.run();
+        }, NOOP);
+        val start = new CountDownLatch(1);
+        val executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < THREADS; i++) {
+            int n = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return groupCommit.execute(() -> n);
+            }));
+        }
+
+        start.countDown();
+
+        // Then
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(i, futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+
+        assertTrue(transactions.get() < THREADS);
+        groupCommit.close();
+        executor.shutdown();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenCallThrowingCheckedException_whenExecuteIsCalled_thenOnlyThatCallerFails() {
+        // Given
+        val transactions = new AtomicInteger();
+        val groupCommit = new GroupCommitExecutor("test", 500, TimeUnit.MILLISECONDS, 2, work -> {
+            transactions.incrementAndGet();
+            work.run();
+        }, NOOP);
+        val executor = Executors.newFixedThreadPool(2);
+
+        // When
+        val failing = executor.submit(() -> groupCommit.execute(() -> {
+            throw new IOException();
+        }));
+        val succeeding = executor.submit(() -> groupCommit.execute(() -> 42));
+
+        // Then
+        val e = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+        assertEquals(42, succeeding.get(10, TimeUnit.SECONDS));
+        assertEquals(1, transactions.get());
+        groupCommit.close();
+        executor.shutdown();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenCallThrowingUncheckedException_whenExecuteIsCalled_thenOtherCallsAreRetriedAlone() {
+        // Given
+        val executions = new AtomicInteger();
+        val groupCommit = new GroupCommitExecutor("test", 500, TimeUnit.MILLISECONDS, 2, Runnable::run, NOOP);
+        val executor = Executors.newFixedThreadPool(2);
+
+        // When
+        val failing = executor.submit(() -> groupCommit.execute(() -> {
+            throw new IllegalStateException();
+        }));
+        val succeeding = executor.submit(() -> groupCommit.execute(executions::incrementAndGet));
+
+        // Then
+        val e = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertTrue(succeeding.get(10, TimeUnit.SECONDS) > 0);
+        groupCommit.close();
+        executor.shutdown();
+    }
+
+    @Test
+    void givenCallThrowingError_whenExecuteIsCalled_thenExecutorStops() {
+        // Given
+        val groupCommit = new GroupCommitExecutor("test", 1, TimeUnit.MILLISECONDS, 1, Runnable::run, NOOP);
+
+        // When
+        val e = assertThrows(RejectedExecutionException.class, () -> groupCommit.execute(() -> {
+            throw new AssertionError();
+        }));
+
+        // Then
+        assertTrue(e.getCause() instanceof AssertionError);
+        assertThrows(RejectedExecutionException.class, () -> groupCommit.execute(() -> 42));
+        groupCommit.close();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenClosedExecutor_whenExecuteIsCalled_thenCallIsRejected() {
+        // Given
+        val groupCommit = new GroupCommitExecutor("test", 1, TimeUnit.MILLISECONDS, 1, Runnable::run, NOOP);
+
+        // When
+        groupCommit.close();
+
+        // Then
+        assertThrows(RejectedExecutionException.class, () -> groupCommit.execute(() -> 42));
+    }
+}
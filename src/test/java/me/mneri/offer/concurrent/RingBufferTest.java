@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.concurrent;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the {@link RingBuffer} class.
+ *
+ * @author mneri
+ */
+class RingBufferTest {
+    private static final int PRODUCERS = 4;
+
+    @Test
+    void givenCapacityNotPowerOfTwo_whenRingBufferIsCreated_thenIllegalArgumentExceptionIsThrown() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(3));
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+    }
+
+    @Test
+    void givenFullRingBuffer_whenOfferIsCalled_thenElementIsRefused() {
+        // Given
+        val buffer = new RingBuffer<Integer>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        // When
+        val accepted = buffer.offer(4);
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(4, buffer.size());
+    }
+
+    @Test
+    void givenRingBuffer_whenElementsAreOfferedAndPolled_thenOrderIsPreserved() {
+        // Given
+        val buffer = new RingBuffer<Integer>(4);
+        List<Integer> result = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(i);
+            result.add(buffer.poll());
+        }
+
+        // Then
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, result.get(i));
+        }
+
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenConcurrentProducers_whenElementsAreDrained_thenEveryElementIsReceivedOnce() {
+        // Given
+        val perProducer = 100_000;
+        val buffer = new RingBuffer<Integer>(1024);
+        val received = new boolean[PRODUCERS * perProducer];
+        val executor = Executors.newFixedThreadPool(PRODUCERS);
+
+        // When
+        for (int p = 0; p < PRODUCERS; p++) {
+            int base = p * perProducer;
+
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        List<Integer> batch = new ArrayList<>();
+        int count = 0;
+
+        while (count < received.length) {
+            batch.clear();
+            buffer.drainTo(batch, 64);
+
+            for (int value : batch) {
+                assertFalse(received[value]);
+                received[value] = true;
+                count++;
+            }
+        }
+
+        executor.shutdown();
+
+        // Then
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.concurrent;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the {@link SingleFlight} class.
+ *
+ * @author mneri
+ */
+class SingleFlightTest {
+    private static final int THREADS = 8;
+
+    @SneakyThrows
+    @Test
+    void givenConcurrentCallsWithSameKey_whenExecuteIsCalled_thenCallIsExecutedOnce() {
+        // Given
+        val executions = new AtomicInteger();
+        val coalesced = new AtomicInteger();
+        val singleFlight = new SingleFlight<String>(joined -> {
+            if (joined) {
+                coalesced.incrementAndGet();
+            }
+        });
+        val release = new CountDownLatch(1);
+        val executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                executions.incrementAndGet();
+                release.await();
+                return 42;
+            })));
+        }
+
+        while (coalesced.get() < THREADS - 1) {
+            Thread.sleep(10);
+        }
+
+        release.countDown();
+
+        // Then
+        for (Future<Integer> future : futures) {
+            assertEquals(42, future.get(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(0, singleFlight.inFlight());
+        executor.shutdown();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenConcurrentCallsWithSameKey_whenExecuteWithShareIsCalled_thenOnlyFollowersReceiveShares() {
+        // Given
+        val coalesced = new AtomicInteger();
+        val singleFlight = new SingleFlight<String>(joined -> {
+            if (joined) {
+                coalesced.incrementAndGet();
+            }
+        });
+        val release = new CountDownLatch(1);
+        val executor = Executors.newFixedThreadPool(THREADS);
+        val result = new StringBuilder("result");
+        List<Future<StringBuilder>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                release.await();
+                return result;
+            }, StringBuilder::new)));
+        }
+
+        while (coalesced.get() < THREADS - 1) {
+            Thread.sleep(10);
+        }
+
+        release.countDown();
+
+        // Then
+        Set<StringBuilder> returned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (Future<StringBuilder> future : futures) {
+            val value = future.get(10, TimeUnit.SECONDS);
+            assertEquals("result", value.toString());
+            returned.add(value);
+        }
+
+        assertEquals(THREADS, returned.size());
+        assertTrue(returned.contains(result));
+        executor.shutdown();
+    }
+
+    @Test
+    void givenSingleCall_whenExecuteWithShareIsCalled_thenResultIsNotShared() {
+        // Given
+        val singleFlight = new SingleFlight<String>();
+        val result = new StringBuilder("result");
+
+        // When
+        val returned = singleFlight.execute("key", () -> result, value -> {
+            throw new AssertionError("Shared without followers");
+        });
+
+        // Then
+        assertSame(result, returned);
+    }
+
+    @Test
+    void givenSequentialCalls_whenExecuteIsCalled_thenEachCallIsExecuted() {
+        // Given
+        val executions = new AtomicInteger();
+        val singleFlight = new SingleFlight<String>();
+
+        // When
+        singleFlight.execute("key", executions::incrementAndGet);
+        singleFlight.execute("key", executions::incrementAndGet);
+
+        // Then
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void givenFailingCall_whenExecuteIsCalled_thenExceptionIsPropagated() {
+        // Given
+        val singleFlight = new SingleFlight<String>();
+
+        // When/Then
+        assertThrows(IOException.class, () -> singleFlight.execute("key", () -> {
+            throw new IOException();
+        }));
+        assertEquals(0, singleFlight.inFlight());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.eventlog.OfferEventLog;
+import me.mneri.offer.repository.CheckpointRepository;
+import me.mneri.offer.repository.OfferEventRepository;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Integration tests for the method {@link OffersController#getOfferChanges(long, int)}.
+ * <p>
+ * The changes are read from the offer event log, written in the transactions of the offer service: the test can't
+ * roll them back and cleans the repositories up after each test. Events can be compacted right away.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {"offer.event-log.enabled=true", "offer.event-log.retention=0"})
+class OffersControllerIntegrationTest$getOfferChanges {
+    private static final String PATH = "/offers/changes?since=%d";
+
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OfferEventLog offerEventLog;
+
+    @Autowired
+    private OfferEventRepository offerEventRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    private void beforeEach() {
+        objectMapper = new ObjectMapper();
+    }
+
+    @AfterEach
+    private void afterEach() {
+        offerEventRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @SneakyThrows
+    private MockHttpServletResponse getChanges(long since) {
+        return mockMvc.perform(get(String.format(PATH, since))).andReturn().getResponse();
+    }
+
+    @SneakyThrows
+    private JsonNode readTree(MockHttpServletResponse response) {
+        return objectMapper.readTree(response.getContentAsString());
+    }
+
+    /**
+     * Create and update an offer, then check that only its latest state is returned, once.
+     */
+    @SneakyThrows
+    @Test
+    void givenCreatedAndUpdatedOffer_whenGetOfferChangesIsCalled_thenLatestChangeIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+        val since = offerEventLog.horizon();
+
+        userRepository.save(publisher);
+        offerService.save(offer);
+        offer.setPrice(new BigDecimal("1.50"));
+        offerService.update(offer, publisher.getId());
+        Thread.sleep(10);
+
+        // When
+        val response = getChanges(since);
+
+        // Then
+        val body = readTree(response);
+        val version = body.get("version").asLong();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertFalse(body.get("resync").asBoolean());
+        assertEquals(1, body.get("changes").size());
+        assertEquals(offer.getId(), body.get("changes").get(0).get("offerId").asText());
+        assertEquals("UPDATED", body.get("changes").get(0).get("type").asText());
+        assertTrue(version > since);
+
+        val next = readTree(getChanges(version));
+        assertEquals(0, next.get("changes").size());
+        assertEquals(version, next.get("version").asLong());
+    }
+
+    /**
+     * Compact the log, then check that a client behind the horizon is asked to resynchronize.
+     */
+    @SneakyThrows
+    @Test
+    void givenCompactedLog_whenGetOfferChangesIsCalledBeforeHorizon_thenHttp410ResponseIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+        val since = offerEventLog.horizon();
+
+        userRepository.save(publisher);
+        offerService.save(offer);
+        offer.setCanceled(true);
+        offerService.update(offer, publisher.getId());
+        Thread.sleep(10);
+        offerEventLog.compact();
+
+        // When
+        val response = getChanges(since);
+
+        // Then
+        val body = readTree(response);
+
+        assertEquals(HttpStatus.GONE.value(), response.getStatus());
+        assertTrue(body.get("resync").asBoolean());
+        assertEquals(offerEventLog.horizon(), body.get("version").asLong());
+    }
+}
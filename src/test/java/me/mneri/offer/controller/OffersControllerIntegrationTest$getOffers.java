@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.StatementCounter;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Integration tests for the {@code expand=publisher} parameter of the {@code GET /offers} endpoint.
+ * <p>
+ * The SQL statements issued while serving a request are counted by {@link StatementCounter}: MockMvc serves the
+ * request on the test thread. Every offer has a different publisher, so that a lazy load per offer would show up in
+ * the count.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "me.mneri.offer.StatementCounter")
+class OffersControllerIntegrationTest$getOffers {
+    private static final int OFFERS = 20;
+
+    private static final String PATH = "/offers?size=%d%s";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private Map<String, User> publishers;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    private void beforeEach() {
+        objectMapper = new ObjectMapper();
+        publishers = new HashMap<>();
+
+        val offers = new ArrayList<Offer>();
+
+        for (int i = 0; i < OFFERS; i++) {
+            val publisher = new User("user" + i, "secret", passwordEncoder);
+            val offer = TestUtil.createNonExpiredOffer(publisher);
+
+            publishers.put(offer.getId(), publisher);
+            offers.add(offer);
+        }
+
+        userRepository.saveAll(publishers.values());
+        offerRepository.saveAll(offers);
+    }
+
+    @AfterEach
+    private void afterEach() {
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @SneakyThrows
+    private MockHttpServletResponse getOffers(int size, String expand) {
+        val query = expand == null ? "" : "&expand=" + expand;
+        StatementCounter.reset();
+        return mockMvc.perform(get(String.format(PATH, size, query))).andReturn().getResponse();
+    }
+
+    @SneakyThrows
+    private JsonNode readTree(MockHttpServletResponse response) {
+        return objectMapper.readTree(response.getContentAsString());
+    }
+
+    /**
+     * Ask for pages of different sizes with the publishers embedded and check that the same number of statements is
+     * issued for each of them.
+     */
+    @Test
+    void givenPagesOfDifferentSizes_whenGetOffersWithExpandIsCalled_thenStatementCountIsConstant() {
+        // Given
+        val small = 1;
+        val large = OFFERS / 2;
+
+        // When
+        val smallResponse = getOffers(small, "publisher");
+        val smallCount = StatementCounter.count();
+        val largeResponse = getOffers(large, "publisher");
+        val largeCount = StatementCounter.count();
+
+        // Then
+        assertEquals(HttpStatus.OK.value(), smallResponse.getStatus());
+        assertEquals(HttpStatus.OK.value(), largeResponse.getStatus());
+        assertEquals(small, readTree(smallResponse).size());
+        assertEquals(large, readTree(largeResponse).size());
+        assertEquals(smallCount, largeCount);
+    }
+
+    /**
+     * Ask for a page with the publishers embedded and check that each offer carries its own publisher, at the cost of
+     * a single statement.
+     */
+    @Test
+    void givenOffers_whenGetOffersWithExpandIsCalled_thenPublishersAreEmbedded() {
+        // Given
+        val size = OFFERS / 2;
+
+        // When
+        val plainResponse = getOffers(size, null);
+        val plainCount = StatementCounter.count();
+        val expandedResponse = getOffers(size, "publisher");
+        val expandedCount = StatementCounter.count();
+
+        // Then
+        assertEquals(HttpStatus.OK.value(), expandedResponse.getStatus());
+        assertEquals(plainCount + 1, expandedCount);
+
+        for (JsonNode offer : readTree(plainResponse)) {
+            assertFalse(offer.has("publisher"));
+        }
+
+        for (JsonNode offer : readTree(expandedResponse)) {
+            val publisher = publishers.get(offer.get("id").asText());
+
+            assertEquals(publisher.getId(), offer.get("publisher").get("id").asText());
+            assertEquals(publisher.getUsername(), offer.get("publisher").get("username").asText());
+        }
+    }
+
+    /**
+     * Ask to embed an unknown resource and check that the request is rejected.
+     */
+    @Test
+    void givenUnknownExpansion_whenGetOffersIsCalled_thenBadRequestIsReturned() {
+        // When
+        val response = getOffers(OFFERS, "comments");
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+}
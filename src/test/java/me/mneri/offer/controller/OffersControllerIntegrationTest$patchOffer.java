@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.controller;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.StatementCounter;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.dto.OfferPatch;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.serialization.MediaTypes;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+
+/**
+ * Integration tests for the method {@link OffersController#patchOffer(String, OfferPatch, String)}.
+ * <p>
+ * The {@code UPDATE} statements are captured by {@link StatementCounter}. The test is transactional, so the changes are
+ * flushed explicitly before looking at the statements.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "me.mneri.offer.StatementCounter")
+@Transactional
+class OffersControllerIntegrationTest$patchOffer {
+    private static final String PATH = "/offers/%s?user.id=%s";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private static Set<String> updatedColumns(String sql) {
+        String lowerCase = sql.toLowerCase(Locale.ROOT);
+        String assignments = lowerCase.substring(lowerCase.indexOf(" set ") + 5, lowerCase.indexOf(" where "));
+
+        return Arrays.stream(assignments.split(","))
+                .map(assignment -> assignment.substring(0, assignment.indexOf('=')).trim())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Patch the price of an offer and check that the other fields are untouched, neither in the entity nor in the
+     * {@code UPDATE} statement.
+     */
+    @SneakyThrows
+    @Test
+    void givenPricePatch_whenPatchOfferIsCalled_thenOnlyPriceIsModified() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        offerRepository.save(offer);
+        entityManager.flush();
+        StatementCounter.reset();
+
+        // When
+        val response = mockMvc
+                .perform(patch(String.format(PATH, offer.getId(), publisher.getId()))
+                        .contentType(MediaTypes.APPLICATION_MERGE_PATCH_JSON)
+                        .content("{\"price\": 1.50}"))
+                .andReturn()
+                .getResponse();
+        entityManager.flush();
+
+        // Then
+        val updates = StatementCounter.statements().stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).startsWith("update offer "))
+                .collect(Collectors.toList());
+        assertEquals(1, updates.size());
+        assertEquals(new HashSet<>(Arrays.asList("price", "update_time")), updatedColumns(updates.get(0)));
+
+        val result = offerRepository.findById(offer.getId()).orElseThrow(RuntimeException::new);
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(new BigDecimal("1.50"), result.getPrice());
+        assertEquals(offer.getTitle(), result.getTitle());
+        assertEquals(offer.getDescription(), result.getDescription());
+        assertEquals(offer.getCurrency(), result.getCurrency());
+        assertEquals(offer.getTtl(), result.getTtl());
+    }
+
+    /**
+     * Try to remove a required field and check that the request is rejected.
+     */
+    @SneakyThrows
+    @Test
+    void givenNullTitle_whenPatchOfferIsCalled_thenHttp400ResponseIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        offerRepository.save(offer);
+
+        // When
+        val response = mockMvc
+                .perform(patch(String.format(PATH, offer.getId(), publisher.getId()))
+                        .contentType(MediaTypes.APPLICATION_MERGE_PATCH_JSON)
+                        .content("{\"title\": null}"))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        val result = offerRepository.findById(offer.getId()).orElseThrow(RuntimeException::new);
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+        assertEquals(offer.getTitle(), result.getTitle());
+    }
+}
@@ -32,14 +32,19 @@ import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.UUID;
+
 import static me.mneri.offer.specification.OfferSpecification.offerPublisherIdIsEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 /**
@@ -102,4 +107,77 @@ class OffersControllerIntegrationTest$postOffer {
         assertEquals(offer.getCurrency(), result.getCurrency());
         assertEquals(offer.getTtl(), result.getTtl());
     }
+
+    /**
+     * Post the same offer twice with the same idempotency key and check that it has been inserted only once.
+     */
+    @SneakyThrows
+    @Test
+    void givenIdempotencyKey_whenPostOfferIsRetried_thenOfferIsInsertedOnce() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+        val offerRequest = modelMapper.map(offer, OfferRequest.class);
+        val idempotencyKey = UUID.randomUUID().toString();
+
+        userRepository.save(publisher);
+
+        // When
+        val first = mockMvc.perform(post(String.format(PATH, publisher.getId()))
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(offerRequest)))
+                .andReturn()
+                .getResponse();
+        val second = mockMvc.perform(post(String.format(PATH, publisher.getId()))
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(offerRequest)))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.CREATED.value(), first.getStatus());
+        assertNull(first.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(HttpStatus.CREATED.value(), second.getStatus());
+        assertEquals("true", second.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(first.getHeader(HttpHeaders.LOCATION), second.getHeader(HttpHeaders.LOCATION));
+        assertEquals(1, offerRepository.count(offerPublisherIdIsEqualTo(publisher.getId())));
+    }
+
+    /**
+     * Post two different offers with the same idempotency key and check that the second one is rejected.
+     */
+    @SneakyThrows
+    @Test
+    void givenIdempotencyKeyReusedWithDifferentBody_whenPostOffer_thenUnprocessableEntityIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val firstRequest = modelMapper.map(TestUtil.createNonExpiredOffer(publisher), OfferRequest.class);
+        val secondRequest = modelMapper.map(TestUtil.createNonExpiredOffer(publisher), OfferRequest.class);
+        val idempotencyKey = UUID.randomUUID().toString();
+
+        secondRequest.setTitle(firstRequest.getTitle() + " (changed)");
+        userRepository.save(publisher);
+
+        // When
+        val first = mockMvc.perform(post(String.format(PATH, publisher.getId()))
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(firstRequest)))
+                .andReturn()
+                .getResponse();
+        val second = mockMvc.perform(post(String.format(PATH, publisher.getId()))
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(secondRequest)))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.CREATED.value(), first.getStatus());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), second.getStatus());
+        assertNull(second.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(1, offerRepository.count(offerPublisherIdIsEqualTo(publisher.getId())));
+    }
 }
@@ -20,6 +20,7 @@ package me.mneri.offer.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import lombok.SneakyThrows;
 import lombok.val;
 import me.mneri.offer.TestUtil;
@@ -27,25 +28,37 @@ import me.mneri.offer.dto.OfferDto;
 import me.mneri.offer.entity.Offer;
 import me.mneri.offer.entity.User;
 import me.mneri.offer.mapping.Types;
+import me.mneri.offer.serialization.MediaTypes;
+import me.mneri.offer.serialization.ProtobufCodec;
+import me.mneri.offer.service.OfferFilter;
 import me.mneri.offer.service.OfferService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 /**
@@ -56,6 +69,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
  *     <li>Empty repository;</li>
  *     <li>A repository containing a single offer.</li>
  * </ul>
+ * The second case is also tested against the binary representations negotiated through the {@code Accept} header,
+ * and with filter, sort and page parameters.
  *
  * @author mneri
  */
@@ -142,4 +157,189 @@ class OffersControllerTest$getOffers {
         assertEquals(HttpStatus.OK.value(), response.getStatus());
         assertEquals(expected, result);
     }
+
+    /**
+     * Test the endpoint against a repository containing a single open offer, asking for a CBOR response.
+     */
+    @SneakyThrows
+    @Test
+    void givenOpenOfferAndCborAccept_whenGetOffersIsCalled_thenOfferIsReturnedAsCbor() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+        val offers = Collections.singletonList(offer);
+
+        given(offerService.findAllOpen())
+                .willReturn(offers);
+
+        // When
+        val response = mvc
+                .perform(get(PATH)
+                        .accept(MediaTypes.APPLICATION_CBOR))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        val cborMapper = new ObjectMapper(new CBORFactory());
+        val result = cborMapper.readValue(response.getContentAsByteArray(), new TypeReference<List<OfferDto>>() {
+        });
+        val expected = modelMapper.map(offers, Types.OFFER_DTO_LIST_TYPE);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(MediaTypes.APPLICATION_CBOR_VALUE, response.getContentType());
+        assertEquals(expected, result);
+    }
+
+    /**
+     * Test the endpoint against a repository containing a single open offer, asking for a protobuf response.
+     */
+    @SneakyThrows
+    @Test
+    void givenOpenOfferAndProtobufAccept_whenGetOffersIsCalled_thenOfferIsReturnedAsProtobuf() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+        val offers = Collections.singletonList(offer);
+
+        given(offerService.findAllOpen())
+                .willReturn(offers);
+
+        // When
+        val response = mvc
+                .perform(get(PATH)
+                        .accept(MediaTypes.APPLICATION_PROTOBUF))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        val result = ProtobufCodec.readOffers(new ByteArrayInputStream(response.getContentAsByteArray()));
+        val expected = modelMapper.map(offers, Types.OFFER_DTO_LIST_TYPE);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(MediaTypes.APPLICATION_PROTOBUF_VALUE, response.getContentType());
+        assertEquals(expected, result);
+    }
+
+    /**
+     * Test the endpoint with filter, sort and page parameters.
+     */
+    @SneakyThrows
+    @Test
+    void givenFilterParameters_whenGetOffersIsCalled_thenFilteredPageIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+        val offers = Collections.singletonList(offer);
+        val filter = ArgumentCaptor.forClass(OfferFilter.class);
+
+        given(offerService.findAllOpen(any(OfferFilter.class)))
+                .willReturn(new PageImpl<>(offers, PageRequest.of(1, 2), 3));
+
+        // When
+        val response = mvc
+                .perform(get(PATH)
+                        .param("minPrice", "10")
+                        .param("maxPrice", "100.50")
+                        .param("currency", "GBP")
+                        .param("sort", "price")
+                        .param("order", "desc")
+                        .param("page", "1")
+                        .param("size", "2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        val result = objectMapper.readValue(response.getContentAsString(), new TypeReference<List<OfferDto>>() {
+        });
+        val expected = modelMapper.map(offers, Types.OFFER_DTO_LIST_TYPE);
+
+        verify(offerService).findAllOpen(filter.capture());
+        verify(offerService, never()).findAllOpen();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("3", response.getHeader("X-Total-Count"));
+        assertEquals(expected, result);
+        assertEquals(new BigDecimal("10"), filter.getValue().getMinPrice());
+        assertEquals(new BigDecimal("100.50"), filter.getValue().getMaxPrice());
+        assertEquals("GBP", filter.getValue().getCurrency());
+        assertEquals(OfferFilter.Sort.PRICE, filter.getValue().getSort());
+        assertTrue(filter.getValue().isDescending());
+        assertEquals(1, filter.getValue().getPage());
+        assertEquals(2, filter.getValue().getSize());
+    }
+
+    /**
+     * Test the endpoint with an unknown ordering.
+     */
+    @SneakyThrows
+    @Test
+    void givenUnknownSort_whenGetOffersIsCalled_thenBadRequestIsReturned() {
+        // When
+        val response = mvc
+                .perform(get(PATH)
+                        .param("sort", "title")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    /**
+     * Test the endpoint with an invalid {@code endingWithin} duration.
+     */
+    @SneakyThrows
+    @Test
+    void givenInvalidEndingWithin_whenGetOffersIsCalled_thenBadRequestIsReturned() {
+        // When
+        val response = mvc
+                .perform(get(PATH)
+                        .param("endingWithin", "30 minutes")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    /**
+     * Test the endpoint asking to compare the prices in a currency while the FX rates are not enabled.
+     */
+    @SneakyThrows
+    @Test
+    void givenFxRatesNotEnabled_whenGetOffersIsCalledWithIn_thenNotImplementedIsReturned() {
+        // When
+        val response = mvc
+                .perform(get(PATH)
+                        .param("sort", "price")
+                        .param("in", "GBP")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.NOT_IMPLEMENTED.value(), response.getStatus());
+    }
+
+    /**
+     * Test the endpoint with a filter expression on an unknown field.
+     */
+    @SneakyThrows
+    @Test
+    void givenInvalidFilter_whenGetOffersIsCalled_thenBadRequestIsReturned() {
+        // When
+        val response = mvc
+                .perform(get(PATH)
+                        .param("filter", "color = 'red'")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+        verify(offerService, never()).findAllOpen(any(OfferFilter.class));
+    }
 }
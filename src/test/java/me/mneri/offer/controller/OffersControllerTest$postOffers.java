@@ -24,8 +24,11 @@ import lombok.val;
 import me.mneri.offer.TestUtil;
 import me.mneri.offer.dto.OfferRequest;
 import me.mneri.offer.entity.User;
+import me.mneri.offer.serialization.MediaTypes;
+import me.mneri.offer.serialization.ProtobufCodec;
 import me.mneri.offer.service.OfferService;
 import me.mneri.offer.service.UserService;
+import me.mneri.offer.validator.Constants;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.modelmapper.ModelMapper;
@@ -39,19 +42,27 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 /**
  * Test the {@code POST /offers} endpoint.
  * <p>
- * We test 2 main cases:
+ * We test 5 main cases:
  * <ul>
  *     <li>The user is not in the repository;</li>
- *     <li>The user is in the repository.</li>
+ *     <li>The user is in the repository;</li>
+ *     <li>The user is in the repository and the request is encoded as protobuf;</li>
+ *     <li>The title of the request is too long;</li>
+ *     <li>The request body is too large.</li>
  * </ul>
  *
  * @author mneri
@@ -138,4 +149,89 @@ class OffersControllerTest$postOffers {
         // Then
         assertEquals(HttpStatus.CREATED.value(), response.getStatus());
     }
+
+    /**
+     * Test the endpoint against a repository which contains the user, with a protobuf request body.
+     */
+    @SneakyThrows
+    @Test
+    void givenValidUserIdAndProtobufOfferPostRequest_whenPostOffersIsCalled_thenHttp201ResponseIsReturned() {
+        // Given
+        val user = new User("user", "secret", passwordEncoder);
+        val optionalUser = Optional.of(user);
+        val userId = user.getId();
+        val offerPostRequest = TestUtil.createOfferRequest();
+        val content = new ByteArrayOutputStream();
+        ProtobufCodec.writeOfferRequest(offerPostRequest, content);
+
+        given(userService.findEnabledById(userId))
+                .willReturn(optionalUser);
+
+        // When
+        val response = mockMvc
+                .perform(post(String.format(PATH, userId))
+                        .contentType(MediaTypes.APPLICATION_PROTOBUF)
+                        .content(content.toByteArray()))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.CREATED.value(), response.getStatus());
+    }
+
+    /**
+     * Test the endpoint with a title exceeding its maximum length.
+     */
+    @SneakyThrows
+    @Test
+    void givenTooLongTitle_whenPostOffersIsCalled_thenHttp400ResponseIsReturned() {
+        // Given
+        val user = new User("user", "secret", passwordEncoder);
+        val userId = user.getId();
+        val offerPostRequest = TestUtil.createOfferRequest();
+        offerPostRequest.setTitle(String.join("", Collections.nCopies(Constants.TITLE_MAX_LENGTH + 1, "a")));
+
+        given(userService.findEnabledById(userId))
+                .willReturn(Optional.of(user));
+
+        // When
+        val response = mockMvc
+                .perform(post(String.format(PATH, userId))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(offerPostRequest)))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+        verify(offerService, never()).save(any());
+    }
+
+    /**
+     * Test the endpoint with a body larger than the maximum size allowed for the endpoint.
+     */
+    @SneakyThrows
+    @Test
+    void givenTooLargeBody_whenPostOffersIsCalled_thenHttp413ResponseIsReturned() {
+        // Given
+        val user = new User("user", "secret", passwordEncoder);
+        val userId = user.getId();
+        val offerPostRequest = TestUtil.createOfferRequest();
+        offerPostRequest.setDescription(String.join("", Collections.nCopies(128 * 1024, "a")));
+
+        given(userService.findEnabledById(userId))
+                .willReturn(Optional.of(user));
+
+        // When
+        val response = mockMvc
+                .perform(post(String.format(PATH, userId))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(offerPostRequest)))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE.value(), response.getStatus());
+        verify(offerService, never()).save(any());
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.controller;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.service.OfferService;
+import me.mneri.offer.stream.OfferChangeStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Test the {@code GET /offers/stream} endpoint.
+ * <p>
+ * We test 2 cases:
+ * <ul>
+ *     <li>A client resuming from a recent event, receiving the missed events matching its filter;</li>
+ *     <li>A client resuming from an unknown event, receiving a {@code resync} event.</li>
+ * </ul>
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest
+class OffersControllerTest$streamOffers {
+    private static final String PATH = "/offers/stream";
+
+    private static final long TIMEOUT = 10_000;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private OfferChangeStream offerChangeStream;
+
+    @MockBean
+    private OfferService offerService;
+
+    private static OfferChangeEvent createEvent(String publisherId, String currency) {
+        return new OfferChangeEvent(OfferChangeEvent.Type.CREATED, UUID.randomUUID().toString(), "Title",
+                "Description", new BigDecimal("9.99"), currency, 0, Long.MAX_VALUE, false, publisherId);
+    }
+
+    @SneakyThrows
+    private static String awaitContent(MockHttpServletResponse response, String expected) {
+        val deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (!response.getContentAsString().contains(expected)) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        return response.getContentAsString();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenMissedEvents_whenStreamOffersIsCalledWithLastEventId_thenMatchingEventsAreReplayed() {
+        // Given
+        val publisherId = UUID.randomUUID().toString();
+        val lastEventId = offerChangeStream.lastEventId();
+        val euro = createEvent(publisherId, "EUR");
+        val dollar = createEvent(publisherId, "USD");
+
+        eventPublisher.publishEvent(euro);
+        eventPublisher.publishEvent(dollar);
+
+        // When
+        val result = mvc.perform(get(PATH)
+                .param("publisherId", publisherId)
+                .param("currency", "EUR")
+                .header("Last-Event-ID", lastEventId))
+                .andReturn();
+
+        // Then
+        val content = awaitContent(result.getResponse(), euro.getOfferId());
+
+        assertTrue(result.getRequest().isAsyncStarted());
+        assertTrue(content.contains("event:created"));
+        assertFalse(content.contains(dollar.getOfferId()));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenUnknownLastEventId_whenStreamOffersIsCalled_thenResyncIsSent() {
+        // Given
+        val lastEventId = offerChangeStream.lastEventId() + 1000;
+
+        // When
+        val result = mvc.perform(get(PATH).header("Last-Event-ID", lastEventId)).andReturn();
+
+        // Then
+        assertTrue(awaitContent(result.getResponse(), "event:resync").contains("event:resync"));
+    }
+}
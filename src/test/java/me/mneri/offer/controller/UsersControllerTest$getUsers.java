@@ -44,15 +44,18 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 /**
  * Test the {@code GET /users} endpoint.
  * <p>
- * We test two main cases:
+ * We test three main cases:
  * <ul>
  *     <li>An empty repository;</li>
- *     <li>A repository containing a single user.</li>
+ *     <li>A repository containing a single user;</li>
+ *     <li>A lookup by username prefix.</li>
  * </ul>
  *
  * @author mneri
@@ -136,4 +139,34 @@ class UsersControllerTest$getUsers {
         assertEquals(HttpStatus.OK.value(), response.getStatus());
         assertEquals(expected, result);
     }
+
+    /**
+     * Test the endpoint with a username prefix: the users are looked up by prefix instead of being listed.
+     */
+    @SneakyThrows
+    @Test
+    void givenPrefix_whenGetUsersIsCalled_thenMatchingUsersAreReturned() {
+        // Given
+        val users = Collections.singletonList(new User("user", "secret", passwordEncoder));
+
+        given(userService.findEnabledByUsernamePrefix("us", 5))
+                .willReturn(users);
+
+        // When
+        val response = mvc
+                .perform(get(PATH)
+                        .param("prefix", "us")
+                        .param("limit", "5")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        val result = objectMapper.readValue(response.getContentAsString(), new TypeReference<List<UserDto>>() {});
+        val expected = modelMapper.map(users, Types.USER_DTO_LIST_TYPE);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(expected, result);
+        verify(userService, never()).findAllEnabled();
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.dto;
+
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.validator.Constants;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the bean constraints of {@link OfferRequest}: they must agree with the limits enforced while the request bodies
+ * are parsed.
+ *
+ * @author mneri
+ */
+class OfferRequestTest {
+    private static ValidatorFactory validatorFactory;
+    private static Validator validator;
+
+    @AfterAll
+    static void afterAll() {
+        validatorFactory.close();
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @Test
+    void givenValidRequest_whenValidationOccurs_thenNoErrorIsProduced() {
+        // Given
+        val request = TestUtil.createOfferRequest();
+
+        // When
+        val violations = validator.validate(request);
+
+        // Then
+        assertTrue(violations.isEmpty());
+    }
+
+    @Test
+    void givenTooLongCurrency_whenValidationOccurs_thenCurrencyErrorIsProduced() {
+        // Given
+        val request = TestUtil.createOfferRequest();
+        request.setCurrency(String.join("", Collections.nCopies(Constants.CURRENCY_MAX_LENGTH + 1, "A")));
+
+        // When
+        val violations = validator.validate(request);
+
+        // Then
+        assertEquals(1, violations.size());
+        assertEquals("currency", violations.iterator().next().getPropertyPath().toString());
+    }
+}
@@ -74,6 +74,7 @@ class OfferTest {
         assertEquals(currency, instance.getCurrency());
         assertEquals(ttl, instance.getTtl());
         assertFalse(instance.isCanceled());
+        assertEquals(instance.getCreateTime(), instance.getUpdateTime());
         assertEquals(publisher, instance.getPublisher());
     }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.eventlog;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.OfferEvent;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.repository.CheckpointRepository;
+import me.mneri.offer.repository.OfferEventRepository;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for the {@link OfferEventLog} class.
+ * <p>
+ * The log is written in the transactions of the offer service, so the test can't roll them back and cleans the
+ * repositories up after each test. The retention is zero, so that every event can be compacted right away.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"offer.event-log.enabled=true", "offer.event-log.retention=0"})
+class OfferEventLogIntegrationTest {
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    @Autowired
+    private OfferEventLog offerEventLog;
+
+    @Autowired
+    private OfferEventRepository offerEventRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    private void afterEach() {
+        offerEventRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenSavedAndUpdatedOffer_whenReadIsCalled_thenEventsAreReturnedInOrder() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        offerService.save(offer);
+        offer.setPrice(new BigDecimal("12.34"));
+        offerService.update(offer, publisher.getId());
+
+        // When
+        val events = offerEventLog.read(0, 10);
+
+        // Then
+        assertEquals(2, events.size());
+        assertEquals(OfferChangeEvent.Type.CREATED, events.get(0).getType());
+        assertEquals(OfferChangeEvent.Type.UPDATED, events.get(1).getType());
+        assertTrue(events.get(0).getSequence() < events.get(1).getSequence());
+        assertEquals(offer.getId(), events.get(1).getOfferId());
+        assertEquals(0, new BigDecimal("12.34").compareTo(events.get(1).getPrice()));
+        assertEquals(events.subList(1, 2), offerEventLog.read(events.get(0).getSequence(), 10));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOldEvents_whenCompactIsCalled_thenOnlyLatestEventOfOpenOffersIsKept() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val open = TestUtil.createNonExpiredOffer(publisher);
+        val canceled = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        offerService.save(open);
+        offerService.save(canceled);
+        open.setTitle("Updated");
+        offerService.update(open, publisher.getId());
+        canceled.setCanceled(true);
+        offerService.update(canceled, publisher.getId());
+
+        val last = offerEventLog.read(0, 10).stream().mapToLong(OfferEvent::getSequence).max().orElse(0);
+        Thread.sleep(10);
+
+        // When
+        offerEventLog.compact();
+
+        // Then
+        val events = offerEventLog.read(0, 10);
+
+        assertEquals(1, events.size());
+        assertEquals(open.getId(), events.get(0).getOfferId());
+        assertEquals(OfferChangeEvent.Type.UPDATED, events.get(0).getType());
+        assertEquals("Updated", events.get(0).getTitle());
+        assertEquals(last, offerEventLog.horizon());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenAppendInFlight_whenReadSettledIsCalled_thenLaterEventsAreNotReturnedUntilItCompletes() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val slow = TestUtil.createNonExpiredOffer(publisher);
+        val fast = TestUtil.createNonExpiredOffer(publisher);
+        val transactionTemplate = new TransactionTemplate(transactionManager);
+
+        userRepository.save(publisher);
+
+        // When
+        val whileInFlight = transactionTemplate.execute(status -> {
+            offerService.save(slow);
+            CompletableFuture.runAsync(() -> offerService.save(fast)).join();
+            return offerEventLog.readSettled(0, 10);
+        });
+        val afterCommit = offerEventLog.readSettled(0, 10);
+
+        // Then
+        assertTrue(whileInFlight.isEmpty());
+        assertEquals(2, afterCommit.size());
+        assertEquals(slow.getId(), afterCommit.get(0).getOfferId());
+        assertEquals(fast.getId(), afterCommit.get(1).getOfferId());
+    }
+}
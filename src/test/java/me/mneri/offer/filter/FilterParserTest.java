@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.filter;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.exception.InvalidFilterException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test the {@link FilterParser} class.
+ *
+ * @author mneri
+ */
+class FilterParserTest {
+    @SneakyThrows
+    @Test
+    void givenComparison_whenParseIsCalled_thenComparisonIsReturned() {
+        // When
+        val node = FilterParser.parse("  publisher.username='Rock ''n'' roll'");
+
+        // Then
+        assertEquals(new FilterNode.Comparison("publisher.username", FilterNode.Operator.EQ, "Rock 'n' roll"), node);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOperators_whenParseIsCalled_thenAndBindsTighterThanOr() {
+        // When
+        val node = FilterParser.parse("price >= 1 or price < -2.5 and not currency != 'GBP'");
+
+        // Then
+        assertEquals("(price >= 1 or (price < -2.5 and not currency != 'GBP'))", node.toString());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenParentheses_whenParseIsCalled_thenGroupingIsKept() {
+        // When
+        val node = FilterParser.parse("(price <= 10 or price > 100) and currency = 'EUR'");
+
+        // Then
+        assertEquals(new FilterNode.And(
+                new FilterNode.Or(
+                        new FilterNode.Comparison("price", FilterNode.Operator.LE, new BigDecimal("10")),
+                        new FilterNode.Comparison("price", FilterNode.Operator.GT, new BigDecimal("100"))),
+                new FilterNode.Comparison("currency", FilterNode.Operator.EQ, "EUR")), node);
+    }
+
+    @Test
+    void givenInvalidExpressions_whenParseIsCalled_thenExceptionIsThrown() {
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse(""));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse("price"));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse("price = "));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse("price == 10"));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse("price = 1.2.3"));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse("title = 'unterminated"));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse("(price = 10"));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse("price = 10 price = 20"));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse("price = 10 and"));
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse(".price = 10"));
+    }
+
+    @Test
+    void givenDeeplyNestedExpression_whenParseIsCalled_thenExceptionIsThrown() {
+        // Given
+        val depth = FilterParser.MAX_DEPTH + 1;
+        val expression = String.join("", Collections.nCopies(depth, "(")) + "price = 1"
+                + String.join("", Collections.nCopies(depth, ")"));
+
+        // Then
+        assertThrows(InvalidFilterException.class, () -> FilterParser.parse(expression));
+    }
+}
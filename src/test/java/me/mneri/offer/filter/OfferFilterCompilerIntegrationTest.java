@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.filter;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.exception.InvalidFilterException;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static me.mneri.offer.specification.OfferSpecification.offerIsOpen;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Integration tests for the {@link OfferFilterCompiler} class.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+@Transactional
+class OfferFilterCompilerIntegrationTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Autowired
+    private OfferFilterCompiler offerFilterCompiler;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private static Offer createOffer(User publisher, String title, String price, String currency) {
+        return Offer.builder()
+                .title(title)
+                .description("Awesome")
+                .price(new BigDecimal(price))
+                .currency(currency)
+                .ttl(HOUR)
+                .publisher(publisher)
+                .build();
+    }
+
+    @BeforeEach
+    void init() {
+        passwordEncoder = new BCryptPasswordEncoder();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOffers_whenCompiledFilterIsApplied_thenMatchingOffersAreReturned() {
+        // Given
+        val alice = new User("alice", "secret", passwordEncoder);
+        val bob = new User("bob", "secret", passwordEncoder);
+        val cheapFromAlice = createOffer(alice, "Mug", "5.00", "GBP");
+        val expensiveFromAlice = createOffer(alice, "Bike", "500.00", "GBP");
+        val cheapFromBob = createOffer(bob, "Pen", "2.00", "GBP");
+        val cheapInEuro = createOffer(alice, "Cup", "3.00", "EUR");
+
+        userRepository.saveAll(Arrays.asList(alice, bob));
+        offerRepository.saveAll(Arrays.asList(cheapFromAlice, expensiveFromAlice, cheapFromBob, cheapInEuro));
+
+        // When
+        val byPublisher = offerFilterCompiler.compile(
+                "price < 10 and currency = 'GBP' and publisher.username = 'alice'");
+        val byTitle = offerFilterCompiler.compile("not (title = 'Mug' or title = 'Pen') and price <= 3");
+        val byTime = offerFilterCompiler.compile("createTime > '2000-01-01T00:00:00Z' and publisher.id != '"
+                + alice.getId() + "'");
+
+        // Then
+        assertEquals(Collections.singletonList(cheapFromAlice),
+                offerRepository.findAll(where(offerIsOpen()).and(byPublisher)));
+        assertEquals(Collections.singletonList(cheapInEuro),
+                offerRepository.findAll(where(offerIsOpen()).and(byTitle)));
+        assertEquals(Collections.singletonList(cheapFromBob),
+                offerRepository.findAll(where(offerIsOpen()).and(byTime)));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenSameFilterWithDifferentWhitespace_whenCompileIsCalled_thenCachedSpecificationIsReturned() {
+        // When
+        val first = offerFilterCompiler.compile("price < 10 and currency = 'GBP'");
+        val second = offerFilterCompiler.compile("  price < 10   and\tcurrency = 'GBP' ");
+        val third = offerFilterCompiler.compile("price < 10 and currency = 'GBP  '");
+
+        // Then
+        assertSame(first, second);
+        assertNotSame(first, third);
+    }
+
+    @Test
+    void givenInvalidFilters_whenCompileIsCalled_thenExceptionIsThrown() {
+        assertThrows(InvalidFilterException.class, () -> offerFilterCompiler.compile("canceled = 'true'"));
+        assertThrows(InvalidFilterException.class, () -> offerFilterCompiler.compile("publisher.password = 'x'"));
+        assertThrows(InvalidFilterException.class, () -> offerFilterCompiler.compile("price = 'cheap'"));
+        assertThrows(InvalidFilterException.class, () -> offerFilterCompiler.compile("currency = 10"));
+        assertThrows(InvalidFilterException.class, () -> offerFilterCompiler.compile("endTime > 'tomorrow'"));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.fx;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the {@link FxRateTable} class.
+ *
+ * @author mneri
+ */
+class FxRateTableTest {
+    @TempDir
+    Path directory;
+
+    private static Map<String, BigDecimal> rates(String... entries) {
+        Map<String, BigDecimal> rates = new HashMap<>();
+
+        for (int i = 0; i < entries.length; i += 2) {
+            rates.put(entries[i], new BigDecimal(entries[i + 1]));
+        }
+
+        return rates;
+    }
+
+    @SneakyThrows
+    private Path write(String content) {
+        val path = directory.resolve("fx-rates.properties");
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @SneakyThrows
+    @Test
+    void givenRatesFile_whenNormalizeIsCalled_thenAmountIsConvertedToBaseCurrency() {
+        // Given
+        val table = FxRateTable.read(write("# Rates\nGBP=0.80\nusd = 1.25\n"), "EUR");
+
+        // When
+        val fromGbp = table.normalize(new BigDecimal("100.00"), "GBP");
+        val fromUsd = table.normalize(new BigDecimal("100.00"), "USD");
+        val fromEur = table.normalize(new BigDecimal("100.00"), "eur");
+        val fromUnknown = table.normalize(new BigDecimal("100.00"), "JPY");
+
+        // Then
+        assertEquals(Optional.of(new BigDecimal("125.000000")), fromGbp);
+        assertEquals(Optional.of(new BigDecimal("80.000000")), fromUsd);
+        assertEquals(Optional.of(new BigDecimal("100.000000")), fromEur);
+        assertEquals(Optional.empty(), fromUnknown);
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    void givenInvalidRatesFile_whenReadIsCalled_thenExceptionIsThrown() {
+        assertThrows(IllegalArgumentException.class, () -> FxRateTable.read(write("GBP=abc\n"), "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> FxRateTable.read(write("GBP=0\n"), "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> FxRateTable.read(write("POUND=0.80\n"), "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> FxRateTable.read(write("EUR=1.10\n"), "EUR"));
+    }
+
+    @Test
+    void givenTwoTables_whenChangedCurrenciesIsCalled_thenAddedChangedAndRemovedCurrenciesAreReturned() {
+        // Given
+        val previous = new FxRateTable("EUR", rates("GBP", "0.80", "USD", "1.25", "CHF", "0.95"));
+        val current = new FxRateTable("EUR", rates("GBP", "0.800", "USD", "1.20", "JPY", "160"));
+
+        // When
+        val changed = current.changedCurrencies(previous);
+
+        // Then
+        assertEquals(new HashSet<>(Arrays.asList("CHF", "JPY", "USD")), changed);
+    }
+
+    @Test
+    void givenDifferentBaseCurrencies_whenChangedCurrenciesIsCalled_thenAllCurrenciesAreReturned() {
+        // Given
+        val previous = new FxRateTable("EUR", rates("GBP", "0.80"));
+        val current = new FxRateTable("GBP", rates("EUR", "1.25"));
+
+        // When
+        val changed = current.changedCurrencies(previous);
+
+        // Then
+        assertEquals(new HashSet<>(Arrays.asList("EUR", "GBP")), changed);
+        assertTrue(previous.changedCurrencies(previous).isEmpty());
+    }
+}
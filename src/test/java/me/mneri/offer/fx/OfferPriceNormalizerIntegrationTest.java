@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.fx;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferFilter;
+import me.mneri.offer.service.OfferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for the normalized prices maintained with the {@link FxRates}: the normalization on save, the
+ * comparison of the prices in a currency and the normalization in batches by the {@link OfferPriceNormalizer}.
+ * <p>
+ * The rates are read from {@code src/test/resources/fx-rates.properties}: 1 EUR is worth 0.80 GBP and 1.25 USD.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"offer.fx.enabled=true",
+                              "offer.fx.path=src/test/resources/fx-rates.properties",
+                              "offer.fx.batch-size=2"})
+class OfferPriceNormalizerIntegrationTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Autowired
+    private FxRates fxRates;
+
+    @Autowired
+    private OfferPriceNormalizer offerPriceNormalizer;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    private void afterEach() {
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private static Offer createOffer(User publisher, String price, String currency) {
+        return Offer.builder()
+                .title("Bazinga")
+                .description("Awesome")
+                .price(new BigDecimal(price))
+                .currency(currency)
+                .ttl(HOUR)
+                .publisher(publisher)
+                .build();
+    }
+
+    private BigDecimal normalizedPriceOf(Offer offer) {
+        return offerRepository.findById(offer.getId()).map(Offer::getNormalizedPrice).orElse(null);
+    }
+
+    @Test
+    void givenOffersInDifferentCurrencies_whenFindAllOpenIsCalledWithPriceCurrency_thenOffersAreComparedConverted() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val inEur = createOffer(publisher, "100.00", "EUR");
+        val inGbp = createOffer(publisher, "100.00", "GBP");
+        val inUsd = createOffer(publisher, "100.00", "USD");
+        val inUnknown = createOffer(publisher, "1.00", "XYZ");
+
+        userRepository.save(publisher);
+        Arrays.asList(inEur, inGbp, inUsd, inUnknown).forEach(offerService::save);
+
+        // When
+        val sorted = offerService.findAllOpen(OfferFilter.builder()
+                .sort(OfferFilter.Sort.PRICE)
+                .priceCurrency("GBP")
+                .size(10)
+                .build());
+        val filtered = offerService.findAllOpen(OfferFilter.builder()
+                .minPrice(new BigDecimal("70.00"))
+                .maxPrice(new BigDecimal("90.00"))
+                .sort(OfferFilter.Sort.PRICE)
+                .priceCurrency("GBP")
+                .size(10)
+                .build());
+
+        // Then
+        assertEquals(Arrays.asList(inUsd, inEur, inGbp), sorted.getContent());
+        assertEquals(Collections.singletonList(inEur), filtered.getContent());
+        assertEquals(0, new BigDecimal("125").compareTo(normalizedPriceOf(inGbp)));
+        assertNull(normalizedPriceOf(inUnknown));
+    }
+
+    @Test
+    void givenStaleNormalizedPrices_whenRenormalizeIsCalled_thenOpenPricesInChangedCurrenciesAreNormalized() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val inGbp = Arrays.asList(createOffer(publisher, "100.00", "GBP"),
+                createOffer(publisher, "200.00", "GBP"),
+                createOffer(publisher, "300.00", "GBP"));
+        val inEur = createOffer(publisher, "100.00", "EUR");
+        val expired = TestUtil.createExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        inGbp.forEach(offerService::save);
+        offerService.save(inEur);
+        offerService.save(expired);
+
+        for (Offer offer : offerRepository.findAll()) {
+            offer.setNormalizedPrice(BigDecimal.ZERO);
+            offerRepository.save(offer);
+        }
+
+        // When
+        offerPriceNormalizer.renormalize(Collections.singleton("GBP"));
+
+        // Then
+        assertEquals(0, new BigDecimal("125").compareTo(normalizedPriceOf(inGbp.get(0))));
+        assertEquals(0, new BigDecimal("250").compareTo(normalizedPriceOf(inGbp.get(1))));
+        assertEquals(0, new BigDecimal("375").compareTo(normalizedPriceOf(inGbp.get(2))));
+        assertEquals(0, BigDecimal.ZERO.compareTo(normalizedPriceOf(inEur)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(normalizedPriceOf(expired)));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenStaleNormalizedPrice_whenRenormalizeIsCalled_thenPriceIsNormalizedLikeOnSaveAndUpdateTimeMoves() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = createOffer(publisher, "10.01", "USD");
+
+        userRepository.save(publisher);
+        offerService.save(offer);
+
+        val stale = offerRepository.findById(offer.getId()).orElseThrow(RuntimeException::new);
+        stale.setNormalizedPrice(BigDecimal.ZERO);
+        offerRepository.save(stale);
+
+        val before = offerRepository.findById(offer.getId()).orElseThrow(RuntimeException::new).getUpdateTime();
+        Thread.sleep(10);
+
+        // When
+        offerPriceNormalizer.renormalize(Collections.singleton("USD"));
+
+        // Then
+        val result = offerRepository.findById(offer.getId()).orElseThrow(RuntimeException::new);
+        val expected = fxRates.getTable().normalize(new BigDecimal("10.01"), "USD").orElseThrow(RuntimeException::new);
+        assertEquals(0, expected.compareTo(result.getNormalizedPrice()));
+        assertTrue(result.getUpdateTime().after(before));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the {@link OfferColumns#scan(OfferScan)} method against the possible combinations of predicates, and the paged
+ * scans against the possible orders.
+ *
+ * @author mneri
+ */
+class OfferColumnsTest {
+    private static final long NOW = 1_000_000L;
+
+    private OfferColumns columns;
+
+    @BeforeEach
+    void beforeEach() {
+        columns = new OfferColumns();
+        columns.put("a", NOW - 500, NOW + 3000, new BigDecimal("10.00"), "GBP", false);
+        columns.put("b", NOW - 300, NOW + 1000, new BigDecimal("20.50"), "EUR", false);
+        columns.put("c", NOW - 400, NOW + 2000, new BigDecimal("30.00"), "GBP", false);
+        columns.put("d", NOW - 2000, NOW - 1000, new BigDecimal("15.00"), "GBP", false);
+        columns.put("e", NOW - 100, NOW + 1000, new BigDecimal("15.00"), "GBP", true);
+    }
+
+    @Test
+    void givenOffers_whenOpenScanIsCalled_thenOnlyOpenOffersAreReturned() {
+        // When
+        val returned = columns.scan(OfferScan.open(NOW));
+
+        // Then
+        assertEquals(Arrays.asList("a", "b", "c"), returned);
+    }
+
+    @Test
+    void givenOffers_whenCurrencyScanIsCalled_thenOnlyOffersWithCurrencyAreReturned() {
+        // Given
+        val scan = OfferScan.builder().now(NOW).currency("GBP").build();
+
+        // When
+        val returned = columns.scan(scan);
+
+        // Then
+        assertEquals(Arrays.asList("a", "c"), returned);
+    }
+
+    @Test
+    void givenOffers_whenPriceRangeScanIsCalled_thenOnlyOffersInRangeAreReturned() {
+        // Given
+        val scan = OfferScan.builder()
+                .now(NOW)
+                .minPriceMinorUnits(OfferColumns.toMinorUnits(new BigDecimal("10.01")))
+                .maxPriceMinorUnits(OfferColumns.toMinorUnits(new BigDecimal("30")))
+                .build();
+
+        // When
+        val returned = columns.scan(scan);
+
+        // Then
+        assertEquals(Arrays.asList("b", "c"), returned);
+    }
+
+    @Test
+    void givenOffers_whenEndTimeScanIsCalled_thenOnlyOffersEndingBeforeAreReturned() {
+        // Given
+        val scan = OfferScan.builder().now(NOW).maxEndTimeMillis(NOW + 2000).build();
+
+        // When
+        val returned = columns.scan(scan);
+
+        // Then
+        assertEquals(Arrays.asList("b", "c"), returned);
+    }
+
+    @Test
+    void givenOffers_whenPagedScanIsCalled_thenPageIsReturnedInOrder() {
+        // When
+        val returned = columns.scan(OfferScan.open(NOW), OfferColumns.Order.CREATE_TIME, true, 1, 1);
+
+        // Then
+        assertEquals(3, returned.getTotal());
+        assertEquals(Collections.singletonList("c"), returned.getIds());
+    }
+
+    @Test
+    void givenOffers_whenPagedScanIsCalledByPrice_thenOffersAreSortedByPrice() {
+        // Given
+        val scan = OfferScan.builder().now(NOW).currency("GBP").build();
+
+        // When
+        val ascending = columns.scan(scan, OfferColumns.Order.PRICE, false, 0, 10);
+        val descending = columns.scan(scan, OfferColumns.Order.PRICE, true, 0, 10);
+
+        // Then
+        assertEquals(Arrays.asList("a", "c"), ascending.getIds());
+        assertEquals(Arrays.asList("c", "a"), descending.getIds());
+    }
+
+    @Test
+    void givenOffersWithSameEndTime_whenPagedScanIsCalled_thenIdBreaksTies() {
+        // Given
+        columns.put("f", NOW - 100, NOW + 1000, BigDecimal.ONE, "GBP", false);
+
+        // When
+        val returned = columns.scan(OfferScan.open(NOW), OfferColumns.Order.END_TIME, false, 0, 3);
+
+        // Then
+        assertEquals(4, returned.getTotal());
+        assertEquals(Arrays.asList("b", "f", "c"), returned.getIds());
+    }
+
+    @Test
+    void givenOffsetPastMatches_whenPagedScanIsCalled_thenPageIsEmpty() {
+        // When
+        val returned = columns.scan(OfferScan.open(NOW), OfferColumns.Order.CREATE_TIME, false, 3, 10);
+
+        // Then
+        assertEquals(3, returned.getTotal());
+        assertTrue(returned.getIds().isEmpty());
+    }
+
+    @Test
+    void givenUnknownCurrency_whenScanIsCalled_thenNoOfferIsReturned() {
+        // Given
+        val scan = OfferScan.builder().now(NOW).currency("USD").build();
+
+        // When
+        val returned = columns.scan(scan);
+
+        // Then
+        assertTrue(returned.isEmpty());
+    }
+
+    @Test
+    void givenCanceledOffer_whenOfferIsReopened_thenOfferIsReturned() {
+        // Given
+        columns.put("e", NOW - 100, NOW + 1000, new BigDecimal("15.00"), "GBP", false);
+
+        // When
+        val returned = columns.count(OfferScan.open(NOW));
+
+        // Then
+        assertEquals(4, returned);
+    }
+
+    @Test
+    void givenOffer_whenOfferIsRemoved_thenOfferIsNotReturned() {
+        // Given
+        columns.remove("b");
+
+        // When
+        val returned = columns.scan(OfferScan.open(NOW));
+
+        // Then
+        assertEquals(Arrays.asList("a", "c"), returned);
+    }
+
+    @Test
+    void givenManyCanceledOffers_whenStoreIsCompacted_thenOpenOffersAreStillReturned() {
+        // Given
+        for (int i = 0; i < 5000; i++) {
+            columns.put("x" + i, NOW, NOW + 1000, BigDecimal.ONE, "GBP", false);
+            columns.remove("x" + i);
+        }
+
+        // When
+        val returned = columns.scan(OfferScan.open(NOW));
+
+        // Then
+        assertEquals(Arrays.asList("a", "b", "c"), returned);
+        assertTrue(columns.size() < 5000);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.dto.OfferFacetsDto;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.expiry.OfferExpirySweeper;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Integration tests for the {@link OfferFacets} class.
+ * <p>
+ * The scheduled expiry sweep is pushed an hour away: the test sweeps by itself.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"offer.facets.enabled=true",
+                              "offer.facets.price-buckets=10,100",
+                              "offer.expiry.interval=3600000"})
+class OfferFacetsIntegrationTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Autowired
+    private OfferExpirySweeper offerExpirySweeper;
+
+    @Autowired
+    private OfferFacets offerFacets;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @SneakyThrows
+    @AfterEach
+    private void afterEach() {
+        for (Offer offer : offerRepository.findAll()) {
+            if (!offer.isCanceled()) {
+                offer.setCanceled(true);
+                offerService.update(offer, offer.getPublisher().getId());
+            }
+        }
+
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private static Offer createOffer(User publisher, String price, String currency, long ttl) {
+        return Offer.builder()
+                .title("Bazinga")
+                .description("Awesome")
+                .price(new BigDecimal(price))
+                .currency(currency)
+                .ttl(ttl)
+                .publisher(publisher)
+                .build();
+    }
+
+    private static OfferFacetsDto.PriceBucket bucket(String min, String max, long count) {
+        return new OfferFacetsDto.PriceBucket(new BigDecimal(min), max == null ? null : new BigDecimal(max), count);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenSavedOffers_whenSnapshotIsCalled_thenOffersAreCountedByCurrencyAndPrice() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val cheap = createOffer(publisher, "5.00", "GBP", HOUR);
+        val average = createOffer(publisher, "10.00", "GBP", HOUR);
+        val expensive = createOffer(publisher, "500.00", "EUR", HOUR);
+
+        userRepository.save(publisher);
+        Arrays.asList(cheap, average, expensive).forEach(offerService::save);
+
+        // When
+        val facets = offerFacets.snapshot();
+
+        // Then
+        val currencies = new HashMap<String, Long>();
+        currencies.put("EUR", 1L);
+        currencies.put("GBP", 2L);
+
+        assertEquals(3, facets.getTotal());
+        assertEquals(currencies, facets.getCurrencies());
+        assertEquals(Arrays.asList(bucket("0", "10", 1), bucket("10", "100", 1), bucket("100", null, 1)),
+                facets.getPrices());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenUpdatedAndCanceledOffers_whenSnapshotIsCalled_thenCountsFollowTheChanges() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val updated = createOffer(publisher, "5.00", "GBP", HOUR);
+        val canceled = createOffer(publisher, "5.00", "GBP", HOUR);
+
+        userRepository.save(publisher);
+        offerService.save(updated);
+        offerService.save(canceled);
+
+        updated.setPrice(new BigDecimal("50.00"));
+        updated.setCurrency("EUR");
+        offerService.update(updated, publisher.getId());
+        canceled.setCanceled(true);
+        offerService.update(canceled, publisher.getId());
+
+        // When
+        val facets = offerFacets.snapshot();
+
+        // Then
+        assertEquals(1, facets.getTotal());
+        assertEquals(Collections.singletonMap("EUR", 1L), facets.getCurrencies());
+        assertEquals(Collections.singletonList(bucket("10", "100", 1)), facets.getPrices());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenExpiredOffer_whenExpiryIsSwept_thenOfferIsNoLongerCounted() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = createOffer(publisher, "5.00", "GBP", 100);
+
+        offerExpirySweeper.sweep();
+        userRepository.save(publisher);
+        offerService.save(offer);
+        val before = offerFacets.snapshot();
+
+        // When
+        Thread.sleep(200);
+        offerExpirySweeper.sweep();
+
+        // Then
+        val after = offerFacets.snapshot();
+
+        assertEquals(1, before.getTotal());
+        assertEquals(0, after.getTotal());
+        assertEquals(Collections.emptyMap(), after.getCurrencies());
+        assertEquals(Collections.emptyList(), after.getPrices());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.expiry.OfferExpirySweeper;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferFilter;
+import me.mneri.offer.service.OfferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Integration tests for {@link OfferIndex}.
+ * <p>
+ * The index is updated after commit: the test can't roll the changes back and cleans the repositories up after each
+ * test. The fetch batch size is smaller than the page size, so that the ids of a page found by the index are looked up
+ * in several batches. The scheduled expiry sweep is pushed an hour away: the test sweeps by itself.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"offer.expiry.interval=3600000", "offer.index.enabled=true",
+                              "offer.index.fetch-batch-size=2"})
+class OfferIndexIntegrationTest {
+    @Autowired
+    private OfferExpirySweeper offerExpirySweeper;
+
+    @Autowired
+    private OfferIndex offerIndex;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    private void afterEach() {
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Save more offers than the fetch batch size and check that the pages of a filtered listing, computed by the index,
+     * return all of them, and only them, in order.
+     */
+    @Test
+    void givenMoreOffersThanBatchSize_whenFilteredFindAllOpenIsCalled_thenPagesAreServedByIndex() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val expected = new ArrayList<String>();
+
+        userRepository.save(publisher);
+
+        for (int i = 0; i < 5; i++) {
+            val offer = TestUtil.createNonExpiredOffer(publisher);
+            offer.setPrice(new BigDecimal(10 + i));
+            offerService.save(offer);
+            expected.add(offer.getId());
+        }
+
+        val other = TestUtil.createNonExpiredOffer(publisher);
+        other.setCurrency("EUR");
+        offerService.save(other);
+
+        val filter = OfferFilter.builder()
+                .currency("GBP")
+                .maxPrice(new BigDecimal("100"))
+                .sort(OfferFilter.Sort.PRICE)
+                .size(3);
+
+        // When
+        val first = offerService.findAllOpen(filter.page(0).build());
+        val second = offerService.findAllOpen(filter.page(1).build());
+
+        // Then
+        val returned = new ArrayList<String>();
+        first.forEach(offer -> returned.add(offer.getId()));
+        second.forEach(offer -> returned.add(offer.getId()));
+
+        assertEquals(5, first.getTotalElements());
+        assertEquals(expected, returned);
+    }
+
+    /**
+     * Save an expired offer and check that the expiry sweep removes it from the index.
+     */
+    @SneakyThrows
+    @Test
+    void givenExpiredOffer_whenExpiryIsSwept_thenOfferIsRemovedFromIndex() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+
+        offerExpirySweeper.sweep();
+        Thread.sleep(10);
+        userRepository.save(publisher);
+        offerService.save(TestUtil.createExpiredOffer(publisher));
+
+        // When
+        offerExpirySweeper.sweep();
+
+        // Then
+        assertEquals(0, offerIndex.scan(OfferScan.open(0), OfferColumns.Order.CREATE_TIME, false, 0, 1).getTotal());
+    }
+}
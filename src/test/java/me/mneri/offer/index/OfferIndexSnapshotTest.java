@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test the {@link OfferIndexSnapshot} write/read round trip and the detection of corrupted snapshots.
+ *
+ * @author mneri
+ */
+class OfferIndexSnapshotTest {
+    private static final long HIGH_WATER_MARK = 123_456_789L;
+
+    private static final long NOW = 1_000_000L;
+
+    private OfferColumns columns;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void beforeEach() {
+        columns = new OfferColumns();
+        columns.put("a", NOW - 200, NOW + 1000, new BigDecimal("10.00"), "GBP", false);
+        columns.put("b", NOW - 100, NOW + 1000, new BigDecimal("20.50"), "EUR", false);
+        columns.put("c", NOW - 300, NOW + 1000, new BigDecimal("30.00"), "GBP", true);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenSnapshot_whenSnapshotIsRead_thenIndexAndHighWaterMarkAreRestored() {
+        // Given
+        val path = directory.resolve("index.bin");
+        OfferIndexSnapshot.write(columns, HIGH_WATER_MARK, path);
+
+        // When
+        val restored = new OfferColumns();
+        val highWaterMark = OfferIndexSnapshot.read(path, restored);
+
+        // Then
+        assertEquals(HIGH_WATER_MARK, highWaterMark);
+        assertEquals(Arrays.asList("a", "b"), restored.scan(OfferScan.open(NOW)));
+        assertEquals(Collections.singletonList("b"), restored.scan(OfferScan.builder()
+                .now(NOW)
+                .minPriceMinorUnits(2000)
+                .currency("EUR")
+                .build()));
+        assertEquals(Arrays.asList("b", "a"),
+                restored.scan(OfferScan.open(NOW), OfferColumns.Order.CREATE_TIME, true, 0, 10).getIds());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenCorruptedSnapshot_whenSnapshotIsRead_thenIOExceptionIsThrown() {
+        // Given
+        val path = directory.resolve("index.bin");
+        OfferIndexSnapshot.write(columns, HIGH_WATER_MARK, path);
+
+        val bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(path, bytes);
+
+        // When/Then
+        assertThrows(IOException.class, () -> OfferIndexSnapshot.read(path, new OfferColumns()));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenTruncatedSnapshot_whenSnapshotIsRead_thenIOExceptionIsThrown() {
+        // Given
+        val path = directory.resolve("index.bin");
+        Files.write(path, new byte[]{1, 2, 3});
+
+        // When/Then
+        assertThrows(IOException.class, () -> OfferIndexSnapshot.read(path, new OfferColumns()));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.index;
+
+import lombok.val;
+import me.mneri.offer.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the {@link UsernameIndex} class.
+ *
+ * @author mneri
+ */
+class UsernameIndexTest {
+    private UsernameIndex index;
+
+    private PasswordEncoder passwordEncoder;
+
+    private static List<String> usernamesOf(List<User> users) {
+        return users.stream().map(User::getUsername).collect(Collectors.toList());
+    }
+
+    @BeforeEach
+    private void beforeEach() {
+        index = new UsernameIndex();
+        passwordEncoder = new BCryptPasswordEncoder(4);
+
+        for (String username : Arrays.asList("mneri", "bob", "Marco", "mario", "alice", "m_rossi")) {
+            index.put(new User(username, "secret", passwordEncoder));
+        }
+    }
+
+    @Test
+    void givenUsers_whenMatchIsCalled_thenUsersWithPrefixAreReturnedInOrderIgnoringCase() {
+        // When
+        val matches = index.match("MAR", 10);
+
+        // Then
+        assertEquals(Arrays.asList("Marco", "mario"), usernamesOf(matches));
+    }
+
+    @Test
+    void givenUsers_whenMatchIsCalledWithLimit_thenAtMostLimitUsersAreReturned() {
+        // When
+        val matches = index.match("m", 2);
+
+        // Then
+        assertEquals(Arrays.asList("m_rossi", "Marco"), usernamesOf(matches));
+    }
+
+    @Test
+    void givenUsers_whenMatchIsCalledWithEmptyPrefix_thenFirstUsersAreReturned() {
+        // When
+        val matches = index.match("", 3);
+
+        // Then
+        assertEquals(Arrays.asList("alice", "bob", "m_rossi"), usernamesOf(matches));
+    }
+
+    @Test
+    void givenInvalidPrefix_whenMatchIsCalled_thenNoUserIsReturned() {
+        assertTrue(index.match("m%", 10).isEmpty());
+        assertTrue(index.match("mnerimnerimnerimnerimneri", 10).isEmpty());
+    }
+
+    @Test
+    void givenRenamedUser_whenPutIsCalled_thenOnlyTheNewUsernameMatches() {
+        // Given
+        val user = new User("carol", "secret", passwordEncoder);
+        index.put(user);
+
+        // When
+        user.setUsername("dave");
+        index.put(user);
+
+        // Then
+        assertTrue(index.match("carol", 10).isEmpty());
+        assertEquals(Collections.singletonList("dave"), usernamesOf(index.match("d", 10)));
+        assertEquals(7, index.size());
+    }
+
+    @Test
+    void givenDisabledUser_whenPutIsCalled_thenUserIsRemoved() {
+        // Given
+        val user = new User("carol", "secret", passwordEncoder);
+        index.put(user);
+
+        // When
+        user.setEnabled(false);
+        index.put(user);
+
+        // Then
+        assertTrue(index.match("carol", 10).isEmpty());
+        assertEquals(6, index.size());
+    }
+}
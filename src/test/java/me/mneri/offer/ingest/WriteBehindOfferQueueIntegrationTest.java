@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.dto.OfferStatusDto;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Integration tests for the {@code POST /offers} endpoint with the {@link WriteBehindOfferQueue} enabled.
+ * <p>
+ * The offers are written by the writer thread in their own transactions, so the test can't roll them back and
+ * cleans the repository up after each test.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "offer.ingest.write-behind.enabled=true")
+class WriteBehindOfferQueueIntegrationTest {
+    private static final String PATH = "/offers?user.id=%s";
+
+    private static final long TIMEOUT = 10_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WriteBehindOfferQueue writeBehindQueue;
+
+    @BeforeEach
+    private void beforeEach() {
+        objectMapper = new ObjectMapper();
+    }
+
+    @AfterEach
+    private void afterEach() {
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @SneakyThrows
+    private OfferStatusDto getStatus(String location) {
+        val response = mockMvc
+                .perform(get(location))
+                .andReturn()
+                .getResponse();
+
+        return objectMapper.readValue(response.getContentAsString(), OfferStatusDto.class);
+    }
+
+    /**
+     * Post an offer and check that it's accepted, then wait for it to be written.
+     */
+    @SneakyThrows
+    @Test
+    void givenOffer_whenPostOfferIsCalled_thenOfferIsAcceptedAndEventuallyWritten() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val request = TestUtil.createOfferRequest();
+
+        userRepository.save(publisher);
+
+        // When
+        val response = mockMvc
+                .perform(post(String.format(PATH, publisher.getId()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andReturn()
+                .getResponse();
+
+        // Then
+        val accepted = objectMapper.readValue(response.getContentAsString(), OfferStatusDto.class);
+        val location = response.getHeader(HttpHeaders.LOCATION);
+
+        assertEquals(HttpStatus.ACCEPTED.value(), response.getStatus());
+        assertNotNull(location);
+        assertTrue(location.endsWith("/offers/" + accepted.getId() + "/status"));
+
+        val deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (getStatus(location).getStatus() == OfferStatusDto.Status.PENDING) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        assertEquals(OfferStatusDto.Status.CREATED, getStatus(location).getStatus());
+
+        val offer = offerRepository.findById(accepted.getId()).orElseThrow(RuntimeException::new);
+        assertEquals(request.getTitle(), offer.getTitle());
+        assertEquals(request.getPrice(), offer.getPrice());
+    }
+
+    /**
+     * Check that an offer whose publisher doesn't exist anymore is reported as failed.
+     */
+    @SneakyThrows
+    @Test
+    void givenOfferWithUnsavedPublisher_whenOfferIsEnqueued_thenOfferEventuallyFails() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        // When
+        assertTrue(writeBehindQueue.enqueue(offer));
+
+        // Then
+        val deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (writeBehindQueue.statusOf(offer.getId()).orElse(null) == OfferStatusDto.Status.PENDING) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        assertEquals(OfferStatusDto.Status.FAILED, writeBehindQueue.statusOf(offer.getId()).orElse(null));
+        assertFalse(offerRepository.existsById(offer.getId()));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.mapping;
+
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test that the {@link GeneratedDtoMapper} produces, field for field, the same results as the
+ * {@link ModelMapperDtoMapper}.
+ *
+ * @author mneri
+ */
+class GeneratedDtoMapperTest {
+    private DtoMapper generated;
+
+    private DtoMapper reflective;
+
+    private User publisher;
+
+    @BeforeEach
+    void beforeEach() {
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+        generated = Mappers.getMapper(GeneratedDtoMapper.class);
+        reflective = new ModelMapperDtoMapper(new MappingConfiguration().modelMapper());
+        publisher = new User("user", "secret", passwordEncoder);
+    }
+
+    /**
+     * Assert that the two offers have the same state, id and creation time excluded.
+     *
+     * @param expected The expected offer.
+     * @param actual   The actual offer.
+     */
+    private static void assertSameRequestFields(Offer expected, Offer actual) {
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getCurrency(), actual.getCurrency());
+        assertEquals(expected.getTtl(), actual.getTtl());
+        assertEquals(expected.isCanceled(), actual.isCanceled());
+        assertEquals(expected.getPublisher(), actual.getPublisher());
+    }
+
+    @Test
+    void givenOffer_whenOfferIsMappedToOfferDto_thenResultIsEqualToModelMapper() {
+        // Given
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        // When
+        val dto = generated.toOfferDto(offer);
+
+        // Then
+        assertEquals(reflective.toOfferDto(offer), dto);
+        assertEquals(offer.getTtl(), dto.getTtl());
+    }
+
+    @Test
+    void givenOfferList_whenOfferListIsMappedToOfferDtoList_thenResultIsEqualToModelMapper() {
+        // Given
+        val offers = Arrays.asList(TestUtil.createNonExpiredOffer(publisher), TestUtil.createExpiredOffer(publisher));
+
+        // When
+        val dtos = generated.toOfferDtoList(offers);
+
+        // Then
+        assertEquals(reflective.toOfferDtoList(offers), dtos);
+    }
+
+    @Test
+    void givenUser_whenUserIsMappedToUserDto_thenResultIsEqualToModelMapper() {
+        // When
+        val dto = generated.toUserDto(publisher);
+
+        // Then
+        assertEquals(reflective.toUserDto(publisher), dto);
+        assertEquals(reflective.toUserDtoList(Arrays.asList(publisher)), generated.toUserDtoList(Arrays.asList(publisher)));
+    }
+
+    @Test
+    void givenOfferRequest_whenOfferRequestIsMappedToOffer_thenResultIsEqualToModelMapper() {
+        // Given
+        val request = TestUtil.createOfferRequest();
+
+        // When
+        val offer = generated.toOffer(request);
+
+        // Then
+        assertNotNull(offer.getId());
+        assertNull(offer.getPublisher());
+        assertSameRequestFields(reflective.toOffer(request), offer);
+    }
+
+    @Test
+    void givenOfferRequestAndOffer_whenOfferIsUpdated_thenResultIsEqualToModelMapper() {
+        // Given
+        val request = TestUtil.createOfferRequest();
+        val expected = TestUtil.createNonExpiredOffer(publisher);
+        val actual = expected.copy();
+
+        // When
+        reflective.updateOffer(request, expected);
+        generated.updateOffer(request, actual);
+
+        // Then
+        assertSameRequestFields(expected, actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getCreateTime(), actual.getCreateTime());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+    }
+}
@@ -31,6 +31,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * Tests for {@link Offer} to {@link OfferDto} mapping.
@@ -56,7 +57,7 @@ class OfferToOfferDtoMappingTest {
     }
 
     /**
-     * Test the correct initialization of all the fields after the mapping.
+     * Test the correct initialization of all the fields after the mapping. The publisher is left out.
      */
     @Test
     void givenOffer_whenOfferIsMappedToOfferDto_thenAllFieldsAreCorrectlyInitialized() {
@@ -74,5 +75,6 @@ class OfferToOfferDtoMappingTest {
         assertEquals(offer.getPrice(), dto.getPrice());
         assertEquals(offer.getCurrency(), dto.getCurrency());
         assertEquals(offer.getTtl(), dto.getTtl());
+        assertNull(dto.getPublisher());
     }
 }
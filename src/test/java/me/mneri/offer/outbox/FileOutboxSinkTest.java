@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.event.OfferChangeEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test the {@link FileOutboxSink} class.
+ *
+ * @author mneri
+ */
+class FileOutboxSinkTest {
+    @TempDir
+    Path directory;
+
+    private static ChangeRecord createRecord(long sequence) {
+        val change = new OfferChangeEvent(OfferChangeEvent.Type.CREATED, "offer-" + sequence, "Title", "Description",
+                new BigDecimal("9.99"), "EUR", 0, 1000, false, "user");
+        return new ChangeRecord(sequence, 0, change);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenBatches_whenPublishIsCalled_thenOneLinePerRecordIsAppended() {
+        // Given
+        val path = directory.resolve("outbox.jsonl");
+        val objectMapper = new ObjectMapper();
+
+        // When
+        try (val sink = new FileOutboxSink(path, objectMapper)) {
+            sink.publish(Arrays.asList(createRecord(1), createRecord(2)));
+            sink.publish(Collections.singletonList(createRecord(3)));
+        }
+
+        // Then
+        val lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+
+        assertEquals(3, lines.size());
+
+        for (int i = 0; i < lines.size(); i++) {
+            val node = objectMapper.readTree(lines.get(i));
+            assertEquals(i + 1, node.get("sequence").asLong());
+            assertEquals("offer-" + (i + 1), node.get("change").get("offerId").asText());
+        }
+    }
+}
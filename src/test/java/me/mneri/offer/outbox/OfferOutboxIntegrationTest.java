@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.outbox;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.event.OfferChangeEvent;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.OutboxRecordRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for the {@link OfferOutbox} class, delivering to the {@link InMemoryOutboxSink}.
+ * <p>
+ * The scheduled poller is pushed an hour away: the test polls by itself.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"offer.outbox.enabled=true", "offer.outbox.poll-interval=3600000"})
+class OfferOutboxIntegrationTest {
+    @Autowired
+    private OfferOutbox offerOutbox;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private OutboxRecordRepository outboxRecordRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private InMemoryOutboxSink sink;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    private void afterEach() {
+        sink.drainTo(new ArrayList<>(), Integer.MAX_VALUE);
+        outboxRecordRepository.deleteAll();
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenSavedAndUpdatedOffer_whenPollIsCalled_thenChangesArePublishedInOrderAndRemoved() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        offerService.save(offer);
+        offer.setCanceled(true);
+        offerService.update(offer, publisher.getId());
+
+        // When
+        offerOutbox.poll();
+
+        // Then
+        List<ChangeRecord> records = new ArrayList<>();
+        sink.drainTo(records, Integer.MAX_VALUE);
+
+        assertEquals(2, records.size());
+        assertEquals(OfferChangeEvent.Type.CREATED, records.get(0).getChange().getType());
+        assertEquals(OfferChangeEvent.Type.CANCELED, records.get(1).getChange().getType());
+        assertEquals(offer.getId(), records.get(1).getChange().getOfferId());
+        assertTrue(records.get(0).getSequence() < records.get(1).getSequence());
+        assertEquals(0, outboxRecordRepository.count());
+    }
+
+    @Test
+    void givenEmptyOutbox_whenPollIsCalled_thenNothingIsPublished() {
+        // When
+        offerOutbox.poll();
+
+        // Then
+        assertEquals(0, sink.size());
+    }
+}
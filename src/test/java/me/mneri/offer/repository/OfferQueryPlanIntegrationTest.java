@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.repository;
+
+import lombok.val;
+import me.mneri.offer.StatementCounter;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.service.OfferFilter;
+import me.mneri.offer.service.OfferService;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static me.mneri.offer.specification.OfferSpecification.offerUpdateTimeIsAfter;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Test that the queries on the {@link Offer}s are served by the expected indexes of the {@code offer} table.
+ * <p>
+ * The queries are the ones actually generated from the {@link OfferFilter}s: they are captured by
+ * {@link StatementCounter} and explained with null parameters, since H2 chooses the plan when the statement is
+ * prepared. Every filter is tried with every sort, in both directions: every index leads with {@code canceled}, so the
+ * sort never changes the plan and H2 picks the index with the narrowest range on the filter. The selectivities of the
+ * columns compared for equality are pinned to the H2 default, so that the plans don't depend on the statistics
+ * gathered while the other tests ran. The FX rates are read from {@code src/test/resources/fx-rates.properties}.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"offer.fx.enabled=true",
+                              "offer.fx.path=src/test/resources/fx-rates.properties",
+                              "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                                      + "me.mneri.offer.StatementCounter"})
+@Transactional
+class OfferQueryPlanIntegrationTest {
+    private static final String SELECTIVITY = "ALTER TABLE offer ALTER COLUMN %s SELECTIVITY 50";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @BeforeEach
+    private void beforeEach() {
+        for (String column : Arrays.asList("canceled", "currency")) {
+            entityManager.createNativeQuery(String.format(SELECTIVITY, column)).executeUpdate();
+        }
+    }
+
+    private static String lastQuery() {
+        List<String> queries = StatementCounter.statements();
+        assertFalse(queries.isEmpty());
+        return queries.get(queries.size() - 1);
+    }
+
+    private String explain(String sql) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                    statement.setObject(i, null);
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Explain the query generated from the specified filter with every sort, in both directions.
+     *
+     * @param builder The filter, without the sort.
+     * @return The plans.
+     */
+    private List<String> explainWithEverySort(OfferFilter.OfferFilterBuilder builder) {
+        List<String> plans = new ArrayList<>();
+
+        for (OfferFilter.Sort sort : OfferFilter.Sort.values()) {
+            for (boolean descending : Arrays.asList(false, true)) {
+                StatementCounter.reset();
+                offerService.findAllOpen(builder.sort(sort).descending(descending).size(10).build());
+
+                String query = lastQuery();
+                assertTrue(query.toLowerCase(Locale.ROOT).contains(" order by "), query);
+                plans.add(explain(query));
+            }
+        }
+
+        return plans;
+    }
+
+    private List<Executable> assertIndex(String index, OfferFilter.OfferFilterBuilder builder) {
+        List<Executable> assertions = new ArrayList<>();
+
+        for (String plan : explainWithEverySort(builder)) {
+            assertions.add(() -> assertTrue(plan.contains(index), plan));
+        }
+
+        return assertions;
+    }
+
+    @Test
+    void givenFiltersAndSorts_whenFindAllOpenIsCalled_thenNoTableScanIsPlanned() {
+        // Given
+        List<OfferFilter.OfferFilterBuilder> filters = Arrays.asList(
+                OfferFilter.builder(),
+                OfferFilter.builder().minPrice(BigDecimal.TEN),
+                OfferFilter.builder().maxPrice(BigDecimal.TEN),
+                OfferFilter.builder().minPrice(BigDecimal.ONE).maxPrice(BigDecimal.TEN),
+                OfferFilter.builder().currency("GBP"),
+                OfferFilter.builder().currency("GBP").minPrice(BigDecimal.ONE),
+                OfferFilter.builder().currency("GBP").maxPrice(BigDecimal.TEN),
+                OfferFilter.builder().currency("GBP").minPrice(BigDecimal.ONE).maxPrice(BigDecimal.TEN),
+                OfferFilter.builder().endingWithin(Duration.ofMinutes(30)),
+                OfferFilter.builder().priceCurrency("GBP"),
+                OfferFilter.builder().priceCurrency("GBP").minPrice(BigDecimal.ONE).maxPrice(BigDecimal.TEN));
+
+        // When
+        List<Executable> assertions = new ArrayList<>();
+
+        for (OfferFilter.OfferFilterBuilder filter : filters) {
+            for (String plan : explainWithEverySort(filter)) {
+                assertions.add(() -> assertFalse(plan.contains("tableScan"), plan));
+            }
+        }
+
+        // Then
+        assertAll(assertions);
+    }
+
+    @Test
+    void givenNoPriceBound_whenFindAllOpenIsCalled_thenEndTimeIndexIsRangeScanned() {
+        // Given
+        List<OfferFilter.OfferFilterBuilder> filters = Arrays.asList(
+                OfferFilter.builder(),
+                OfferFilter.builder().currency("GBP"),
+                OfferFilter.builder().endingWithin(Duration.ofMinutes(30)),
+                OfferFilter.builder().priceCurrency("GBP"));
+
+        // When
+        List<Executable> assertions = new ArrayList<>();
+
+        for (OfferFilter.OfferFilterBuilder filter : filters) {
+            assertions.addAll(assertIndex("OFFER_CANCELED_END_TIME", filter));
+        }
+
+        // Then
+        assertAll(assertions);
+    }
+
+    @Test
+    void givenMaxPrice_whenFindAllOpenIsCalled_thenPriceIndexIsRangeScanned() {
+        // Given
+        val filter = OfferFilter.builder().maxPrice(BigDecimal.TEN);
+
+        // When
+        val assertions = assertIndex("OFFER_CANCELED_PRICE", filter);
+
+        // Then
+        assertAll(assertions);
+    }
+
+    @Test
+    void givenCurrencyAndPriceRange_whenFindAllOpenIsCalled_thenCurrencyPriceIndexIsRangeScanned() {
+        // Given
+        val filter = OfferFilter.builder().currency("GBP").minPrice(BigDecimal.ONE).maxPrice(BigDecimal.TEN);
+
+        // When
+        val assertions = assertIndex("OFFER_CANCELED_CURRENCY_PRICE", filter);
+
+        // Then
+        assertAll(assertions);
+    }
+
+    @Test
+    void givenMaxPriceInCurrency_whenFindAllOpenIsCalled_thenNormalizedPriceIndexIsRangeScanned() {
+        // Given
+        val filter = OfferFilter.builder().priceCurrency("GBP").maxPrice(BigDecimal.TEN);
+
+        // When
+        val assertions = assertIndex("OFFER_CANCELED_NORMALIZED_PRICE", filter);
+
+        // Then
+        assertAll(assertions);
+    }
+
+    @Test
+    void givenUpdatedAfterQuery_whenFindAllIsCalled_thenUpdateTimeIndexIsRangeScanned() {
+        // Given
+        StatementCounter.reset();
+
+        // When
+        offerRepository.findAll(where(offerUpdateTimeIsAfter(new Date())));
+
+        // Then
+        val plan = explain(lastQuery());
+        assertTrue(plan.contains("OFFER_UPDATE_TIME"), plan);
+    }
+}
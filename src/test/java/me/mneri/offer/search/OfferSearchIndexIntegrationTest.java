@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.search;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for the {@link OfferSearchIndex} class.
+ * <p>
+ * The scheduled refresh is pushed an hour away: the test refreshes by itself.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"offer.search.enabled=true", "offer.search.refresh-interval=3600000"})
+class OfferSearchIndexIntegrationTest {
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferSearchIndex offerSearchIndex;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    private void afterEach() {
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+        offerSearchIndex.rebuild();
+    }
+
+    private static Offer createOffer(User publisher, String title, String description) {
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+        offer.setTitle(title);
+        offer.setDescription(description);
+        return offer;
+    }
+
+    @SneakyThrows
+    @Test
+    void givenSavedOffers_whenSearchIsCalled_thenMatchingOffersAreReturnedByRelevance() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val inDescription = createOffer(publisher, "Breakfast deal", "A croissant and a coffee");
+        val inTitle = createOffer(publisher, "Free coffee", "Buy one, get one free");
+        val unrelated = createOffer(publisher, "Chocolate", "Dark chocolate bar");
+
+        userRepository.save(publisher);
+        offerService.save(inDescription);
+        offerService.save(inTitle);
+        offerService.save(unrelated);
+
+        // When
+        offerSearchIndex.refresh();
+        val result = offerSearchIndex.search("coffees", 0, 10);
+
+        // Then
+        assertEquals(2, result.getTotalHits());
+        assertEquals(Arrays.asList(inTitle.getId(), inDescription.getId()), result.getIds());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenCanceledOffer_whenSearchIsCalled_thenOfferIsNotReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = createOffer(publisher, "Free coffee", "Buy one, get one free");
+
+        userRepository.save(publisher);
+        offerService.save(offer);
+        offer.setCanceled(true);
+        offerService.update(offer, publisher.getId());
+
+        // When
+        offerSearchIndex.refresh();
+        val result = offerSearchIndex.search("coffee", 0, 10);
+
+        // Then
+        assertEquals(0, result.getTotalHits());
+        assertTrue(result.getIds().isEmpty());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenManyMatchingOffers_whenSearchIsCalledWithAPage_thenOnlyThePageIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        userRepository.save(publisher);
+
+        for (int i = 0; i < 5; i++) {
+            offerService.save(createOffer(publisher, "Coffee " + i, "Coffee"));
+        }
+
+        // When
+        offerSearchIndex.refresh();
+        val first = offerSearchIndex.search("coffee", 0, 2);
+        val last = offerSearchIndex.search("coffee", 2, 2);
+
+        // Then
+        assertEquals(5, first.getTotalHits());
+        assertEquals(2, first.getIds().size());
+        assertEquals(1, last.getIds().size());
+        assertTrue(Collections.disjoint(first.getIds(), last.getIds()));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOfferSavedBypassingTheService_whenRebuildIsCalled_thenOfferIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = createOffer(publisher, "Free coffee", "Buy one, get one free");
+
+        userRepository.save(publisher);
+        offerRepository.save(offer);
+
+        // When
+        val documents = offerSearchIndex.rebuild();
+        val result = offerSearchIndex.search("coffee", 0, 10);
+
+        // Then
+        assertEquals(1, documents);
+        assertEquals(Collections.singletonList(offer.getId()), result.getIds());
+    }
+
+    @Test
+    void givenLastPossiblePage_whenSearchIsCalled_thenPageIsRejected() {
+        // When/Then
+        assertThrows(IllegalArgumentException.class, () -> offerSearchIndex.search("offer", Integer.MAX_VALUE, 10));
+    }
+}
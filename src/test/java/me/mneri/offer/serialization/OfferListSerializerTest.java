@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.mapping.MappingConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test that {@link OfferList}s are written exactly as the equivalent list of {@link me.mneri.offer.dto.OfferDto}s.
+ *
+ * @author mneri
+ */
+class OfferListSerializerTest {
+    private ObjectMapper objectMapper;
+
+    private User publisher;
+
+    @BeforeEach
+    void beforeEach() {
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+        objectMapper = new ObjectMapper();
+        publisher = new User("user", "secret", passwordEncoder);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenEmptyOfferList_whenOfferListIsSerialized_thenResultIsEmptyArray() {
+        // Given
+        val offers = new OfferList(Collections.emptyList());
+
+        // When
+        val json = objectMapper.writeValueAsString(offers);
+
+        // Then
+        assertEquals("[]", json);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOfferList_whenOfferListIsSerialized_thenResultIsEqualToOfferDtoList() {
+        // Given
+        val offers = Arrays.asList(TestUtil.createNonExpiredOffer(publisher), TestUtil.createExpiredOffer(publisher));
+        val dtos = new MappingConfiguration().generatedDtoMapper().toOfferDtoList(offers);
+
+        // When
+        val json = objectMapper.writeValueAsString(new OfferList(offers));
+
+        // Then
+        assertEquals(objectMapper.writeValueAsString(dtos), json);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOfferListWithPublishers_whenOfferListIsSerialized_thenResultIsEqualToExpandedOfferDtoList() {
+        // Given
+        val mapper = new MappingConfiguration().generatedDtoMapper();
+        val offers = Arrays.asList(TestUtil.createNonExpiredOffer(publisher), TestUtil.createExpiredOffer(publisher));
+        val user = mapper.toUserDto(publisher);
+        val dtos = mapper.toOfferDtoList(offers);
+
+        dtos.forEach(dto -> dto.setPublisher(user));
+
+        // When
+        val json = objectMapper.writeValueAsString(new OfferList(offers, Collections.singletonMap(user.getId(), user)));
+
+        // Then
+        assertEquals(objectMapper.writeValueAsString(dtos), json);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenNonUtcTimeZone_whenOfferListIsSerialized_thenResultIsEqualToOfferDtoList() {
+        // Given
+        val offers = Collections.singletonList(TestUtil.createNonExpiredOffer(publisher));
+        val dtos = new MappingConfiguration().generatedDtoMapper().toOfferDtoList(offers);
+        objectMapper.setTimeZone(TimeZone.getTimeZone("Europe/Rome"));
+
+        // When
+        val json = objectMapper.writeValueAsString(new OfferList(offers));
+
+        // Then
+        assertEquals(objectMapper.writeValueAsString(dtos), json);
+    }
+
+    @Test
+    void givenRandomTimestamps_whenTimestampsAreFormatted_thenResultIsEqualToSimpleDateFormat() {
+        // Given
+        val random = new Random(42);
+        val format = new SimpleDateFormat(TimestampFormat.PATTERN);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        val buffer = new char[TimestampFormat.LENGTH];
+
+        for (int i = 0; i < 100_000; i++) {
+            long millis = random.nextLong() % 250_000_000_000_000L;
+
+            // When
+            boolean formatted = TimestampFormat.format(millis, buffer);
+
+            // Then
+            if (formatted) {
+                assertEquals(format.format(new Date(millis)), new String(buffer));
+            }
+        }
+    }
+
+    @Test
+    void givenTimestampBeforeGregorianCalendar_whenTimestampIsFormatted_thenItIsNotFormatted() {
+        // Given
+        val millis = -12_219_292_800_001L; // 1582-10-14 23:59:59.999
+
+        // When
+        val formatted = TimestampFormat.format(millis, new char[TimestampFormat.LENGTH]);
+
+        // Then
+        assertFalse(formatted);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.dto.OfferRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the {@link OfferRequestHttpMessageConverter} class.
+ *
+ * @author mneri
+ */
+class OfferRequestHttpMessageConverterTest {
+    @SneakyThrows
+    private static OfferRequest roundTrip(OfferRequestHttpMessageConverter converter, OfferRequest request) {
+        val output = new MockHttpOutputMessage();
+        converter.write(request, null, output);
+        return converter.read(OfferRequest.class, new MockHttpInputMessage(output.getBodyAsBytes()));
+    }
+
+    @Test
+    void givenOfferRequest_whenRequestIsWrittenAndReadAsJson_thenResultIsEqual() {
+        // Given
+        val converter = new OfferRequestHttpMessageConverter(new ObjectMapper().getFactory(),
+                                                             MediaType.APPLICATION_JSON);
+        val request = TestUtil.createOfferRequest();
+
+        // When
+        val result = roundTrip(converter, request);
+
+        // Then
+        assertEquals(request, result);
+    }
+
+    @Test
+    void givenOfferRequest_whenRequestIsWrittenAndReadAsCbor_thenResultIsEqual() {
+        // Given
+        val converter = new OfferRequestHttpMessageConverter(new CBORFactory(), MediaTypes.APPLICATION_CBOR);
+        val request = TestUtil.createOfferRequest();
+
+        // When
+        val result = roundTrip(converter, request);
+
+        // Then
+        assertEquals(request, result);
+    }
+
+    @Test
+    void givenTooLongCurrency_whenRequestIsRead_thenRequestIsNotReadable() {
+        // Given
+        val converter = new OfferRequestHttpMessageConverter(new ObjectMapper().getFactory(),
+                                                             MediaType.APPLICATION_JSON);
+        val body = "{\"currency\":\"EURO\"}".getBytes(StandardCharsets.UTF_8);
+
+        // When/Then
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(OfferRequest.class, new MockHttpInputMessage(body)));
+    }
+}
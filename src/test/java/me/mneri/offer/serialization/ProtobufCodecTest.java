@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.serialization;
+
+import com.google.protobuf.CodedOutputStream;
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.dto.UserDto;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.mapping.MappingConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test that the DTOs survive a round trip through {@link ProtobufCodec}.
+ *
+ * @author mneri
+ */
+class ProtobufCodecTest {
+    private User publisher;
+
+    @BeforeEach
+    void beforeEach() {
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        publisher = new User("user", "secret", passwordEncoder);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOfferList_whenOfferListIsWrittenAndRead_thenResultIsEqual() {
+        // Given
+        val offers = Arrays.asList(TestUtil.createNonExpiredOffer(publisher), TestUtil.createExpiredOffer(publisher));
+        val dtos = new MappingConfiguration().generatedDtoMapper().toOfferDtoList(offers);
+        val output = new ByteArrayOutputStream();
+
+        // When
+        ProtobufCodec.writeOffers(dtos, output);
+        val result = ProtobufCodec.readOffers(new ByteArrayInputStream(output.toByteArray()));
+
+        // Then
+        assertEquals(dtos, result);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOfferEntityList_whenOfferListIsWritten_thenResultIsEqualToOfferDtoList() {
+        // Given
+        val offers = Arrays.asList(TestUtil.createNonExpiredOffer(publisher), TestUtil.createExpiredOffer(publisher));
+        val dtos = new MappingConfiguration().generatedDtoMapper().toOfferDtoList(offers);
+        val entityOutput = new ByteArrayOutputStream();
+        val dtoOutput = new ByteArrayOutputStream();
+
+        // When
+        ProtobufCodec.writeOfferEntities(offers, entityOutput);
+        ProtobufCodec.writeOffers(dtos, dtoOutput);
+
+        // Then
+        assertArrayEquals(dtoOutput.toByteArray(), entityOutput.toByteArray());
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOfferEntityListWithPublishers_whenOfferListIsWrittenAndRead_thenPublishersAreEmbedded() {
+        // Given
+        val mapper = new MappingConfiguration().generatedDtoMapper();
+        val offers = Arrays.asList(TestUtil.createNonExpiredOffer(publisher), TestUtil.createExpiredOffer(publisher));
+        val user = mapper.toUserDto(publisher);
+        val dtos = mapper.toOfferDtoList(offers);
+        val output = new ByteArrayOutputStream();
+
+        dtos.forEach(dto -> dto.setPublisher(user));
+
+        // When
+        ProtobufCodec.writeOfferEntities(new OfferList(offers, Collections.singletonMap(user.getId(), user)), output);
+        val result = ProtobufCodec.readOffers(new ByteArrayInputStream(output.toByteArray()));
+
+        // Then
+        assertEquals(dtos, result);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenOfferRequest_whenOfferRequestIsWrittenAndRead_thenResultIsEqual() {
+        // Given
+        val request = TestUtil.createOfferRequest();
+        val output = new ByteArrayOutputStream();
+
+        // When
+        ProtobufCodec.writeOfferRequest(request, output);
+        val result = ProtobufCodec.readOfferRequest(new ByteArrayInputStream(output.toByteArray()));
+
+        // Then
+        assertEquals(request, result);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenUser_whenUserIsWrittenAndRead_thenResultIsEqual() {
+        // Given
+        val user = new MappingConfiguration().generatedDtoMapper().toUserDto(publisher);
+        val output = new ByteArrayOutputStream();
+
+        // When
+        ProtobufCodec.writeUser(user, output);
+        val result = ProtobufCodec.readUser(new ByteArrayInputStream(output.toByteArray()));
+
+        // Then
+        assertEquals(user, result);
+    }
+
+    @SneakyThrows
+    @Test
+    void givenEmptyUserList_whenUserListIsWrittenAndRead_thenResultIsEmpty() {
+        // Given
+        val output = new ByteArrayOutputStream();
+
+        // When
+        ProtobufCodec.writeUsers(Collections.<UserDto>emptyList(), output);
+        val result = ProtobufCodec.readUsers(new ByteArrayInputStream(output.toByteArray()));
+
+        // Then
+        assertEquals(0, output.size());
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void givenTruncatedMessage_whenOfferListIsRead_thenIOExceptionIsThrown() throws IOException {
+        // Given
+        val dtos = new MappingConfiguration().generatedDtoMapper()
+                .toOfferDtoList(Collections.singletonList(TestUtil.createNonExpiredOffer(publisher)));
+        val output = new ByteArrayOutputStream();
+        ProtobufCodec.writeOffers(dtos, output);
+        val truncated = Arrays.copyOf(output.toByteArray(), output.size() - 4);
+
+        // Then
+        assertThrows(IOException.class, () -> ProtobufCodec.readOffers(new ByteArrayInputStream(truncated)));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenFieldWithUnexpectedWireType_whenOfferIsRead_thenFieldIsSkipped() {
+        // Given
+        val output = new ByteArrayOutputStream();
+        val coded = CodedOutputStream.newInstance(output);
+        coded.writeString(1, "id");
+        coded.writeString(7, "not a number");
+        coded.writeInt64(6, 1000L);
+        coded.flush();
+
+        // When
+        val result = ProtobufCodec.readOffer(new ByteArrayInputStream(output.toByteArray()));
+
+        // Then
+        assertEquals("id", result.getId());
+        assertEquals(1000L, result.getCreateTime().getTime());
+        assertEquals(0L, result.getTtl());
+    }
+}
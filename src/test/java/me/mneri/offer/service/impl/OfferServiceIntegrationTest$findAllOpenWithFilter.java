@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.service.impl;
+
+import lombok.val;
+import me.mneri.offer.entity.Offer;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.service.OfferFilter;
+import me.mneri.offer.service.OfferService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test the {@link OfferService#findAllOpen(OfferFilter)} method.<br/>
+ * We test 2 different cases:
+ * <ul>
+ *     <li>Repository containing open and closed offers ending at different times, filtered by end time;</li>
+ *     <li>Repository containing offers with different prices and currencies, filtered, sorted and paged.</li>
+ * </ul>
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+@Transactional
+class OfferServiceIntegrationTest$findAllOpenWithFilter {
+    private static final long MINUTE = 60 * 1000L;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private static Offer createOffer(User publisher, long ttl, String price, String currency) {
+        return Offer.builder()
+                .title("Bazinga")
+                .description("Awesome")
+                .price(new BigDecimal(price))
+                .currency(currency)
+                .ttl(ttl)
+                .publisher(publisher)
+                .build();
+    }
+
+    @BeforeEach
+    void init() {
+        passwordEncoder = new BCryptPasswordEncoder();
+    }
+
+    /**
+     * Test the method {@link OfferService#findAllOpen(OfferFilter)} with {@code endingWithin}: only the open offers
+     * ending within the duration are returned, the soonest first.
+     */
+    @Test
+    void givenOffersEndingAtDifferentTimes_whenFindAllOpenIsCalledWithEndingWithin_thenEndingOffersAreReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val in20Minutes = createOffer(publisher, 20 * MINUTE, "1.00", "GBP");
+        val in10Minutes = createOffer(publisher, 10 * MINUTE, "1.00", "GBP");
+        val inAnHour = createOffer(publisher, 60 * MINUTE, "1.00", "GBP");
+        val canceled = createOffer(publisher, 5 * MINUTE, "1.00", "GBP");
+        val expired = createOffer(publisher, 0, "1.00", "GBP");
+        canceled.setCanceled(true);
+
+        userRepository.save(publisher);
+        offerRepository.saveAll(Arrays.asList(in20Minutes, in10Minutes, inAnHour, canceled, expired));
+
+        // When
+        val filter = OfferFilter.builder()
+                .endingWithin(Duration.ofMinutes(30))
+                .size(10)
+                .build();
+        val returned = offerService.findAllOpen(filter);
+
+        // Then
+        assertEquals(Arrays.asList(in10Minutes, in20Minutes), returned.getContent());
+    }
+
+    /**
+     * Test the method {@link OfferService#findAllOpen(OfferFilter)} with price, currency, sort and page.
+     */
+    @Test
+    void givenOffersWithDifferentPrices_whenFindAllOpenIsCalledWithPriceAndCurrency_thenPageIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val cheap = createOffer(publisher, 60 * MINUTE, "5.00", "GBP");
+        val medium = createOffer(publisher, 60 * MINUTE, "20.00", "GBP");
+        val expensive = createOffer(publisher, 60 * MINUTE, "50.00", "GBP");
+        val tooExpensive = createOffer(publisher, 60 * MINUTE, "500.00", "GBP");
+        val euro = createOffer(publisher, 60 * MINUTE, "20.00", "EUR");
+
+        userRepository.save(publisher);
+        offerRepository.saveAll(Arrays.asList(cheap, medium, expensive, tooExpensive, euro));
+
+        // When
+        val filter = OfferFilter.builder()
+                .currency("GBP")
+                .minPrice(new BigDecimal("10.00"))
+                .maxPrice(new BigDecimal("100.00"))
+                .sort(OfferFilter.Sort.PRICE)
+                .descending(true)
+                .page(1)
+                .size(1)
+                .build();
+        val returned = offerService.findAllOpen(filter);
+
+        // Then
+        assertEquals(2, returned.getTotalElements());
+        assertEquals(Collections.singletonList(medium), returned.getContent());
+    }
+}
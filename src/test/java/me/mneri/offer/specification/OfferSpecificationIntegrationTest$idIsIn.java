@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.specification;
+
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static me.mneri.offer.specification.OfferSpecification.offerIdIsIn;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Test the {@link OfferSpecification#offerIdIsIn(java.util.Collection)} specification.<br/>
+ * We test 2 different cases:
+ * <ul>
+ *     <li>Repository containing some of the specified offers;</li>
+ *     <li>Repository containing none of the specified offers.</li>
+ * </ul>
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+@ExtendWith(SpringExtension.class)
+class OfferSpecificationIntegrationTest$idIsIn {
+    @Autowired
+    private OfferRepository offerRepository;
+
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        passwordEncoder = new BCryptPasswordEncoder();
+    }
+
+    /**
+     * Test the SQL predicate {@code offer.id IN (...)} against a repository containing some of the specified offers.
+     */
+    @Test
+    void givenOffers_whenFindAll$idIsInIsCalled_thenOnlySpecifiedOffersAreReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer1 = TestUtil.createNonExpiredOffer(publisher);
+        val offer2 = TestUtil.createNonExpiredOffer(publisher);
+        val offer3 = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        offerRepository.saveAll(Arrays.asList(offer1, offer2, offer3));
+
+        // When
+        val returned = offerRepository.findAll(where(offerIdIsIn(Arrays.asList(offer1.getId(), offer3.getId(),
+                UUID.randomUUID().toString()))));
+
+        // Then
+        assertEquals(2, returned.size());
+        assertTrue(returned.contains(offer1));
+        assertTrue(returned.contains(offer3));
+    }
+
+    /**
+     * Test the SQL predicate {@code offer.id IN (...)} against a repository containing none of the specified offers.
+     */
+    @Test
+    void givenOffer_whenFindAll$idIsInIsCalledWithOtherIds_thenNoOfferIsReturned() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        offerRepository.save(offer);
+
+        // When
+        val returned = offerRepository.findAll(where(offerIdIsIn(Arrays.asList(UUID.randomUUID().toString(),
+                UUID.randomUUID().toString()))));
+
+        // Then
+        assertTrue(returned.isEmpty());
+    }
+}
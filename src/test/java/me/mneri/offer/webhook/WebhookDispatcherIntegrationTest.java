@@ -0,0 +1,211 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.webhook;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.TestUtil;
+import me.mneri.offer.entity.User;
+import me.mneri.offer.repository.OfferRepository;
+import me.mneri.offer.repository.UserRepository;
+import me.mneri.offer.repository.WebhookDeliveryRepository;
+import me.mneri.offer.repository.WebhookRepository;
+import me.mneri.offer.service.OfferService;
+import me.mneri.offer.service.WebhookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.StreamUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for the {@link WebhookDispatcher} class, delivering to a stub HTTP server listening on a local
+ * port.
+ * <p>
+ * The scheduled flush is pushed an hour away and the backoff is shrunk to a millisecond: the test flushes by itself
+ * until the stub server has seen what it expects.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"offer.webhook.enabled=true",
+                              "offer.webhook.batch-window=3600000",
+                              "offer.webhook.retry.initial-backoff=1",
+                              "offer.webhook.retry.max-backoff=1"})
+class WebhookDispatcherIntegrationTest {
+    private static final long TIMEOUT = 10_000;
+
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+
+    private final List<String> deliveryIds = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private HttpServer server;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WebhookDeliveryRepository webhookDeliveryRepository;
+
+    @Autowired
+    private WebhookDispatcher webhookDispatcher;
+
+    @Autowired
+    private WebhookRepository webhookRepository;
+
+    @Autowired
+    private WebhookService webhookService;
+
+    @AfterEach
+    private void afterEach() {
+        server.stop(0);
+        webhookDeliveryRepository.deleteAll();
+        webhookRepository.deleteAll();
+        offerRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @SneakyThrows
+    @BeforeEach
+    private void beforeEach() {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hook", exchange -> {
+            String body = StreamUtils.copyToString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+            deliveryIds.add(exchange.getRequestHeaders().getFirst(WebhookDispatcher.DELIVERY_HEADER));
+
+            if (failures.getAndDecrement() > 0) {
+                exchange.sendResponseHeaders(500, -1);
+            } else {
+                bodies.add(body);
+                exchange.sendResponseHeaders(204, -1);
+            }
+
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @SneakyThrows
+    private void flushUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the webhook");
+            webhookDispatcher.flush();
+            Thread.sleep(10);
+        }
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/hook";
+    }
+
+    @SneakyThrows
+    @Test
+    void givenCanceledOffers_whenFlushIsCalled_thenChangesAreDeliveredInOneBatch() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val first = TestUtil.createNonExpiredOffer(publisher);
+        val second = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        webhookService.register(publisher.getId(), url());
+        offerService.save(first);
+        offerService.save(second);
+
+        // When
+        first.setCanceled(true);
+        offerService.update(first, publisher.getId());
+        second.setCanceled(true);
+        offerService.update(second, publisher.getId());
+        flushUntil(() -> !bodies.isEmpty() && webhookDeliveryRepository.count() == 0);
+
+        // Then
+        assertEquals(1, bodies.size());
+        assertTrue(bodies.get(0).contains(first.getId()));
+        assertTrue(bodies.get(0).contains(second.getId()));
+        assertTrue(bodies.get(0).contains("CANCELED"));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenFailingWebhook_whenFlushIsCalled_thenDeliveryIsRetriedWithTheSameId() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        webhookService.register(publisher.getId(), url());
+        offerService.save(offer);
+        failures.set(2);
+
+        // When
+        offer.setCanceled(true);
+        offerService.update(offer, publisher.getId());
+        flushUntil(() -> !bodies.isEmpty() && webhookDeliveryRepository.count() == 0);
+
+        // Then
+        assertEquals(3, deliveryIds.size());
+        assertEquals(1, deliveryIds.stream().distinct().count());
+        assertTrue(bodies.get(0).contains(offer.getId()));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenCreatedOffer_whenFlushIsCalled_thenNothingIsDelivered() {
+        // Given
+        val publisher = new User("user", "secret", passwordEncoder);
+        val offer = TestUtil.createNonExpiredOffer(publisher);
+
+        userRepository.save(publisher);
+        webhookService.register(publisher.getId(), url());
+
+        // When
+        offerService.save(offer);
+        webhookDispatcher.flush();
+
+        // Then
+        assertEquals(0, webhookDeliveryRepository.count());
+        assertTrue(deliveryIds.isEmpty());
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.websocket;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import me.mneri.offer.event.OfferChangeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the {@link OfferWebSocketHandler} class.
+ * <p>
+ * The sessions are mocks recording the messages they are sent. Messages are sent by the sender threads of the handler,
+ * so the tests wait for the expected message and then check that nothing unexpected was received before it: the
+ * messages of a session are sent in order.
+ *
+ * @author mneri
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = "offer.websocket.max-subscriptions=2")
+class OfferWebSocketHandlerTest {
+    private static final long TIMEOUT = 10_000;
+
+    @Autowired
+    private OfferWebSocketHandler handler;
+
+    private final List<WebSocketSession> sessions = new ArrayList<>();
+
+    private static OfferChangeEvent createEvent(String publisherId, String currency) {
+        return new OfferChangeEvent(OfferChangeEvent.Type.CREATED, UUID.randomUUID().toString(), "Title",
+                "Description", new BigDecimal("9.99"), currency, 0, Long.MAX_VALUE, false, publisherId);
+    }
+
+    @SneakyThrows
+    private static String awaitMessage(List<String> messages, String expected) {
+        val deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (messages.stream().noneMatch(message -> message.contains(expected))) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        return String.join("\n", messages);
+    }
+
+    @SneakyThrows
+    private List<String> connect(WebSocketSession session) {
+        val messages = new CopyOnWriteArrayList<String>();
+
+        when(session.getId()).thenReturn(UUID.randomUUID().toString());
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> messages.add(invocation.<TextMessage>getArgument(0).getPayload()))
+                .when(session).sendMessage(any());
+
+        handler.afterConnectionEstablished(session);
+        sessions.add(session);
+
+        return messages;
+    }
+
+    @SneakyThrows
+    private void send(WebSocketSession session, String message) {
+        handler.handleMessage(session, new TextMessage(message));
+    }
+
+    @AfterEach
+    void afterEach() {
+        sessions.forEach(session -> handler.afterConnectionClosed(session, CloseStatus.NORMAL));
+        sessions.clear();
+    }
+
+    @SneakyThrows
+    @Test
+    void givenSubscriptionWithNullSets_whenOfferChanges_thenChangeIsSent() {
+        // Given
+        val session = mock(WebSocketSession.class);
+        val messages = connect(session);
+        val event = createEvent("alice", "EUR");
+
+        send(session, "{\"action\": \"SUBSCRIBE\", \"id\": \"all\", \"publisherIds\": null, \"currencies\": null}");
+
+        // When
+        handler.onOfferChange(event);
+
+        // Then
+        val received = awaitMessage(messages, event.getOfferId());
+        assertTrue(received.contains("\"subscriptions\":[\"all\"]"));
+        assertFalse(received.contains("error"));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenSessionsWithDifferentFilters_whenOfferChanges_thenOnlyMatchingSessionsReceiveIt() {
+        // Given
+        val byPublisher = mock(WebSocketSession.class);
+        val byCurrency = mock(WebSocketSession.class);
+        val byOtherCurrency = mock(WebSocketSession.class);
+        val byPublisherMessages = connect(byPublisher);
+        val byCurrencyMessages = connect(byCurrency);
+        val byOtherCurrencyMessages = connect(byOtherCurrency);
+        val euro = createEvent("alice", "EUR");
+        val dollar = createEvent("bob", "USD");
+
+        send(byPublisher, "{\"action\": \"SUBSCRIBE\", \"id\": \"alice\", \"publisherIds\": [\"alice\"]}");
+        send(byCurrency, "{\"action\": \"SUBSCRIBE\", \"id\": \"euro\", \"currencies\": [\"EUR\"]}");
+        send(byOtherCurrency, "{\"action\": \"SUBSCRIBE\", \"id\": \"dollar\", \"currencies\": [\"USD\"]}");
+
+        // When
+        handler.onOfferChange(euro);
+        handler.onOfferChange(dollar);
+
+        // Then
+        assertTrue(awaitMessage(byPublisherMessages, euro.getOfferId()).contains("\"alice\""));
+        assertTrue(awaitMessage(byCurrencyMessages, euro.getOfferId()).contains("\"euro\""));
+        assertFalse(awaitMessage(byOtherCurrencyMessages, dollar.getOfferId()).contains(euro.getOfferId()));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenUnsubscribedSubscription_whenOfferChanges_thenChangeIsNotSent() {
+        // Given
+        val session = mock(WebSocketSession.class);
+        val messages = connect(session);
+        val euro = createEvent("alice", "EUR");
+        val dollar = createEvent("alice", "USD");
+
+        send(session, "{\"action\": \"SUBSCRIBE\", \"id\": \"euro\", \"currencies\": [\"EUR\"]}");
+        send(session, "{\"action\": \"SUBSCRIBE\", \"id\": \"dollar\", \"currencies\": [\"USD\"]}");
+        send(session, "{\"action\": \"UNSUBSCRIBE\", \"id\": \"euro\"}");
+
+        // When
+        handler.onOfferChange(euro);
+        handler.onOfferChange(dollar);
+
+        // Then
+        assertFalse(awaitMessage(messages, dollar.getOfferId()).contains(euro.getOfferId()));
+    }
+
+    @SneakyThrows
+    @Test
+    void givenTooManySubscriptions_whenSubscribeIsSent_thenErrorIsSent() {
+        // Given
+        val session = mock(WebSocketSession.class);
+        val messages = connect(session);
+        val event = createEvent("alice", "GBP");
+
+        send(session, "{\"action\": \"SUBSCRIBE\", \"id\": \"first\"}");
+        send(session, "{\"action\": \"SUBSCRIBE\", \"id\": \"second\"}");
+
+        // When
+        send(session, "{\"action\": \"SUBSCRIBE\", \"id\": \"third\", \"currencies\": [\"GBP\"]}");
+        send(session, "{\"action\": \"SUBSCRIBE\", \"id\": \"first\", \"currencies\": [\"GBP\"]}");
+        handler.onOfferChange(event);
+
+        // Then
+        val received = awaitMessage(messages, event.getOfferId());
+        assertTrue(received.contains("Too many subscriptions."));
+        assertTrue(received.contains("\"first\""));
+        assertFalse(received.contains("\"third\""));
+    }
+}
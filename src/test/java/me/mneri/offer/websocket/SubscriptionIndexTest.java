@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Massimo Neri <hello@mneri.me>
+ *
+ * This file is part of mneri/offer-service.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.mneri.offer.websocket;
+
+import lombok.val;
+import me.mneri.offer.event.OfferChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the {@link SubscriptionIndex} class.
+ *
+ * @author mneri
+ */
+class SubscriptionIndexTest {
+    private static OfferChangeEvent createEvent(String publisherId, String currency, String price) {
+        return new OfferChangeEvent(OfferChangeEvent.Type.CREATED, "offer", "Title", "Description",
+                new BigDecimal(price), currency, 0, Long.MAX_VALUE, false, publisherId);
+    }
+
+    private static Subscription createSubscription(String id, String publisherId, String currency, String minPrice,
+                                                   String maxPrice) {
+        return new Subscription("session", id,
+                publisherId == null ? Collections.emptySet() : Collections.singleton(publisherId),
+                currency == null ? Collections.emptySet() : Collections.singleton(currency),
+                minPrice == null ? null : new BigDecimal(minPrice),
+                maxPrice == null ? null : new BigDecimal(maxPrice));
+    }
+
+    @Test
+    void givenSubscriptions_whenMatchIsCalled_thenOnlyMatchingSubscriptionsAreReturned() {
+        // Given
+        val index = new SubscriptionIndex();
+        val byPublisher = createSubscription("publisher", "alice", null, null, null);
+        val byOtherPublisher = createSubscription("other-publisher", "bob", null, null, null);
+        val byCurrency = createSubscription("currency", null, "EUR", null, null);
+        val byCurrencyAndPrice = createSubscription("currency-price", null, "EUR", "1.00", "5.00");
+        val byPrice = createSubscription("price", null, null, "10.00", null);
+        val all = createSubscription("all", null, null, null, null);
+
+        Arrays.asList(byPublisher, byOtherPublisher, byCurrency, byCurrencyAndPrice, byPrice, all)
+                .forEach(index::add);
+
+        // When
+        val matched = index.match(createEvent("alice", "EUR", "9.99"));
+
+        // Then
+        assertEquals(new HashSet<>(Arrays.asList(byPublisher, byCurrency, all)), matched);
+    }
+
+    @Test
+    void givenSubscriptionWithPublisherAndCurrency_whenMatchIsCalled_thenBothConstraintsAreChecked() {
+        // Given
+        val index = new SubscriptionIndex();
+        val subscription = createSubscription("both", "alice", "EUR", null, null);
+
+        index.add(subscription);
+
+        // When
+        val sameCurrency = index.match(createEvent("alice", "EUR", "1.00"));
+        val otherCurrency = index.match(createEvent("alice", "USD", "1.00"));
+
+        // Then
+        assertEquals(Collections.singleton(subscription), sameCurrency);
+        assertTrue(otherCurrency.isEmpty());
+    }
+
+    @Test
+    void givenRemovedSubscription_whenMatchIsCalled_thenSubscriptionIsNotReturned() {
+        // Given
+        val index = new SubscriptionIndex();
+        val subscription = createSubscription("publisher", "alice", null, null, null);
+
+        index.add(subscription);
+        index.remove(subscription);
+
+        // When
+        val matched = index.match(createEvent("alice", "EUR", "1.00"));
+
+        // Then
+        assertTrue(matched.isEmpty());
+    }
+}